@@ -0,0 +1,82 @@
+/**
+ * Copyright 2005-2011 Noelios Technologies.
+ * 
+ * The contents of this file are subject to the terms of one of the following
+ * open source licenses: LGPL 3.0 or LGPL 2.1 or CDDL 1.0 or EPL 1.0 (the
+ * "Licenses"). You can select the license that you prefer but you may not use
+ * this file except in compliance with one of these Licenses.
+ * 
+ * You can obtain a copy of the LGPL 3.0 license at
+ * http://www.opensource.org/licenses/lgpl-3.0.html
+ * 
+ * You can obtain a copy of the LGPL 2.1 license at
+ * http://www.opensource.org/licenses/lgpl-2.1.php
+ * 
+ * You can obtain a copy of the CDDL 1.0 license at
+ * http://www.opensource.org/licenses/cddl1.php
+ * 
+ * You can obtain a copy of the EPL 1.0 license at
+ * http://www.opensource.org/licenses/eclipse-1.0.php
+ * 
+ * See the Licenses for the specific language governing permissions and
+ * limitations under the Licenses.
+ * 
+ * Alternatively, you can obtain a royalty free commercial license with less
+ * limitations, transferable or non-transferable, directly at
+ * http://www.noelios.com/products/restlet-engine
+ * 
+ * Restlet is a registered trademark of Noelios Technologies.
+ */
+
+package org.restlet.bench;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs the benchmarks of this module and writes the results in JSON format,
+ * so that successive runs can be compared by tools. The first argument is the
+ * path of the result file, "target/jmh-result.json" by default. The following
+ * arguments are regular expressions selecting the benchmarks to run, all of
+ * them by default. The GC profiler is enabled, so that the results also
+ * report the bytes allocated per operation ("gc.alloc.rate.norm").<br>
+ * <br>
+ * Example: java -jar target/benchmarks.jar result.json Routing Conneg
+ * 
+ * @author Jerome Louvel
+ */
+public class BenchmarkRunner {
+
+    /** The default path of the result file. */
+    public static final String DEFAULT_RESULT = "target/jmh-result.json";
+
+    /**
+     * Main method.
+     * 
+     * @param args
+     *            The result file path followed by the benchmark patterns.
+     * @throws RunnerException
+     */
+    public static void main(String[] args) throws RunnerException {
+        ChainedOptionsBuilder options = new OptionsBuilder();
+        options.result((args.length > 0) ? args[0] : DEFAULT_RESULT);
+        options.resultFormat(ResultFormatType.JSON);
+        options.addProfiler(GCProfiler.class);
+
+        if (args.length > 1) {
+            for (int i = 1; i < args.length; i++) {
+                options.include(args[i]);
+            }
+        } else {
+            options.include(BenchmarkRunner.class.getPackage().getName()
+                    + ".*Benchmark");
+        }
+
+        new Runner(options.build()).run();
+    }
+
+}
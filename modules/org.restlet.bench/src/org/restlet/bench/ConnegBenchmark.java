@@ -0,0 +1,129 @@
+/**
+ * Copyright 2005-2011 Noelios Technologies.
+ * 
+ * The contents of this file are subject to the terms of one of the following
+ * open source licenses: LGPL 3.0 or LGPL 2.1 or CDDL 1.0 or EPL 1.0 (the
+ * "Licenses"). You can select the license that you prefer but you may not use
+ * this file except in compliance with one of these Licenses.
+ * 
+ * You can obtain a copy of the LGPL 3.0 license at
+ * http://www.opensource.org/licenses/lgpl-3.0.html
+ * 
+ * You can obtain a copy of the LGPL 2.1 license at
+ * http://www.opensource.org/licenses/lgpl-2.1.php
+ * 
+ * You can obtain a copy of the CDDL 1.0 license at
+ * http://www.opensource.org/licenses/cddl1.php
+ * 
+ * You can obtain a copy of the EPL 1.0 license at
+ * http://www.opensource.org/licenses/eclipse-1.0.php
+ * 
+ * See the Licenses for the specific language governing permissions and
+ * limitations under the Licenses.
+ * 
+ * Alternatively, you can obtain a royalty free commercial license with less
+ * limitations, transferable or non-transferable, directly at
+ * http://www.noelios.com/products/restlet-engine
+ * 
+ * Restlet is a registered trademark of Noelios Technologies.
+ */
+
+package org.restlet.bench;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.restlet.Request;
+import org.restlet.data.Language;
+import org.restlet.data.MediaType;
+import org.restlet.data.Method;
+import org.restlet.engine.application.FlexibleConneg;
+import org.restlet.engine.application.StrictConneg;
+import org.restlet.engine.header.PreferenceReader;
+import org.restlet.representation.Variant;
+import org.restlet.service.ConnegService;
+import org.restlet.service.MetadataService;
+
+/**
+ * Benchmarks the content negotiation between typical browser preferences and
+ * a list of variants.
+ * 
+ * @author Jerome Louvel
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ConnegBenchmark {
+
+    /** The content negotiation service. */
+    private ConnegService connegService;
+
+    /** The metadata service. */
+    private MetadataService metadataService;
+
+    /** The request holding the client preferences. */
+    private Request request;
+
+    /** The variants to negotiate. */
+    private List<Variant> variants;
+
+    @Benchmark
+    public Variant connegService() {
+        return this.connegService.getPreferredVariant(this.variants,
+                this.request, this.metadataService);
+    }
+
+    @Benchmark
+    public Variant flexibleConneg() {
+        return new FlexibleConneg(this.request, this.metadataService)
+                .getPreferredVariant(this.variants);
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        this.connegService = new ConnegService();
+        this.metadataService = new MetadataService();
+        this.request = new Request(Method.GET, "http://localhost/test");
+        PreferenceReader.addMediaTypes(
+                "text/html,application/xhtml+xml,application/xml;q=0.9,*/*;q=0.8",
+                this.request.getClientInfo());
+        PreferenceReader.addLanguages("fr-FR,fr;q=0.8,en-US;q=0.5,en;q=0.3",
+                this.request.getClientInfo());
+
+        this.variants = new ArrayList<Variant>();
+        MediaType[] mediaTypes = { MediaType.APPLICATION_JSON,
+                MediaType.APPLICATION_XML, MediaType.TEXT_PLAIN,
+                MediaType.TEXT_HTML };
+        Language[] languages = { Language.ENGLISH, Language.FRENCH };
+
+        for (MediaType mediaType : mediaTypes) {
+            for (Language language : languages) {
+                Variant variant = new Variant(mediaType);
+                variant.getLanguages().add(language);
+                this.variants.add(variant);
+            }
+        }
+    }
+
+    @Benchmark
+    public Variant strictConneg() {
+        return new StrictConneg(this.request, this.metadataService)
+                .getPreferredVariant(this.variants);
+    }
+
+}
@@ -0,0 +1,104 @@
+/**
+ * Copyright 2005-2011 Noelios Technologies.
+ * 
+ * The contents of this file are subject to the terms of one of the following
+ * open source licenses: LGPL 3.0 or LGPL 2.1 or CDDL 1.0 or EPL 1.0 (the
+ * "Licenses"). You can select the license that you prefer but you may not use
+ * this file except in compliance with one of these Licenses.
+ * 
+ * You can obtain a copy of the LGPL 3.0 license at
+ * http://www.opensource.org/licenses/lgpl-3.0.html
+ * 
+ * You can obtain a copy of the LGPL 2.1 license at
+ * http://www.opensource.org/licenses/lgpl-2.1.php
+ * 
+ * You can obtain a copy of the CDDL 1.0 license at
+ * http://www.opensource.org/licenses/cddl1.php
+ * 
+ * You can obtain a copy of the EPL 1.0 license at
+ * http://www.opensource.org/licenses/eclipse-1.0.php
+ * 
+ * See the Licenses for the specific language governing permissions and
+ * limitations under the Licenses.
+ * 
+ * Alternatively, you can obtain a royalty free commercial license with less
+ * limitations, transferable or non-transferable, directly at
+ * http://www.noelios.com/products/restlet-engine
+ * 
+ * Restlet is a registered trademark of Noelios Technologies.
+ */
+
+package org.restlet.bench;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.restlet.data.MediaType;
+import org.restlet.engine.converter.ConverterHelper;
+import org.restlet.engine.converter.ConverterUtils;
+import org.restlet.representation.Representation;
+import org.restlet.representation.StringRepresentation;
+import org.restlet.representation.Variant;
+import org.restlet.service.ConverterService;
+
+/**
+ * Benchmarks the resolution of converter helpers and the conversions between
+ * objects and representations.
+ * 
+ * @author Jerome Louvel
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ConverterBenchmark {
+
+    /** The converter service. */
+    private ConverterService converterService;
+
+    /** The target variant. */
+    private Variant variant;
+
+    @Benchmark
+    public ConverterHelper bestHelperToObject() {
+        return ConverterUtils.getBestHelper(new StringRepresentation("test"),
+                String.class, null);
+    }
+
+    @Benchmark
+    public ConverterHelper bestHelperToRepresentation() {
+        return ConverterUtils.getBestHelper("test", this.variant, null);
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        this.converterService = new ConverterService();
+        this.variant = new Variant(MediaType.TEXT_PLAIN);
+    }
+
+    @Benchmark
+    public String toObject() throws IOException {
+        return this.converterService.toObject(new StringRepresentation(
+                "test"), String.class, null);
+    }
+
+    @Benchmark
+    public Representation toRepresentation() {
+        return this.converterService.toRepresentation("test", this.variant,
+                null);
+    }
+
+}
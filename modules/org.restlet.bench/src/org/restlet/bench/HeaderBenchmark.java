@@ -0,0 +1,179 @@
+/**
+ * Copyright 2005-2011 Noelios Technologies.
+ * 
+ * The contents of this file are subject to the terms of one of the following
+ * open source licenses: LGPL 3.0 or LGPL 2.1 or CDDL 1.0 or EPL 1.0 (the
+ * "Licenses"). You can select the license that you prefer but you may not use
+ * this file except in compliance with one of these Licenses.
+ * 
+ * You can obtain a copy of the LGPL 3.0 license at
+ * http://www.opensource.org/licenses/lgpl-3.0.html
+ * 
+ * You can obtain a copy of the LGPL 2.1 license at
+ * http://www.opensource.org/licenses/lgpl-2.1.php
+ * 
+ * You can obtain a copy of the CDDL 1.0 license at
+ * http://www.opensource.org/licenses/cddl1.php
+ * 
+ * You can obtain a copy of the EPL 1.0 license at
+ * http://www.opensource.org/licenses/eclipse-1.0.php
+ * 
+ * See the Licenses for the specific language governing permissions and
+ * limitations under the Licenses.
+ * 
+ * Alternatively, you can obtain a royalty free commercial license with less
+ * limitations, transferable or non-transferable, directly at
+ * http://www.noelios.com/products/restlet-engine
+ * 
+ * Restlet is a registered trademark of Noelios Technologies.
+ */
+
+package org.restlet.bench;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.restlet.Context;
+import org.restlet.Server;
+import org.restlet.data.ClientInfo;
+import org.restlet.data.Protocol;
+import org.restlet.engine.connector.Connection;
+import org.restlet.engine.connector.HttpInboundRequest;
+import org.restlet.engine.connector.HttpServerHelper;
+import org.restlet.engine.header.Header;
+import org.restlet.engine.header.HeaderReader;
+import org.restlet.engine.header.PreferenceReader;
+import org.restlet.engine.io.Buffer;
+import org.restlet.engine.io.BufferState;
+import org.restlet.util.Series;
+
+/**
+ * Benchmarks the parsing of HTTP headers, either directly with the header
+ * readers or lazily through the accessors of {@link HttpInboundRequest}.<br>
+ * <br>
+ * The {@link #drainHeaders()} benchmark reads the header lines of a small GET
+ * request from an inbound buffer. Its allocations per operation, reported by
+ * the GC profiler of {@link BenchmarkRunner}, are the reference for the
+ * header parsing allocations per request.
+ * 
+ * @author Jerome Louvel
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class HeaderBenchmark {
+
+    /** Typical browser Accept header. */
+    private static final String ACCEPT = "text/html,application/xhtml+xml,application/xml;q=0.9,image/webp,*/*;q=0.8";
+
+    /** Header lines of a small GET request, as received on the wire. */
+    private static final byte[] SMALL_GET = ("Host: localhost:8182\r\n"
+            + "User-Agent: curl/7.22.0\r\n" + "Accept: */*\r\n"
+            + "Connection: keep-alive\r\n" + "\r\n").getBytes();
+
+    /** The pooled connection used by the inbound requests. */
+    private Connection<Server> connection;
+
+    /** The headers of the inbound requests. */
+    private Series<Header> headers;
+
+    /** The server providing the connection. */
+    private Server server;
+
+    @Benchmark
+    public ClientInfo acceptPreferences() {
+        ClientInfo result = new ClientInfo();
+        PreferenceReader.addMediaTypes(ACCEPT, result);
+        return result;
+    }
+
+    @Benchmark
+    public void inboundRequestAccessors(Blackhole blackhole) {
+        HttpInboundRequest request = new HttpInboundRequest(
+                this.server.getContext(), this.connection, "GET",
+                "/accounts/123/orders?start=10&count=20", "HTTP/1.1");
+        request.setHeaders(this.headers);
+        blackhole.consume(request.getClientInfo());
+        blackhole.consume(request.getConditions());
+        blackhole.consume(request.getCookies());
+        blackhole.consume(request.getRanges());
+        blackhole.consume(request.getResourceRef());
+    }
+
+    @Benchmark
+    public Series<Header> drainHeaders() throws IOException {
+        Series<Header> result = new Series<Header>(Header.class);
+        Buffer buffer = new Buffer(ByteBuffer.wrap(SMALL_GET),
+                BufferState.DRAINING);
+        StringBuilder lineBuilder = new StringBuilder();
+        Header header = null;
+
+        do {
+            lineBuilder.delete(0, lineBuilder.length());
+            buffer.drain(lineBuilder, BufferState.IDLE);
+            header = HeaderReader.readHeader(lineBuilder);
+
+            if (header != null) {
+                result.add(header);
+            }
+        } while (header != null);
+
+        return result;
+    }
+
+    @Benchmark
+    public Header readHeader() throws IOException {
+        return HeaderReader.readHeader("Accept: " + ACCEPT);
+    }
+
+    @SuppressWarnings("unchecked")
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        this.server = new Server(new Context(), Protocol.HTTP, 0);
+        this.server.start();
+        HttpServerHelper helper = (HttpServerHelper) this.server.getContext()
+                .getAttributes().get("org.restlet.engine.helper");
+
+        // The connection pool is created by the controller thread
+        while (helper.getConnectionPool() == null) {
+            Thread.sleep(10);
+        }
+
+        this.connection = helper.getConnectionPool().checkout();
+        this.headers = new Series<Header>(Header.class);
+        this.headers.add("Host", "localhost:8182");
+        this.headers.add("User-Agent",
+                "Mozilla/5.0 (X11; Linux x86_64; rv:10.0) Firefox/10.0");
+        this.headers.add("Accept", ACCEPT);
+        this.headers.add("Accept-Language", "en-US,en;q=0.5");
+        this.headers.add("Accept-Encoding", "gzip, deflate");
+        this.headers.add("Accept-Charset", "ISO-8859-1,utf-8;q=0.7,*;q=0.7");
+        this.headers.add("Cookie", "session=a3fWa; theme=light; lang=en");
+        this.headers.add("If-None-Match", "\"xyzzy\", \"r2d2xxxx\"");
+        this.headers.add("Range", "bytes=0-1023");
+        this.headers.add("Connection", "keep-alive");
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        this.server.stop();
+    }
+
+}
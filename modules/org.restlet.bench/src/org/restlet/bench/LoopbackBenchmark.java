@@ -0,0 +1,173 @@
+/**
+ * Copyright 2005-2011 Noelios Technologies.
+ * 
+ * The contents of this file are subject to the terms of one of the following
+ * open source licenses: LGPL 3.0 or LGPL 2.1 or CDDL 1.0 or EPL 1.0 (the
+ * "Licenses"). You can select the license that you prefer but you may not use
+ * this file except in compliance with one of these Licenses.
+ * 
+ * You can obtain a copy of the LGPL 3.0 license at
+ * http://www.opensource.org/licenses/lgpl-3.0.html
+ * 
+ * You can obtain a copy of the LGPL 2.1 license at
+ * http://www.opensource.org/licenses/lgpl-2.1.php
+ * 
+ * You can obtain a copy of the CDDL 1.0 license at
+ * http://www.opensource.org/licenses/cddl1.php
+ * 
+ * You can obtain a copy of the EPL 1.0 license at
+ * http://www.opensource.org/licenses/eclipse-1.0.php
+ * 
+ * See the Licenses for the specific language governing permissions and
+ * limitations under the Licenses.
+ * 
+ * Alternatively, you can obtain a royalty free commercial license with less
+ * limitations, transferable or non-transferable, directly at
+ * http://www.noelios.com/products/restlet-engine
+ * 
+ * Restlet is a registered trademark of Noelios Technologies.
+ */
+
+package org.restlet.bench;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.restlet.Application;
+import org.restlet.Client;
+import org.restlet.Component;
+import org.restlet.Request;
+import org.restlet.Response;
+import org.restlet.Restlet;
+import org.restlet.Server;
+import org.restlet.data.MediaType;
+import org.restlet.data.Method;
+import org.restlet.data.Protocol;
+import org.restlet.representation.StringRepresentation;
+import org.restlet.routing.Router;
+
+/**
+ * Benchmarks complete request round trips, either over the internal HTTP
+ * connectors on the loopback interface or in memory with the RIAP protocol.
+ * 
+ * @author Jerome Louvel
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(4)
+public class LoopbackBenchmark {
+
+    /** The small entity sent by the POST requests. */
+    private static final String ENTITY = "{\"id\":123,\"name\":\"benchmark\"}";
+
+    /** The HTTP client. */
+    private Client client;
+
+    /** The component hosting the application. */
+    private Component component;
+
+    /** The base URI of the HTTP server. */
+    private String uri;
+
+    /**
+     * Handles a request, exhausts the response entity and releases it.
+     * 
+     * @param request
+     *            The request to handle.
+     * @param restlet
+     *            The Restlet handling the request.
+     * @return The response status code.
+     * @throws IOException
+     */
+    private int handle(Request request, Restlet restlet) throws IOException {
+        Response response = new Response(request);
+        restlet.handle(request, response);
+
+        if (response.isEntityAvailable()) {
+            response.getEntity().exhaust();
+        }
+
+        response.release();
+        return response.getStatus().getCode();
+    }
+
+    @Benchmark
+    public int httpGet() throws IOException {
+        return handle(new Request(Method.GET, this.uri + "/test"), this.client);
+    }
+
+    @Benchmark
+    public int httpPost() throws IOException {
+        return handle(new Request(Method.POST, this.uri + "/test",
+                new StringRepresentation(ENTITY, MediaType.APPLICATION_JSON)),
+                this.client);
+    }
+
+    @Benchmark
+    public int riapGet() throws IOException {
+        return handle(new Request(Method.GET, "riap://component/test"),
+                this.component.getContext().getClientDispatcher());
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        this.component = new Component();
+        Server server = this.component.getServers().add(Protocol.HTTP, 0);
+        this.component.getClients().add(Protocol.RIAP);
+
+        Application application = new Application() {
+            @Override
+            public Restlet createInboundRoot() {
+                Router router = new Router(getContext());
+                router.attach("/test", new Restlet() {
+                    @Override
+                    public void handle(Request request, Response response) {
+                        if (request.isEntityAvailable()) {
+                            try {
+                                request.getEntity().exhaust();
+                            } catch (IOException e) {
+                                // Ignored, the benchmark relies on the status
+                            }
+                        }
+
+                        response.setEntity("hello, world",
+                                MediaType.TEXT_PLAIN);
+                    }
+                });
+                return router;
+            }
+        };
+
+        this.component.getDefaultHost().attach(application);
+        this.component.getInternalRouter().attach(application);
+        this.component.start();
+        this.uri = "http://localhost:" + server.getEphemeralPort();
+
+        this.client = new Client(Protocol.HTTP);
+        this.client.start();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        this.client.stop();
+        this.component.stop();
+    }
+
+}
@@ -0,0 +1,128 @@
+/**
+ * Copyright 2005-2011 Noelios Technologies.
+ * 
+ * The contents of this file are subject to the terms of one of the following
+ * open source licenses: LGPL 3.0 or LGPL 2.1 or CDDL 1.0 or EPL 1.0 (the
+ * "Licenses"). You can select the license that you prefer but you may not use
+ * this file except in compliance with one of these Licenses.
+ * 
+ * You can obtain a copy of the LGPL 3.0 license at
+ * http://www.opensource.org/licenses/lgpl-3.0.html
+ * 
+ * You can obtain a copy of the LGPL 2.1 license at
+ * http://www.opensource.org/licenses/lgpl-2.1.php
+ * 
+ * You can obtain a copy of the CDDL 1.0 license at
+ * http://www.opensource.org/licenses/cddl1.php
+ * 
+ * You can obtain a copy of the EPL 1.0 license at
+ * http://www.opensource.org/licenses/eclipse-1.0.php
+ * 
+ * See the Licenses for the specific language governing permissions and
+ * limitations under the Licenses.
+ * 
+ * Alternatively, you can obtain a royalty free commercial license with less
+ * limitations, transferable or non-transferable, directly at
+ * http://www.noelios.com/products/restlet-engine
+ * 
+ * Restlet is a registered trademark of Noelios Technologies.
+ */
+
+package org.restlet.bench;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.restlet.Context;
+import org.restlet.Request;
+import org.restlet.Response;
+import org.restlet.Restlet;
+import org.restlet.data.Method;
+import org.restlet.data.Reference;
+import org.restlet.routing.Router;
+import org.restlet.routing.Template;
+
+/**
+ * Benchmarks the matching of URI templates, alone or through a router with a
+ * growing number of routes.
+ * 
+ * @author Jerome Louvel
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RoutingBenchmark {
+
+    /** The number of routes attached to the router. */
+    @Param( { "10", "100" })
+    public int routes;
+
+    /** The router to benchmark. */
+    private Router router;
+
+    /** The template to benchmark. */
+    private Template template;
+
+    /** The URI of the requests, matching the last route. */
+    private String uri;
+
+    @Benchmark
+    public String referenceRemainingPart() {
+        Reference reference = new Reference(this.uri);
+        reference.setBaseRef("http://localhost");
+        return reference.getRemainingPart();
+    }
+
+    @Benchmark
+    public Restlet routerGetNext() {
+        Request request = new Request(Method.GET, this.uri);
+        request.getResourceRef().setBaseRef("http://localhost");
+        return this.router.getNext(request, new Response(request));
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Context context = new Context();
+        this.router = new Router(context);
+        Restlet target = new Restlet(context) {
+        };
+
+        for (int i = 0; i < this.routes; i++) {
+            this.router.attach("/resources" + i + "/{id}/items/{item}",
+                    target);
+        }
+
+        this.template = new Template("/resources/{id}/items/{item}");
+        this.uri = "http://localhost/resources" + (this.routes - 1)
+                + "/123/items/456";
+    }
+
+    @Benchmark
+    public int templateMatch() {
+        return this.template.match("/resources/123/items/456");
+    }
+
+    @Benchmark
+    public Map<String, Object> templateParse() {
+        Map<String, Object> result = new HashMap<String, Object>();
+        this.template.parse("/resources/123/items/456", result);
+        return result;
+    }
+
+}
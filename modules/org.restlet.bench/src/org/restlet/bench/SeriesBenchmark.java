@@ -0,0 +1,144 @@
+/**
+ * Copyright 2005-2011 Noelios Technologies.
+ * 
+ * The contents of this file are subject to the terms of one of the following
+ * open source licenses: LGPL 3.0 or LGPL 2.1 or CDDL 1.0 or EPL 1.0 (the
+ * "Licenses"). You can select the license that you prefer but you may not use
+ * this file except in compliance with one of these Licenses.
+ * 
+ * You can obtain a copy of the LGPL 3.0 license at
+ * http://www.opensource.org/licenses/lgpl-3.0.html
+ * 
+ * You can obtain a copy of the LGPL 2.1 license at
+ * http://www.opensource.org/licenses/lgpl-2.1.php
+ * 
+ * You can obtain a copy of the CDDL 1.0 license at
+ * http://www.opensource.org/licenses/cddl1.php
+ * 
+ * You can obtain a copy of the EPL 1.0 license at
+ * http://www.opensource.org/licenses/eclipse-1.0.php
+ * 
+ * See the Licenses for the specific language governing permissions and
+ * limitations under the Licenses.
+ * 
+ * Alternatively, you can obtain a royalty free commercial license with less
+ * limitations, transferable or non-transferable, directly at
+ * http://www.noelios.com/products/restlet-engine
+ * 
+ * Restlet is a registered trademark of Noelios Technologies.
+ */
+
+package org.restlet.bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.restlet.data.Parameter;
+import org.restlet.engine.header.Header;
+import org.restlet.util.Series;
+
+/**
+ * Benchmarks the creation and lookup of series entries, as done for each
+ * request and response header.
+ * 
+ * @author Jerome Louvel
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SeriesBenchmark {
+
+    /** The header names, in insertion order. */
+    private static final String[] NAMES = { "Host", "User-Agent", "Accept",
+            "Accept-Language", "Accept-Encoding", "Accept-Charset", "Cookie",
+            "If-None-Match", "Range", "Connection", "Content-Type",
+            "Content-Length" };
+
+    /** The series of headers to look up. */
+    private Series<Header> headers;
+
+    /** A large series of headers, as forwarded by proxies. */
+    private Series<Header> largeHeaders;
+
+    /** The same large series of headers, indexed by name. */
+    private Series<Header> largeIndexedHeaders;
+
+    @Benchmark
+    public Series<Header> addHeaders() {
+        Series<Header> result = new Series<Header>(Header.class);
+
+        for (String name : NAMES) {
+            result.add(name, "value");
+        }
+
+        return result;
+    }
+
+    @Benchmark
+    public Series<Parameter> addParameters() {
+        Series<Parameter> result = new Series<Parameter>(Parameter.class);
+
+        for (String name : NAMES) {
+            result.add(name, "value");
+        }
+
+        return result;
+    }
+
+    @Benchmark
+    public String getFirstValue() {
+        return this.headers.getFirstValue("Content-Length");
+    }
+
+    @Benchmark
+    public String getFirstValueIgnoreCase() {
+        return this.headers.getFirstValue("content-length", true);
+    }
+
+    @Benchmark
+    public String getFirstValueLarge() {
+        return this.largeHeaders.getFirstValue("content-length", true);
+    }
+
+    @Benchmark
+    public String getFirstValueLargeIndexed() {
+        return this.largeIndexedHeaders.getFirstValue("content-length", true);
+    }
+
+    @Benchmark
+    public String getValues() {
+        return this.headers.getValues("Accept");
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        this.headers = addHeaders();
+        this.largeHeaders = new Series<Header>(Header.class);
+        this.largeIndexedHeaders = new Series<Header>(Header.class);
+        this.largeIndexedHeaders.setIndexed(true);
+
+        for (int i = 0; i < 60; i++) {
+            this.largeHeaders.add("X-Forwarded-" + i, "value");
+            this.largeIndexedHeaders.add("X-Forwarded-" + i, "value");
+        }
+
+        for (String name : NAMES) {
+            this.largeHeaders.add(name, "value");
+            this.largeIndexedHeaders.add(name, "value");
+        }
+    }
+
+}
@@ -35,6 +35,7 @@ import junit.framework.TestSuite;
 
 import org.restlet.test.component.ComponentXmlConfigTestCase;
 import org.restlet.test.component.ComponentXmlTestCase;
+import org.restlet.test.component.HostRoutingTestCase;
 import org.restlet.test.connector.FileClientTestCase;
 import org.restlet.test.connector.RestartTestCase;
 import org.restlet.test.connector.RiapTestCase;
@@ -74,6 +75,7 @@ import org.restlet.test.representation.DigesterRepresentationTestCase;
 import org.restlet.test.representation.RangeRepresentationTestCase;
 import org.restlet.test.resource.ResourceTestSuite;
 import org.restlet.test.routing.FilterTestCase;
+import org.restlet.test.routing.IndexedRouterTestCase;
 import org.restlet.test.routing.RedirectTestCase;
 import org.restlet.test.routing.RouteListTestCase;
 import org.restlet.test.routing.ValidatorTestCase;
@@ -83,6 +85,7 @@ import org.restlet.test.security.HttpDigestTestCase;
 import org.restlet.test.security.RoleTestCase;
 import org.restlet.test.security.SecurityTestCase;
 import org.restlet.test.service.ServiceTestSuite;
+import org.restlet.test.util.SeriesTestCase;
 import org.restlet.test.util.TemplateTestCase;
 
 /**
@@ -116,10 +119,12 @@ public class RestletTestSuite extends TestSuite {
         addTestSuite(FileReferenceTestCase.class);
         addTestSuite(FilterTestCase.class);
         addTestSuite(FormTestCase.class);
+        addTestSuite(HostRoutingTestCase.class);
         addTestSuite(FreeMarkerTestCase.class);
         addTestSuite(GwtConverterTestCase.class);
         addTestSuite(JaxbBasicConverterTestCase.class);
         addTestSuite(JaxbIntegrationConverterTestCase.class);
+        addTestSuite(IndexedRouterTestCase.class);
         addTestSuite(LanguageTestCase.class);
         addTestSuite(MediaTypeTestCase.class);
         addTestSuite(ProductTokenTestCase.class);
@@ -132,6 +137,7 @@ public class RestletTestSuite extends TestSuite {
         addTestSuite(DigestVerifierTestCase.class);
         addTestSuite(RecipientInfoTestCase.class);
         addTestSuite(RoleTestCase.class);
+        addTestSuite(SeriesTestCase.class);
         addTestSuite(StatusTestCase.class);
         addTestSuite(TemplateTestCase.class);
         addTestSuite(TransformerTestCase.class);
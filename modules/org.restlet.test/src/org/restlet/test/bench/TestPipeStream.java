@@ -0,0 +1,174 @@
+/**
+ * Copyright 2005-2011 Noelios Technologies.
+ * 
+ * The contents of this file are subject to the terms of one of the following
+ * open source licenses: LGPL 3.0 or LGPL 2.1 or CDDL 1.0 or EPL 1.0 (the
+ * "Licenses"). You can select the license that you prefer but you may not use
+ * this file except in compliance with one of these Licenses.
+ * 
+ * You can obtain a copy of the LGPL 3.0 license at
+ * http://www.opensource.org/licenses/lgpl-3.0.html
+ * 
+ * You can obtain a copy of the LGPL 2.1 license at
+ * http://www.opensource.org/licenses/lgpl-2.1.php
+ * 
+ * You can obtain a copy of the CDDL 1.0 license at
+ * http://www.opensource.org/licenses/cddl1.php
+ * 
+ * You can obtain a copy of the EPL 1.0 license at
+ * http://www.opensource.org/licenses/eclipse-1.0.php
+ * 
+ * See the Licenses for the specific language governing permissions and
+ * limitations under the Licenses.
+ * 
+ * Alternatively, you can obtain a royalty free commercial license with less
+ * limitations, transferable or non-transferable, directly at
+ * http://www.noelios.com/products/restlet-engine
+ * 
+ * Restlet is a registered trademark of Noelios Technologies.
+ */
+
+package org.restlet.test.bench;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+import org.restlet.engine.io.PipeStream;
+
+/**
+ * Measures the throughput of the {@link PipeStream} compared to the former
+ * pipe based on a queue of boxed bytes.
+ * 
+ * @author Jerome Louvel
+ */
+public class TestPipeStream {
+
+    /** The number of bytes piped per run. */
+    private static final int SIZE = 64 * 1024 * 1024;
+
+    /**
+     * Pipes {@link #SIZE} bytes from a writer thread to the current thread.
+     * 
+     * @param is
+     *            The input side of the pipe.
+     * @param os
+     *            The output side of the pipe.
+     * @param size
+     *            The number of bytes to pipe.
+     * @return The throughput in MB/s.
+     */
+    private static double pipe(InputStream is, final OutputStream os,
+            final int size) throws Exception {
+        Thread writer = new Thread() {
+            @Override
+            public void run() {
+                byte[] chunk = new byte[8192];
+
+                try {
+                    for (int i = 0; i < size; i += chunk.length) {
+                        os.write(chunk, 0, Math.min(chunk.length, size - i));
+                    }
+
+                    os.close();
+                } catch (IOException e) {
+                    e.printStackTrace();
+                }
+            }
+        };
+
+        long start = System.nanoTime();
+        writer.start();
+        byte[] buffer = new byte[8192];
+        long total = 0;
+        int read;
+
+        while ((read = is.read(buffer)) != -1) {
+            total += read;
+        }
+
+        writer.join();
+        double seconds = (System.nanoTime() - start) / 1e9;
+
+        if (total != size) {
+            throw new IllegalStateException("Only " + total + " bytes piped");
+        }
+
+        return size / (1024d * 1024d) / seconds;
+    }
+
+    /**
+     * Returns a pipe based on a queue of boxed bytes, as formerly done by the
+     * {@link PipeStream} class.
+     * 
+     * @return The input and output sides of the pipe.
+     */
+    private static Object[] queuePipe() {
+        final BlockingQueue<Integer> queue = new ArrayBlockingQueue<Integer>(
+                1024);
+        InputStream is = new InputStream() {
+            private boolean endReached = false;
+
+            @Override
+            public int read() throws IOException {
+                try {
+                    if (this.endReached) {
+                        return -1;
+                    }
+
+                    int value = queue.take();
+                    this.endReached = (value == -1);
+                    return value;
+                } catch (InterruptedException ie) {
+                    throw new IOException(ie.getMessage());
+                }
+            }
+        };
+        OutputStream os = new OutputStream() {
+            @Override
+            public void close() throws IOException {
+                put(-1);
+            }
+
+            /**
+             * Puts a value into the queue.
+             * 
+             * @param value
+             *            The value to put.
+             */
+            private void put(int value) throws IOException {
+                try {
+                    queue.put(value);
+                } catch (InterruptedException ie) {
+                    throw new IOException(ie.getMessage());
+                }
+            }
+
+            @Override
+            public void write(int b) throws IOException {
+                put(b & 0xff);
+            }
+        };
+        return new Object[] { is, os };
+    }
+
+    public static void main(String[] args) throws Exception {
+        int size = (args.length > 0) ? Integer.parseInt(args[0]) : SIZE;
+
+        for (int i = 0; i < 3; i++) {
+            Object[] queuePipe = queuePipe();
+            System.out.println("Queue pipe: "
+                    + (int) pipe((InputStream) queuePipe[0],
+                            (OutputStream) queuePipe[1], size / 16)
+                    + " MB/s");
+
+            PipeStream pipe = new PipeStream();
+            System.out.println("Ring buffer pipe: "
+                    + (int) pipe(pipe.getInputStream(), pipe.getOutputStream(),
+                            size) + " MB/s");
+        }
+    }
+
+}
@@ -0,0 +1,132 @@
+/**
+ * Copyright 2005-2011 Noelios Technologies.
+ * 
+ * The contents of this file are subject to the terms of one of the following
+ * open source licenses: LGPL 3.0 or LGPL 2.1 or CDDL 1.0 or EPL 1.0 (the
+ * "Licenses"). You can select the license that you prefer but you may not use
+ * this file except in compliance with one of these Licenses.
+ * 
+ * You can obtain a copy of the LGPL 3.0 license at
+ * http://www.opensource.org/licenses/lgpl-3.0.html
+ * 
+ * You can obtain a copy of the LGPL 2.1 license at
+ * http://www.opensource.org/licenses/lgpl-2.1.php
+ * 
+ * You can obtain a copy of the CDDL 1.0 license at
+ * http://www.opensource.org/licenses/cddl1.php
+ * 
+ * You can obtain a copy of the EPL 1.0 license at
+ * http://www.opensource.org/licenses/eclipse-1.0.php
+ * 
+ * See the Licenses for the specific language governing permissions and
+ * limitations under the Licenses.
+ * 
+ * Alternatively, you can obtain a royalty free commercial license with less
+ * limitations, transferable or non-transferable, directly at
+ * http://www.noelios.com/products/restlet-engine
+ * 
+ * Restlet is a registered trademark of Noelios Technologies.
+ */
+
+package org.restlet.test.bench;
+
+import java.util.concurrent.CountDownLatch;
+
+import org.restlet.Request;
+import org.restlet.Response;
+import org.restlet.Restlet;
+import org.restlet.data.Method;
+import org.restlet.routing.Router;
+
+/**
+ * Measures the throughput of a load balancing {@link Router} in the
+ * {@link Router#MODE_NEXT_MATCH} mode when called by an increasing number of
+ * threads, compared to the same router serialized by a single monitor as the
+ * route list formerly was.
+ * 
+ * @author Jerome Louvel
+ */
+public class TestRouter {
+
+    /** The number of routings per thread and per run. */
+    private static final int ROUTINGS = 2000000;
+
+    /**
+     * Routes calls from several threads at the same time.
+     * 
+     * @param router
+     *            The router to call.
+     * @param threads
+     *            The number of threads.
+     * @param routings
+     *            The number of routings per thread.
+     * @param lock
+     *            The monitor serializing the routings or null.
+     * @return The throughput in routings per millisecond.
+     */
+    private static long route(final Router router, int threads,
+            final int routings, final Object lock) throws Exception {
+        final CountDownLatch start = new CountDownLatch(1);
+        final CountDownLatch end = new CountDownLatch(threads);
+
+        for (int i = 0; i < threads; i++) {
+            new Thread() {
+                @Override
+                public void run() {
+                    Request request = new Request(Method.GET,
+                            "http://localhost/");
+                    Response response = new Response(request);
+
+                    try {
+                        start.await();
+
+                        for (int j = 0; j < routings; j++) {
+                            if (lock == null) {
+                                router.getNext(request, response);
+                            } else {
+                                synchronized (lock) {
+                                    router.getNext(request, response);
+                                }
+                            }
+                        }
+                    } catch (InterruptedException e) {
+                        e.printStackTrace();
+                    } finally {
+                        end.countDown();
+                    }
+                }
+            }.start();
+        }
+
+        long startTime = System.nanoTime();
+        start.countDown();
+        end.await();
+        long duration = System.nanoTime() - startTime;
+        return (long) threads * routings * 1000000L / duration;
+    }
+
+    public static void main(String[] args) throws Exception {
+        int routings = (args.length > 0) ? Integer.parseInt(args[0])
+                : ROUTINGS;
+        int maxThreads = Math.max(4, Runtime.getRuntime()
+                .availableProcessors());
+        Router router = new Router();
+        router.setRoutingMode(Router.MODE_NEXT_MATCH);
+
+        for (int i = 0; i < 8; i++) {
+            router.attach(new Restlet() {
+            });
+        }
+
+        for (int i = 0; i < 3; i++) {
+            for (int threads = 1; threads <= maxThreads; threads *= 2) {
+                System.out.println(threads + " thread(s): "
+                        + route(router, threads, routings, new Object())
+                        + " routings/ms serialized, "
+                        + route(router, threads, routings, null)
+                        + " routings/ms lock-free");
+            }
+        }
+    }
+
+}
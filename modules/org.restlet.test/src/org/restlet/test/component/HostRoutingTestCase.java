@@ -0,0 +1,142 @@
+/**
+ * Copyright 2005-2011 Noelios Technologies.
+ * 
+ * The contents of this file are subject to the terms of one of the following
+ * open source licenses: LGPL 3.0 or LGPL 2.1 or CDDL 1.0 or EPL 1.0 (the
+ * "Licenses"). You can select the license that you prefer but you may not use
+ * this file except in compliance with one of these Licenses.
+ * 
+ * You can obtain a copy of the LGPL 3.0 license at
+ * http://www.opensource.org/licenses/lgpl-3.0.html
+ * 
+ * You can obtain a copy of the LGPL 2.1 license at
+ * http://www.opensource.org/licenses/lgpl-2.1.php
+ * 
+ * You can obtain a copy of the CDDL 1.0 license at
+ * http://www.opensource.org/licenses/cddl1.php
+ * 
+ * You can obtain a copy of the EPL 1.0 license at
+ * http://www.opensource.org/licenses/eclipse-1.0.php
+ * 
+ * See the Licenses for the specific language governing permissions and
+ * limitations under the Licenses.
+ * 
+ * Alternatively, you can obtain a royalty free commercial license with less
+ * limitations, transferable or non-transferable, directly at
+ * http://www.noelios.com/products/restlet-engine
+ * 
+ * Restlet is a registered trademark of Noelios Technologies.
+ */
+package org.restlet.test.component;
+
+import org.restlet.Component;
+import org.restlet.Request;
+import org.restlet.Response;
+import org.restlet.Restlet;
+import org.restlet.data.MediaType;
+import org.restlet.data.Method;
+import org.restlet.data.Reference;
+import org.restlet.engine.component.HostPattern;
+import org.restlet.engine.component.ServerRouter;
+import org.restlet.routing.VirtualHost;
+import org.restlet.test.RestletTestCase;
+
+/**
+ * Unit tests for the routing of calls to virtual hosts.
+ * 
+ * @author Jerome Louvel
+ */
+public class HostRoutingTestCase extends RestletTestCase {
+
+    private static VirtualHost createHost(Component component,
+            String hostDomain, final String name) {
+        VirtualHost result = new VirtualHost(component.getContext());
+        result.setHostDomain(hostDomain);
+        result.attach(new Restlet() {
+            @Override
+            public void handle(Request request, Response response) {
+                response.setEntity(name, MediaType.TEXT_PLAIN);
+            }
+        });
+        return result;
+    }
+
+    private static String route(ServerRouter router, String uri) {
+        Request request = new Request(Method.GET, uri);
+        request.setHostRef(new Reference(uri).getHostIdentifier());
+        Response response = new Response(request);
+        router.handle(request, response);
+        return response.isEntityAvailable() ? response.getEntityAsText()
+                : null;
+    }
+
+    public void testPatterns() {
+        HostPattern pattern = new HostPattern(".*");
+        assertTrue(pattern.isAny());
+        assertTrue(pattern.matches("anything"));
+
+        pattern = new HostPattern("localhost");
+        assertEquals("localhost", pattern.getLiteral());
+        assertTrue(pattern.matches("LocalHost"));
+        assertFalse(pattern.matches("localhost2"));
+
+        pattern = new HostPattern("www\\.example\\.com");
+        assertEquals("www.example.com", pattern.getLiteral());
+        assertFalse(pattern.matches("wwwxexample.com"));
+
+        assertEquals("a.b", new HostPattern("\\Qa.b\\E").getLiteral());
+
+        pattern = new HostPattern("(www\\.)?example\\.com");
+        assertNull(pattern.getLiteral());
+        assertTrue(pattern.matches("WWW.example.com"));
+        assertTrue(pattern.matches("example.com"));
+        assertFalse(pattern.matches("example.org"));
+
+        pattern = new HostPattern("80|8080");
+        assertNull(pattern.getLiteral());
+        assertTrue(pattern.matches("8080"));
+        assertTrue(pattern.isFor("80|8080"));
+        assertFalse(pattern.isFor("80"));
+    }
+
+    public void testServerRouter() throws Exception {
+        Component component = new Component();
+        VirtualHost hostA = createHost(component, "a.example.com", "a");
+        component.getHosts().add(hostA);
+        component.getHosts().add(createHost(component, "b\\.example\\.com",
+                "b"));
+        component.getHosts().add(createHost(component, ".*\\.org", "org"));
+        component.getHosts().add(createHost(component, "A.example.com",
+                "shadowed"));
+        component.setDefaultHost(createHost(component, ".*", "default"));
+
+        ServerRouter router = new ServerRouter(component);
+        router.start();
+
+        assertEquals("a", route(router, "http://A.Example.com/path"));
+        assertEquals("b", route(router, "http://b.example.com/path"));
+        assertEquals("org", route(router, "http://www.restlet.org/path"));
+        assertEquals("default", route(router, "http://c.example.com/path"));
+
+        // Changes of the virtual hosts are taken into account
+        hostA.setHostDomain("c.example.com");
+        assertEquals("a", route(router, "http://c.example.com/path"));
+        assertEquals("shadowed", route(router, "http://a.example.com/path"));
+
+        hostA.setHostDomain("(c|d)\\.example\\.com");
+        assertEquals("a", route(router, "http://d.example.com/path"));
+        hostA.setHostPort("8080");
+        assertEquals("default", route(router, "http://d.example.com/path"));
+        assertEquals("a", route(router, "http://d.example.com:8080/path"));
+
+        // Changes of the routes are taken into account
+        int version = router.getRoutes().getVersion();
+        router.getRoutes().remove(0);
+        assertTrue(router.getRoutes().getVersion() != version);
+        assertEquals("default", route(router,
+                "http://d.example.com:8080/path"));
+
+        router.stop();
+    }
+
+}
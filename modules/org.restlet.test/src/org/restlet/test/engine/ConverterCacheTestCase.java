@@ -0,0 +1,117 @@
+/**
+ * Copyright 2005-2011 Noelios Technologies.
+ * 
+ * The contents of this file are subject to the terms of one of the following
+ * open source licenses: LGPL 3.0 or LGPL 2.1 or CDDL 1.0 or EPL 1.0 (the
+ * "Licenses"). You can select the license that you prefer but you may not use
+ * this file except in compliance with one of these Licenses.
+ * 
+ * You can obtain a copy of the LGPL 3.0 license at
+ * http://www.opensource.org/licenses/lgpl-3.0.html
+ * 
+ * You can obtain a copy of the LGPL 2.1 license at
+ * http://www.opensource.org/licenses/lgpl-2.1.php
+ * 
+ * You can obtain a copy of the CDDL 1.0 license at
+ * http://www.opensource.org/licenses/cddl1.php
+ * 
+ * You can obtain a copy of the EPL 1.0 license at
+ * http://www.opensource.org/licenses/eclipse-1.0.php
+ * 
+ * See the Licenses for the specific language governing permissions and
+ * limitations under the Licenses.
+ * 
+ * Alternatively, you can obtain a royalty free commercial license with less
+ * limitations, transferable or non-transferable, directly at
+ * http://www.noelios.com/products/restlet-engine
+ * 
+ * Restlet is a registered trademark of Noelios Technologies.
+ */
+
+package org.restlet.test.engine;
+
+import java.util.List;
+
+import org.restlet.data.MediaType;
+import org.restlet.engine.Engine;
+import org.restlet.engine.converter.ConverterCache;
+import org.restlet.engine.converter.ConverterHelper;
+import org.restlet.engine.converter.ConverterUtils;
+import org.restlet.engine.converter.DefaultConverter;
+import org.restlet.engine.resource.VariantInfo;
+import org.restlet.representation.StringRepresentation;
+import org.restlet.representation.Variant;
+import org.restlet.resource.Resource;
+import org.restlet.service.ConverterService;
+import org.restlet.test.RestletTestCase;
+
+/**
+ * Test case for the cache of converter resolutions.
+ * 
+ * @author Jerome Louvel
+ */
+public class ConverterCacheTestCase extends RestletTestCase {
+
+    /** Converter preferred for strings. */
+    private static class StringConverter extends DefaultConverter {
+        @Override
+        public float score(Object source, Variant target, Resource resource) {
+            return (source instanceof String) ? 2.0F : -1.0F;
+        }
+    }
+
+    public void testBestHelper() {
+        ConverterCache cache = ConverterUtils.getCache();
+        ConverterService converterService = new ConverterService();
+        ConverterHelper helper = ConverterUtils.getBestHelper("a", null, null);
+        assertTrue(helper instanceof DefaultConverter);
+
+        long hits = converterService.getCacheHits();
+        assertSame(helper, ConverterUtils.getBestHelper("b", null, null));
+        assertEquals(hits + 1, converterService.getCacheHits());
+        assertEquals(hits + 1, cache.getHits());
+
+        // The target metadata are part of the key
+        long misses = converterService.getCacheMisses();
+        ConverterUtils.getBestHelper("a", new Variant(MediaType.TEXT_HTML),
+                null);
+        assertEquals(misses + 1, converterService.getCacheMisses());
+
+        assertSame(helper, ConverterUtils.getBestHelper(
+                new StringRepresentation("a"), String.class, null));
+        assertNull(ConverterUtils.getBestHelper(new StringRepresentation("a"),
+                ConverterCacheTestCase.class, null));
+        assertNull(ConverterUtils.getBestHelper(new StringRepresentation("a"),
+                ConverterCacheTestCase.class, null));
+    }
+
+    public void testInvalidation() {
+        ConverterHelper helper = new StringConverter();
+        assertNotSame(helper, ConverterUtils.getBestHelper("a", null, null));
+        Engine.getInstance().getRegisteredConverters().add(helper);
+
+        try {
+            assertSame(helper, ConverterUtils.getBestHelper("a", null, null));
+        } finally {
+            Engine.getInstance().getRegisteredConverters().remove(helper);
+        }
+
+        assertNotSame(helper, ConverterUtils.getBestHelper("a", null, null));
+    }
+
+    public void testVariants() {
+        List<VariantInfo> variants = ConverterUtils.getVariants(String.class,
+                null);
+        assertNotNull(variants);
+
+        List<VariantInfo> cached = ConverterUtils.getVariants(String.class,
+                null);
+        assertNotSame(variants, cached);
+        assertEquals(variants, cached);
+
+        // The returned lists are modifiable copies
+        cached.clear();
+        assertEquals(variants, ConverterUtils.getVariants(String.class, null));
+    }
+
+}
@@ -0,0 +1,177 @@
+/**
+ * Copyright 2005-2011 Noelios Technologies.
+ * 
+ * The contents of this file are subject to the terms of one of the following
+ * open source licenses: LGPL 3.0 or LGPL 2.1 or CDDL 1.0 or EPL 1.0 (the
+ * "Licenses"). You can select the license that you prefer but you may not use
+ * this file except in compliance with one of these Licenses.
+ * 
+ * You can obtain a copy of the LGPL 3.0 license at
+ * http://www.opensource.org/licenses/lgpl-3.0.html
+ * 
+ * You can obtain a copy of the LGPL 2.1 license at
+ * http://www.opensource.org/licenses/lgpl-2.1.php
+ * 
+ * You can obtain a copy of the CDDL 1.0 license at
+ * http://www.opensource.org/licenses/cddl1.php
+ * 
+ * You can obtain a copy of the EPL 1.0 license at
+ * http://www.opensource.org/licenses/eclipse-1.0.php
+ * 
+ * See the Licenses for the specific language governing permissions and
+ * limitations under the Licenses.
+ * 
+ * Alternatively, you can obtain a royalty free commercial license with less
+ * limitations, transferable or non-transferable, directly at
+ * http://www.noelios.com/products/restlet-engine
+ * 
+ * Restlet is a registered trademark of Noelios Technologies.
+ */
+
+package org.restlet.test.engine;
+
+import java.io.File;
+import java.io.IOException;
+
+import org.restlet.data.LocalReference;
+import org.restlet.data.Reference;
+import org.restlet.data.ReferenceList;
+import org.restlet.engine.io.BioUtils;
+import org.restlet.engine.local.DirectoryCache;
+import org.restlet.resource.Directory;
+import org.restlet.test.RestletTestCase;
+
+/**
+ * Test case for the cache of folder listings used by directories.
+ * 
+ * @author Jerome Louvel
+ */
+public class DirectoryCacheTestCase extends RestletTestCase {
+
+    private File folder;
+
+    private String folderUri;
+
+    /**
+     * Sets the modification date of the folder in the past so that its
+     * listings can be safely reused.
+     * 
+     * @param delay
+     *            The age of the folder in milliseconds.
+     */
+    private void age(long delay) {
+        this.folder.setLastModified(System.currentTimeMillis() - delay);
+    }
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        this.folder = new File(System.getProperty("java.io.tmpdir"),
+                "DirectoryCacheTestCase" + System.currentTimeMillis());
+        this.folder.mkdirs();
+        new File(this.folder, "a.txt").createNewFile();
+        new File(this.folder, "sub").mkdir();
+        this.folderUri = LocalReference.createFileReference(this.folder)
+                .toString();
+        age(10000);
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        BioUtils.delete(this.folder, true);
+        this.folder = null;
+        this.folderUri = null;
+        super.tearDown();
+    }
+
+    public void testChange() throws IOException {
+        DirectoryCache cache = new DirectoryCache();
+        assertEquals(2, cache.getEntries(this.folderUri).length);
+
+        new File(this.folder, "b.txt").createNewFile();
+        age(5000);
+        assertEquals(3, cache.getEntries(this.folderUri).length);
+        assertEquals(2, cache.getMisses());
+
+        new File(this.folder, "c.txt").createNewFile();
+        age(5000);
+        cache.invalidate();
+        assertEquals(4, cache.getEntries(this.folderUri).length);
+        assertEquals(3, cache.getMisses());
+        assertEquals(0, cache.getHits());
+    }
+
+    public void testDisabledByDefault() {
+        assertNull(new Directory(null, this.folderUri).getCache());
+    }
+
+    public void testEviction() {
+        File other = new File(this.folder, "other");
+        other.mkdir();
+        age(10000);
+        File sub = new File(this.folder, "sub");
+        sub.setLastModified(System.currentTimeMillis() - 10000);
+        other.setLastModified(System.currentTimeMillis() - 10000);
+        String subUri = LocalReference.createFileReference(sub).toString();
+        String otherUri = LocalReference.createFileReference(other).toString();
+
+        DirectoryCache cache = new DirectoryCache(2, 10000);
+        cache.getEntries(this.folderUri);
+        cache.getEntries(subUri);
+
+        // The least recently used folder is evicted
+        cache.getEntries(this.folderUri);
+        cache.getEntries(otherUri);
+        assertEquals(2, cache.size());
+        assertEquals(1, cache.getHits());
+        cache.getEntries(this.folderUri);
+        assertEquals(2, cache.getHits());
+        cache.getEntries(subUri);
+        assertEquals(2, cache.getHits());
+        assertEquals(4, cache.getMisses());
+    }
+
+    public void testHits() {
+        DirectoryCache cache = new DirectoryCache();
+        DirectoryCache.Entry[] entries = cache.getEntries(this.folderUri);
+        assertEquals(2, entries.length);
+        assertEquals(1, cache.getMisses());
+        assertSame(entries, cache.getEntries(this.folderUri));
+        assertEquals(1, cache.getHits());
+        assertEquals(1, cache.size());
+
+        cache.clear();
+        assertEquals(0, cache.size());
+        assertEquals(0, cache.getHits());
+        assertEquals(0, cache.getMisses());
+    }
+
+    public void testNotFolder() {
+        DirectoryCache cache = new DirectoryCache();
+        assertNull(cache.getEntries("http://localhost/"));
+        assertNull(cache.getEntries(this.folderUri + "/a.txt"));
+        assertEquals(0, cache.size());
+    }
+
+    public void testReferences() {
+        DirectoryCache cache = new DirectoryCache();
+        ReferenceList list = cache.getReferences(this.folderUri);
+        assertEquals(2, list.size());
+        String baseUri = this.folderUri.endsWith("/") ? this.folderUri
+                : this.folderUri + "/";
+        assertTrue(list.contains(new Reference(baseUri
+                + "a.txt")));
+        assertTrue(list.contains(new Reference(baseUri
+                + "sub/")));
+    }
+
+    public void testTimeToLive() throws InterruptedException {
+        DirectoryCache cache = new DirectoryCache(16, 50);
+        cache.getEntries(this.folderUri);
+        Thread.sleep(100);
+        cache.getEntries(this.folderUri);
+        assertEquals(2, cache.getMisses());
+        assertEquals(0, cache.getHits());
+    }
+
+}
@@ -0,0 +1,221 @@
+/**
+ * Copyright 2005-2011 Noelios Technologies.
+ * 
+ * The contents of this file are subject to the terms of one of the following
+ * open source licenses: LGPL 3.0 or LGPL 2.1 or CDDL 1.0 or EPL 1.0 (the
+ * "Licenses"). You can select the license that you prefer but you may not use
+ * this file except in compliance with one of these Licenses.
+ * 
+ * You can obtain a copy of the LGPL 3.0 license at
+ * http://www.opensource.org/licenses/lgpl-3.0.html
+ * 
+ * You can obtain a copy of the LGPL 2.1 license at
+ * http://www.opensource.org/licenses/lgpl-2.1.php
+ * 
+ * You can obtain a copy of the CDDL 1.0 license at
+ * http://www.opensource.org/licenses/cddl1.php
+ * 
+ * You can obtain a copy of the EPL 1.0 license at
+ * http://www.opensource.org/licenses/eclipse-1.0.php
+ * 
+ * See the Licenses for the specific language governing permissions and
+ * limitations under the Licenses.
+ * 
+ * Alternatively, you can obtain a royalty free commercial license with less
+ * limitations, transferable or non-transferable, directly at
+ * http://www.noelios.com/products/restlet-engine
+ * 
+ * Restlet is a registered trademark of Noelios Technologies.
+ */
+
+package org.restlet.test.engine;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.restlet.data.Form;
+import org.restlet.data.MediaType;
+import org.restlet.data.Method;
+import org.restlet.engine.Engine;
+import org.restlet.engine.converter.ConverterHelper;
+import org.restlet.engine.converter.DefaultConverter;
+import org.restlet.engine.resource.AnnotationInfo;
+import org.restlet.engine.resource.AnnotationUtils;
+import org.restlet.engine.resource.DispatchPlan;
+import org.restlet.engine.resource.VariantInfo;
+import org.restlet.representation.StringRepresentation;
+import org.restlet.representation.Variant;
+import org.restlet.resource.Delete;
+import org.restlet.resource.Get;
+import org.restlet.resource.Post;
+import org.restlet.resource.Put;
+import org.restlet.resource.ServerResource;
+import org.restlet.service.ConverterService;
+import org.restlet.service.MetadataService;
+import org.restlet.test.RestletTestCase;
+
+/**
+ * Test case for the dispatch plans of annotated resources.
+ * 
+ * @author Jerome Louvel
+ */
+public class DispatchPlanTestCase extends RestletTestCase {
+
+    /** Converter service counting the variant resolutions. */
+    private static class CountingConverterService extends ConverterService {
+
+        private volatile int count;
+
+        @Override
+        public List<? extends Variant> getVariants(Class<?> source,
+                Variant target) {
+            count++;
+            return super.getVariants(source, target);
+        }
+    }
+
+    public static class PlanResource extends ServerResource {
+
+        @Post("txt:txt")
+        public String accept(String entity) {
+            return entity;
+        }
+
+        @Delete
+        public void remove() {
+        }
+
+        @Get("txt")
+        public String represent() {
+            return "plain";
+        }
+
+        @Get("xml?mode=full")
+        public String representFull() {
+            return "<full/>";
+        }
+
+        @Put
+        public String store(String entity) {
+            return entity;
+        }
+    }
+
+    /**
+     * Returns the annotation descriptor of a Java method of the test resource.
+     * The annotation values are explicitly given as their parsing from
+     * {@link Object#toString()} depends on the JVM version.
+     */
+    private static AnnotationInfo annotation(Method restletMethod,
+            String name, String value) throws Exception {
+        for (java.lang.reflect.Method javaMethod : PlanResource.class
+                .getDeclaredMethods()) {
+            if (javaMethod.getName().equals(name)) {
+                return new AnnotationInfo(PlanResource.class, restletMethod,
+                        javaMethod, value);
+            }
+        }
+
+        return null;
+    }
+
+    private CountingConverterService converterService;
+
+    private MetadataService metadataService;
+
+    private DispatchPlan plan;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        this.converterService = new CountingConverterService();
+        this.metadataService = new MetadataService();
+
+        List<AnnotationInfo> annotations = new ArrayList<AnnotationInfo>();
+        annotations.add(annotation(Method.POST, "accept", "txt:txt"));
+        annotations.add(annotation(Method.DELETE, "remove", null));
+        annotations.add(annotation(Method.GET, "represent", "txt"));
+        annotations.add(annotation(Method.GET, "representFull",
+                "xml?mode=full"));
+        annotations.add(annotation(Method.PUT, "store", null));
+        this.plan = new DispatchPlan(annotations);
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        this.converterService = null;
+        this.metadataService = null;
+        this.plan = null;
+        super.tearDown();
+    }
+
+    public void testAllowedMethods() {
+        Set<Method> expected = new HashSet<Method>();
+        expected.add(Method.DELETE);
+        expected.add(Method.GET);
+        expected.add(Method.POST);
+        expected.add(Method.PUT);
+
+        assertEquals(4, plan.getAllowedMethods().size());
+        assertEquals(expected, new HashSet<Method>(plan.getAllowedMethods()));
+
+        DispatchPlan cached = AnnotationUtils
+                .getDispatchPlan(PlanResource.class);
+        assertEquals(expected, new HashSet<Method>(cached.getAllowedMethods()));
+        assertSame(cached, AnnotationUtils.getDispatchPlan(PlanResource.class));
+    }
+
+    public void testConverterChange() {
+        plan.getVariants(Method.PUT, new Form(), null, metadataService,
+                converterService);
+        int count = converterService.count;
+        assertTrue(count > 0);
+
+        plan.getVariants(Method.PUT, new Form(), null, metadataService,
+                converterService);
+        assertEquals(count, converterService.count);
+
+        ConverterHelper helper = new DefaultConverter();
+        Engine.getInstance().getRegisteredConverters().add(helper);
+
+        try {
+            plan.getVariants(Method.PUT, new Form(), null, metadataService,
+                    converterService);
+            assertTrue(converterService.count > count);
+        } finally {
+            Engine.getInstance().getRegisteredConverters().remove(helper);
+        }
+    }
+
+    public void testRequestEntity() {
+        assertNotNull(plan.getAnnotation(Method.POST, new Form(),
+                new StringRepresentation("text"), metadataService,
+                converterService));
+        assertNull(plan.getAnnotation(Method.POST, new Form(),
+                new StringRepresentation("{}", MediaType.APPLICATION_JSON),
+                metadataService, converterService));
+        assertNull(plan.getAnnotation(Method.OPTIONS, new Form(), null,
+                metadataService, converterService));
+    }
+
+    public void testVariants() {
+        List<Variant> variants = plan.getVariants(Method.GET, new Form(),
+                null, metadataService, converterService);
+        assertEquals(1, variants.size());
+        assertEquals(MediaType.TEXT_PLAIN, variants.get(0).getMediaType());
+        assertEquals("represent", ((VariantInfo) variants.get(0))
+                .getAnnotationInfo().getJavaMethod().getName());
+
+        variants = plan.getVariants(Method.GET, new Form("mode=full"), null,
+                metadataService, converterService);
+        assertTrue(variants.size() > 1);
+
+        for (Variant variant : variants.subList(1, variants.size())) {
+            assertEquals("representFull", ((VariantInfo) variant)
+                    .getAnnotationInfo().getJavaMethod().getName());
+        }
+    }
+
+}
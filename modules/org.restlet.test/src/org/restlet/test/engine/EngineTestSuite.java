@@ -33,9 +33,16 @@ package org.restlet.test.engine;
 import junit.framework.Test;
 import junit.framework.TestSuite;
 
+import org.restlet.test.engine.connector.AdmissionControlTestCase;
+import org.restlet.test.engine.connector.ConnectorMetricsTestCase;
+import org.restlet.test.engine.connector.HostConnectionsTestCase;
 import org.restlet.test.engine.connector.HttpInboundRequestTestCase;
+import org.restlet.test.engine.connector.PipeliningTestCase;
 import org.restlet.test.engine.io.BioUtilsTestCase;
+import org.restlet.test.engine.io.BufferPoolTestCase;
 import org.restlet.test.engine.io.BufferTestCase;
+import org.restlet.test.engine.io.PipeStreamTestCase;
+import org.restlet.test.engine.io.ReadableEncodingChannelTestCase;
 import org.restlet.test.engine.io.ReaderInputStreamTestCase;
 import org.restlet.test.engine.util.Base64TestCase;
 
@@ -61,17 +68,29 @@ public class EngineTestSuite extends TestSuite {
         addTestSuite(AlphaNumericComparatorTestCase.class);
         addTestSuite(AnnotationUtilsTestCase.class);
         addTestSuite(Base64TestCase.class);
+        addTestSuite(BufferPoolTestCase.class);
         addTestSuite(BufferTestCase.class);
         addTestSuite(BioUtilsTestCase.class);
+        addTestSuite(AdmissionControlTestCase.class);
+        addTestSuite(ConnectorMetricsTestCase.class);
         addTestSuite(CookiesTestCase.class);
+        addTestSuite(DirectoryCacheTestCase.class);
+        addTestSuite(DispatchPlanTestCase.class);
         addTestSuite(ContentTypeTestCase.class);
+        addTestSuite(ConverterCacheTestCase.class);
         addTestSuite(HeaderTestCase.class);
+        addTestSuite(HostConnectionsTestCase.class);
         addTestSuite(HttpCallTestCase.class);
         addTestSuite(HttpInboundRequestTestCase.class);
         addTestSuite(ImmutableDateTestCase.class);
+        addTestSuite(InvocationPlanTestCase.class);
+        addTestSuite(PipeStreamTestCase.class);
+        addTestSuite(PipeliningTestCase.class);
         addTestSuite(UnclosableInputStreamTestCase.class);
         addTestSuite(UnclosableOutputStreamTestCase.class);
+        addTestSuite(ZipFileCacheTestCase.class);
         addTestSuite(PreferencesTestCase.class);
+        addTestSuite(ReadableEncodingChannelTestCase.class);
         addTestSuite(ReaderInputStreamTestCase.class);
 
         // Tests based on HTTP client connectors are not supported by the GAE
@@ -30,6 +30,8 @@
 
 package org.restlet.test.engine;
 
+import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.Date;
 import java.util.List;
@@ -38,9 +40,14 @@ import org.restlet.data.ClientInfo;
 import org.restlet.data.Encoding;
 import org.restlet.data.MediaType;
 import org.restlet.engine.header.EncodingReader;
+import org.restlet.engine.header.Header;
+import org.restlet.engine.header.HeaderConstants;
+import org.restlet.engine.header.HeaderNames;
 import org.restlet.engine.header.HeaderReader;
 import org.restlet.engine.header.PreferenceReader;
 import org.restlet.engine.header.TokenReader;
+import org.restlet.engine.io.Buffer;
+import org.restlet.engine.io.BufferState;
 import org.restlet.engine.util.DateUtils;
 import org.restlet.test.RestletTestCase;
 
@@ -96,6 +103,88 @@ public class HeaderTestCase extends RestletTestCase {
         assertEquals(l.size(), 1);
     }
 
+    /**
+     * Tests the draining of header lines from a buffer.
+     */
+    public void testDrainLine() throws IOException {
+        Buffer buffer = new Buffer(ByteBuffer.allocate(64));
+        buffer.fill("Host: localhost\r\nAcc".getBytes());
+        buffer.flip();
+
+        StringBuilder lineBuilder = new StringBuilder();
+        BufferState state = buffer.drain(lineBuilder, BufferState.IDLE);
+        assertEquals(BufferState.DRAINING, state);
+        assertEquals("Host: localhost", lineBuilder.toString());
+
+        Header header = HeaderReader.readHeader(lineBuilder);
+        assertSame(HeaderConstants.HEADER_HOST, header.getName());
+        assertEquals("localhost", header.getValue());
+
+        // Line split across two fills of the buffer
+        lineBuilder.delete(0, lineBuilder.length());
+        state = buffer.drain(lineBuilder, BufferState.IDLE);
+        assertEquals(BufferState.FILLING, state);
+        assertEquals("Acc", lineBuilder.toString());
+
+        buffer.flip();
+        buffer.fill("ept: */*\r".getBytes());
+        buffer.flip();
+        state = buffer.drain(lineBuilder, state);
+        assertEquals(BufferState.FILLED, state);
+
+        buffer.flip();
+        buffer.fill("\n".getBytes());
+        buffer.flip();
+        state = buffer.drain(lineBuilder, state);
+        assertEquals(BufferState.DRAINING, state);
+        assertEquals("Accept: */*", lineBuilder.toString());
+
+        // Buffer without backing array
+        buffer = new Buffer(64, true);
+        buffer.fill("Date: today\r\n".getBytes());
+        buffer.flip();
+        lineBuilder.delete(0, lineBuilder.length());
+        state = buffer.drain(lineBuilder, BufferState.IDLE);
+        assertEquals(BufferState.DRAINING, state);
+        assertEquals("Date: today", lineBuilder.toString());
+
+        buffer.clear();
+        buffer.fill("X\rY".getBytes());
+        buffer.flip();
+
+        try {
+            buffer.drain(new StringBuilder(), BufferState.IDLE);
+            fail("The missing line feed should be detected");
+        } catch (IOException e) {
+            // Expected
+        }
+    }
+
+    /**
+     * Tests the lookup of the well-known header names.
+     */
+    public void testHeaderNames() throws IOException {
+        assertSame(HeaderConstants.HEADER_CONTENT_LENGTH,
+                HeaderNames.get(new StringBuilder("Content-Length"), 0, 14));
+        assertSame(HeaderConstants.HEADER_TRANSFER_EXTENSION,
+                HeaderNames.get("xTEx", 1, 3));
+        assertSame(HeaderConstants.HEADER_X_HTTP_METHOD_OVERRIDE,
+                HeaderNames.get("X-HTTP-Method-Override"));
+        assertNull(HeaderNames.get("content-length", 0, 14));
+        assertNull(HeaderNames.get("X-Custom", 0, 8));
+        assertEquals("content-length", HeaderNames.get("content-length"));
+        assertNull(HeaderNames.get(null));
+
+        Header header = HeaderReader.readHeader(new StringBuilder(
+                "Transfer-Encoding:  chunked"));
+        assertSame(HeaderConstants.HEADER_TRANSFER_ENCODING, header.getName());
+        assertEquals("chunked", header.getValue());
+
+        header = HeaderReader.readHeader("X-Custom: value");
+        assertEquals("X-Custom", header.getName());
+        assertEquals("value", header.getValue());
+    }
+
     public void testInvalidDate() {
         final String headerValue = "-1";
         final Date date = DateUtils.parse(headerValue,
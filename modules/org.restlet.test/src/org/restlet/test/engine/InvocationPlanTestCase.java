@@ -0,0 +1,166 @@
+/**
+ * Copyright 2005-2011 Noelios Technologies.
+ * 
+ * The contents of this file are subject to the terms of one of the following
+ * open source licenses: LGPL 3.0 or LGPL 2.1 or CDDL 1.0 or EPL 1.0 (the
+ * "Licenses"). You can select the license that you prefer but you may not use
+ * this file except in compliance with one of these Licenses.
+ * 
+ * You can obtain a copy of the LGPL 3.0 license at
+ * http://www.opensource.org/licenses/lgpl-3.0.html
+ * 
+ * You can obtain a copy of the LGPL 2.1 license at
+ * http://www.opensource.org/licenses/lgpl-2.1.php
+ * 
+ * You can obtain a copy of the CDDL 1.0 license at
+ * http://www.opensource.org/licenses/cddl1.php
+ * 
+ * You can obtain a copy of the EPL 1.0 license at
+ * http://www.opensource.org/licenses/eclipse-1.0.php
+ * 
+ * See the Licenses for the specific language governing permissions and
+ * limitations under the Licenses.
+ * 
+ * Alternatively, you can obtain a royalty free commercial license with less
+ * limitations, transferable or non-transferable, directly at
+ * http://www.noelios.com/products/restlet-engine
+ * 
+ * Restlet is a registered trademark of Noelios Technologies.
+ */
+package org.restlet.test.engine;
+
+import java.util.List;
+import java.util.Map;
+
+import org.restlet.Request;
+import org.restlet.Response;
+import org.restlet.Restlet;
+import org.restlet.data.MediaType;
+import org.restlet.data.Method;
+import org.restlet.engine.resource.AnnotationInfo;
+import org.restlet.engine.resource.AnnotationUtils;
+import org.restlet.engine.resource.InvocationPlan;
+import org.restlet.representation.Variant;
+import org.restlet.resource.ClientProxy;
+import org.restlet.resource.ClientResource;
+import org.restlet.resource.Get;
+import org.restlet.resource.Put;
+import org.restlet.resource.Result;
+import org.restlet.service.ConverterService;
+import org.restlet.service.MetadataService;
+import org.restlet.test.RestletTestCase;
+
+/**
+ * Test case for the invocation plans of client proxies.
+ * 
+ * @author Jerome Louvel
+ */
+public class InvocationPlanTestCase extends RestletTestCase {
+
+    public static interface PlanClient extends ClientProxy {
+
+        @Get
+        public String represent();
+
+        @Get
+        public void retrieve(Result<String> callback);
+
+        @Put
+        public void store(String entity);
+
+        public String unannotated();
+    }
+
+    private static java.lang.reflect.Method javaMethod(String name)
+            throws Exception {
+        for (java.lang.reflect.Method javaMethod : PlanClient.class
+                .getMethods()) {
+            if (javaMethod.getName().equals(name)) {
+                return javaMethod;
+            }
+        }
+
+        return null;
+    }
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        AnnotationUtils.clearCache();
+    }
+
+    public void testPlans() throws Exception {
+        Map<java.lang.reflect.Method, InvocationPlan> plans = AnnotationUtils
+                .getInvocationPlans(PlanClient.class);
+        assertSame(plans, AnnotationUtils.getInvocationPlans(PlanClient.class));
+
+        InvocationPlan plan = plans.get(Object.class.getMethod("toString"));
+        assertTrue(plan.isToString());
+        assertNull(plan.getAnnotation());
+
+        plan = plans.get(ClientProxy.class.getMethod("getClientResource"));
+        assertTrue(plan.isClientResourceGetter());
+        assertFalse(plan.isToString());
+
+        plan = plans.get(javaMethod("represent"));
+        assertEquals(Method.GET, plan.getRestletMethod());
+        assertEquals(String.class, plan.getJavaOutputType());
+        assertFalse(plan.isCallback(0));
+
+        plan = plans.get(javaMethod("retrieve"));
+        assertTrue(plan.isCallback(0));
+        assertEquals(String.class, plan.getCallbackType(0));
+
+        plan = plans.get(javaMethod("store"));
+        assertEquals(Method.PUT, plan.getRestletMethod());
+        assertFalse(plan.isCallback(0));
+        assertNull(plan.getCallbackType(0));
+
+        plan = plans.get(javaMethod("unannotated"));
+        assertNull(plan.getAnnotation());
+        assertNull(plan.getRestletMethod());
+    }
+
+    public void testProxy() throws Exception {
+        ClientResource clientResource = new ClientResource(
+                "http://localhost/plan");
+        clientResource.setNext(new Restlet() {
+            @Override
+            public void handle(Request request, Response response) {
+                response.setEntity(request.getMethod().getName() + " "
+                        + request.getClientInfo().getAcceptedMediaTypes()
+                                .isEmpty(), MediaType.TEXT_PLAIN);
+            }
+        });
+
+        PlanClient client = clientResource.wrap(PlanClient.class);
+        assertSame(clientResource, client.getClientResource());
+        assertTrue(client.toString().startsWith("ClientProxy for resource"));
+
+        for (int i = 0; i < 3; i++) {
+            assertEquals("GET false", client.represent());
+        }
+
+        assertNull(client.unannotated());
+    }
+
+    public void testResolution() throws Exception {
+        // Values are explicitly given as their parsing from the annotation
+        // depends on the JVM version
+        InvocationPlan plan = new InvocationPlan(javaMethod("represent"),
+                new AnnotationInfo(PlanClient.class, Method.GET,
+                        javaMethod("represent"), "txt?mode=full"));
+        assertEquals("full", plan.getQuery().getFirstValue("mode"));
+
+        MetadataService metadataService = new MetadataService();
+        ConverterService converterService = new ConverterService();
+        List<Variant> variants = plan.getResponseVariants(metadataService,
+                converterService);
+        assertEquals(MediaType.TEXT_PLAIN, variants.get(0).getMediaType());
+        assertSame(variants, plan.getResponseVariants(metadataService,
+                converterService));
+        assertNotSame(variants, plan.getResponseVariants(
+                new MetadataService(), converterService));
+    }
+
+}
@@ -0,0 +1,231 @@
+/**
+ * Copyright 2005-2011 Noelios Technologies.
+ * 
+ * The contents of this file are subject to the terms of one of the following
+ * open source licenses: LGPL 3.0 or LGPL 2.1 or CDDL 1.0 or EPL 1.0 (the
+ * "Licenses"). You can select the license that you prefer but you may not use
+ * this file except in compliance with one of these Licenses.
+ * 
+ * You can obtain a copy of the LGPL 3.0 license at
+ * http://www.opensource.org/licenses/lgpl-3.0.html
+ * 
+ * You can obtain a copy of the LGPL 2.1 license at
+ * http://www.opensource.org/licenses/lgpl-2.1.php
+ * 
+ * You can obtain a copy of the CDDL 1.0 license at
+ * http://www.opensource.org/licenses/cddl1.php
+ * 
+ * You can obtain a copy of the EPL 1.0 license at
+ * http://www.opensource.org/licenses/eclipse-1.0.php
+ * 
+ * See the Licenses for the specific language governing permissions and
+ * limitations under the Licenses.
+ * 
+ * Alternatively, you can obtain a royalty free commercial license with less
+ * limitations, transferable or non-transferable, directly at
+ * http://www.noelios.com/products/restlet-engine
+ * 
+ * Restlet is a registered trademark of Noelios Technologies.
+ */
+
+package org.restlet.test.engine;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipOutputStream;
+
+import org.restlet.Client;
+import org.restlet.Request;
+import org.restlet.Response;
+import org.restlet.data.Method;
+import org.restlet.data.Protocol;
+import org.restlet.data.Status;
+import org.restlet.engine.io.BioUtils;
+import org.restlet.engine.local.ClapClientHelper;
+import org.restlet.engine.local.ZipEntryRepresentation;
+import org.restlet.engine.local.ZipFileCache;
+import org.restlet.test.RestletTestCase;
+
+/**
+ * Test case for the cache of open Zip archives.
+ * 
+ * @author Jerome Louvel
+ */
+public class ZipFileCacheTestCase extends RestletTestCase {
+
+    private File testDir;
+
+    /**
+     * Writes an archive with a single entry, dated in the past so that it can
+     * be safely reused.
+     * 
+     * @param name
+     *            The archive file name.
+     * @param content
+     *            The content of the "test.txt" entry.
+     * @param age
+     *            The age of the archive in milliseconds.
+     * @return The archive file.
+     * @throws IOException
+     */
+    private File createArchive(String name, String content, long age)
+            throws IOException {
+        File file = new File(this.testDir, name);
+        ZipOutputStream out = new ZipOutputStream(new FileOutputStream(file));
+        out.putNextEntry(new ZipEntry("test.txt"));
+        out.write(content.getBytes("UTF-8"));
+        out.closeEntry();
+        out.close();
+        file.setLastModified(System.currentTimeMillis() - age);
+        return file;
+    }
+
+    /**
+     * Indicates if an archive was closed.
+     * 
+     * @param zipFile
+     *            The archive.
+     * @return True if the archive was closed.
+     */
+    private boolean isClosed(ZipFile zipFile) {
+        try {
+            zipFile.entries();
+            return false;
+        } catch (IllegalStateException e) {
+            return true;
+        }
+    }
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        this.testDir = new File(System.getProperty("java.io.tmpdir"),
+                "ZipFileCacheTestCase" + System.currentTimeMillis());
+        this.testDir.mkdirs();
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        BioUtils.delete(this.testDir, true);
+        this.testDir = null;
+        super.tearDown();
+    }
+
+    public void testChange() throws IOException {
+        ZipFileCache cache = new ZipFileCache();
+        File file = createArchive("test.zip", "first", 10000);
+        ZipFile first = cache.acquire(file);
+
+        createArchive("test.zip", "second, longer", 5000);
+        ZipFile second = cache.acquire(file);
+        assertNotSame(first, second);
+        assertEquals(2, cache.getMisses());
+
+        // The replaced archive is closed once released
+        assertFalse(isClosed(first));
+        cache.release(first);
+        assertTrue(isClosed(first));
+        cache.release(second);
+        assertFalse(isClosed(second));
+        assertEquals(1, cache.getOpenCount());
+    }
+
+    public void testClap() throws Exception {
+        File file = createArchive("test.jar", "clap", 10000);
+        ClassLoader classLoader = new URLClassLoader(new URL[] { file.toURI()
+                .toURL() }, null);
+        ZipFileCache cache = new ZipFileCache();
+        ClapClientHelper helper = new ClapClientHelper(new Client(
+                Protocol.CLAP));
+        helper.setZipFileCache(cache);
+
+        for (int i = 0; i < 2; i++) {
+            Request request = new Request(Method.GET, "clap://class/test.txt");
+            request.getAttributes().put("org.restlet.clap.classLoader",
+                    classLoader);
+            Response response = new Response(request);
+            helper.handle(request, response);
+            assertEquals(Status.SUCCESS_OK, response.getStatus());
+            assertTrue(response.getEntity() instanceof ZipEntryRepresentation);
+            assertEquals("clap", response.getEntity().getText());
+            assertNotNull(response.getEntity().getModificationDate());
+            response.getEntity().release();
+        }
+
+        assertEquals(1, cache.getMisses());
+        assertEquals(1, cache.getHits());
+        assertEquals(1, cache.getOpenCount());
+
+        cache.clear();
+        assertEquals(0, cache.getOpenCount());
+    }
+
+    public void testEviction() throws IOException {
+        ZipFileCache cache = new ZipFileCache(1);
+        ZipFile first = cache.acquire(createArchive("a.zip", "a", 10000));
+        ZipFile second = cache.acquire(createArchive("b.zip", "b", 10000));
+        assertEquals(1, cache.getEvictions());
+        assertEquals(1, cache.size());
+        assertEquals(2, cache.getOpenCount());
+
+        // The evicted archive is still readable until released
+        assertFalse(isClosed(first));
+        cache.release(first);
+        assertTrue(isClosed(first));
+        cache.release(second);
+        assertFalse(isClosed(second));
+    }
+
+    public void testHits() throws IOException {
+        ZipFileCache cache = new ZipFileCache();
+        File file = createArchive("test.zip", "test", 10000);
+        ZipFile zipFile = cache.acquire(file);
+        assertSame(zipFile, cache.acquire(file));
+        assertEquals(1, cache.getHits());
+        assertEquals(1, cache.getMisses());
+
+        cache.release(zipFile);
+        cache.release(zipFile);
+        assertFalse(isClosed(zipFile));
+        assertEquals(1, cache.size());
+
+        cache.invalidate(file);
+        assertTrue(isClosed(zipFile));
+        assertEquals(0, cache.size());
+        assertEquals(0, cache.getOpenCount());
+    }
+
+    public void testInvalidate() throws IOException {
+        ZipFileCache cache = new ZipFileCache();
+        File file = createArchive("test.zip", "test", 10000);
+        ZipFile zipFile = cache.acquire(file);
+        cache.retain(zipFile);
+        cache.invalidate();
+        assertFalse(isClosed(zipFile));
+
+        cache.release(zipFile);
+        assertFalse(isClosed(zipFile));
+        cache.release(zipFile);
+        assertTrue(isClosed(zipFile));
+
+        assertNotSame(zipFile, cache.acquire(file));
+    }
+
+    public void testRecentArchive() throws IOException {
+        ZipFileCache cache = new ZipFileCache();
+        File file = createArchive("test.zip", "test", 0);
+        ZipFile zipFile = cache.acquire(file);
+        cache.release(zipFile);
+
+        // An archive modified in the same second is opened again
+        assertNotSame(zipFile, cache.acquire(file));
+        assertTrue(isClosed(zipFile));
+        assertEquals(0, cache.getHits());
+    }
+
+}
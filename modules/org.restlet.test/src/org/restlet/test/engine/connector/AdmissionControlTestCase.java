@@ -0,0 +1,184 @@
+/**
+ * Copyright 2005-2011 Noelios Technologies.
+ * 
+ * The contents of this file are subject to the terms of one of the following
+ * open source licenses: LGPL 3.0 or LGPL 2.1 or CDDL 1.0 or EPL 1.0 (the
+ * "Licenses"). You can select the license that you prefer but you may not use
+ * this file except in compliance with one of these Licenses.
+ * 
+ * You can obtain a copy of the LGPL 3.0 license at
+ * http://www.opensource.org/licenses/lgpl-3.0.html
+ * 
+ * You can obtain a copy of the LGPL 2.1 license at
+ * http://www.opensource.org/licenses/lgpl-2.1.php
+ * 
+ * You can obtain a copy of the CDDL 1.0 license at
+ * http://www.opensource.org/licenses/cddl1.php
+ * 
+ * You can obtain a copy of the EPL 1.0 license at
+ * http://www.opensource.org/licenses/eclipse-1.0.php
+ * 
+ * See the Licenses for the specific language governing permissions and
+ * limitations under the Licenses.
+ * 
+ * Alternatively, you can obtain a royalty free commercial license with less
+ * limitations, transferable or non-transferable, directly at
+ * http://www.noelios.com/products/restlet-engine
+ * 
+ * Restlet is a registered trademark of Noelios Technologies.
+ */
+
+package org.restlet.test.engine.connector;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.restlet.Client;
+import org.restlet.Context;
+import org.restlet.Request;
+import org.restlet.Response;
+import org.restlet.Restlet;
+import org.restlet.Server;
+import org.restlet.data.MediaType;
+import org.restlet.data.Method;
+import org.restlet.data.Protocol;
+import org.restlet.data.Status;
+import org.restlet.engine.connector.ConcurrencyLimiter;
+import org.restlet.engine.connector.ConnectorMetrics;
+import org.restlet.engine.connector.HttpServerHelper;
+import org.restlet.engine.header.Header;
+import org.restlet.engine.header.HeaderConstants;
+import org.restlet.engine.header.HeaderUtils;
+import org.restlet.test.RestletTestCase;
+import org.restlet.util.Series;
+
+/**
+ * Unit test for the admission control of the internal HTTP server.
+ * 
+ * @author Jerome Louvel
+ */
+public class AdmissionControlTestCase extends RestletTestCase {
+
+    public void testLimiter() throws Exception {
+        ConcurrencyLimiter limiter = new ConcurrencyLimiter(2, 4, 4, 1, 0.5D);
+        assertEquals(4, limiter.getLimit());
+
+        for (int i = 0; i < 4; i++) {
+            assertTrue(limiter.tryAcquire());
+        }
+
+        assertFalse(limiter.tryAcquire());
+        assertEquals(4, limiter.getInFlight());
+
+        // A slow request halves the limit
+        long slow = System.nanoTime();
+        Thread.sleep(10);
+        limiter.release(slow);
+        assertEquals(3, limiter.getInFlight());
+        assertEquals(2, limiter.getLimit());
+        assertFalse(limiter.tryAcquire());
+
+        // Requests admitted before the decrease don't decrease it again
+        limiter.release(slow);
+        assertEquals(2, limiter.getLimit());
+
+        // Fast requests increase it again, up to the maximum
+        for (int i = 0; i < 20; i++) {
+            limiter.release(System.nanoTime());
+            assertTrue(limiter.tryAcquire());
+        }
+
+        assertEquals(4, limiter.getLimit());
+    }
+
+    public void testShedding() throws Exception {
+        final CountDownLatch started = new CountDownLatch(2);
+        final CountDownLatch released = new CountDownLatch(1);
+        Server server = new Server(new Context(), Protocol.HTTP, 0,
+                new Restlet() {
+                    @Override
+                    public void handle(Request request, Response response) {
+                        started.countDown();
+
+                        try {
+                            released.await(10, TimeUnit.SECONDS);
+                        } catch (InterruptedException e) {
+                        }
+
+                        response.setEntity("admitted", MediaType.TEXT_PLAIN);
+                    }
+                });
+        server.getContext().getParameters().add("admissionControl", "true");
+        server.getContext().getParameters().add("admissionMinLimit", "2");
+        server.getContext().getParameters().add("admissionMaxLimit", "2");
+        server.getContext().getParameters().add("metrics", "true");
+        server.start();
+
+        HttpServerHelper helper = (HttpServerHelper) server.getContext()
+                .getAttributes().get("org.restlet.engine.helper");
+        ConnectorMetrics metrics = helper.getMetrics();
+        assertEquals(2, metrics.getAdmissionLimit());
+
+        final Client client = new Client(Protocol.HTTP);
+        client.start();
+        final String uri = "http://localhost:" + server.getEphemeralPort()
+                + "/";
+        final List<Response> responses = new ArrayList<Response>();
+        List<Thread> threads = new ArrayList<Thread>();
+
+        for (int i = 0; i < 2; i++) {
+            Thread thread = new Thread() {
+                @Override
+                public void run() {
+                    Response response = client.handle(new Request(
+                            Method.GET, uri));
+
+                    synchronized (responses) {
+                        responses.add(response);
+                    }
+                }
+            };
+            thread.start();
+            threads.add(thread);
+        }
+
+        assertTrue(started.await(10, TimeUnit.SECONDS));
+        assertEquals(2, metrics.getAdmissionInFlight());
+
+        // The connection is accepted but the request is shed
+        Response shed = client.handle(new Request(Method.GET, uri));
+        assertEquals(Status.SERVER_ERROR_SERVICE_UNAVAILABLE, shed.getStatus());
+        assertNotNull(shed.getRetryAfter());
+        assertEquals(1, metrics.getShedRequests());
+
+        // A shed request with an unread entity closes its connection
+        Request post = new Request(Method.POST, uri);
+        post.setEntity("unread entity", MediaType.TEXT_PLAIN);
+        shed = client.handle(post);
+        assertEquals(Status.SERVER_ERROR_SERVICE_UNAVAILABLE, shed.getStatus());
+        @SuppressWarnings("unchecked")
+        Series<Header> headers = (Series<Header>) shed.getAttributes().get(
+                HeaderConstants.ATTRIBUTE_HEADERS);
+        assertTrue(HeaderUtils.isConnectionClose(headers));
+        assertEquals(2, metrics.getShedRequests());
+
+        released.countDown();
+
+        for (Thread thread : threads) {
+            thread.join(10000);
+        }
+
+        assertEquals(2, responses.size());
+
+        for (Response response : responses) {
+            assertEquals(Status.SUCCESS_OK, response.getStatus());
+            assertEquals("admitted", response.getEntity().getText());
+        }
+
+        client.stop();
+        server.stop();
+    }
+
+}
@@ -0,0 +1,168 @@
+/**
+ * Copyright 2005-2011 Noelios Technologies.
+ * 
+ * The contents of this file are subject to the terms of one of the following
+ * open source licenses: LGPL 3.0 or LGPL 2.1 or CDDL 1.0 or EPL 1.0 (the
+ * "Licenses"). You can select the license that you prefer but you may not use
+ * this file except in compliance with one of these Licenses.
+ * 
+ * You can obtain a copy of the LGPL 3.0 license at
+ * http://www.opensource.org/licenses/lgpl-3.0.html
+ * 
+ * You can obtain a copy of the LGPL 2.1 license at
+ * http://www.opensource.org/licenses/lgpl-2.1.php
+ * 
+ * You can obtain a copy of the CDDL 1.0 license at
+ * http://www.opensource.org/licenses/cddl1.php
+ * 
+ * You can obtain a copy of the EPL 1.0 license at
+ * http://www.opensource.org/licenses/eclipse-1.0.php
+ * 
+ * See the Licenses for the specific language governing permissions and
+ * limitations under the Licenses.
+ * 
+ * Alternatively, you can obtain a royalty free commercial license with less
+ * limitations, transferable or non-transferable, directly at
+ * http://www.noelios.com/products/restlet-engine
+ * 
+ * Restlet is a registered trademark of Noelios Technologies.
+ */
+
+package org.restlet.test.engine.connector;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.restlet.Client;
+import org.restlet.Context;
+import org.restlet.Request;
+import org.restlet.Response;
+import org.restlet.Restlet;
+import org.restlet.Server;
+import org.restlet.data.MediaType;
+import org.restlet.data.Method;
+import org.restlet.data.Protocol;
+import org.restlet.data.Status;
+import org.restlet.engine.connector.Connection;
+import org.restlet.engine.connector.ConnectionController;
+import org.restlet.engine.connector.ConnectorListener;
+import org.restlet.engine.connector.ConnectorMetrics;
+import org.restlet.engine.connector.HttpServerHelper;
+import org.restlet.engine.connector.LatencyHistogram;
+import org.restlet.test.RestletTestCase;
+
+/**
+ * Unit test for the connector metrics.
+ * 
+ * @author Jerome Louvel
+ */
+public class ConnectorMetricsTestCase extends RestletTestCase {
+
+    public void testLatencyHistogram() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        assertEquals(0D, histogram.getPercentileMs(99));
+
+        for (int i = 0; i < 99; i++) {
+            histogram.record(100000L); // 0.1 ms
+        }
+
+        histogram.record(50000000L); // 50 ms
+        assertEquals(100, histogram.getCount());
+        assertEquals(50D, histogram.getMaxMs());
+        assertTrue(histogram.getPercentileMs(50) >= 0.1D);
+        assertTrue(histogram.getPercentileMs(50) <= 0.2D);
+        assertTrue(histogram.getPercentileMs(99) <= 0.2D);
+        assertEquals(50D, histogram.getPercentileMs(100));
+        assertEquals((99 * 0.1D + 50D) / 100, histogram.getMeanMs(), 0.0001D);
+
+        histogram.reset();
+        assertEquals(0, histogram.getCount());
+        assertEquals(0D, histogram.getMaxMs());
+    }
+
+    public void testServerMetrics() throws Exception {
+        Server server = new Server(new Context(), Protocol.HTTP, 0,
+                new Restlet() {
+                    @Override
+                    public void handle(Request request, Response response) {
+                        response.setEntity("metrics", MediaType.TEXT_PLAIN);
+                    }
+                });
+        server.getContext().getParameters().add("metrics", "true");
+        server.getContext().getParameters().add("metricsMBean", "true");
+        server.start();
+
+        HttpServerHelper helper = (HttpServerHelper) server.getContext()
+                .getAttributes().get("org.restlet.engine.helper");
+        ConnectorMetrics metrics = helper.getMetrics();
+        assertNotNull(metrics);
+
+        final AtomicInteger received = new AtomicInteger();
+        final AtomicInteger sent = new AtomicInteger();
+        metrics.getListeners().add(new ConnectorListener() {
+            public void onAccepted(Connection<?> connection) {
+            }
+
+            public void onClosed(Connection<?> connection) {
+            }
+
+            public void onControlled(ConnectionController controller,
+                    long busyTimeNs, int selectedKeys) {
+            }
+
+            public void onReceived(Connection<?> connection, long parseTimeNs) {
+                received.incrementAndGet();
+            }
+
+            public void onRejected(Runnable task) {
+            }
+
+            public void onSent(Connection<?> connection, long writeTimeNs) {
+                sent.incrementAndGet();
+            }
+
+            public void onShed(Response response) {
+            }
+        });
+
+        MBeanServer mbeanServer = ManagementFactory.getPlatformMBeanServer();
+        ObjectName pattern = new ObjectName(
+                "org.restlet:type=Connector,side=server,*");
+        assertEquals(1, mbeanServer.queryNames(pattern, null).size());
+
+        Client client = new Client(Protocol.HTTP);
+        client.start();
+
+        for (int i = 0; i < 5; i++) {
+            Response response = client.handle(new Request(Method.GET,
+                    "http://localhost:" + server.getEphemeralPort() + "/"));
+            assertEquals(Status.SUCCESS_OK, response.getStatus());
+            assertEquals("metrics", response.getEntity().getText());
+        }
+
+        client.stop();
+
+        // The last message may still be completing on the controller thread
+        for (int i = 0; (i < 100) && (metrics.getMessagesSent() < 5); i++) {
+            Thread.sleep(10);
+        }
+
+        assertTrue(metrics.getAcceptedConnections() >= 1);
+        assertTrue(metrics.getBytesRead() > 0);
+        assertTrue(metrics.getBytesWritten() > 0);
+        assertEquals(5, metrics.getMessagesReceived());
+        assertEquals(5, metrics.getMessagesSent());
+        assertEquals(5, received.get());
+        assertEquals(5, sent.get());
+        assertTrue(metrics.getControllerLoops() > 0);
+        assertTrue(metrics.getSelectorWakeups() > 0);
+        assertEquals(0, metrics.getRejectedExecutions());
+
+        server.stop();
+        assertEquals(0, mbeanServer.queryNames(pattern, null).size());
+    }
+
+}
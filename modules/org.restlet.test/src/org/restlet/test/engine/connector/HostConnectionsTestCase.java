@@ -0,0 +1,120 @@
+/**
+ * Copyright 2005-2011 Noelios Technologies.
+ * 
+ * The contents of this file are subject to the terms of one of the following
+ * open source licenses: LGPL 3.0 or LGPL 2.1 or CDDL 1.0 or EPL 1.0 (the
+ * "Licenses"). You can select the license that you prefer but you may not use
+ * this file except in compliance with one of these Licenses.
+ * 
+ * You can obtain a copy of the LGPL 3.0 license at
+ * http://www.opensource.org/licenses/lgpl-3.0.html
+ * 
+ * You can obtain a copy of the LGPL 2.1 license at
+ * http://www.opensource.org/licenses/lgpl-2.1.php
+ * 
+ * You can obtain a copy of the CDDL 1.0 license at
+ * http://www.opensource.org/licenses/cddl1.php
+ * 
+ * You can obtain a copy of the EPL 1.0 license at
+ * http://www.opensource.org/licenses/eclipse-1.0.php
+ * 
+ * See the Licenses for the specific language governing permissions and
+ * limitations under the Licenses.
+ * 
+ * Alternatively, you can obtain a royalty free commercial license with less
+ * limitations, transferable or non-transferable, directly at
+ * http://www.noelios.com/products/restlet-engine
+ * 
+ * Restlet is a registered trademark of Noelios Technologies.
+ */
+package org.restlet.test.engine.connector;
+
+import org.restlet.Client;
+import org.restlet.Context;
+import org.restlet.Request;
+import org.restlet.Response;
+import org.restlet.Restlet;
+import org.restlet.Server;
+import org.restlet.data.MediaType;
+import org.restlet.data.Method;
+import org.restlet.data.Protocol;
+import org.restlet.data.Status;
+import org.restlet.engine.connector.HostConnections;
+import org.restlet.engine.connector.HttpClientHelper;
+import org.restlet.test.RestletTestCase;
+
+/**
+ * Unit test for the index of client connections by host.
+ * 
+ * @author Jerome Louvel
+ */
+public class HostConnectionsTestCase extends RestletTestCase {
+
+    public void testHostIndex() throws Exception {
+        Server server = new Server(new Context(), Protocol.HTTP, 0,
+                new Restlet() {
+                    @Override
+                    public void handle(Request request, Response response) {
+                        response.setEntity("host", MediaType.TEXT_PLAIN);
+                    }
+                });
+        server.start();
+
+        Client client = new Client(new Context(), Protocol.HTTP);
+        client.start();
+        HttpClientHelper helper = (HttpClientHelper) client.getContext()
+                .getAttributes().get("org.restlet.engine.helper");
+
+        for (int i = 0; i < 5; i++) {
+            Response response = client.handle(new Request(Method.GET,
+                    "http://LocalHost:" + server.getEphemeralPort() + "/"));
+            assertEquals(Status.SUCCESS_OK, response.getStatus());
+            assertEquals("host", response.getEntity().getText());
+        }
+
+        String key = "http://localhost:" + server.getEphemeralPort();
+        assertEquals(1, helper.getHostConnections().size());
+        HostConnections<Client> hostConns = helper.getHostConnections().get(
+                key);
+        assertNotNull(hostConns);
+        assertEquals(key, hostConns.getKey());
+        assertTrue(hostConns.size() >= 1);
+        assertTrue(hostConns.getConnections().containsAll(
+                helper.getConnections()));
+
+        client.stop();
+        assertTrue(helper.getHostConnections().isEmpty());
+        server.stop();
+    }
+
+    public void testConnectionReuse() throws Exception {
+        Server server = new Server(new Context(), Protocol.HTTP, 0,
+                new Restlet() {
+                    @Override
+                    public void handle(Request request, Response response) {
+                        response.setEntity("host", MediaType.TEXT_PLAIN);
+                    }
+                });
+        server.start();
+
+        Client client = new Client(new Context(), Protocol.HTTP);
+        client.getContext().getParameters().add("maxConnectionsPerHost", "1");
+        client.start();
+        HttpClientHelper helper = (HttpClientHelper) client.getContext()
+                .getAttributes().get("org.restlet.engine.helper");
+        String uri = "http://localhost:" + server.getEphemeralPort() + "/";
+
+        // Consuming the entity releases the connection for the next request
+        for (int i = 0; i < 5; i++) {
+            Response response = client.handle(new Request(Method.GET, uri));
+            assertEquals(Status.SUCCESS_OK, response.getStatus());
+            assertEquals("host", response.getEntity().getText());
+        }
+
+        assertEquals(1, helper.getConnections().size());
+
+        client.stop();
+        server.stop();
+    }
+
+}
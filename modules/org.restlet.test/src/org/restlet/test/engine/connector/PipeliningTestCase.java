@@ -0,0 +1,265 @@
+/**
+ * Copyright 2005-2011 Noelios Technologies.
+ * 
+ * The contents of this file are subject to the terms of one of the following
+ * open source licenses: LGPL 3.0 or LGPL 2.1 or CDDL 1.0 or EPL 1.0 (the
+ * "Licenses"). You can select the license that you prefer but you may not use
+ * this file except in compliance with one of these Licenses.
+ * 
+ * You can obtain a copy of the LGPL 3.0 license at
+ * http://www.opensource.org/licenses/lgpl-3.0.html
+ * 
+ * You can obtain a copy of the LGPL 2.1 license at
+ * http://www.opensource.org/licenses/lgpl-2.1.php
+ * 
+ * You can obtain a copy of the CDDL 1.0 license at
+ * http://www.opensource.org/licenses/cddl1.php
+ * 
+ * You can obtain a copy of the EPL 1.0 license at
+ * http://www.opensource.org/licenses/eclipse-1.0.php
+ * 
+ * See the Licenses for the specific language governing permissions and
+ * limitations under the Licenses.
+ * 
+ * Alternatively, you can obtain a royalty free commercial license with less
+ * limitations, transferable or non-transferable, directly at
+ * http://www.noelios.com/products/restlet-engine
+ * 
+ * Restlet is a registered trademark of Noelios Technologies.
+ */
+
+package org.restlet.test.engine.connector;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.restlet.Client;
+import org.restlet.Context;
+import org.restlet.Request;
+import org.restlet.Response;
+import org.restlet.Uniform;
+import org.restlet.data.MediaType;
+import org.restlet.data.Method;
+import org.restlet.data.Protocol;
+import org.restlet.data.Status;
+import org.restlet.test.RestletTestCase;
+
+/**
+ * Unit test for the pipelining of requests by the internal HTTP client. A
+ * minimal blocking server answers the pipelined requests in order and closes
+ * each connection after a given number of responses.
+ * 
+ * @author Jerome Louvel
+ */
+public class PipeliningTestCase extends RestletTestCase {
+
+    private static final int REQUESTS = 20;
+
+    /** The number of connections accepted by the test server. */
+    private final AtomicInteger accepted = new AtomicInteger();
+
+    /**
+     * Answers the requests received on a connection, echoing the last segment
+     * of their URI.
+     * 
+     * @param socket
+     *            The accepted socket.
+     * @param maxResponses
+     *            The number of responses sent before closing the connection.
+     */
+    private void answer(Socket socket, int maxResponses) throws IOException {
+        BufferedReader reader = new BufferedReader(new InputStreamReader(
+                socket.getInputStream(), "ISO-8859-1"));
+        OutputStream out = socket.getOutputStream();
+
+        for (int i = 0; i < maxResponses; i++) {
+            String requestLine = reader.readLine();
+
+            if (requestLine == null) {
+                break;
+            }
+
+            // Skip the headers
+            String line = reader.readLine();
+
+            while ((line != null) && (line.length() > 0)) {
+                line = reader.readLine();
+            }
+
+            String uri = requestLine.split(" ")[1];
+            String body = uri.substring(uri.lastIndexOf('/') + 1);
+            out.write(("HTTP/1.1 200 OK\r\nContent-Type: text/plain\r\n"
+                    + "Content-Length: " + body.length() + "\r\n\r\n" + body)
+                    .getBytes("ISO-8859-1"));
+            out.flush();
+        }
+
+        socket.close();
+    }
+
+    /**
+     * Sends asynchronous GET requests and returns the number of successful
+     * responses.
+     * 
+     * @param maxResponses
+     *            The number of responses sent by the server before closing a
+     *            connection.
+     * @param maxConnectionsPerHost
+     *            The maximum number of client connections.
+     * @return The number of successful responses.
+     */
+    private int pipeline(final int maxResponses, int maxConnectionsPerHost)
+            throws Exception {
+        final ServerSocket serverSocket = new ServerSocket(0);
+        Thread acceptor = new Thread() {
+            @Override
+            public void run() {
+                try {
+                    while (true) {
+                        final Socket socket = serverSocket.accept();
+                        accepted.incrementAndGet();
+                        new Thread() {
+                            @Override
+                            public void run() {
+                                try {
+                                    answer(socket, maxResponses);
+                                } catch (IOException e) {
+                                    // Connection closed by the client
+                                }
+                            }
+                        }.start();
+                    }
+                } catch (IOException e) {
+                    // Server socket closed
+                }
+            }
+        };
+        acceptor.start();
+
+        Context clientContext = new Context();
+        clientContext.getParameters().add("pipeliningConnections", "true");
+        clientContext.getParameters().add("maxConnectionsPerHost",
+                Integer.toString(maxConnectionsPerHost));
+        clientContext.getParameters().add("maxPipelinedRequests",
+                Integer.toString(REQUESTS));
+        Client client = new Client(clientContext, Protocol.HTTP);
+        client.start();
+
+        final CountDownLatch latch = new CountDownLatch(REQUESTS);
+        final AtomicInteger successes = new AtomicInteger();
+
+        for (int i = 0; i < REQUESTS; i++) {
+            final String segment = Integer.toString(i);
+            Request request = new Request(Method.GET, "http://localhost:"
+                    + serverSocket.getLocalPort() + "/" + segment);
+            request.setOnResponse(new Uniform() {
+                public void handle(Request request, Response response) {
+                    try {
+                        if (Status.SUCCESS_OK.equals(response.getStatus())
+                                && segment.equals(response.getEntity()
+                                        .getText())) {
+                            successes.incrementAndGet();
+                        }
+                    } catch (IOException e) {
+                        // Counted as a failure
+                    } finally {
+                        latch.countDown();
+                    }
+                }
+            });
+            client.handle(request);
+        }
+
+        latch.await(10, TimeUnit.SECONDS);
+        client.stop();
+        serverSocket.close();
+        return successes.get();
+    }
+
+    public void testPipelining() throws Exception {
+        assertEquals(REQUESTS, pipeline(REQUESTS, 1));
+        assertEquals(1, accepted.get());
+    }
+
+    public void testNoReplayWithoutPipelining() throws Exception {
+        final ServerSocket serverSocket = new ServerSocket(0);
+        Thread acceptor = new Thread() {
+            @Override
+            public void run() {
+                try {
+                    while (true) {
+                        Socket socket = serverSocket.accept();
+                        accepted.incrementAndGet();
+
+                        try {
+                            // Answer a GET request then reset the connection
+                            // when the next request arrives
+                            BufferedReader reader = new BufferedReader(
+                                    new InputStreamReader(socket
+                                            .getInputStream(), "ISO-8859-1"));
+                            String line = reader.readLine();
+
+                            while ((line != null) && line.startsWith("GET")) {
+                                while ((line != null) && (line.length() > 0)) {
+                                    line = reader.readLine();
+                                }
+
+                                socket.getOutputStream().write(
+                                        ("HTTP/1.1 200 OK\r\n"
+                                                + "Content-Length: 1\r\n\r\na")
+                                                .getBytes("ISO-8859-1"));
+                                line = reader.readLine();
+                            }
+
+                            socket.setSoLinger(true, 0);
+                            socket.close();
+                        } catch (IOException e) {
+                            // Connection closed by the client
+                        }
+                    }
+                } catch (IOException e) {
+                    // Server socket closed
+                }
+            }
+        };
+        acceptor.start();
+
+        Client client = new Client(new Context(), Protocol.HTTP);
+        client.start();
+        String uri = "http://localhost:" + serverSocket.getLocalPort() + "/";
+        Response response = client.handle(new Request(Method.GET, uri + "a"));
+        assertEquals(Status.SUCCESS_OK, response.getStatus());
+        assertEquals("a", response.getEntity().getText());
+
+        StringBuilder entity = new StringBuilder();
+
+        while (entity.length() < 4000000) {
+            entity.append("Idempotent entity failing to be written. ");
+        }
+
+        Request request = new Request(Method.PUT, uri);
+        request.setEntity(entity.toString(), MediaType.TEXT_PLAIN);
+        response = client.handle(request);
+        assertTrue(response.getStatus().isError());
+
+        // The write error on the established connection isn't followed by a
+        // replay on a new connection
+        Thread.sleep(500);
+        assertEquals(1, accepted.get());
+
+        client.stop();
+        serverSocket.close();
+    }
+
+    public void testReplayOnClose() throws Exception {
+        assertEquals(REQUESTS, pipeline(5, -1));
+    }
+
+}
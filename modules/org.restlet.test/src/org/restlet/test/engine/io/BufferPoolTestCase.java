@@ -0,0 +1,96 @@
+/**
+ * Copyright 2005-2011 Noelios Technologies.
+ * 
+ * The contents of this file are subject to the terms of one of the following
+ * open source licenses: LGPL 3.0 or LGPL 2.1 or CDDL 1.0 or EPL 1.0 (the
+ * "Licenses"). You can select the license that you prefer but you may not use
+ * this file except in compliance with one of these Licenses.
+ * 
+ * You can obtain a copy of the LGPL 3.0 license at
+ * http://www.opensource.org/licenses/lgpl-3.0.html
+ * 
+ * You can obtain a copy of the LGPL 2.1 license at
+ * http://www.opensource.org/licenses/lgpl-2.1.php
+ * 
+ * You can obtain a copy of the CDDL 1.0 license at
+ * http://www.opensource.org/licenses/cddl1.php
+ * 
+ * You can obtain a copy of the EPL 1.0 license at
+ * http://www.opensource.org/licenses/eclipse-1.0.php
+ * 
+ * See the Licenses for the specific language governing permissions and
+ * limitations under the Licenses.
+ * 
+ * Alternatively, you can obtain a royalty free commercial license with less
+ * limitations, transferable or non-transferable, directly at
+ * http://www.noelios.com/products/restlet-engine
+ * 
+ * Restlet is a registered trademark of Noelios Technologies.
+ */
+
+package org.restlet.test.engine.io;
+
+import java.nio.ByteBuffer;
+
+import org.restlet.engine.io.Buffer;
+import org.restlet.engine.io.BufferPool;
+import org.restlet.test.RestletTestCase;
+
+/**
+ * Test case for the {@link BufferPool} class.
+ * 
+ * @author Jerome Louvel
+ */
+public class BufferPoolTestCase extends RestletTestCase {
+
+    public void testCheckout() {
+        BufferPool pool = new BufferPool(false, 64 * 1024);
+        ByteBuffer b1 = pool.checkout(16 * 1024);
+        assertEquals(16 * 1024, b1.capacity());
+        assertEquals(1, pool.getMisses());
+        assertEquals(64 * 1024, pool.getAllocatedBytes());
+
+        ByteBuffer b2 = pool.checkout(10000);
+        assertEquals(16 * 1024, b2.capacity());
+        assertEquals(1, pool.getMisses());
+        assertEquals(32 * 1024, pool.getBytesInUse());
+
+        pool.checkin(b1);
+        pool.checkin(b2);
+        assertEquals(0, pool.getBytesInUse());
+        assertEquals(32 * 1024, pool.getMaxBytesInUse());
+
+        ByteBuffer b3 = pool.checkout(2 * 1024 * 1024);
+        assertEquals(2 * 1024 * 1024, b3.capacity());
+        assertEquals(2, pool.getMisses());
+        pool.checkin(b3);
+        assertEquals(0, pool.getBytesInUse());
+    }
+
+    public void testPooledBuffer() {
+        BufferPool pool = new BufferPool(false);
+        Buffer buffer = new Buffer(10000, pool);
+        assertTrue(buffer.isEmpty());
+        assertTrue(buffer.canFill());
+        assertEquals(10000, buffer.remaining());
+        assertEquals(0, pool.getBytesInUse());
+
+        buffer.fill("abc");
+        assertEquals(16 * 1024, pool.getBytesInUse());
+        assertEquals(10000, buffer.capacity());
+        assertFalse(buffer.release());
+
+        buffer.flip();
+        StringBuilder sb = new StringBuilder();
+
+        while (buffer.canDrain()) {
+            sb.append((char) buffer.drain());
+        }
+
+        assertEquals("abc", sb.toString());
+        assertTrue(buffer.release());
+        assertEquals(0, pool.getBytesInUse());
+        assertTrue(buffer.isFilling());
+        assertEquals(10000, buffer.remaining());
+    }
+}
@@ -0,0 +1,175 @@
+/**
+ * Copyright 2005-2011 Noelios Technologies.
+ * 
+ * The contents of this file are subject to the terms of one of the following
+ * open source licenses: LGPL 3.0 or LGPL 2.1 or CDDL 1.0 or EPL 1.0 (the
+ * "Licenses"). You can select the license that you prefer but you may not use
+ * this file except in compliance with one of these Licenses.
+ * 
+ * You can obtain a copy of the LGPL 3.0 license at
+ * http://www.opensource.org/licenses/lgpl-3.0.html
+ * 
+ * You can obtain a copy of the LGPL 2.1 license at
+ * http://www.opensource.org/licenses/lgpl-2.1.php
+ * 
+ * You can obtain a copy of the CDDL 1.0 license at
+ * http://www.opensource.org/licenses/cddl1.php
+ * 
+ * You can obtain a copy of the EPL 1.0 license at
+ * http://www.opensource.org/licenses/eclipse-1.0.php
+ * 
+ * See the Licenses for the specific language governing permissions and
+ * limitations under the Licenses.
+ * 
+ * Alternatively, you can obtain a royalty free commercial license with less
+ * limitations, transferable or non-transferable, directly at
+ * http://www.noelios.com/products/restlet-engine
+ * 
+ * Restlet is a registered trademark of Noelios Technologies.
+ */
+
+package org.restlet.test.engine.io;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Arrays;
+
+import org.restlet.data.MediaType;
+import org.restlet.engine.io.BioUtils;
+import org.restlet.engine.io.PipeStream;
+import org.restlet.representation.OutputRepresentation;
+import org.restlet.test.RestletTestCase;
+
+/**
+ * Test case for the {@link PipeStream} class.
+ * 
+ * @author Jerome Louvel
+ */
+public class PipeStreamTestCase extends RestletTestCase {
+
+    /** The error raised by the writer thread, if any. */
+    private volatile IOException writerError;
+
+    /**
+     * Reads an input stream fully.
+     * 
+     * @param is
+     *            The input stream.
+     * @return The bytes read.
+     * @throws IOException
+     */
+    private static byte[] readFully(InputStream is) throws IOException {
+        ByteArrayOutputStream result = new ByteArrayOutputStream();
+        byte[] buffer = new byte[1000];
+        int read;
+
+        while ((read = is.read(buffer)) != -1) {
+            result.write(buffer, 0, read);
+        }
+
+        is.close();
+        return result.toByteArray();
+    }
+
+    public void testClosedInput() throws IOException {
+        PipeStream pipe = new PipeStream(16, 1000);
+        pipe.getInputStream().close();
+
+        try {
+            pipe.getOutputStream().write(new byte[32]);
+            fail("Writing into a pipe closed for reading should fail");
+        } catch (IOException e) {
+            // Expected
+        }
+    }
+
+    public void testGetInputStream() throws IOException {
+        final byte[] content = new byte[100000];
+
+        for (int i = 0; i < content.length; i++) {
+            content[i] = (byte) i;
+        }
+
+        OutputRepresentation rep = new OutputRepresentation(
+                MediaType.APPLICATION_OCTET_STREAM) {
+            @Override
+            public void write(OutputStream outputStream) throws IOException {
+                outputStream.write(content);
+            }
+        };
+
+        assertTrue(Arrays.equals(content,
+                readFully(BioUtils.getInputStream(rep))));
+    }
+
+    public void testGetInputStreamFailure() throws IOException {
+        OutputRepresentation rep = new OutputRepresentation(
+                MediaType.APPLICATION_OCTET_STREAM) {
+            @Override
+            public void write(OutputStream outputStream) throws IOException {
+                outputStream.write(new byte[1000]);
+                throw new IOException("Failure while writing");
+            }
+        };
+
+        InputStream is = BioUtils.getInputStream(rep);
+        int total = 0;
+
+        try {
+            // The truncated content must not end normally
+            byte[] buffer = new byte[100];
+            int read;
+
+            while ((read = is.read(buffer)) != -1) {
+                total += read;
+            }
+
+            fail("Reading a truncated content should fail");
+        } catch (IOException e) {
+            assertEquals("Failure while writing", e.getCause().getMessage());
+        }
+
+        assertEquals(1000, total);
+    }
+
+    public void testTransfer() throws Exception {
+        final PipeStream pipe = new PipeStream(1000, 5000);
+        final byte[] content = new byte[12345];
+
+        for (int i = 0; i < content.length; i++) {
+            content[i] = (byte) (i * 7);
+        }
+
+        Thread writer = new Thread() {
+            @Override
+            public void run() {
+                try {
+                    OutputStream os = pipe.getOutputStream();
+                    os.write(content, 0, 345);
+
+                    for (int i = 345; i < 1345; i++) {
+                        os.write(content[i]);
+                    }
+
+                    os.write(content, 1345, content.length - 1345);
+                    os.close();
+                } catch (IOException e) {
+                    writerError = e;
+                }
+            }
+        };
+
+        writer.start();
+        InputStream is = pipe.getInputStream();
+        assertEquals(content[0] & 0xff, is.read());
+        byte[] result = readFully(is);
+        writer.join();
+        assertNull(writerError);
+        assertEquals(content.length - 1, result.length);
+        assertTrue(Arrays.equals(
+                Arrays.copyOfRange(content, 1, content.length), result));
+    }
+
+}
@@ -0,0 +1,234 @@
+/**
+ * Copyright 2005-2011 Noelios Technologies.
+ * 
+ * The contents of this file are subject to the terms of one of the following
+ * open source licenses: LGPL 3.0 or LGPL 2.1 or CDDL 1.0 or EPL 1.0 (the
+ * "Licenses"). You can select the license that you prefer but you may not use
+ * this file except in compliance with one of these Licenses.
+ * 
+ * You can obtain a copy of the LGPL 3.0 license at
+ * http://www.opensource.org/licenses/lgpl-3.0.html
+ * 
+ * You can obtain a copy of the LGPL 2.1 license at
+ * http://www.opensource.org/licenses/lgpl-2.1.php
+ * 
+ * You can obtain a copy of the CDDL 1.0 license at
+ * http://www.opensource.org/licenses/cddl1.php
+ * 
+ * You can obtain a copy of the EPL 1.0 license at
+ * http://www.opensource.org/licenses/eclipse-1.0.php
+ * 
+ * See the Licenses for the specific language governing permissions and
+ * limitations under the Licenses.
+ * 
+ * Alternatively, you can obtain a royalty free commercial license with less
+ * limitations, transferable or non-transferable, directly at
+ * http://www.noelios.com/products/restlet-engine
+ * 
+ * Restlet is a registered trademark of Noelios Technologies.
+ */
+
+package org.restlet.test.engine.io;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.InflaterInputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+import org.restlet.data.Disposition;
+import org.restlet.data.Encoding;
+import org.restlet.engine.application.EncodeRepresentation;
+import org.restlet.engine.io.ReadableEncodingChannel;
+import org.restlet.representation.ByteArrayRepresentation;
+import org.restlet.test.RestletTestCase;
+
+/**
+ * Test case for the ReadableEncodingChannel class.
+ * 
+ * @author Jerome Louvel
+ */
+public class ReadableEncodingChannelTestCase extends RestletTestCase {
+
+    /**
+     * Source channel returning a few bytes at a time, and regularly no byte at
+     * all, like a non blocking channel.
+     */
+    private static class TrickleChannel implements ReadableByteChannel {
+
+        private final ByteBuffer content;
+
+        private int reads;
+
+        public TrickleChannel(byte[] content) {
+            this.content = ByteBuffer.wrap(content);
+        }
+
+        public void close() {
+        }
+
+        public boolean isOpen() {
+            return true;
+        }
+
+        public int read(ByteBuffer dst) {
+            if ((this.reads++ % 3) == 0) {
+                return 0;
+            }
+
+            if (!this.content.hasRemaining()) {
+                return -1;
+            }
+
+            int count = Math.min(Math.min(dst.remaining(), 13),
+                    this.content.remaining());
+
+            for (int i = 0; i < count; i++) {
+                dst.put(this.content.get());
+            }
+
+            return count;
+        }
+    }
+
+    private static byte[] getContent(int size) {
+        byte[] result = new byte[size];
+
+        for (int i = 0; i < size; i++) {
+            result[i] = (byte) ("0123456789abcdef".charAt((i * 7) % 16) + (i % 251 == 0 ? 1
+                    : 0));
+        }
+
+        return result;
+    }
+
+    private static byte[] decode(Encoding encoding, byte[] encoded,
+            String entryName) throws IOException {
+        InputStream in = new ByteArrayInputStream(encoded);
+
+        if (Encoding.GZIP.equals(encoding)) {
+            in = new GZIPInputStream(in);
+        } else if (Encoding.DEFLATE.equals(encoding)) {
+            in = new InflaterInputStream(in);
+        } else if (Encoding.ZIP.equals(encoding)) {
+            ZipInputStream zin = new ZipInputStream(in);
+            ZipEntry entry = zin.getNextEntry();
+            assertEquals(entryName, entry.getName());
+            byte[] result = toByteArray(zin);
+            assertNull(zin.getNextEntry());
+            return result;
+        }
+
+        return toByteArray(in);
+    }
+
+    private static byte[] readAll(ReadableByteChannel channel, ByteBuffer buffer)
+            throws IOException {
+        ByteArrayOutputStream result = new ByteArrayOutputStream();
+        int count = 0;
+
+        while (count != -1) {
+            buffer.clear();
+            count = channel.read(buffer);
+            buffer.flip();
+
+            while (buffer.hasRemaining()) {
+                result.write(buffer.get());
+            }
+        }
+
+        channel.close();
+        return result.toByteArray();
+    }
+
+    private static byte[] toByteArray(InputStream in) throws IOException {
+        ByteArrayOutputStream result = new ByteArrayOutputStream();
+        byte[] buffer = new byte[1024];
+        int count = in.read(buffer);
+
+        while (count != -1) {
+            result.write(buffer, 0, count);
+            count = in.read(buffer);
+        }
+
+        return result.toByteArray();
+    }
+
+    private void testEncoding(Encoding encoding) throws IOException {
+        for (int size : new int[] { 0, 1, 1000, 100000 }) {
+            byte[] content = getContent(size);
+
+            // Small heap buffer
+            ReadableEncodingChannel channel = new ReadableEncodingChannel(
+                    Channels.newChannel(new ByteArrayInputStream(content)),
+                    encoding, "test.txt");
+            byte[] encoded = readAll(channel, ByteBuffer.allocate(7));
+            assertEquals(size, decode(encoding, encoded, "test.txt").length);
+            assertTrue(java.util.Arrays.equals(content,
+                    decode(encoding, encoded, "test.txt")));
+
+            // Direct buffer and trickling source
+            channel = new ReadableEncodingChannel(new TrickleChannel(content),
+                    encoding, "test.txt");
+            encoded = readAll(channel, ByteBuffer.allocateDirect(1024));
+            assertTrue(java.util.Arrays.equals(content,
+                    decode(encoding, encoded, "test.txt")));
+        }
+    }
+
+    public void testDeflate() throws IOException {
+        testEncoding(Encoding.DEFLATE);
+    }
+
+    public void testEmptySource() throws IOException {
+        ReadableEncodingChannel channel = new ReadableEncodingChannel(null,
+                Encoding.GZIP, null);
+        assertTrue(channel.isOpen());
+        byte[] encoded = readAll(channel, ByteBuffer.allocate(64));
+        assertEquals(0, decode(Encoding.GZIP, encoded, null).length);
+        assertFalse(channel.isOpen());
+    }
+
+    public void testEncodeRepresentation() throws IOException {
+        byte[] content = getContent(5000);
+        ByteArrayRepresentation wrapped = new ByteArrayRepresentation(content);
+        Disposition disposition = new Disposition();
+        disposition.setFilename("data.bin");
+        wrapped.setDisposition(disposition);
+
+        EncodeRepresentation rep = new EncodeRepresentation(Encoding.ZIP,
+                wrapped);
+        ReadableByteChannel channel = rep.getChannel();
+        assertTrue(channel instanceof ReadableEncodingChannel);
+        assertTrue(java.util.Arrays.equals(content,
+                decode(Encoding.ZIP, readAll(channel, ByteBuffer
+                        .allocate(512)), "data.bin")));
+
+        rep = new EncodeRepresentation(Encoding.IDENTITY, wrapped);
+        assertFalse(rep.getChannel() instanceof ReadableEncodingChannel);
+    }
+
+    public void testGzip() throws IOException {
+        testEncoding(Encoding.GZIP);
+    }
+
+    public void testUnsupportedEncoding() {
+        try {
+            new ReadableEncodingChannel(null, Encoding.COMPRESS, null);
+            fail("Compress encoding isn't supported");
+        } catch (IllegalArgumentException e) {
+            // Expected
+        }
+    }
+
+    public void testZip() throws IOException {
+        testEncoding(Encoding.ZIP);
+    }
+
+}
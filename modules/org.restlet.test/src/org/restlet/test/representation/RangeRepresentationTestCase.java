@@ -30,8 +30,16 @@
 
 package org.restlet.test.representation;
 
+import java.io.File;
+import java.io.FileOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+
+import org.restlet.data.MediaType;
 import org.restlet.data.Range;
 import org.restlet.engine.application.RangeRepresentation;
+import org.restlet.engine.io.ReadableSizedChannel;
+import org.restlet.representation.FileRepresentation;
 import org.restlet.representation.StringRepresentation;
 import org.restlet.test.RestletTestCase;
 
@@ -53,4 +61,51 @@ public class RangeRepresentationTestCase extends RestletTestCase {
         assertEquals("34567", rr.getText());
     }
 
+    public void testFileChannel() throws Exception {
+        File file = File.createTempFile("restlet-range", ".txt");
+        file.deleteOnExit();
+        FileOutputStream fos = new FileOutputStream(file);
+        fos.write("1234567890".getBytes());
+        fos.close();
+
+        RangeRepresentation rr = new RangeRepresentation(
+                new FileRepresentation(file, MediaType.TEXT_PLAIN));
+        rr.setRange(new Range(2, 5));
+        ReadableByteChannel rbc = rr.getChannel();
+        assertTrue(rbc instanceof ReadableSizedChannel);
+        assertTrue(((ReadableSizedChannel) rbc).isTransferable());
+        assertEquals("34567", read(rbc));
+
+        rr.setRange(new Range(Range.INDEX_LAST, 3));
+        assertEquals("890", read(rr.getChannel()));
+        assertEquals("890", rr.getText());
+        file.delete();
+    }
+
+    /**
+     * Reads a channel fully as a string.
+     * 
+     * @param rbc
+     *            The channel to read.
+     * @return The content of the channel.
+     * @throws Exception
+     */
+    private String read(ReadableByteChannel rbc) throws Exception {
+        StringBuilder sb = new StringBuilder();
+        ByteBuffer bb = ByteBuffer.allocate(4);
+
+        while (rbc.read(bb) != -1) {
+            bb.flip();
+
+            while (bb.hasRemaining()) {
+                sb.append((char) bb.get());
+            }
+
+            bb.clear();
+        }
+
+        rbc.close();
+        return sb.toString();
+    }
+
 }
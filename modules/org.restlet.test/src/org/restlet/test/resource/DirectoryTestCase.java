@@ -31,20 +31,26 @@
 package org.restlet.test.resource;
 
 import java.io.File;
+import java.io.FileOutputStream;
 import java.io.IOException;
 import java.util.Date;
+import java.util.zip.GZIPOutputStream;
 
 import org.restlet.Application;
 import org.restlet.Component;
 import org.restlet.Request;
 import org.restlet.Response;
 import org.restlet.Restlet;
+import org.restlet.data.Encoding;
 import org.restlet.data.Language;
 import org.restlet.data.LocalReference;
+import org.restlet.data.MediaType;
 import org.restlet.data.Method;
+import org.restlet.data.Preference;
 import org.restlet.data.Protocol;
 import org.restlet.data.Reference;
 import org.restlet.data.Status;
+import org.restlet.engine.application.DecodeRepresentation;
 import org.restlet.engine.io.BioUtils;
 import org.restlet.representation.Representation;
 import org.restlet.representation.StringRepresentation;
@@ -132,6 +138,20 @@ public class DirectoryTestCase extends RestletTestCase {
 
     File testDir;
 
+    /**
+     * Creates a GET request for a file of the test directory.
+     * 
+     * @param fileName
+     *            The name of the file.
+     * @return The GET request.
+     */
+    private Request createRequest(String fileName) {
+        Request request = new Request(Method.GET, this.webSiteURL + fileName);
+        request.setOriginalRef(request.getResourceRef().getTargetRef());
+        request.getResourceRef().setBaseRef(this.webSiteURL);
+        return request;
+    }
+
     /**
      * Helper for the test
      * 
@@ -551,4 +571,65 @@ public class DirectoryTestCase extends RestletTestCase {
         BioUtils.delete(testDirectory, true);
         System.out.println("End of tests*********************");
     }
+
+    public void testPrecompressed() throws Exception {
+        this.testDir = new File(System.getProperty("java.io.tmpdir"),
+                "DirectoryTestCase/tests7" + new Date().getTime());
+        this.testDir.mkdirs();
+        File script = new File(this.testDir, "script.js");
+        FileOutputStream out = new FileOutputStream(script);
+        out.write("alert('plain');".getBytes());
+        out.close();
+        File compressed = new File(this.testDir, "script.js.gz");
+        out = new FileOutputStream(compressed);
+        GZIPOutputStream gzipOut = new GZIPOutputStream(out);
+        gzipOut.write("alert('compressed');".getBytes());
+        gzipOut.close();
+
+        Component clientComponent = new Component();
+        clientComponent.getClients().add(Protocol.FILE).getContext()
+                .getParameters().add("precompressed", "true");
+        MyApplication application = new MyApplication(this.testDir);
+        clientComponent.getDefaultHost().attach("", application);
+        clientComponent.start();
+        application.setTestDirectory(this.testDir);
+
+        try {
+            // The client accepts the GZIP encoding
+            Request request = createRequest("script.js");
+            request.getClientInfo().getAcceptedEncodings()
+                    .add(new Preference<Encoding>(Encoding.GZIP));
+            Response response = new Response(request);
+            application.handle(request, response);
+            assertEquals(Status.SUCCESS_OK, response.getStatus());
+            assertEquals(MediaType.APPLICATION_JAVASCRIPT, response
+                    .getEntity().getMediaType());
+            assertTrue(response.getEntity().getEncodings()
+                    .contains(Encoding.GZIP));
+            assertEquals(compressed.length(), response.getEntity().getSize());
+            assertEquals("alert('compressed');", new DecodeRepresentation(
+                    response.getEntity()).getText());
+
+            // The client doesn't accept any encoding
+            request = createRequest("script.js");
+            response = new Response(request);
+            application.handle(request, response);
+            assertEquals(Status.SUCCESS_OK, response.getStatus());
+            assertFalse(response.getEntity().getEncodings()
+                    .contains(Encoding.GZIP));
+            assertEquals("alert('plain');", response.getEntity().getText());
+
+            // The compressed file is older than the plain one
+            compressed.setLastModified(script.lastModified() - 60000);
+            request = createRequest("script.js");
+            request.getClientInfo().getAcceptedEncodings()
+                    .add(new Preference<Encoding>(Encoding.GZIP));
+            response = new Response(request);
+            application.handle(request, response);
+            assertEquals("alert('plain');", response.getEntity().getText());
+        } finally {
+            clientComponent.stop();
+            BioUtils.delete(this.testDir, true);
+        }
+    }
 }
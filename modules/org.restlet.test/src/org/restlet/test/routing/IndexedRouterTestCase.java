@@ -0,0 +1,161 @@
+/**
+ * Copyright 2005-2011 Noelios Technologies.
+ * 
+ * The contents of this file are subject to the terms of one of the following
+ * open source licenses: LGPL 3.0 or LGPL 2.1 or CDDL 1.0 or EPL 1.0 (the
+ * "Licenses"). You can select the license that you prefer but you may not use
+ * this file except in compliance with one of these Licenses.
+ * 
+ * You can obtain a copy of the LGPL 3.0 license at
+ * http://www.opensource.org/licenses/lgpl-3.0.html
+ * 
+ * You can obtain a copy of the LGPL 2.1 license at
+ * http://www.opensource.org/licenses/lgpl-2.1.php
+ * 
+ * You can obtain a copy of the CDDL 1.0 license at
+ * http://www.opensource.org/licenses/cddl1.php
+ * 
+ * You can obtain a copy of the EPL 1.0 license at
+ * http://www.opensource.org/licenses/eclipse-1.0.php
+ * 
+ * See the Licenses for the specific language governing permissions and
+ * limitations under the Licenses.
+ * 
+ * Alternatively, you can obtain a royalty free commercial license with less
+ * limitations, transferable or non-transferable, directly at
+ * http://www.noelios.com/products/restlet-engine
+ * 
+ * Restlet is a registered trademark of Noelios Technologies.
+ */
+
+package org.restlet.test.routing;
+
+import org.restlet.Request;
+import org.restlet.Response;
+import org.restlet.Restlet;
+import org.restlet.data.Method;
+import org.restlet.routing.Router;
+import org.restlet.routing.Template;
+import org.restlet.routing.TemplateRoute;
+import org.restlet.routing.Variable;
+import org.restlet.test.RestletTestCase;
+
+/**
+ * Test case for the routers using an index of their routes.
+ * 
+ * @author Jerome Louvel
+ */
+public class IndexedRouterTestCase extends RestletTestCase {
+
+    private static class Target extends Restlet {
+    }
+
+    private static final String[] PATHS = { "", "/", "/users", "/users/",
+            "/users/123", "/users/abc", "/users/123/", "/users/123/orders",
+            "/users/123/orders/9", "/users/123.json", "/files/a/b/c.txt",
+            "/files", "/static/css/site.css", "/staticfile", "/search?q=ab",
+            "/admin/x", "/unknown/path" };
+
+    private Router router;
+
+    private void assertSameRouting(int routingMode) {
+        router.setRoutingMode(routingMode);
+
+        for (String path : PATHS) {
+            router.getRoutes().setIndexed(false);
+            Restlet expected = router.getNext(createRequest(path),
+                    new Response(null));
+            router.getRoutes().setIndexed(true);
+            Restlet actual = router.getNext(createRequest(path), new Response(
+                    null));
+            assertSame("Routing of " + path, expected, actual);
+        }
+    }
+
+    private Request createRequest(String path) {
+        Request result = new Request(Method.GET, "http://localhost/app" + path);
+        result.getResourceRef().setBaseRef("http://localhost/app");
+        return result;
+    }
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        router = new Router();
+        router.attach("/users", new Target());
+        router.attach("/users/{id}", new Target());
+        router.attach("/users/{id}/orders", new Target());
+        router.attach("/users/{id}/orders/{order}", new Target());
+        router.attach("/users/{id}.json", new Target());
+        router.attach("/static", new Target(), Template.MODE_STARTS_WITH);
+        router.attach("/admin/", new Target(), Template.MODE_STARTS_WITH);
+        router.attach("/search?q={q}", new Target()).setMatchingQuery(true);
+
+        TemplateRoute digits = router.attach("/users/{num}", new Target());
+        digits.getTemplate().getVariables()
+                .put("num", new Variable(Variable.TYPE_DIGIT));
+
+        TemplateRoute files = router.attach("/files/{path}", new Target());
+        files.getTemplate().getVariables()
+                .put("path", new Variable(Variable.TYPE_URI_PATH));
+
+        // Many other routes that never match
+        for (int i = 0; i < 300; i++) {
+            router.attach("/other" + i + "/{id}", new Target());
+        }
+
+        router.attach("/{any}/path", new Target());
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        router = null;
+        super.tearDown();
+    }
+
+    public void testBestMatch() {
+        assertSameRouting(Router.MODE_BEST_MATCH);
+    }
+
+    public void testChanges() {
+        router.getRoutes().setIndexed(true);
+        assertNull(router.getNext(createRequest("/added"), new Response(null)));
+
+        Target added = new Target();
+        TemplateRoute route = router.attach("/added", added);
+        assertSame(route,
+                router.getNext(createRequest("/added"), new Response(null)));
+
+        router.detach(added);
+        assertNull(router.getNext(createRequest("/added"), new Response(null)));
+    }
+
+    public void testFirstMatch() {
+        assertSameRouting(Router.MODE_FIRST_MATCH);
+    }
+
+    public void testLastMatch() {
+        assertSameRouting(Router.MODE_LAST_MATCH);
+    }
+
+    public void testMatches() {
+        router.getRoutes().setIndexed(true);
+        TemplateRoute route = (TemplateRoute) router.getNext(
+                createRequest("/users/123/orders/9"), new Response(null));
+        assertEquals("/users/{id}/orders/{order}", route.getTemplate()
+                .getPattern());
+
+        route = (TemplateRoute) router.getNext(
+                createRequest("/files/a/b/c.txt"), new Response(null));
+        assertEquals("/files/{path}", route.getTemplate().getPattern());
+
+        route = (TemplateRoute) router.getNext(
+                createRequest("/static/css/site.css"), new Response(null));
+        assertEquals("/static", route.getTemplate().getPattern());
+
+        route = (TemplateRoute) router.getNext(createRequest("/search?q=ab"),
+                new Response(null));
+        assertEquals("/search?q={q}", route.getTemplate().getPattern());
+    }
+
+}
@@ -92,6 +92,33 @@ public class RouteListTestCase extends RestletTestCase {
         assertSame(first, list.getNext(null, null, 1f));
     }
 
+    public void testGetNextSkipping() {
+        final RouteList list = new RouteList();
+        final Route first = new MockScoringRoute(5);
+        final Route third = new MockScoringRoute(5);
+
+        list.add(first);
+        list.add(new MockScoringRoute(1));
+        list.add(third);
+
+        assertSame(first, list.getNext(null, null, 2f));
+        assertSame(third, list.getNext(null, null, 2f));
+        assertSame(first, list.getNext(null, null, 2f));
+        assertSame(third, list.getNext(null, null, 2f));
+
+        // Structural changes are taken into account
+        final Route fourth = new MockScoringRoute(5);
+        list.add(fourth);
+        boolean found = false;
+
+        for (int i = 0; i < 3; i++) {
+            found |= (fourth == list.getNext(null, null, 2f));
+        }
+
+        assertTrue(found);
+        assertNull(list.getNext(null, null, 6f));
+    }
+
     public void testGetRandom() {
         final RouteList list = new RouteList();
 
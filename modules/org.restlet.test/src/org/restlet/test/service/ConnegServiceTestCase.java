@@ -36,6 +36,7 @@ import java.util.List;
 import org.restlet.Request;
 import org.restlet.data.MediaType;
 import org.restlet.data.Preference;
+import org.restlet.engine.application.ConnegCache;
 import org.restlet.representation.Variant;
 import org.restlet.service.ConnegService;
 import org.restlet.service.MetadataService;
@@ -48,6 +49,98 @@ import org.restlet.test.RestletTestCase;
  */
 public class ConnegServiceTestCase extends RestletTestCase {
 
+    private static Request createRequest(MediaType accepted) {
+        Request request = new Request();
+        request.getClientInfo().getAcceptedMediaTypes()
+                .add(new Preference<MediaType>(accepted));
+        return request;
+    }
+
+    public void testCache() {
+        List<Variant> variants = new ArrayList<Variant>();
+        variants.add(new Variant(MediaType.APPLICATION_XML));
+        variants.add(new Variant(MediaType.APPLICATION_JSON));
+
+        MetadataService metadataService = new MetadataService();
+        ConnegService connegService = new ConnegService();
+        assertNull(connegService.getCache());
+        connegService.setCache(new ConnegCache(256));
+        ConnegCache cache = connegService.getCache();
+
+        Variant preferedVariant = connegService.getPreferredVariant(variants,
+                createRequest(MediaType.APPLICATION_JSON), metadataService);
+        assertSame(variants.get(1), preferedVariant);
+        assertEquals(0, cache.getHits());
+        assertEquals(1, cache.getMisses());
+
+        // Same preferences and variant metadata, different instances
+        List<Variant> otherVariants = new ArrayList<Variant>();
+        otherVariants.add(new Variant(MediaType.APPLICATION_XML));
+        otherVariants.add(new Variant(MediaType.APPLICATION_JSON));
+        preferedVariant = connegService.getPreferredVariant(otherVariants,
+                createRequest(MediaType.APPLICATION_JSON), metadataService);
+        assertSame(otherVariants.get(1), preferedVariant);
+        assertEquals(1, cache.getHits());
+
+        // Different preferences
+        preferedVariant = connegService.getPreferredVariant(variants,
+                createRequest(MediaType.APPLICATION_XML), metadataService);
+        assertSame(variants.get(0), preferedVariant);
+        assertEquals(2, cache.getMisses());
+
+        // The strict algorithm is cached separately
+        connegService.setStrict(true);
+        preferedVariant = connegService.getPreferredVariant(variants,
+                createRequest(MediaType.TEXT_HTML), metadataService);
+        assertNull(preferedVariant);
+        preferedVariant = connegService.getPreferredVariant(variants,
+                createRequest(MediaType.TEXT_HTML), metadataService);
+        assertNull(preferedVariant);
+        assertEquals(2, cache.getHits());
+        assertEquals(3, cache.size());
+
+        // Disabled cache
+        connegService.setCache(null);
+        preferedVariant = connegService.getPreferredVariant(variants,
+                createRequest(MediaType.APPLICATION_JSON), metadataService);
+        assertSame(variants.get(1), preferedVariant);
+    }
+
+    public void testCacheEviction() {
+        List<Variant> variants = new ArrayList<Variant>();
+        variants.add(new Variant(MediaType.APPLICATION_XML));
+
+        MetadataService metadataService = new MetadataService();
+        ConnegService connegService = new ConnegService();
+        ConnegCache cache = new ConnegCache(2);
+        connegService.setCache(cache);
+
+        connegService.getPreferredVariant(variants,
+                createRequest(MediaType.APPLICATION_JSON), metadataService);
+        connegService.getPreferredVariant(variants,
+                createRequest(MediaType.APPLICATION_XML), metadataService);
+        connegService.getPreferredVariant(variants,
+                createRequest(MediaType.APPLICATION_JSON), metadataService);
+        connegService.getPreferredVariant(variants,
+                createRequest(MediaType.TEXT_HTML), metadataService);
+        assertEquals(2, cache.size());
+        assertEquals(1, cache.getEvictions());
+        assertEquals(3, cache.getMisses());
+        assertEquals(1, cache.getHits());
+
+        // The least recently used entry was evicted
+        connegService.getPreferredVariant(variants,
+                createRequest(MediaType.APPLICATION_JSON), metadataService);
+        assertEquals(2, cache.getHits());
+        connegService.getPreferredVariant(variants,
+                createRequest(MediaType.APPLICATION_XML), metadataService);
+        assertEquals(4, cache.getMisses());
+
+        cache.clear();
+        assertEquals(0, cache.size());
+        assertEquals(0, cache.getEvictions());
+    }
+
     public void testStrict() {
         List<Variant> variants = new ArrayList<Variant>();
         Variant variant = new Variant(MediaType.APPLICATION_XML);
@@ -0,0 +1,168 @@
+/**
+ * Copyright 2005-2011 Noelios Technologies.
+ * 
+ * The contents of this file are subject to the terms of one of the following
+ * open source licenses: LGPL 3.0 or LGPL 2.1 or CDDL 1.0 or EPL 1.0 (the
+ * "Licenses"). You can select the license that you prefer but you may not use
+ * this file except in compliance with one of these Licenses.
+ * 
+ * You can obtain a copy of the LGPL 3.0 license at
+ * http://www.opensource.org/licenses/lgpl-3.0.html
+ * 
+ * You can obtain a copy of the LGPL 2.1 license at
+ * http://www.opensource.org/licenses/lgpl-2.1.php
+ * 
+ * You can obtain a copy of the CDDL 1.0 license at
+ * http://www.opensource.org/licenses/cddl1.php
+ * 
+ * You can obtain a copy of the EPL 1.0 license at
+ * http://www.opensource.org/licenses/eclipse-1.0.php
+ * 
+ * See the Licenses for the specific language governing permissions and
+ * limitations under the Licenses.
+ * 
+ * Alternatively, you can obtain a royalty free commercial license with less
+ * limitations, transferable or non-transferable, directly at
+ * http://www.noelios.com/products/restlet-engine
+ * 
+ * Restlet is a registered trademark of Noelios Technologies.
+ */
+
+package org.restlet.test.service;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.Date;
+
+import org.restlet.Request;
+import org.restlet.Response;
+import org.restlet.Restlet;
+import org.restlet.data.Encoding;
+import org.restlet.data.MediaType;
+import org.restlet.data.Method;
+import org.restlet.data.Preference;
+import org.restlet.data.Reference;
+import org.restlet.engine.application.CachedEncodeRepresentation;
+import org.restlet.engine.application.DecodeRepresentation;
+import org.restlet.engine.application.EncodeCache;
+import org.restlet.engine.application.EncodeRepresentation;
+import org.restlet.engine.application.Encoder;
+import org.restlet.representation.InputRepresentation;
+import org.restlet.representation.Representation;
+import org.restlet.representation.StringRepresentation;
+import org.restlet.service.EncoderService;
+import org.restlet.test.RestletTestCase;
+
+/**
+ * Unit tests for the encoder service.
+ * 
+ * @author Jerome Louvel
+ */
+public class EncoderServiceTestCase extends RestletTestCase {
+
+    private static final String TEXT = "The same large document, served many times. ";
+
+    private static Response handle(Encoder encoder, String path) {
+        Request request = new Request(Method.GET, "http://localhost" + path);
+        request.getClientInfo().getAcceptedEncodings()
+                .add(new Preference<Encoding>(Encoding.GZIP));
+        Response response = new Response(request);
+        encoder.handle(request, response);
+        return response;
+    }
+
+    public void testCache() throws IOException {
+        final StringBuilder text = new StringBuilder();
+
+        for (int i = 0; i < 100; i++) {
+            text.append(TEXT);
+        }
+
+        final Date[] modificationDate = { new Date(1000000000000L) };
+        EncoderService encoderService = new EncoderService();
+        encoderService.setCache(new EncodeCache(100000));
+        Encoder encoder = new Encoder(null, false, true, encoderService);
+        encoder.setNext(new Restlet() {
+            @Override
+            public void handle(Request request, Response response) {
+                Representation entity = new StringRepresentation(text);
+                entity.setModificationDate(modificationDate[0]);
+                response.setEntity(entity);
+            }
+        });
+
+        EncodeCache cache = encoderService.getCache();
+        Response response = handle(encoder, "/doc");
+        assertTrue(response.getEntity() instanceof CachedEncodeRepresentation);
+        assertTrue(response.getEntity().getEncodings().contains(Encoding.GZIP));
+        assertEquals(text.toString(), new DecodeRepresentation(response
+                .getEntity()).getText());
+        assertEquals(0, cache.getHits());
+        assertEquals(1, cache.getMisses());
+        assertEquals(1, cache.size());
+        assertEquals(response.getEntity().getSize(), cache.getCachedSize());
+
+        // Same entity
+        response = handle(encoder, "/doc");
+        assertEquals(text.toString(), new DecodeRepresentation(response
+                .getEntity()).getText());
+        assertEquals(1, cache.getHits());
+
+        // Same entity for another resource
+        handle(encoder, "/other");
+        assertEquals(2, cache.getMisses());
+
+        // Modified entity
+        modificationDate[0] = new Date(modificationDate[0].getTime() + 1000);
+        handle(encoder, "/doc");
+        assertEquals(3, cache.getMisses());
+        assertEquals(3, cache.size());
+
+        // Entity without tag nor modification date
+        modificationDate[0] = null;
+        response = handle(encoder, "/doc");
+        assertFalse(response.getEntity() instanceof CachedEncodeRepresentation);
+        assertTrue(response.getEntity() instanceof EncodeRepresentation);
+        assertEquals(3, cache.size());
+
+        // Disabled cache
+        encoderService.setCache(null);
+        modificationDate[0] = new Date();
+        response = handle(encoder, "/doc");
+        assertFalse(response.getEntity() instanceof CachedEncodeRepresentation);
+    }
+
+    public void testCacheEviction() {
+        EncodeCache cache = new EncodeCache(100);
+        cache.put("a", new byte[40]);
+        cache.put("b", new byte[40]);
+        assertNotNull(cache.get("a"));
+        cache.put("c", new byte[40]);
+        assertEquals(2, cache.size());
+        assertEquals(80, cache.getCachedSize());
+        assertEquals(1, cache.getEvictions());
+        assertNull(cache.get("b"));
+        assertNotNull(cache.get("a"));
+        assertNotNull(cache.get("c"));
+
+        // Larger than the capacity
+        cache.put("d", new byte[101]);
+        assertNull(cache.get("d"));
+        assertEquals(2, cache.size());
+    }
+
+    public void testTransientEntity() {
+        EncodeCache cache = new EncodeCache(100000);
+        Reference ref = new Reference("http://localhost/doc");
+        Representation entity = new StringRepresentation(TEXT);
+        entity.setModificationDate(new Date(1000000000000L));
+        assertNotNull(cache.getKey(entity, Encoding.GZIP, ref));
+
+        // A transient entity couldn't be read again if its encoding failed
+        entity = new InputRepresentation(new ByteArrayInputStream(
+                TEXT.getBytes()), MediaType.TEXT_PLAIN, TEXT.length());
+        entity.setModificationDate(new Date(1000000000000L));
+        assertNull(cache.getKey(entity, Encoding.GZIP, ref));
+    }
+
+}
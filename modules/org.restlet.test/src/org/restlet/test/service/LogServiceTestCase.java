@@ -0,0 +1,221 @@
+/**
+ * Copyright 2005-2011 Noelios Technologies.
+ * 
+ * The contents of this file are subject to the terms of one of the following
+ * open source licenses: LGPL 3.0 or LGPL 2.1 or CDDL 1.0 or EPL 1.0 (the
+ * "Licenses"). You can select the license that you prefer but you may not use
+ * this file except in compliance with one of these Licenses.
+ * 
+ * You can obtain a copy of the LGPL 3.0 license at
+ * http://www.opensource.org/licenses/lgpl-3.0.html
+ * 
+ * You can obtain a copy of the LGPL 2.1 license at
+ * http://www.opensource.org/licenses/lgpl-2.1.php
+ * 
+ * You can obtain a copy of the CDDL 1.0 license at
+ * http://www.opensource.org/licenses/cddl1.php
+ * 
+ * You can obtain a copy of the EPL 1.0 license at
+ * http://www.opensource.org/licenses/eclipse-1.0.php
+ * 
+ * See the Licenses for the specific language governing permissions and
+ * limitations under the Licenses.
+ * 
+ * Alternatively, you can obtain a royalty free commercial license with less
+ * limitations, transferable or non-transferable, directly at
+ * http://www.noelios.com/products/restlet-engine
+ * 
+ * Restlet is a registered trademark of Noelios Technologies.
+ */
+
+package org.restlet.test.service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.logging.Handler;
+import java.util.logging.LogRecord;
+import java.util.logging.Logger;
+
+import org.restlet.Request;
+import org.restlet.Response;
+import org.restlet.Restlet;
+import org.restlet.data.Method;
+import org.restlet.engine.Engine;
+import org.restlet.engine.log.AccessLogEntry;
+import org.restlet.engine.log.AccessLogWriter;
+import org.restlet.engine.log.IdentResolver;
+import org.restlet.engine.log.LogFilter;
+import org.restlet.engine.log.LogUtils;
+import org.restlet.service.LogService;
+import org.restlet.test.RestletTestCase;
+
+/**
+ * Unit tests for the log service.
+ * 
+ * @author Jerome Louvel
+ */
+public class LogServiceTestCase extends RestletTestCase {
+
+    /**
+     * Handler collecting the log messages.
+     */
+    private static class ListHandler extends Handler {
+
+        private final List<String> messages = new ArrayList<String>();
+
+        @Override
+        public void close() {
+        }
+
+        @Override
+        public void flush() {
+        }
+
+        public synchronized List<String> getMessages() {
+            return new ArrayList<String>(this.messages);
+        }
+
+        @Override
+        public synchronized void publish(LogRecord record) {
+            this.messages.add(record.getMessage());
+        }
+    }
+
+    private ListHandler handler;
+
+    private Logger logger;
+
+    private Response createResponse() {
+        Request request = new Request(Method.GET, "http://localhost/path?q");
+        request.getClientInfo().setAddress("127.0.0.1");
+        return new Response(request);
+    }
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        this.handler = new ListHandler();
+        this.logger = Engine.getLogger("org.restlet.test.LogServiceTestCase");
+        this.logger.setUseParentHandlers(false);
+        this.logger.addHandler(this.handler);
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        this.logger.removeHandler(this.handler);
+        this.logger.setUseParentHandlers(true);
+        super.tearDown();
+    }
+
+    public void testAsynchronousFilter() throws Exception {
+        LogService logService = new LogService();
+        logService.setLoggerName(this.logger.getName());
+        logService.setAsynchronous(true);
+
+        LogFilter filter = new LogFilter(null, logService);
+        filter.setNext(new Restlet() {
+        });
+        filter.start();
+
+        for (int i = 0; i < 10; i++) {
+            Response response = createResponse();
+            filter.handle(response.getRequest(), response);
+        }
+
+        assertTrue(filter.getWriter().isStarted());
+        filter.stop();
+
+        // No writer is created once the filter is stopped
+        assertNull(filter.getWriter());
+
+        List<String> messages = this.handler.getMessages();
+        assertEquals(10, messages.size());
+        assertTrue(messages.get(0).contains("\t127.0.0.1\t-\t"));
+        assertTrue(messages.get(9).contains("\tGET\t/path\tq\t"));
+    }
+
+    public void testBlockingPolicy() throws Exception {
+        AccessLogWriter writer = new AccessLogWriter(this.logger, 1, true);
+        writer.start();
+
+        for (int i = 0; i < 100; i++) {
+            assertTrue(writer.log(new AccessLogEntry(Integer.toString(i))));
+        }
+
+        writer.stop();
+        assertEquals(0, writer.getDropped());
+        List<String> messages = this.handler.getMessages();
+        assertEquals(100, messages.size());
+        assertEquals("99", messages.get(99));
+    }
+
+    public void testDateTime() {
+        long time = System.currentTimeMillis();
+        String dateTime = LogUtils.getDateTime(time);
+        assertEquals(String.format("%tF\t%tT", time, time), dateTime);
+        assertSame(dateTime, LogUtils.getDateTime(time));
+        assertEquals(String.format("%tF\t%tT", time + 1000, time + 1000),
+                LogUtils.getDateTime(time + 1000));
+    }
+
+    public void testDefaultEntry() {
+        LogService logService = new LogService();
+        Response response = createResponse();
+        String message = logService.getResponseLogMessage(response, 12);
+        AccessLogEntry entry = logService.getResponseLogEntry(response, 12);
+        assertFalse(entry.isPending());
+        assertEquals(message.substring(19), entry.getMessage().substring(19));
+
+        // The identity is only resolved when the message is requested
+        logService.setIdentityCheck(true);
+        response.getServerInfo().setPort(-1);
+        entry = logService.getResponseLogEntry(response, 12);
+        assertTrue(entry.isPending());
+        assertEquals(message.substring(19), entry.getMessage().substring(19));
+        assertFalse(entry.isPending());
+    }
+
+    public void testDropPolicy() throws Exception {
+        AccessLogWriter writer = new AccessLogWriter(this.logger, 2, false);
+        assertTrue(writer.log(new AccessLogEntry("1")));
+        assertTrue(writer.log(new AccessLogEntry("2")));
+        assertFalse(writer.log(new AccessLogEntry("3")));
+        assertEquals(1, writer.getDropped());
+        assertEquals(2, writer.getPending());
+
+        writer.start();
+        writer.stop();
+        assertEquals(0, writer.getPending());
+        assertEquals(2, this.handler.getMessages().size());
+        assertEquals("2", this.handler.getMessages().get(1));
+    }
+
+    public void testIdentityCache() throws Exception {
+        IdentResolver resolver = new IdentResolver(this.logger);
+        AccessLogEntry entry = new AccessLogEntry("a\t", "127.0.0.1", 1,
+                2, "\tb");
+        resolver.resolve(entry);
+        assertEquals("a\t-\tb", entry.getMessage(System.currentTimeMillis()
+                + 5000));
+        assertEquals(1, resolver.getCacheSize());
+
+        // The same connection doesn't trigger a new lookup
+        entry = new AccessLogEntry("c\t", "127.0.0.1", 1, 2, "\td");
+        resolver.resolve(entry);
+        assertFalse(entry.isPending());
+        assertEquals("c\t-\td", entry.getMessage());
+        resolver.stop();
+    }
+
+    public void testIdentityTimeout() {
+        AccessLogEntry entry = new AccessLogEntry("a\t", "127.0.0.1", 1, 2,
+                "\tb");
+
+        // Past the deadline, the user identifier is unknown
+        assertEquals("a\t-\tb", entry.getMessage(entry.getCreationTime()));
+        assertFalse(entry.isPending());
+        assertFalse(entry.complete("user"));
+        assertEquals("a\t-\tb", entry.getMessage());
+    }
+
+}
@@ -30,6 +30,7 @@
 
 package org.restlet.test.service;
 
+import org.restlet.data.Language;
 import org.restlet.data.MediaType;
 import org.restlet.service.MetadataService;
 import org.restlet.test.RestletTestCase;
@@ -41,6 +42,31 @@ import org.restlet.test.RestletTestCase;
  */
 public class MetadataServiceTestCase extends RestletTestCase {
 
+    public void testExtensions() {
+        MetadataService ms = new MetadataService();
+        assertEquals(MediaType.TEXT_XML, ms.getMediaType("xml"));
+        assertEquals(2, ms.getAllMediaTypes("xml").size());
+        assertEquals(MediaType.APPLICATION_XML, ms.getAllMediaTypes("xml")
+                .get(1));
+        assertEquals("txt", ms.getExtension(MediaType.TEXT_PLAIN));
+        assertEquals(Language.FRENCH, ms.getLanguage("fr"));
+        assertNull(ms.getMediaType("fr"));
+        assertNull(ms.getAllLanguages("xml"));
+
+        // Updates are visible to the lookups
+        ms.addExtension("xml", MediaType.APPLICATION_XML, true);
+        assertEquals(MediaType.APPLICATION_XML, ms.getMediaType("xml"));
+        assertEquals(3, ms.getAllMetadata("xml").size());
+        ms.addExtension("text", MediaType.TEXT_PLAIN);
+        assertEquals("txt", ms.getExtension(MediaType.TEXT_PLAIN));
+        assertEquals(MediaType.TEXT_PLAIN, ms.getMetadata("text"));
+
+        ms.clearExtensions();
+        assertNull(ms.getMetadata("xml"));
+        assertNull(ms.getAllMetadata("xml"));
+        assertNull(ms.getExtension(MediaType.TEXT_PLAIN));
+    }
+
     public void testStrict() {
         MetadataService ms = new MetadataService();
         MediaType ma = ms.getMediaType("ma");
@@ -40,6 +40,8 @@ public class ServiceTestSuite {
 
         // $JUnit-BEGIN$
         suite.addTestSuite(ConnegServiceTestCase.class);
+        suite.addTestSuite(EncoderServiceTestCase.class);
+        suite.addTestSuite(LogServiceTestCase.class);
         suite.addTestSuite(MetadataServiceTestCase.class);
         // $JUnit-END$
 
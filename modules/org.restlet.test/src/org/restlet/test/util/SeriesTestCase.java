@@ -0,0 +1,172 @@
+/**
+ * Copyright 2005-2011 Noelios Technologies.
+ * 
+ * The contents of this file are subject to the terms of one of the following
+ * open source licenses: LGPL 3.0 or LGPL 2.1 or CDDL 1.0 or EPL 1.0 (the
+ * "Licenses"). You can select the license that you prefer but you may not use
+ * this file except in compliance with one of these Licenses.
+ * 
+ * You can obtain a copy of the LGPL 3.0 license at
+ * http://www.opensource.org/licenses/lgpl-3.0.html
+ * 
+ * You can obtain a copy of the LGPL 2.1 license at
+ * http://www.opensource.org/licenses/lgpl-2.1.php
+ * 
+ * You can obtain a copy of the CDDL 1.0 license at
+ * http://www.opensource.org/licenses/cddl1.php
+ * 
+ * You can obtain a copy of the EPL 1.0 license at
+ * http://www.opensource.org/licenses/eclipse-1.0.php
+ * 
+ * See the Licenses for the specific language governing permissions and
+ * limitations under the Licenses.
+ * 
+ * Alternatively, you can obtain a royalty free commercial license with less
+ * limitations, transferable or non-transferable, directly at
+ * http://www.noelios.com/products/restlet-engine
+ * 
+ * Restlet is a registered trademark of Noelios Technologies.
+ */
+
+package org.restlet.test.util;
+
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.ListIterator;
+
+import org.restlet.data.Cookie;
+import org.restlet.data.Parameter;
+import org.restlet.engine.header.Header;
+import org.restlet.test.RestletTestCase;
+import org.restlet.util.NamedValue;
+import org.restlet.util.Series;
+
+/**
+ * Test case for the {@link Series} class.
+ * 
+ * @author Jerome Louvel
+ */
+public class SeriesTestCase extends RestletTestCase {
+
+    /** Custom entry class, instantiated by reflection. */
+    public static class Entry implements NamedValue<String> {
+
+        private String name;
+
+        private String value;
+
+        public Entry(String name, String value) {
+            this.name = name;
+            this.value = value;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public String getValue() {
+            return value;
+        }
+
+        public void setName(String name) {
+            this.name = name;
+        }
+
+        public void setValue(String value) {
+            this.value = value;
+        }
+    }
+
+    /**
+     * Returns a series of headers with the given number of extra headers.
+     */
+    private static Series<Header> createHeaders(int extra, boolean indexed) {
+        Series<Header> result = new Series<Header>(Header.class);
+        result.setIndexed(indexed);
+        result.add("Host", "localhost");
+
+        for (int i = 0; i < extra; i++) {
+            result.add("X-Header-" + i, Integer.toString(i));
+        }
+
+        result.add("Accept", "text/html");
+        result.add("accept", "application/xml");
+        return result;
+    }
+
+    public void testCreateEntry() {
+        assertEquals(Header.class, new Series<Header>(Header.class)
+                .createEntry("a", "b").getClass());
+        assertEquals(Parameter.class, new Series<Parameter>(Parameter.class)
+                .createEntry("a", "b").getClass());
+        assertEquals(Cookie.class, new Series<Cookie>(Cookie.class)
+                .createEntry("a", "b").getClass());
+
+        Series<Entry> entries = new Series<Entry>(Entry.class);
+        entries.add("a", "1");
+        entries.add("b", "2");
+        assertEquals("2", entries.getFirstValue("b"));
+    }
+
+    public void testIndexedLookups() {
+        for (boolean indexed : new boolean[] { false, true }) {
+            Series<Header> headers = createHeaders(40, indexed);
+            assertEquals("localhost", headers.getFirstValue("Host"));
+            assertNull(headers.getFirstValue("host"));
+            assertEquals("localhost", headers.getFirstValue("host", true));
+            assertEquals("application/xml", headers.getFirstValue("accept"));
+            assertEquals("text/html,application/xml", headers
+                    .getValues("ACCEPT"));
+            assertEquals(2, headers.subList("Accept", true).size());
+            assertEquals(1, headers.subList("Accept", false).size());
+            assertNull(headers.getFirst("Missing", true));
+
+            // Modifications are visible to the lookups
+            headers.removeAll("Host");
+            assertNull(headers.getFirst("Host", true));
+            headers.add("Host", "example.com");
+            assertEquals("example.com", headers.getFirstValue("Host"));
+            headers.set("X-Header-3", "three", true);
+            assertEquals("three", headers.getFirstValue("x-header-3", true));
+            headers.add(0, new Header("Via", "proxy"));
+            assertEquals("proxy", headers.getFirstValue("via", true));
+            assertEquals("example.com", headers.getFirstValue("Host"));
+            headers.set(0, new Header("Forwarded", "for=client"));
+            assertNull(headers.getFirst("Via", true));
+            assertEquals("for=client", headers.getFirstValue("Forwarded"));
+
+            // Replacements through an iterator are visible to the lookups
+            ListIterator<Header> entries = headers.listIterator();
+            entries.next();
+            assertEquals("for=client", headers.getFirstValue("Forwarded"));
+            entries.set(new Header("Via", "proxy"));
+            assertNull(headers.getFirst("Forwarded", true));
+            assertEquals("proxy", headers.getFirstValue("via", true));
+
+            for (Iterator<Header> iter = headers.iterator(); iter.hasNext();) {
+                if (iter.next().getName().startsWith("X-")) {
+                    iter.remove();
+                }
+            }
+
+            assertNull(headers.getFirst("X-Header-5", true));
+            assertEquals("example.com", headers.getFirstValue("Host"));
+            headers.clear();
+            assertNull(headers.getFirst("Host", true));
+        }
+    }
+
+    public void testSequentialLookups() {
+        Series<Header> headers = new Series<Header>(Header.class,
+                new LinkedList<Header>());
+        headers.add("Host", "localhost");
+        headers.add("Accept", "text/html");
+        headers.add("accept", "application/xml");
+        assertEquals("localhost", headers.getFirstValue("host", true));
+        assertEquals("application/xml", headers.getFirstValue("accept"));
+        assertEquals("text/html,application/xml", headers.getValues("ACCEPT"));
+        assertEquals(2, headers.subList("Accept", true).size());
+        assertNull(headers.getFirst("Missing", true));
+    }
+
+}
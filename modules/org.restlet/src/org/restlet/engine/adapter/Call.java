@@ -140,6 +140,8 @@ public abstract class Call {
         this.responseHeaders = new Series<Header>(Header.class);
         // [ifdef gwt] instruction uncomment
         // this.responseHeaders = new org.restlet.engine.util.HeaderSeries();
+        this.requestHeaders.setIndexed(true);
+        this.responseHeaders.setIndexed(true);
         this.serverAddress = null;
         this.serverPort = -1;
         this.statusCode = 200;
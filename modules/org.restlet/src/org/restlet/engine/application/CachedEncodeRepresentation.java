@@ -0,0 +1,109 @@
+/**
+ * Copyright 2005-2011 Noelios Technologies.
+ * 
+ * The contents of this file are subject to the terms of one of the following
+ * open source licenses: LGPL 3.0 or LGPL 2.1 or CDDL 1.0 or EPL 1.0 (the
+ * "Licenses"). You can select the license that you prefer but you may not use
+ * this file except in compliance with one of these Licenses.
+ * 
+ * You can obtain a copy of the LGPL 3.0 license at
+ * http://www.opensource.org/licenses/lgpl-3.0.html
+ * 
+ * You can obtain a copy of the LGPL 2.1 license at
+ * http://www.opensource.org/licenses/lgpl-2.1.php
+ * 
+ * You can obtain a copy of the CDDL 1.0 license at
+ * http://www.opensource.org/licenses/cddl1.php
+ * 
+ * You can obtain a copy of the EPL 1.0 license at
+ * http://www.opensource.org/licenses/eclipse-1.0.php
+ * 
+ * See the Licenses for the specific language governing permissions and
+ * limitations under the Licenses.
+ * 
+ * Alternatively, you can obtain a royalty free commercial license with less
+ * limitations, transferable or non-transferable, directly at
+ * http://www.noelios.com/products/restlet-engine
+ * 
+ * Restlet is a registered trademark of Noelios Technologies.
+ */
+
+package org.restlet.engine.application;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+
+import org.restlet.data.Encoding;
+import org.restlet.representation.Representation;
+
+// [excludes gwt]
+/**
+ * Encoded representation whose encoded content was previously computed, for
+ * example by the {@link EncodeCache}. Writing it costs a memory copy instead of
+ * a compression. The metadata are still provided by the wrapped
+ * representation.
+ * 
+ * @author Jerome Louvel
+ */
+public class CachedEncodeRepresentation extends EncodeRepresentation {
+
+    /** The encoded content. */
+    private final byte[] content;
+
+    /**
+     * Constructor.
+     * 
+     * @param encoding
+     *            The encoding applied.
+     * @param wrappedRepresentation
+     *            The wrapped representation, providing the metadata.
+     * @param content
+     *            The encoded content.
+     */
+    public CachedEncodeRepresentation(Encoding encoding,
+            Representation wrappedRepresentation, byte[] content) {
+        super(encoding, wrappedRepresentation);
+        this.content = content;
+    }
+
+    @Override
+    public long getAvailableSize() {
+        return this.content.length;
+    }
+
+    @Override
+    public ReadableByteChannel getChannel() throws IOException {
+        return Channels.newChannel(getStream());
+    }
+
+    @Override
+    public long getSize() {
+        return this.content.length;
+    }
+
+    @Override
+    public InputStream getStream() throws IOException {
+        return new ByteArrayInputStream(this.content);
+    }
+
+    @Override
+    public void write(OutputStream outputStream) throws IOException {
+        outputStream.write(this.content);
+    }
+
+    @Override
+    public void write(WritableByteChannel writableChannel) throws IOException {
+        ByteBuffer buffer = ByteBuffer.wrap(this.content);
+
+        while (buffer.hasRemaining()) {
+            writableChannel.write(buffer);
+        }
+    }
+
+}
@@ -0,0 +1,462 @@
+/**
+ * Copyright 2005-2011 Noelios Technologies.
+ * 
+ * The contents of this file are subject to the terms of one of the following
+ * open source licenses: LGPL 3.0 or LGPL 2.1 or CDDL 1.0 or EPL 1.0 (the
+ * "Licenses"). You can select the license that you prefer but you may not use
+ * this file except in compliance with one of these Licenses.
+ * 
+ * You can obtain a copy of the LGPL 3.0 license at
+ * http://www.opensource.org/licenses/lgpl-3.0.html
+ * 
+ * You can obtain a copy of the LGPL 2.1 license at
+ * http://www.opensource.org/licenses/lgpl-2.1.php
+ * 
+ * You can obtain a copy of the CDDL 1.0 license at
+ * http://www.opensource.org/licenses/cddl1.php
+ * 
+ * You can obtain a copy of the EPL 1.0 license at
+ * http://www.opensource.org/licenses/eclipse-1.0.php
+ * 
+ * See the Licenses for the specific language governing permissions and
+ * limitations under the Licenses.
+ * 
+ * Alternatively, you can obtain a royalty free commercial license with less
+ * limitations, transferable or non-transferable, directly at
+ * http://www.noelios.com/products/restlet-engine
+ * 
+ * Restlet is a registered trademark of Noelios Technologies.
+ */
+
+package org.restlet.engine.application;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.restlet.Request;
+import org.restlet.data.ClientInfo;
+import org.restlet.data.Metadata;
+import org.restlet.data.Preference;
+import org.restlet.engine.resource.AnnotationInfo;
+import org.restlet.engine.resource.VariantInfo;
+import org.restlet.representation.Variant;
+import org.restlet.service.MetadataService;
+
+/**
+ * Bounded cache of content negotiation results. The distinct combinations of
+ * client preferences are usually few compared to the number of requests, so
+ * the index of the preferred variant is remembered for each combination of
+ * client preferences and variants metadata. When the cache is full, the least
+ * recently used entry is evicted.<br>
+ * <br>
+ * As the key is built for each negotiation, the cache only pays off when the
+ * scoring it saves is more expensive, typically with many variants or long
+ * lists of client preferences. It is disabled by default, see
+ * {@link org.restlet.service.ConnegService#setCache(ConnegCache)}.<br>
+ * <br>
+ * The key covers everything the {@link StrictConneg} and
+ * {@link FlexibleConneg} algorithms score: the accepted metadata and their
+ * quality, the default metadata of the metadata service, the metadata of each
+ * variant and, for annotated variants, the URI query.
+ * 
+ * @author Jerome Louvel
+ * @see org.restlet.service.ConnegService#getCache()
+ */
+public class ConnegCache {
+
+    /** Key of a negotiation result. */
+    private static final class Key {
+
+        /** The annotation descriptors of the variants, compared by identity. */
+        private final AnnotationInfo[] annotations;
+
+        /** The precomputed hash code. */
+        private final int hash;
+
+        /** The metadata service, compared by identity. */
+        private final MetadataService metadataService;
+
+        /** The normalized preferences, variants and query. */
+        private final String signature;
+
+        /**
+         * Constructor.
+         * 
+         * @param signature
+         *            The normalized preferences, variants and query.
+         * @param metadataService
+         *            The metadata service.
+         * @param annotations
+         *            The annotation descriptors of the variants or null.
+         */
+        private Key(String signature, MetadataService metadataService,
+                AnnotationInfo[] annotations) {
+            this.annotations = annotations;
+            this.metadataService = metadataService;
+            this.signature = signature;
+            int result = signature.hashCode();
+            result = 31 * result
+                    + System.identityHashCode(metadataService);
+
+            if (annotations != null) {
+                for (AnnotationInfo annotation : annotations) {
+                    result = 31 * result
+                            + System.identityHashCode(annotation);
+                }
+            }
+
+            this.hash = result;
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            if (other == this) {
+                return true;
+            }
+
+            if (!(other instanceof Key)) {
+                return false;
+            }
+
+            Key that = (Key) other;
+
+            if ((this.hash != that.hash)
+                    || (this.metadataService != that.metadataService)
+                    || !this.signature.equals(that.signature)) {
+                return false;
+            }
+
+            if (this.annotations == that.annotations) {
+                return true;
+            }
+
+            if ((this.annotations == null) || (that.annotations == null)
+                    || (this.annotations.length != that.annotations.length)) {
+                return false;
+            }
+
+            for (int i = 0; i < this.annotations.length; i++) {
+                if (this.annotations[i] != that.annotations[i]) {
+                    return false;
+                }
+            }
+
+            return true;
+        }
+
+        @Override
+        public int hashCode() {
+            return this.hash;
+        }
+    }
+
+    /**
+     * Appends the name of a metadata to a signature.
+     * 
+     * @param sb
+     *            The signature to update.
+     * @param metadata
+     *            The metadata or null.
+     */
+    private static void append(StringBuilder sb, Metadata metadata) {
+        if (metadata != null) {
+            sb.append(metadata.getName());
+        }
+
+        sb.append(',');
+    }
+
+    /**
+     * Appends the names of a list of metadata to a signature.
+     * 
+     * @param sb
+     *            The signature to update.
+     * @param metadataList
+     *            The list of metadata or null.
+     */
+    private static void appendAll(StringBuilder sb,
+            List<? extends Metadata> metadataList) {
+        if (metadataList != null) {
+            for (Metadata metadata : metadataList) {
+                sb.append(metadata.getName()).append(' ');
+            }
+        }
+
+        sb.append(',');
+    }
+
+    /**
+     * Appends a list of preferences to a signature.
+     * 
+     * @param sb
+     *            The signature to update.
+     * @param preferences
+     *            The list of preferences.
+     */
+    private static void appendPreferences(StringBuilder sb,
+            List<? extends Preference<? extends Metadata>> preferences) {
+        for (Preference<? extends Metadata> preference : preferences) {
+            append(sb, preference.getMetadata());
+            sb.append(preference.getQuality()).append(' ');
+        }
+
+        sb.append('\n');
+    }
+
+    /**
+     * The cached indexes of preferred variants, -1 if none was preferred, in
+     * access order.
+     */
+    private final LinkedHashMap<Key, Integer> entries;
+
+    /** The number of entries evicted. */
+    private final AtomicLong evictions;
+
+    /** The number of lookups that found a cached result. */
+    private final AtomicLong hits;
+
+    /** The maximum number of entries. */
+    private final int maxSize;
+
+    /** The number of lookups that found no cached result. */
+    private final AtomicLong misses;
+
+    /**
+     * Constructor.
+     * 
+     * @param maxSize
+     *            The maximum number of entries.
+     */
+    public ConnegCache(int maxSize) {
+        this.entries = new LinkedHashMap<Key, Integer>(16, 0.75f, true) {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, Integer> eldest) {
+                boolean result = size() > getMaxSize();
+
+                if (result) {
+                    evictions.incrementAndGet();
+                }
+
+                return result;
+            }
+        };
+        this.evictions = new AtomicLong();
+        this.hits = new AtomicLong();
+        this.maxSize = maxSize;
+        this.misses = new AtomicLong();
+    }
+
+    /**
+     * Clears the cached results and the statistics.
+     */
+    public void clear() {
+        synchronized (this.entries) {
+            this.entries.clear();
+        }
+
+        this.evictions.set(0);
+        this.hits.set(0);
+        this.misses.set(0);
+    }
+
+    /**
+     * Returns the cached index of the preferred variant.
+     * 
+     * @param key
+     *            The key returned by
+     *            {@link #getKey(List, Request, MetadataService, boolean)}.
+     * @return The index of the preferred variant, -1 if none was preferred, or
+     *         null if no result is cached.
+     */
+    public Integer get(Object key) {
+        Integer result;
+
+        synchronized (this.entries) {
+            result = this.entries.get(key);
+        }
+
+        if (result == null) {
+            this.misses.incrementAndGet();
+        } else {
+            this.hits.incrementAndGet();
+        }
+
+        return result;
+    }
+
+    /**
+     * Returns the number of entries evicted.
+     * 
+     * @return The number of entries evicted.
+     */
+    public long getEvictions() {
+        return this.evictions.get();
+    }
+
+    /**
+     * Returns the number of lookups that found a cached result.
+     * 
+     * @return The number of lookups that found a cached result.
+     */
+    public long getHits() {
+        return this.hits.get();
+    }
+
+    /**
+     * Returns the key of a negotiation.
+     * 
+     * @param variants
+     *            The list of variants to compare.
+     * @param request
+     *            The request including client preferences.
+     * @param metadataService
+     *            The metadata service used to get default metadata values.
+     * @param strict
+     *            True if the strict algorithm is used.
+     * @return The key or null if the negotiation shouldn't be cached.
+     */
+    public Object getKey(List<? extends Variant> variants, Request request,
+            MetadataService metadataService, boolean strict) {
+        if ((this.maxSize <= 0) || (variants == null) || variants.isEmpty()
+                || (request == null)) {
+            return null;
+        }
+
+        ClientInfo clientInfo = request.getClientInfo();
+        StringBuilder sb = new StringBuilder(128);
+        sb.append(strict ? 'S' : 'F').append('\n');
+        appendPreferences(sb, clientInfo.getAcceptedMediaTypes());
+        appendPreferences(sb, clientInfo.getAcceptedLanguages());
+        appendPreferences(sb, clientInfo.getAcceptedCharacterSets());
+        appendPreferences(sb, clientInfo.getAcceptedEncodings());
+
+        if (!strict && (metadataService != null)) {
+            append(sb, metadataService.getDefaultMediaType());
+            append(sb, metadataService.getDefaultLanguage());
+            append(sb, metadataService.getDefaultCharacterSet());
+            append(sb, metadataService.getDefaultEncoding());
+            sb.append('\n');
+        }
+
+        AnnotationInfo[] annotations = null;
+        boolean queryConstraint = false;
+
+        for (int i = 0; i < variants.size(); i++) {
+            Variant variant = variants.get(i);
+
+            if (variant == null) {
+                return null;
+            }
+
+            append(sb, variant.getMediaType());
+            appendAll(sb, variant.getLanguages());
+            append(sb, variant.getCharacterSet());
+            appendAll(sb, variant.getEncodings());
+            sb.append('\n');
+
+            if (variant instanceof VariantInfo) {
+                AnnotationInfo annotation = ((VariantInfo) variant)
+                        .getAnnotationInfo();
+
+                if (annotations == null) {
+                    annotations = new AnnotationInfo[variants.size()];
+                }
+
+                annotations[i] = annotation;
+                queryConstraint = queryConstraint
+                        || ((annotation != null) && (annotation.getQuery() != null));
+            }
+        }
+
+        if (annotations != null) {
+            // Annotated variants are also scored against the URI query
+            String query = (request.getResourceRef() == null) ? null : request
+                    .getResourceRef().getQuery();
+
+            if (query == null) {
+                sb.append('-');
+            } else if (queryConstraint) {
+                sb.append('?').append(query);
+            } else {
+                sb.append('?');
+            }
+        }
+
+        return new Key(sb.toString(), metadataService, annotations);
+    }
+
+    /**
+     * Returns the maximum number of entries.
+     * 
+     * @return The maximum number of entries.
+     */
+    public int getMaxSize() {
+        return this.maxSize;
+    }
+
+    /**
+     * Returns the number of lookups that found no cached result.
+     * 
+     * @return The number of lookups that found no cached result.
+     */
+    public long getMisses() {
+        return this.misses.get();
+    }
+
+    /**
+     * Caches the preferred variant of a negotiation, evicting the least
+     * recently used entry if the cache is full.
+     * 
+     * @param key
+     *            The key returned by
+     *            {@link #getKey(List, Request, MetadataService, boolean)}.
+     * @param variants
+     *            The list of variants compared.
+     * @param preferredVariant
+     *            The preferred variant or null.
+     */
+    public void put(Object key, List<? extends Variant> variants,
+            Variant preferredVariant) {
+        int index = -1;
+
+        if (preferredVariant != null) {
+            for (int i = 0; (index == -1) && (i < variants.size()); i++) {
+                if (variants.get(i) == preferredVariant) {
+                    index = i;
+                }
+            }
+
+            if (index == -1) {
+                // Not a member of the list, don't cache it
+                return;
+            }
+        }
+
+        synchronized (this.entries) {
+            this.entries.put((Key) key, index);
+        }
+    }
+
+    /**
+     * Returns the number of cached results.
+     * 
+     * @return The number of cached results.
+     */
+    public int size() {
+        synchronized (this.entries) {
+            return this.entries.size();
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "ConnegCache [" + size() + "/" + getMaxSize() + " entries, "
+                + getHits() + " hits, " + getMisses() + " misses, "
+                + getEvictions() + " evictions]";
+    }
+
+}
@@ -0,0 +1,339 @@
+/**
+ * Copyright 2005-2011 Noelios Technologies.
+ * 
+ * The contents of this file are subject to the terms of one of the following
+ * open source licenses: LGPL 3.0 or LGPL 2.1 or CDDL 1.0 or EPL 1.0 (the
+ * "Licenses"). You can select the license that you prefer but you may not use
+ * this file except in compliance with one of these Licenses.
+ * 
+ * You can obtain a copy of the LGPL 3.0 license at
+ * http://www.opensource.org/licenses/lgpl-3.0.html
+ * 
+ * You can obtain a copy of the LGPL 2.1 license at
+ * http://www.opensource.org/licenses/lgpl-2.1.php
+ * 
+ * You can obtain a copy of the CDDL 1.0 license at
+ * http://www.opensource.org/licenses/cddl1.php
+ * 
+ * You can obtain a copy of the EPL 1.0 license at
+ * http://www.opensource.org/licenses/eclipse-1.0.php
+ * 
+ * See the Licenses for the specific language governing permissions and
+ * limitations under the Licenses.
+ * 
+ * Alternatively, you can obtain a royalty free commercial license with less
+ * limitations, transferable or non-transferable, directly at
+ * http://www.noelios.com/products/restlet-engine
+ * 
+ * Restlet is a registered trademark of Noelios Technologies.
+ */
+
+package org.restlet.engine.application;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+
+import org.restlet.Context;
+import org.restlet.data.Encoding;
+import org.restlet.data.Language;
+import org.restlet.data.Reference;
+import org.restlet.representation.Representation;
+
+// [excludes gwt]
+/**
+ * Bounded cache of encoded entities. Static files and large documents are
+ * often served many times without change, so their compressed content is
+ * remembered instead of being compressed again for each response. The total
+ * size of the cached content is bounded and the least recently used entries
+ * are evicted first.<br>
+ * <br>
+ * Only the representations that can be read again, with a known size, a tag or
+ * a modification date, are cached, so that a representation whose encoding
+ * failed can still be encoded while being sent. The key covers the resource reference, the encoding, the tag, the
+ * modification date, the size and the other metadata of the representation.
+ * 
+ * @author Jerome Louvel
+ * @see org.restlet.service.EncoderService#getCache()
+ */
+public class EncodeCache {
+
+    /** The total size of the cached content in bytes. */
+    private long cachedSize;
+
+    /** The maximum total size of the cached content in bytes. */
+    private final long capacity;
+
+    /** The cached encoded content, in access order. */
+    private final LinkedHashMap<String, byte[]> entries;
+
+    /** The number of entries evicted. */
+    private final AtomicLong evictions;
+
+    /** The number of lookups that found a cached content. */
+    private final AtomicLong hits;
+
+    /** The number of lookups that found no cached content. */
+    private final AtomicLong misses;
+
+    /**
+     * Constructor.
+     * 
+     * @param capacity
+     *            The maximum total size of the cached content in bytes.
+     */
+    public EncodeCache(long capacity) {
+        this.cachedSize = 0;
+        this.capacity = capacity;
+        this.entries = new LinkedHashMap<String, byte[]>(16, 0.75f, true);
+        this.evictions = new AtomicLong();
+        this.hits = new AtomicLong();
+        this.misses = new AtomicLong();
+    }
+
+    /**
+     * Clears the cache and its statistics.
+     */
+    public synchronized void clear() {
+        this.entries.clear();
+        this.cachedSize = 0;
+        this.evictions.set(0);
+        this.hits.set(0);
+        this.misses.set(0);
+    }
+
+    /**
+     * Returns the encoded representation of a given representation, based on
+     * the cached content if available. Otherwise the representation is
+     * encoded and its content cached.
+     * 
+     * @param key
+     *            The key returned by
+     *            {@link #getKey(Representation, Encoding, Reference)}.
+     * @param encoding
+     *            The encoding to apply.
+     * @param representation
+     *            The representation to encode.
+     * @return The encoded representation or null if the encoding failed, in
+     *         which case the representation isn't transient and can be read
+     *         again.
+     */
+    public Representation encode(String key, Encoding encoding,
+            Representation representation) {
+        byte[] content = get(key);
+
+        if (content == null) {
+            EncodeRepresentation encoded = new EncodeRepresentation(encoding,
+                    representation);
+            ByteArrayOutputStream out = new ByteArrayOutputStream(
+                    (int) Math.min(representation.getSize(), 8192));
+
+            try {
+                encoded.write(out);
+            } catch (IOException e) {
+                Context.getCurrentLogger().log(Level.WARNING,
+                        "Unable to encode the representation to cache", e);
+                return null;
+            }
+
+            content = out.toByteArray();
+            put(key, content);
+        }
+
+        return new CachedEncodeRepresentation(encoding, representation,
+                content);
+    }
+
+    /**
+     * Returns the cached encoded content for a given key.
+     * 
+     * @param key
+     *            The key returned by
+     *            {@link #getKey(Representation, Encoding, Reference)}.
+     * @return The cached encoded content or null.
+     */
+    public byte[] get(String key) {
+        byte[] result;
+
+        synchronized (this) {
+            result = this.entries.get(key);
+        }
+
+        if (result == null) {
+            this.misses.incrementAndGet();
+        } else {
+            this.hits.incrementAndGet();
+        }
+
+        return result;
+    }
+
+    /**
+     * Returns the total size of the cached content in bytes.
+     * 
+     * @return The total size of the cached content in bytes.
+     */
+    public synchronized long getCachedSize() {
+        return this.cachedSize;
+    }
+
+    /**
+     * Returns the maximum total size of the cached content in bytes.
+     * 
+     * @return The maximum total size of the cached content in bytes.
+     */
+    public long getCapacity() {
+        return this.capacity;
+    }
+
+    /**
+     * Returns the number of entries evicted.
+     * 
+     * @return The number of entries evicted.
+     */
+    public long getEvictions() {
+        return this.evictions.get();
+    }
+
+    /**
+     * Returns the number of lookups that found a cached content.
+     * 
+     * @return The number of lookups that found a cached content.
+     */
+    public long getHits() {
+        return this.hits.get();
+    }
+
+    /**
+     * Returns the cache key for a given representation and encoding, or null
+     * if the encoded representation can't be cached, for example because the
+     * representation is transient and couldn't be read again if its encoding
+     * failed.
+     * 
+     * @param representation
+     *            The representation to encode.
+     * @param encoding
+     *            The encoding to apply.
+     * @param resourceRef
+     *            The reference of the resource or null to use the location of
+     *            the representation.
+     * @return The cache key or null.
+     */
+    public String getKey(Representation representation, Encoding encoding,
+            Reference resourceRef) {
+        if ((representation == null) || (encoding == null)
+                || Encoding.IDENTITY.equals(encoding)
+                || !representation.isAvailable()
+                || representation.isTransient()
+                || (representation.getSize() == Representation.UNKNOWN_SIZE)
+                || (representation.getSize() > getCapacity())
+                || ((representation.getTag() == null) && (representation
+                        .getModificationDate() == null))) {
+            return null;
+        }
+
+        Reference ref = (resourceRef == null) ? representation
+                .getLocationRef() : resourceRef;
+
+        if (ref == null) {
+            return null;
+        }
+
+        StringBuilder sb = new StringBuilder(128);
+        sb.append(encoding.getName()).append(' ');
+        sb.append(ref.toString()).append('\n');
+        sb.append((representation.getTag() == null) ? "-" : representation
+                .getTag().format());
+        sb.append(',');
+
+        if (representation.getModificationDate() != null) {
+            sb.append(representation.getModificationDate().getTime());
+        }
+
+        sb.append(',').append(representation.getSize()).append(',');
+
+        if (representation.getMediaType() != null) {
+            sb.append(representation.getMediaType().getName());
+        }
+
+        sb.append(',');
+
+        if (representation.getCharacterSet() != null) {
+            sb.append(representation.getCharacterSet().getName());
+        }
+
+        sb.append(',');
+
+        for (Language language : representation.getLanguages()) {
+            sb.append(language.getName()).append(' ');
+        }
+
+        return sb.toString();
+    }
+
+    /**
+     * Returns the number of lookups that found no cached content.
+     * 
+     * @return The number of lookups that found no cached content.
+     */
+    public long getMisses() {
+        return this.misses.get();
+    }
+
+    /**
+     * Caches the encoded content for a given key, evicting the least recently
+     * used entries if needed. Content larger than the capacity isn't cached.
+     * 
+     * @param key
+     *            The key returned by
+     *            {@link #getKey(Representation, Encoding, Reference)}.
+     * @param content
+     *            The encoded content.
+     */
+    public synchronized void put(String key, byte[] content) {
+        if ((key == null) || (content.length > getCapacity())) {
+            return;
+        }
+
+        byte[] previous = this.entries.put(key, content);
+
+        if (previous != null) {
+            this.cachedSize -= previous.length;
+        }
+
+        this.cachedSize += content.length;
+
+        for (Iterator<Map.Entry<String, byte[]>> iter = this.entries
+                .entrySet().iterator(); (this.cachedSize > getCapacity())
+                && iter.hasNext();) {
+            Map.Entry<String, byte[]> eldest = iter.next();
+
+            if (eldest.getValue() != content) {
+                iter.remove();
+                this.cachedSize -= eldest.getValue().length;
+                this.evictions.incrementAndGet();
+            }
+        }
+    }
+
+    /**
+     * Returns the number of cached entries.
+     * 
+     * @return The number of cached entries.
+     */
+    public synchronized int size() {
+        return this.entries.size();
+    }
+
+    @Override
+    public String toString() {
+        return "EncodeCache [" + size() + " entries, " + getCachedSize() + "/"
+                + getCapacity() + " bytes, " + getHits() + " hits, "
+                + getMisses() + " misses, " + getEvictions() + " evictions]";
+    }
+
+}
@@ -48,6 +48,7 @@ import org.restlet.data.Disposition;
 import org.restlet.data.Encoding;
 import org.restlet.engine.io.BioUtils;
 import org.restlet.engine.io.NioUtils;
+import org.restlet.engine.io.ReadableEncodingChannel;
 import org.restlet.representation.Representation;
 import org.restlet.util.WrapperList;
 import org.restlet.util.WrapperRepresentation;
@@ -126,15 +127,17 @@ public class EncodeRepresentation extends WrapperRepresentation {
     }
 
     /**
-     * Returns a readable byte channel. If it is supported by a file a read-only
-     * instance of FileChannel is returned.
+     * Returns a readable byte channel. The encoding is done incrementally as
+     * the channel is read, without helper thread.
      * 
      * @return A readable byte channel.
+     * @see ReadableEncodingChannel
      */
     @Override
     public ReadableByteChannel getChannel() throws IOException {
-        if (canEncode()) {
-            return NioUtils.getChannel(getStream());
+        if (canEncode() && !this.encoding.equals(Encoding.IDENTITY)) {
+            return new ReadableEncodingChannel(getWrappedRepresentation()
+                    .getChannel(), this.encoding, getEntryName());
         }
 
         return getWrappedRepresentation().getChannel();
@@ -213,6 +216,24 @@ public class EncodeRepresentation extends WrapperRepresentation {
         return this.encodings;
     }
 
+    /**
+     * Returns the name of the ZIP entry, based on the disposition filename of
+     * the wrapped representation.
+     * 
+     * @return The name of the ZIP entry.
+     */
+    private String getEntryName() {
+        String result = "entry";
+
+        if (getWrappedRepresentation().getDisposition() != null) {
+            result = getWrappedRepresentation().getDisposition()
+                    .getParameters()
+                    .getFirstValue(Disposition.NAME_FILENAME, true, result);
+        }
+
+        return result;
+    }
+
     /**
      * Returns the size in bytes of the encoded representation if known,
      * UNKNOWN_SIZE (-1) otherwise.
@@ -285,15 +306,7 @@ public class EncodeRepresentation extends WrapperRepresentation {
                 encoderOutputStream = new DeflaterOutputStream(outputStream);
             } else if (this.encoding.equals(Encoding.ZIP)) {
                 final ZipOutputStream stream = new ZipOutputStream(outputStream);
-                String name = "entry";
-                if (getWrappedRepresentation().getDisposition() != null) {
-                    name = getWrappedRepresentation()
-                            .getDisposition()
-                            .getParameters()
-                            .getFirstValue(Disposition.NAME_FILENAME, true,
-                                    name);
-                }
-                stream.putNextEntry(new ZipEntry(name));
+                stream.putNextEntry(new ZipEntry(getEntryName()));
 
                 encoderOutputStream = stream;
             } else if (this.encoding.equals(Encoding.IDENTITY)) {
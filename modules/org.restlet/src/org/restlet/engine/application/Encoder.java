@@ -39,6 +39,7 @@ import org.restlet.Response;
 import org.restlet.data.ClientInfo;
 import org.restlet.data.Encoding;
 import org.restlet.data.Preference;
+import org.restlet.data.Reference;
 import org.restlet.representation.Representation;
 import org.restlet.routing.Filter;
 import org.restlet.service.EncoderService;
@@ -106,7 +107,7 @@ public class Encoder extends Filter {
         if (isEncodingResponse()
                 && getEncoderService().canEncode(response.getEntity())) {
             response.setEntity(encode(request.getClientInfo(),
-                    response.getEntity()));
+                    response.getEntity(), request.getResourceRef()));
         }
     }
 
@@ -144,11 +145,39 @@ public class Encoder extends Filter {
      */
     public Representation encode(ClientInfo client,
             Representation representation) {
+        return encode(client, representation, null);
+    }
+
+    /**
+     * Encodes a given representation if an encoding is supported by the client.
+     * When the encoder service has a cache, the encoded content of cacheable
+     * representations is reused from or stored into the cache.
+     * 
+     * @param client
+     *            The client preferences to use.
+     * @param representation
+     *            The representation to encode.
+     * @param resourceRef
+     *            The reference of the resource, used as cache key, or null to
+     *            use the location of the representation.
+     * @return The encoded representation or the original one if no encoding
+     *         supported by the client.
+     * @see EncoderService#getCache()
+     */
+    public Representation encode(ClientInfo client,
+            Representation representation, Reference resourceRef) {
         Representation result = representation;
         Encoding bestEncoding = getBestEncoding(client);
 
         if (bestEncoding != null) {
-            result = new EncodeRepresentation(bestEncoding, representation);
+            EncodeCache cache = (getEncoderService() == null) ? null
+                    : getEncoderService().getCache();
+            String key = (cache == null) ? null : cache.getKey(representation,
+                    bestEncoding, resourceRef);
+            Representation cached = (key == null) ? null : cache.encode(key,
+                    bestEncoding, representation);
+            result = (cached == null) ? new EncodeRepresentation(bestEncoding,
+                    representation) : cached;
         }
 
         return result;
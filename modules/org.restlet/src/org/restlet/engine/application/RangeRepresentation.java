@@ -40,6 +40,8 @@ import org.restlet.data.Range;
 import org.restlet.engine.io.BioUtils;
 import org.restlet.engine.io.NioUtils;
 import org.restlet.engine.io.RangeInputStream;
+import org.restlet.engine.io.ReadableSizedChannel;
+import org.restlet.representation.FileRepresentation;
 import org.restlet.representation.Representation;
 import org.restlet.util.WrapperRepresentation;
 
@@ -88,10 +90,30 @@ public class RangeRepresentation extends WrapperRepresentation {
     }
 
     // [ifndef gwt] method
+    /**
+     * Returns a channel with the content of the range. When the wrapped
+     * representation is a file, the returned channel is a
+     * {@link ReadableSizedChannel} over the file channel positioned at the
+     * beginning of the range, allowing connectors to transfer it without copy.
+     */
     @Override
     public java.nio.channels.ReadableByteChannel getChannel()
             throws IOException {
-        return org.restlet.engine.io.NioUtils.getChannel(getStream());
+        java.nio.channels.ReadableByteChannel result = null;
+        long startIndex = getStartIndex();
+
+        if ((getWrappedRepresentation() instanceof FileRepresentation)
+                && (startIndex != -1)
+                && (getAvailableSize() != UNKNOWN_SIZE)) {
+            java.nio.channels.FileChannel fileChannel = ((FileRepresentation) getWrappedRepresentation())
+                    .getChannel();
+            fileChannel.position(startIndex);
+            result = new ReadableSizedChannel(fileChannel, getAvailableSize());
+        } else {
+            result = org.restlet.engine.io.NioUtils.getChannel(getStream());
+        }
+
+        return result;
     }
 
     /**
@@ -105,6 +127,28 @@ public class RangeRepresentation extends WrapperRepresentation {
         return this.range;
     }
 
+    /**
+     * Returns the index of the first byte of the range in the wrapped
+     * representation.
+     * 
+     * @return The index of the first byte or -1 if it can't be determined.
+     */
+    private long getStartIndex() {
+        long result = -1;
+        Range range = getRange();
+
+        if (range == null) {
+            result = 0;
+        } else if (range.getIndex() != Range.INDEX_LAST) {
+            result = range.getIndex();
+        } else if ((range.getSize() != Range.SIZE_MAX)
+                && (getSize() != UNKNOWN_SIZE)) {
+            result = getSize() - range.getSize();
+        }
+
+        return result;
+    }
+
     @Override
     public Reader getReader() throws IOException {
         return BioUtils.getReader(getStream(), getCharacterSet());
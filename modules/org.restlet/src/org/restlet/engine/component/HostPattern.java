@@ -0,0 +1,173 @@
+/**
+ * Copyright 2005-2011 Noelios Technologies.
+ * 
+ * The contents of this file are subject to the terms of one of the following
+ * open source licenses: LGPL 3.0 or LGPL 2.1 or CDDL 1.0 or EPL 1.0 (the
+ * "Licenses"). You can select the license that you prefer but you may not use
+ * this file except in compliance with one of these Licenses.
+ * 
+ * You can obtain a copy of the LGPL 3.0 license at
+ * http://www.opensource.org/licenses/lgpl-3.0.html
+ * 
+ * You can obtain a copy of the LGPL 2.1 license at
+ * http://www.opensource.org/licenses/lgpl-2.1.php
+ * 
+ * You can obtain a copy of the CDDL 1.0 license at
+ * http://www.opensource.org/licenses/cddl1.php
+ * 
+ * You can obtain a copy of the EPL 1.0 license at
+ * http://www.opensource.org/licenses/eclipse-1.0.php
+ * 
+ * See the Licenses for the specific language governing permissions and
+ * limitations under the Licenses.
+ * 
+ * Alternatively, you can obtain a royalty free commercial license with less
+ * limitations, transferable or non-transferable, directly at
+ * http://www.noelios.com/products/restlet-engine
+ * 
+ * Restlet is a registered trademark of Noelios Technologies.
+ */
+package org.restlet.engine.component;
+
+import java.util.regex.Pattern;
+
+/**
+ * Compiled form of a virtual host regex, matched in a case insensitive manner.
+ * The ".*" regex always matches and regexes without any special character
+ * (other than escaped ones or a \Q...\E quotation) are matched by string
+ * comparison, without using the regex engine. Instances are immutable.
+ * 
+ * @author Jerome Louvel
+ */
+public final class HostPattern {
+
+    /** The pattern matching any string. */
+    private static final String ANY = ".*";
+
+    /** The special characters of the regex syntax. */
+    private static final String SPECIAL_CHARACTERS = "\\.[]{}()*+?^$|";
+
+    /**
+     * Returns the literal string matched by a regex, or null if the regex
+     * isn't a simple literal.
+     * 
+     * @param regex
+     *            The regex to parse.
+     * @return The literal string or null.
+     */
+    private static String getLiteral(String regex) {
+        if (regex.startsWith("\\Q") && regex.endsWith("\\E")
+                && (regex.indexOf("\\E") == regex.length() - 2)) {
+            return regex.substring(2, regex.length() - 2);
+        }
+
+        StringBuilder sb = new StringBuilder(regex.length());
+
+        for (int i = 0; i < regex.length(); i++) {
+            char c = regex.charAt(i);
+
+            if (c == '\\') {
+                if ((i + 1 < regex.length())
+                        && !Character.isLetterOrDigit(regex.charAt(i + 1))) {
+                    sb.append(regex.charAt(++i));
+                } else {
+                    return null;
+                }
+            } else if (SPECIAL_CHARACTERS.indexOf(c) != -1) {
+                return null;
+            } else {
+                sb.append(c);
+            }
+        }
+
+        return sb.toString();
+    }
+
+    /** Indicates if any string matches. */
+    private final boolean any;
+
+    /** The literal string matched, or null. */
+    private final String literal;
+
+    /** The compiled regex, if needed. */
+    private final Pattern pattern;
+
+    /** The source regex. */
+    private final String regex;
+
+    /**
+     * Constructor.
+     * 
+     * @param regex
+     *            The source regex.
+     */
+    public HostPattern(String regex) {
+        this.any = ANY.equals(regex);
+        this.literal = this.any ? null : getLiteral(regex);
+        this.pattern = (this.any || (this.literal != null)) ? null : Pattern
+                .compile(regex, Pattern.CASE_INSENSITIVE);
+        this.regex = regex;
+    }
+
+    /**
+     * Returns the literal string matched, or null if the regex isn't a simple
+     * literal.
+     * 
+     * @return The literal string matched or null.
+     */
+    public String getLiteral() {
+        return literal;
+    }
+
+    /**
+     * Returns the source regex.
+     * 
+     * @return The source regex.
+     */
+    public String getRegex() {
+        return regex;
+    }
+
+    /**
+     * Indicates if any string matches.
+     * 
+     * @return True if any string matches.
+     */
+    public boolean isAny() {
+        return any;
+    }
+
+    /**
+     * Indicates if this pattern was compiled from the given regex.
+     * 
+     * @param regex
+     *            The regex to compare.
+     * @return True if this pattern was compiled from the given regex.
+     */
+    public boolean isFor(String regex) {
+        return (this.regex == regex) || this.regex.equals(regex);
+    }
+
+    /**
+     * Matches a formatted string, in a case insensitive manner.
+     * 
+     * @param formattedString
+     *            The formatted string to match.
+     * @return True if the formatted string matched.
+     */
+    public boolean matches(String formattedString) {
+        if (this.any) {
+            return true;
+        } else if (this.literal != null) {
+            return this.literal.equalsIgnoreCase(formattedString);
+        }
+
+        return this.pattern.matcher(formattedString).matches();
+    }
+
+    @Override
+    public String toString() {
+        return getRegex();
+    }
+
+}
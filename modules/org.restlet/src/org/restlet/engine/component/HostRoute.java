@@ -31,7 +31,6 @@
 package org.restlet.engine.component;
 
 import java.util.logging.Level;
-import java.util.regex.Pattern;
 
 import org.restlet.Request;
 import org.restlet.Response;
@@ -49,6 +48,37 @@ import org.restlet.routing.VirtualHost;
  * @author Jerome Louvel
  */
 public class HostRoute extends Route {
+
+    /** Index of the host domain pattern. */
+    private static final int HOST_DOMAIN = 0;
+
+    /** Index of the host port pattern. */
+    private static final int HOST_PORT = 1;
+
+    /** Index of the host scheme pattern. */
+    private static final int HOST_SCHEME = 2;
+
+    /** Index of the resource domain pattern. */
+    private static final int RESOURCE_DOMAIN = 3;
+
+    /** Index of the resource port pattern. */
+    private static final int RESOURCE_PORT = 4;
+
+    /** Index of the resource scheme pattern. */
+    private static final int RESOURCE_SCHEME = 5;
+
+    /** Index of the server address pattern. */
+    private static final int SERVER_ADDRESS = 6;
+
+    /** Index of the server port pattern. */
+    private static final int SERVER_PORT = 7;
+
+    /**
+     * The compiled patterns of the virtual host properties, recompiled when a
+     * property changes.
+     */
+    private final HostPattern[] patterns;
+
     /**
      * Constructor.
      * 
@@ -59,6 +89,7 @@ public class HostRoute extends Route {
      */
     public HostRoute(Router router, VirtualHost target) {
         super(router, target);
+        this.patterns = new HostPattern[8];
     }
 
     /**
@@ -91,6 +122,36 @@ public class HostRoute extends Route {
         return CONTINUE;
     }
 
+    /**
+     * Returns the compiled pattern of the virtual host domain.
+     * 
+     * @return The compiled pattern of the virtual host domain.
+     */
+    public HostPattern getHostDomainPattern() {
+        return getPattern(HOST_DOMAIN, getVirtualHost().getHostDomain());
+    }
+
+    /**
+     * Returns the compiled pattern of a virtual host property, compiling it
+     * again if the property changed.
+     * 
+     * @param index
+     *            The index of the property.
+     * @param regex
+     *            The current value of the property.
+     * @return The compiled pattern.
+     */
+    private HostPattern getPattern(int index, String regex) {
+        HostPattern result = this.patterns[index];
+
+        if ((result == null) || !result.isFor(regex)) {
+            result = new HostPattern(regex);
+            this.patterns[index] = result;
+        }
+
+        return result;
+    }
+
     /**
      * Returns the target virtual host.
      * 
@@ -101,18 +162,19 @@ public class HostRoute extends Route {
     }
 
     /**
-     * Matches a formatted string against a regex pattern, in a case insensitive
-     * manner.
+     * Matches a formatted string against the pattern of a virtual host
+     * property, in a case insensitive manner.
      * 
+     * @param index
+     *            The index of the property.
      * @param regex
-     *            The pattern to use.
+     *            The current value of the property.
      * @param formattedString
      *            The formatted string to match.
      * @return True if the formatted string matched the pattern.
      */
-    private boolean matches(String regex, String formattedString) {
-        return Pattern.compile(regex, Pattern.CASE_INSENSITIVE)
-                .matcher(formattedString).matches();
+    private boolean matches(int index, String regex, String formattedString) {
+        return getPattern(index, regex).matches(formattedString);
     }
 
     /**
@@ -193,17 +255,20 @@ public class HostRoute extends Route {
                     .getPort());
 
             // Check if all the criteria match
-            if (matches(getVirtualHost().getHostDomain(), hostDomain)
-                    && matches(getVirtualHost().getHostPort(), hostPort)
-                    && matches(getVirtualHost().getHostScheme(), hostScheme)
-                    && matches(getVirtualHost().getResourceDomain(),
+            VirtualHost host = getVirtualHost();
+
+            if (matches(HOST_DOMAIN, host.getHostDomain(), hostDomain)
+                    && matches(HOST_PORT, host.getHostPort(), hostPort)
+                    && matches(HOST_SCHEME, host.getHostScheme(), hostScheme)
+                    && matches(RESOURCE_DOMAIN, host.getResourceDomain(),
                             resourceDomain)
-                    && matches(getVirtualHost().getResourcePort(), resourcePort)
-                    && matches(getVirtualHost().getResourceScheme(),
+                    && matches(RESOURCE_PORT, host.getResourcePort(),
+                            resourcePort)
+                    && matches(RESOURCE_SCHEME, host.getResourceScheme(),
                             resourceScheme)
-                    && matches(getVirtualHost().getServerAddress(),
+                    && matches(SERVER_ADDRESS, host.getServerAddress(),
                             serverAddress)
-                    && matches(getVirtualHost().getServerPort(), serverPort)) {
+                    && matches(SERVER_PORT, host.getServerPort(), serverPort)) {
                 result = 1F;
             }
         }
@@ -30,6 +30,11 @@
 
 package org.restlet.engine.component;
 
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
 import java.util.logging.Level;
 
 import org.restlet.Component;
@@ -37,14 +42,20 @@ import org.restlet.Request;
 import org.restlet.Response;
 import org.restlet.Restlet;
 import org.restlet.data.Status;
+import org.restlet.routing.Route;
 import org.restlet.routing.Router;
 import org.restlet.routing.VirtualHost;
+import org.restlet.util.RouteList;
 
 /**
  * Router that collects calls from all server connectors and dispatches them to
  * the appropriate host routers. The host routers then dispatch them to the user
- * applications.
- * 
+ * applications.<br>
+ * <br>
+ * The first matching host route is selected. The routes are indexed by their
+ * host domain when it is a literal value, so that most calls only score the
+ * routes of their host domain and the routes with a host domain regex.<br>
+ * <br>
  * Concurrency note: instances of this class or its subclasses can be invoked by
  * several threads at the same time and therefore must be thread-safe. You
  * should be especially careful when storing state in member variables.
@@ -53,9 +64,115 @@ import org.restlet.routing.VirtualHost;
  */
 public class ServerRouter extends Router {
 
+    /**
+     * Index of the routes by literal host domain, valid as long as the routes
+     * and the host properties of the virtual hosts don't change.
+     */
+    private static final class HostIndex {
+
+        /** The candidate routes of each literal host domain, in lower case. */
+        private final Map<String, Route[]> candidates;
+
+        /** The count of changes to the virtual hosts when indexed. */
+        private final int hostChanges;
+
+        /** The candidate routes of the other host domains. */
+        private final Route[] others;
+
+        /** The indexed list of routes. */
+        private final RouteList routeList;
+
+        /** The version of the list of routes when indexed. */
+        private final int version;
+
+        /**
+         * Constructor.
+         * 
+         * @param routeList
+         *            The list of routes to index.
+         */
+        private HostIndex(RouteList routeList) {
+            // Take the versions first, so that a concurrent change triggers
+            // a new index
+            this.hostChanges = VirtualHost.getHostChanges();
+            this.version = routeList.getVersion();
+            this.routeList = routeList;
+            this.candidates = new HashMap<String, Route[]>();
+
+            Route[] routes = routeList.toArray(new Route[0]);
+
+            String[] literals = new String[routes.length];
+            List<Route> others = new ArrayList<Route>();
+
+            for (int i = 0; i < routes.length; i++) {
+                if (routes[i] instanceof HostRoute) {
+                    HostPattern pattern = ((HostRoute) routes[i])
+                            .getHostDomainPattern();
+
+                    if (pattern.getLiteral() != null) {
+                        literals[i] = pattern.getLiteral().toLowerCase(
+                                Locale.ENGLISH);
+                        this.candidates.put(literals[i], null);
+                    }
+                }
+
+                if (literals[i] == null) {
+                    others.add(routes[i]);
+                }
+            }
+
+            this.others = others.toArray(new Route[others.size()]);
+
+            // Keep the routes order within the candidates
+            for (String literal : new ArrayList<String>(this.candidates
+                    .keySet())) {
+                List<Route> list = new ArrayList<Route>();
+
+                for (int i = 0; i < routes.length; i++) {
+                    if ((literals[i] == null) || literals[i].equals(literal)) {
+                        list.add(routes[i]);
+                    }
+                }
+
+                this.candidates.put(literal,
+                        list.toArray(new Route[list.size()]));
+            }
+        }
+
+        /**
+         * Returns the routes that might match a host domain, in their order.
+         * 
+         * @param hostDomain
+         *            The host domain.
+         * @return The candidate routes.
+         */
+        private Route[] getCandidates(String hostDomain) {
+            Route[] result = this.candidates.get(hostDomain
+                    .toLowerCase(Locale.ENGLISH));
+            return (result == null) ? this.others : result;
+        }
+
+        /**
+         * Indicates if the index is still valid for the given routes, by
+         * comparing the versions of the routes and of the virtual hosts.
+         * 
+         * @param current
+         *            The current list of routes.
+         * @return True if the index is still valid.
+         */
+        private boolean isCurrent(RouteList current) {
+            return (current == this.routeList)
+                    && (current.getVersion() == this.version)
+                    && (VirtualHost.getHostChanges() == this.hostChanges);
+        }
+    }
+
     /** The parent component. */
     private volatile Component component;
 
+    /** The index of the host routes, lazily built. */
+    private volatile HostIndex index;
+
     /**
      * Constructor.
      * 
@@ -66,7 +183,39 @@ public class ServerRouter extends Router {
         super((component == null) ? null : component.getContext()
                 .createChildContext());
         this.component = component;
-        setRoutingMode(MODE_FIRST_MATCH);
+        setRoutingMode(MODE_CUSTOM);
+    }
+
+    /**
+     * Returns the first host route matching the call, scoring only the routes
+     * that might match its host domain.
+     * 
+     * @param request
+     *            The request to handle.
+     * @param response
+     *            The response to update.
+     * @return The matched route if available or null.
+     */
+    @Override
+    protected Route getCustom(Request request, Response response) {
+        HostIndex current = this.index;
+
+        if ((current == null) || !current.isCurrent(getRoutes())) {
+            current = new HostIndex(getRoutes());
+            this.index = current;
+        }
+
+        String hostDomain = (request.getHostRef() == null) ? null : request
+                .getHostRef().getHostDomain();
+
+        for (Route route : current.getCandidates((hostDomain == null) ? ""
+                : hostDomain)) {
+            if (route.score(request, response) >= getRequiredScore()) {
+                return route;
+            }
+        }
+
+        return null;
     }
 
     /**
@@ -31,10 +31,13 @@
 package org.restlet.engine.connector;
 
 import java.io.OutputStream;
+import java.util.Date;
+import java.util.List;
 import java.util.Queue;
 import java.util.concurrent.ArrayBlockingQueue;
 import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.LinkedBlockingQueue;
@@ -42,6 +45,7 @@ import java.util.concurrent.RejectedExecutionHandler;
 import java.util.concurrent.SynchronousQueue;
 import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.logging.Level;
 
 import org.restlet.Connector;
@@ -50,6 +54,7 @@ import org.restlet.Response;
 import org.restlet.data.Status;
 import org.restlet.engine.ConnectorHelper;
 import org.restlet.engine.Engine;
+import org.restlet.engine.io.BufferPool;
 import org.restlet.engine.log.LoggingThreadFactory;
 
 /**
@@ -77,6 +82,38 @@ import org.restlet.engine.log.LoggingThreadFactory;
  * strictly superior to 0 is required.</td>
  * </tr>
  * <tr>
+ * <td>controllerThreads</td>
+ * <td>int</td>
+ * <td>1</td>
+ * <td>Number of controller threads, each one running its own NIO selector and
+ * controlling its own share of the connections. Values above 1 spread the
+ * socket readiness handling across several cores. The pending messages are
+ * only handled by the primary controller thread.</td>
+ * </tr>
+ * <tr>
+ * <td>controllerBalancing</td>
+ * <td>String</td>
+ * <td>roundRobin</td>
+ * <td>Strategy used to assign new connections to the controller threads,
+ * either "roundRobin" or "leastLoaded" (fewest connections). Only used when
+ * more than one controller thread is configured.</td>
+ * </tr>
+ * <tr>
+ * <td>metrics</td>
+ * <td>boolean</td>
+ * <td>false</td>
+ * <td>Indicates if the connector metrics should be collected, such as the
+ * number of connections, the bytes exchanged, the message latencies or the
+ * depth of the queues. See {@link #getMetrics()}.</td>
+ * </tr>
+ * <tr>
+ * <td>metricsMBean</td>
+ * <td>boolean</td>
+ * <td>false</td>
+ * <td>Indicates if the connector metrics should be registered as a JMX MBean
+ * with the platform MBean server. Only used when metrics are collected.</td>
+ * </tr>
+ * <tr>
  * <td>minThreads</td>
  * <td>int</td>
  * <td>1</td>
@@ -90,7 +127,45 @@ import org.restlet.engine.log.LoggingThreadFactory;
  * <td>8</td>
  * <td>Number of worker threads determining when the connector is considered
  * overloaded. This triggers some protection actions such as not accepting new
- * connections.</td>
+ * connections. Only used when the admission control is disabled.</td>
+ * </tr>
+ * <tr>
+ * <td>admissionControl</td>
+ * <td>boolean</td>
+ * <td>false</td>
+ * <td>Indicates if a server connector should adapt the number of requests
+ * concurrently handled to the observed latencies, instead of refusing new
+ * connections when the "lowThreads" value is reached. The requests beyond the
+ * current limit are immediately answered with a 503 status and a Retry-After
+ * header. When such a request has an entity, the connection is closed after
+ * the response. See {@link ConcurrencyLimiter}.</td>
+ * </tr>
+ * <tr>
+ * <td>admissionLatencyTargetMs</td>
+ * <td>int</td>
+ * <td>1000</td>
+ * <td>Handling latency above which the limit of concurrent requests is
+ * decreased. If the value is '0', the latencies are ignored.</td>
+ * </tr>
+ * <tr>
+ * <td>admissionMaxLimit</td>
+ * <td>int</td>
+ * <td>maxThreads + maxQueued</td>
+ * <td>Maximum limit of concurrent requests. Unlimited if the "maxQueued"
+ * value is '-1'.</td>
+ * </tr>
+ * <tr>
+ * <td>admissionMinLimit</td>
+ * <td>int</td>
+ * <td>lowThreads</td>
+ * <td>Minimum limit of concurrent requests.</td>
+ * </tr>
+ * <tr>
+ * <td>admissionRetryAfterSeconds</td>
+ * <td>int</td>
+ * <td>1</td>
+ * <td>Delay suggested to the clients of shed requests via the Retry-After
+ * header.</td>
  * </tr>
  * <tr>
  * <td>maxThreads</td>
@@ -161,6 +236,14 @@ import org.restlet.engine.log.LoggingThreadFactory;
  * use direct buffers.</td>
  * </tr>
  * <tr>
+ * <td>pooledBuffers</td>
+ * <td>boolean</td>
+ * <td>false</td>
+ * <td>Indicates if the byte buffers of the connections should be borrowed from
+ * a shared pool only while bytes are read or written, instead of being
+ * allocated for the whole life of each connection.</td>
+ * </tr>
+ * <tr>
  * <td>throttleTimeMs</td>
  * <td>int</td>
  * <td>0</td>
@@ -180,18 +263,33 @@ import org.restlet.engine.log.LoggingThreadFactory;
 public abstract class BaseHelper<T extends Connector> extends
         ConnectorHelper<T> {
 
+    /** The optional pool of byte buffers shared by the connections. */
+    private volatile BufferPool bufferPool;
+
     /** Indicates if it is helping a client connector. */
     protected final boolean clientSide;
 
+    /** The optional limit of concurrent requests. */
+    private volatile ConcurrencyLimiter concurrencyLimiter;
+
     /** The controller task. */
     protected final ConnectionController controller;
 
+    /** The list of controller tasks, starting with the primary controller. */
+    private final List<ConnectionController> controllers;
+
     /** The controller service. */
     private volatile ExecutorService controllerService;
 
     /** The queue of inbound messages. */
     protected final Queue<Response> inboundMessages;
 
+    /** The optional connector metrics. */
+    private volatile ConnectorMetrics metrics;
+
+    /** The index of the next controller for round robin balancing. */
+    private final AtomicInteger nextControllerIndex;
+
     /** The queue of outbound messages. */
     protected final Queue<Response> outboundMessages;
 
@@ -212,6 +310,9 @@ public abstract class BaseHelper<T extends Connector> extends
         this.inboundMessages = new ConcurrentLinkedQueue<Response>();
         this.outboundMessages = new ConcurrentLinkedQueue<Response>();
         this.controller = createController();
+        this.controllers = new CopyOnWriteArrayList<ConnectionController>();
+        this.controllers.add(this.controller);
+        this.nextControllerIndex = new AtomicInteger();
     }
 
     /**
@@ -235,6 +336,15 @@ public abstract class BaseHelper<T extends Connector> extends
         return result;
     }
 
+    /**
+     * Creates the pool of byte buffers shared by the connections.
+     * 
+     * @return The pool of byte buffers.
+     */
+    protected BufferPool createBufferPool() {
+        return new BufferPool(isDirectBuffers());
+    }
+
     /**
      * Creates a new controller.
      * 
@@ -243,15 +353,51 @@ public abstract class BaseHelper<T extends Connector> extends
     protected abstract ConnectionController createController();
 
     /**
-     * Creates the connector controller service.
+     * Creates the adaptive limit of concurrent requests.
+     * 
+     * @return The adaptive limit of concurrent requests.
+     */
+    protected ConcurrencyLimiter createConcurrencyLimiter() {
+        int maxLimit = getAdmissionMaxLimit();
+        return new ConcurrencyLimiter(getAdmissionMinLimit(), maxLimit,
+                Math.min(maxLimit, getMaxThreads()),
+                getAdmissionLatencyTargetMs(), 0.9D);
+    }
+
+    /**
+     * Creates the connector controller service. It provides one thread per
+     * controller as returned by {@link #getControllerThreads()}.
      * 
      * @return The connector controller service.
      */
     protected ExecutorService createControllerService() {
+        if (getControllerThreads() > 1) {
+            return Executors.newFixedThreadPool(getControllerThreads(),
+                    new LoggingThreadFactory(getLogger(), isControllerDaemon()));
+        }
+
         return Executors.newSingleThreadExecutor(new LoggingThreadFactory(
                 getLogger(), isControllerDaemon()));
     }
 
+    /**
+     * Creates the connector metrics.
+     * 
+     * @return The connector metrics.
+     */
+    protected ConnectorMetrics createMetrics() {
+        return new ConnectorMetrics(this);
+    }
+
+    /**
+     * Creates a secondary controller, used in addition to the primary one
+     * when several controller threads are configured. It only controls the
+     * connections assigned to it.
+     * 
+     * @return A new secondary controller.
+     */
+    protected abstract ConnectionController createSecondaryController();
+
     /**
      * Creates the request object.
      * 
@@ -290,6 +436,11 @@ public abstract class BaseHelper<T extends Connector> extends
                         "Unable to run the following "
                                 + (isClientSide() ? "client-side"
                                         : "server-side") + " task: " + r);
+
+                if (getMetrics() != null) {
+                    getMetrics().onRejected(r);
+                }
+
                 traceWorkerService();
             }
         });
@@ -314,9 +465,12 @@ public abstract class BaseHelper<T extends Connector> extends
             }
         }
 
-        // Stops the controller
+        // Stops the controllers
         if (this.controllerService != null) {
-            this.controller.setRunning(false);
+            for (ConnectionController c : getControllers()) {
+                c.setRunning(false);
+            }
+
             this.controllerService.shutdown();
 
             try {
@@ -369,6 +523,8 @@ public abstract class BaseHelper<T extends Connector> extends
                     && !getWorkerService().isShutdown()
                     && getController().isRunning()) {
                 getWorkerService().execute(task);
+            } else if (getMetrics() != null) {
+                getMetrics().onRejected(task);
             }
         } catch (Exception e) {
             getLogger().log(
@@ -379,6 +535,77 @@ public abstract class BaseHelper<T extends Connector> extends
         }
     }
 
+    /**
+     * Returns the handling latency above which the limit of concurrent
+     * requests is decreased. If the value is '0', the latencies are ignored.
+     * 
+     * @return The handling latency target in milliseconds.
+     */
+    public int getAdmissionLatencyTargetMs() {
+        return Integer.parseInt(getHelpedParameters().getFirstValue(
+                "admissionLatencyTargetMs", "1000"));
+    }
+
+    /**
+     * Returns the maximum limit of concurrent requests. By default, it is the
+     * sum of the maximum number of worker threads and of queued calls.
+     * 
+     * @return The maximum limit of concurrent requests.
+     */
+    public int getAdmissionMaxLimit() {
+        String value = getHelpedParameters().getFirstValue(
+                "admissionMaxLimit");
+
+        if (value != null) {
+            return Integer.parseInt(value);
+        } else if (getMaxQueued() < 0) {
+            return Integer.MAX_VALUE;
+        }
+
+        return getMaxThreads() + getMaxQueued();
+    }
+
+    /**
+     * Returns the minimum limit of concurrent requests. By default, it is the
+     * number of threads for the overload state.
+     * 
+     * @return The minimum limit of concurrent requests.
+     */
+    public int getAdmissionMinLimit() {
+        return Integer.parseInt(getHelpedParameters().getFirstValue(
+                "admissionMinLimit", Integer.toString(getLowThreads())));
+    }
+
+    /**
+     * Returns the delay suggested to the clients of shed requests.
+     * 
+     * @return The delay suggested to the clients of shed requests, in
+     *         seconds.
+     */
+    public int getAdmissionRetryAfterSeconds() {
+        return Integer.parseInt(getHelpedParameters().getFirstValue(
+                "admissionRetryAfterSeconds", "1"));
+    }
+
+    /**
+     * Returns the pool of byte buffers shared by the connections.
+     * 
+     * @return The pool of byte buffers or null if buffers aren't pooled.
+     */
+    public BufferPool getBufferPool() {
+        return bufferPool;
+    }
+
+    /**
+     * Returns the adaptive limit of concurrent requests, only enforced by
+     * server connectors when the "admissionControl" parameter is enabled.
+     * 
+     * @return The adaptive limit of concurrent requests or null.
+     */
+    public ConcurrencyLimiter getConcurrencyLimiter() {
+        return concurrencyLimiter;
+    }
+
     /**
      * Returns the controller task.
      * 
@@ -388,6 +615,28 @@ public abstract class BaseHelper<T extends Connector> extends
         return controller;
     }
 
+    /**
+     * Returns the strategy used to assign new connections to the controller
+     * threads, either "roundRobin" or "leastLoaded".
+     * 
+     * @return The strategy used to assign new connections to the controller
+     *         threads.
+     */
+    public String getControllerBalancing() {
+        return getHelpedParameters().getFirstValue("controllerBalancing",
+                "roundRobin");
+    }
+
+    /**
+     * Returns the list of controller tasks, starting with the primary
+     * controller returned by {@link #getController()}.
+     * 
+     * @return The list of controller tasks.
+     */
+    public List<ConnectionController> getControllers() {
+        return controllers;
+    }
+
     /**
      * Returns the time for the controller thread to sleep between each control.
      * 
@@ -398,6 +647,17 @@ public abstract class BaseHelper<T extends Connector> extends
                 "controllerSleepTimeMs", "1"));
     }
 
+    /**
+     * Returns the number of controller threads, each one running its own NIO
+     * selector.
+     * 
+     * @return The number of controller threads.
+     */
+    public int getControllerThreads() {
+        return Integer.parseInt(getHelpedParameters().getFirstValue(
+                "controllerThreads", "1"));
+    }
+
     /**
      * Returns the size of the content buffer for receiving messages.
      * 
@@ -479,6 +739,34 @@ public abstract class BaseHelper<T extends Connector> extends
                 "maxThreads", "10"));
     }
 
+    /**
+     * Returns the connector metrics, only collected if the "metrics" parameter
+     * is enabled.
+     * 
+     * @return The connector metrics or null if they aren't collected.
+     */
+    public ConnectorMetrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * Returns the JMX object name of the connector metrics.
+     * 
+     * @return The JMX object name of the connector metrics.
+     */
+    protected String getMetricsName() {
+        StringBuilder sb = new StringBuilder("org.restlet:type=Connector");
+        sb.append(",side=").append(isClientSide() ? "client" : "server");
+
+        if (!getProtocols().isEmpty()) {
+            sb.append(",protocol=").append(getProtocols().get(0).getName());
+        }
+
+        sb.append(",id=").append(
+                Integer.toHexString(System.identityHashCode(this)));
+        return sb.toString();
+    }
+
     /**
      * Returns the minimum threads waiting to service requests. Technically
      * speaking, this is a core number of threads that are pre-started.
@@ -490,6 +778,40 @@ public abstract class BaseHelper<T extends Connector> extends
                 "minThreads", "1"));
     }
 
+    /**
+     * Returns the controller that should control a new connection. When a
+     * single controller thread is configured, the primary controller is
+     * returned. Otherwise, the controller is selected according to the
+     * {@link #getControllerBalancing()} strategy.
+     * 
+     * @return The controller that should control a new connection.
+     */
+    public ConnectionController getNextController() {
+        ConnectionController result = null;
+        int count = getControllers().size();
+
+        if (count == 1) {
+            result = getController();
+        } else if ("leastLoaded".equals(getControllerBalancing())) {
+            int bestScore = Integer.MAX_VALUE;
+
+            for (ConnectionController c : getControllers()) {
+                int currScore = c.getLoadScore();
+
+                if (currScore < bestScore) {
+                    bestScore = currScore;
+                    result = c;
+                }
+            }
+        } else {
+            int index = (this.nextControllerIndex.getAndIncrement() & Integer.MAX_VALUE)
+                    % count;
+            result = getControllers().get(index);
+        }
+
+        return result;
+    }
+
     /**
      * Returns the size of the content buffer for sending responses.
      * 
@@ -576,14 +898,24 @@ public abstract class BaseHelper<T extends Connector> extends
      */
     protected void handleInbound(final Response response, boolean synchronous) {
         if (response != null) {
+            final ConcurrencyLimiter limiter = getConcurrencyLimiter();
+
             if (synchronous || !hasWorkerThreads()) {
                 doHandleInbound(response);
+            } else if ((limiter != null) && !limiter.tryAcquire()) {
+                shed(response);
             } else {
+                final long admissionTime = System.nanoTime();
+
                 execute(new Runnable() {
                     public void run() {
                         try {
                             doHandleInbound(response);
                         } finally {
+                            if (limiter != null) {
+                                limiter.release(admissionTime);
+                            }
+
                             Engine.clearThreadLocalVariables();
                         }
                     }
@@ -636,6 +968,16 @@ public abstract class BaseHelper<T extends Connector> extends
         }
     }
 
+    /**
+     * Indicates if the connector metrics should be collected.
+     * 
+     * @return True if the connector metrics should be collected.
+     */
+    public boolean hasMetrics() {
+        return Boolean.parseBoolean(getHelpedParameters().getFirstValue(
+                "metrics", "false"));
+    }
+
     /**
      * Indicates if the worker service (pool of worker threads) is enabled.
      * 
@@ -646,6 +988,17 @@ public abstract class BaseHelper<T extends Connector> extends
                 "workerThreads", "true"));
     }
 
+    /**
+     * Indicates if a server connector should adapt the number of requests
+     * concurrently handled to the observed latencies.
+     * 
+     * @return True if the admission control is enabled.
+     */
+    public boolean isAdmissionControl() {
+        return Boolean.parseBoolean(getHelpedParameters().getFirstValue(
+                "admissionControl", "false"));
+    }
+
     /**
      * Indicates if it is helping a client connector.
      * 
@@ -676,6 +1029,28 @@ public abstract class BaseHelper<T extends Connector> extends
                         "directBuffers", "false"));
     }
 
+    /**
+     * Indicates if the connector metrics should be registered as a JMX MBean.
+     * 
+     * @return True if the connector metrics should be registered as a JMX
+     *         MBean.
+     */
+    public boolean isMetricsMBean() {
+        return Boolean.parseBoolean(getHelpedParameters().getFirstValue(
+                "metricsMBean", "false"));
+    }
+
+    /**
+     * Indicates if the byte buffers of the connections should be borrowed from
+     * a shared pool only while bytes are read or written.
+     * 
+     * @return True if the byte buffers should be pooled.
+     */
+    public boolean isPooledBuffers() {
+        return Boolean.parseBoolean(getHelpedParameters().getFirstValue(
+                "pooledBuffers", "false"));
+    }
+
     /**
      * Indicates if it is helping a server connector.
      * 
@@ -743,16 +1118,93 @@ public abstract class BaseHelper<T extends Connector> extends
         }
     }
 
+    /**
+     * Registers the connector metrics as a JMX MBean with the platform MBean
+     * server.
+     */
+    protected void registerMetrics() {
+        // [ifndef gae,android]
+        try {
+            java.lang.management.ManagementFactory.getPlatformMBeanServer()
+                    .registerMBean(getMetrics(),
+                            new javax.management.ObjectName(getMetricsName()));
+        } catch (Exception e) {
+            getLogger().log(Level.WARNING,
+                    "Unable to register the connector metrics MBean", e);
+        }
+        // [enddef]
+    }
+
+    /**
+     * Sheds an inbound message beyond the limit of concurrent requests, by
+     * immediately answering with a 503 status and a Retry-After header. If the
+     * request has an entity that wasn't read, the connection is marked as non
+     * persistent so that the response closes it instead of parsing the next
+     * request from the remaining entity bytes.
+     * 
+     * @param response
+     *            The response to shed.
+     */
+    protected void shed(Response response) {
+        Request request = response.getRequest();
+
+        if ((request instanceof InboundRequest)
+                && (request.getEntity() != null)
+                && request.getEntity().isAvailable()) {
+            ((InboundRequest) request).getConnection().setPersistent(false);
+        }
+
+        response.setStatus(Status.SERVER_ERROR_SERVICE_UNAVAILABLE);
+        response.setRetryAfter(new Date(System.currentTimeMillis() + 1000L
+                * getAdmissionRetryAfterSeconds()));
+
+        if (getMetrics() != null) {
+            getMetrics().onShed(response);
+        }
+
+        if (getLogger().isLoggable(Level.FINE)) {
+            getLogger().fine(
+                    "Request shed by the admission control: "
+                            + getConcurrencyLimiter());
+        }
+
+        response.setCommitted(true);
+        getOutboundMessages().add(response);
+    }
+
     @Override
     public void start() throws Exception {
         super.start();
+        this.bufferPool = isPooledBuffers() ? createBufferPool() : null;
+        this.metrics = hasMetrics() ? createMetrics() : null;
+
+        if ((this.metrics != null) && isMetricsMBean()) {
+            registerMetrics();
+        }
+
         this.controllerService = createControllerService();
 
         if (hasWorkerThreads()) {
             this.workerService = createWorkerService();
         }
 
-        this.controllerService.submit(this.controller);
+        if (isServerSide() && hasWorkerThreads() && isAdmissionControl()) {
+            this.concurrencyLimiter = createConcurrencyLimiter();
+        } else {
+            this.concurrencyLimiter = null;
+        }
+
+        // Replace the secondary controllers of any previous run
+        this.controllers.clear();
+        this.controllers.add(this.controller);
+
+        for (int i = 1; i < getControllerThreads(); i++) {
+            this.controllers.add(createSecondaryController());
+        }
+
+        for (ConnectionController c : getControllers()) {
+            this.controllerService.submit(c);
+        }
     }
 
     @Override
@@ -760,6 +1212,10 @@ public abstract class BaseHelper<T extends Connector> extends
         super.stop();
         doGracefulStop();
         doFinishStop();
+
+        if ((getMetrics() != null) && isMetricsMBean()) {
+            unregisterMetrics();
+        }
     }
 
     /**
@@ -792,4 +1248,20 @@ public abstract class BaseHelper<T extends Connector> extends
         }
     }
 
-}
\ No newline at end of file
+    /**
+     * Unregisters the connector metrics from the platform MBean server.
+     */
+    protected void unregisterMetrics() {
+        // [ifndef gae,android]
+        try {
+            java.lang.management.ManagementFactory.getPlatformMBeanServer()
+                    .unregisterMBean(
+                            new javax.management.ObjectName(getMetricsName()));
+        } catch (Exception e) {
+            getLogger().log(Level.FINE,
+                    "Unable to unregister the connector metrics MBean", e);
+        }
+        // [enddef]
+    }
+
+}
@@ -35,13 +35,15 @@ import java.net.InetSocketAddress;
 import java.net.Socket;
 import java.net.UnknownHostException;
 import java.nio.channels.SocketChannel;
-import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.CountDownLatch;
 import java.util.logging.Level;
 
 import org.restlet.Client;
 import org.restlet.Request;
 import org.restlet.Response;
+import org.restlet.data.Protocol;
 import org.restlet.data.Reference;
 import org.restlet.data.Status;
 
@@ -57,6 +59,24 @@ import org.restlet.data.Status;
  * <th>Description</th>
  * </tr>
  * <tr>
+ * <td>addressCacheTtlMs</td>
+ * <td>int</td>
+ * <td>30 000</td>
+ * <td>Time during which the resolved IP address of a target host is cached,
+ * so that new connections don't require a DNS lookup on the request path. Use
+ * '0' to disable the cache.</td>
+ * </tr>
+ * <tr>
+ * <td>maxPipelinedRequests</td>
+ * <td>int</td>
+ * <td>8</td>
+ * <td>Maximum number of requests in flight on a single connection when
+ * pipelining is enabled via the "pipeliningConnections" parameter. Only
+ * idempotent requests whose entity can be written again are pipelined, so that
+ * they can be replayed on another connection if the server closes this one
+ * before answering them.</td>
+ * </tr>
+ * <tr>
  * <td>proxyHost</td>
  * <td>String</td>
  * <td>System property "http.proxyHost"</td>
@@ -121,8 +141,50 @@ import org.restlet.data.Status;
  */
 public abstract class ClientConnectionHelper extends ConnectionHelper<Client> {
 
+    /**
+     * Resolved IP socket address cached until an expiration time.
+     */
+    private static class ResolvedAddress {
+
+        /** The resolved IP socket address. */
+        private final InetSocketAddress address;
+
+        /** The expiration time in milliseconds. */
+        private final long expirationTime;
+
+        /**
+         * Constructor.
+         * 
+         * @param address
+         *            The resolved IP socket address.
+         * @param expirationTime
+         *            The expiration time in milliseconds.
+         */
+        public ResolvedAddress(InetSocketAddress address, long expirationTime) {
+            this.address = address;
+            this.expirationTime = expirationTime;
+        }
+    }
+
     protected static final String CONNECTOR_LATCH = "org.restlet.engine.connector.latch";
 
+    protected static final String CONNECTOR_REPLAYS = "org.restlet.engine.connector.replays";
+
+    /** The maximum number of times a pipelined request is replayed. */
+    private static final int MAX_REPLAYS = 3;
+
+    /** The maximum number of resolved addresses cached. */
+    private static final int MAX_RESOLVED_ADDRESSES = 1024;
+
+    /** The host entries of the indexed connections. */
+    private final Map<Connection<?>, HostConnections<Client>> connectionHosts;
+
+    /** The index of the connections by host, port and scheme. */
+    private final Map<String, HostConnections<Client>> hostConnections;
+
+    /** The resolved addresses cached by host domain and port. */
+    private final Map<String, ResolvedAddress> resolvedAddresses;
+
     /**
      * Constructor.
      * 
@@ -131,6 +193,54 @@ public abstract class ClientConnectionHelper extends ConnectionHelper<Client> {
      */
     public ClientConnectionHelper(Client connector) {
         super(connector, true);
+        this.connectionHosts = new ConcurrentHashMap<Connection<?>, HostConnections<Client>>();
+        this.hostConnections = new ConcurrentHashMap<String, HostConnections<Client>>();
+        this.resolvedAddresses = new ConcurrentHashMap<String, ResolvedAddress>();
+    }
+
+    /**
+     * Adds a new connection to the index of connections by host.
+     * 
+     * @param hostKey
+     *            The key identifying the host, port and scheme.
+     * @param connection
+     *            The new connection.
+     */
+    protected void addHostConnection(String hostKey,
+            Connection<Client> connection) {
+        synchronized (this.hostConnections) {
+            HostConnections<Client> hostConns = this.hostConnections
+                    .get(hostKey);
+
+            if (hostConns == null) {
+                hostConns = new HostConnections<Client>(hostKey);
+                this.hostConnections.put(hostKey, hostConns);
+            }
+
+            hostConns.add(connection);
+            this.connectionHosts.put(connection, hostConns);
+        }
+    }
+
+    /**
+     * Indicates if a request can be pipelined on a given connection, behind
+     * the requests already in flight. By default, it returns false.
+     * 
+     * @param connection
+     *            The busy connection.
+     * @param request
+     *            The request to pipeline.
+     * @return True if the request can be pipelined on the connection.
+     */
+    protected boolean canPipeline(Connection<Client> connection,
+            Request request) {
+        return false;
+    }
+
+    @Override
+    protected void checkin(Connection<?> connection) {
+        removeHostConnection(connection);
+        super.checkin(connection);
     }
 
     @Override
@@ -149,8 +259,8 @@ public abstract class ClientConnectionHelper extends ConnectionHelper<Client> {
     /**
      * Creates the socket that will be used to send the request and get the
      * response. This method is called by {@link #getBestConnection(Request)}
-     * when a new connection is to be created. By default, calls the
-     * {@link #createSocketChannel(boolean, String, int)} method.
+     * when a new connection is to be created. If the given address is already
+     * resolved, it is directly connected without a new DNS lookup.
      * 
      * @param secure
      *            Indicates if messages will be exchanged confidentially, for
@@ -164,8 +274,29 @@ public abstract class ClientConnectionHelper extends ConnectionHelper<Client> {
     protected SocketChannel createSocketChannel(boolean secure,
             InetSocketAddress socketAddress) throws UnknownHostException,
             IOException {
-        return createSocketChannel(secure, socketAddress.getHostName(),
-                socketAddress.getPort());
+        SocketChannel result = SocketChannel.open();
+        result.configureBlocking(false);
+
+        // Configure socket
+        Socket socket = result.socket();
+        socket.setKeepAlive(isSocketKeepAlive());
+        socket.setOOBInline(isSocketOobInline());
+        socket.setReceiveBufferSize(getSocketReceiveBufferSize());
+        socket.setReuseAddress(isSocketReuseAddress());
+        socket.setSoLinger(getSocketLingerTimeMs() > 0, getSocketLingerTimeMs());
+        socket.setSendBufferSize(getSocketSendBufferSize());
+        socket.setSoTimeout(getMaxIoIdleTimeMs());
+        socket.setTcpNoDelay(isSocketNoDelay());
+        socket.setTrafficClass(getSocketTrafficClass());
+
+        if (socketAddress.isUnresolved()) {
+            result.connect(new InetSocketAddress(socketAddress.getHostName(),
+                    socketAddress.getPort()));
+        } else {
+            result.connect(socketAddress);
+        }
+
+        return result;
     }
 
     /**
@@ -186,24 +317,8 @@ public abstract class ClientConnectionHelper extends ConnectionHelper<Client> {
     protected SocketChannel createSocketChannel(boolean secure,
             String hostDomain, int hostPort) throws UnknownHostException,
             IOException {
-        SocketChannel result = SocketChannel.open();
-        result.configureBlocking(false);
-
-        // Configure socket
-        Socket socket = result.socket();
-        socket.setKeepAlive(isSocketKeepAlive());
-        socket.setOOBInline(isSocketOobInline());
-        socket.setReceiveBufferSize(getSocketReceiveBufferSize());
-        socket.setReuseAddress(isSocketReuseAddress());
-        socket.setSoLinger(getSocketLingerTimeMs() > 0, getSocketLingerTimeMs());
-        socket.setSendBufferSize(getSocketSendBufferSize());
-        socket.setSoTimeout(getMaxIoIdleTimeMs());
-        socket.setTcpNoDelay(isSocketNoDelay());
-        socket.setTrafficClass(getSocketTrafficClass());
-
-        InetSocketAddress address = new InetSocketAddress(hostDomain, hostPort);
-        result.connect(address);
-        return result;
+        return createSocketChannel(secure, new InetSocketAddress(hostDomain,
+                hostPort));
     }
 
     @Override
@@ -244,6 +359,7 @@ public abstract class ClientConnectionHelper extends ConnectionHelper<Client> {
 
                 if (bestConn != null) {
                     bestConn.getOutboundWay().handle(response);
+                    bestConn.setDirty(true);
                     getConnections().add(bestConn);
                 } else {
                     getLogger().log(Level.WARNING,
@@ -278,55 +394,53 @@ public abstract class ClientConnectionHelper extends ConnectionHelper<Client> {
             throws UnknownHostException, IOException {
         Connection<Client> result = null;
 
-        // Try to reuse an existing connection for the same host and
-        // port
-        int hostConnectionCount = 0;
-        int bestScore = 0;
-        boolean foundConn = false;
-
-        // Determine the target host domain and port of the request.
-        InetSocketAddress socketAddress = getSocketAddress(request);
+        // Determine the target host domain and port of the request, without
+        // resolving it
+        InetSocketAddress targetAddress = getTargetAddress(request);
 
-        if (socketAddress == null) {
+        if (targetAddress == null) {
             getLogger()
                     .log(Level.WARNING,
                             "Unable to create a socket address related to the request.");
         } else {
-            // Associate the given request to the first available connection
-            // opened on the same host domain and port.
-            for (Iterator<Connection<Client>> iterator = getConnections()
-                    .iterator(); !foundConn && iterator.hasNext();) {
-                Connection<Client> currConn = iterator.next();
-
-                if (socketAddress.equals(currConn.getSocketAddress())) {
-                    if (currConn.isAvailable()) {
-                        result = currConn;
-                        foundConn = true;
-                    } else {
-                        // Assign the request to the busy connection that
-                        // handles the less number of messages. This is useful
-                        // in case the maximum number of connections has been
-                        // reached. As a drawback, the message will only be
-                        // handled as soon as possible.
-                        int currScore = currConn.getLoadScore();
-
-                        if (bestScore > currScore) {
-                            bestScore = currScore;
-                            result = currConn;
-                        }
-
-                        hostConnectionCount++;
+            // Associate the given request to an available connection opened
+            // on the same host domain, port and scheme.
+            String hostKey = getHostKey(request, targetAddress);
+            HostConnections<Client> hostConns = getHostConnections().get(
+                    hostKey);
+            int hostConnectionCount = 0;
+
+            if (hostConns != null) {
+                hostConnectionCount = hostConns.size();
+                boolean limited = ((getMaxTotalConnections() != -1) && (getConnections()
+                        .size() >= getMaxTotalConnections()))
+                        || ((getMaxConnectionsPerHost() != -1) && (hostConnectionCount >= getMaxConnectionsPerHost()));
+
+                // When no new connection can be opened, also look for one that
+                // became available without being noticed idle yet
+                result = limited ? hostConns.checkoutAvailable() : hostConns
+                        .checkout();
+
+                // Otherwise queue the request behind the ones in flight on a
+                // busy connection, saving the opening of a new one
+                if ((result == null) && isPipelinable(request)) {
+                    result = getPipelinedConnection(hostConns, request);
+
+                    if ((result != null)
+                            && getLogger().isLoggable(Level.FINE)) {
+                        getLogger().log(
+                                Level.FINE,
+                                "Pipelining a request on a client connection to: "
+                                        + hostKey);
                     }
                 }
             }
 
             // No connection has been found, try to create a new one that will
             // handle the message soon.
-            if (foundConn) {
-                getLogger().log(
-                        Level.FINE,
-                        "Reusing an existing client connection to: "
-                                + socketAddress);
+            if (result != null) {
+                getLogger().log(Level.FINE,
+                        "Reusing an existing client connection to: " + hostKey);
             } else if ((getMaxTotalConnections() != -1)
                     && (getConnections().size() >= getMaxTotalConnections())) {
                 getLogger()
@@ -337,8 +451,11 @@ public abstract class ClientConnectionHelper extends ConnectionHelper<Client> {
                 getLogger()
                         .log(Level.WARNING,
                                 "Unable to create a new connection. Maximum number of connections reached for host: "
-                                        + socketAddress);
+                                        + hostKey);
             } else {
+                InetSocketAddress socketAddress = resolve(
+                        targetAddress.getHostName(), targetAddress.getPort());
+
                 // Create a new connection
                 if (getLogger().isLoggable(Level.FINE)) {
                     getLogger().log(
@@ -347,10 +464,102 @@ public abstract class ClientConnectionHelper extends ConnectionHelper<Client> {
                                     + socketAddress);
                 }
 
+                ConnectionController controller = getNextController();
                 result = checkout(
                         createSocketChannel(request.isConfidential(),
-                                socketAddress), getController(), socketAddress);
+                                socketAddress), controller, socketAddress);
                 getConnections().add(result);
+                addHostConnection(hostKey, result);
+                controller.attach(result);
+
+                if (getMetrics() != null) {
+                    getMetrics().onAccepted(result);
+                }
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * Returns the time during which the resolved IP address of a target host
+     * is cached.
+     * 
+     * @return The time during which the resolved IP address of a target host
+     *         is cached.
+     */
+    public int getAddressCacheTtlMs() {
+        return Integer.parseInt(getHelpedParameters().getFirstValue(
+                "addressCacheTtlMs", "30000"));
+    }
+
+    /**
+     * Returns the index of the connections by host, port and scheme.
+     * 
+     * @return The index of the connections by host, port and scheme.
+     */
+    public Map<String, HostConnections<Client>> getHostConnections() {
+        return hostConnections;
+    }
+
+    /**
+     * Returns the key identifying the host, port and scheme of the
+     * connections able to handle a given request.
+     * 
+     * @param request
+     *            The request to handle.
+     * @param targetAddress
+     *            The unresolved target address.
+     * @return The key identifying the host, port and scheme.
+     */
+    protected String getHostKey(Request request, InetSocketAddress targetAddress) {
+        Protocol protocol = request.getProtocol();
+
+        if (protocol == null) {
+            protocol = getProtocols().get(0);
+        }
+
+        return protocol.getSchemeName() + "://"
+                + targetAddress.getHostName().toLowerCase() + ":"
+                + targetAddress.getPort();
+    }
+
+    /**
+     * Returns the maximum number of requests in flight on a single pipelining
+     * connection.
+     * 
+     * @return The maximum number of requests in flight on a single pipelining
+     *         connection.
+     */
+    public int getMaxPipelinedRequests() {
+        return Integer.parseInt(getHelpedParameters().getFirstValue(
+                "maxPipelinedRequests", "8"));
+    }
+
+    /**
+     * Returns the least loaded connection of a host on which a request can be
+     * pipelined, see {@link #canPipeline(Connection, Request)}.
+     * 
+     * @param hostConns
+     *            The connections opened to the target host.
+     * @param request
+     *            The request to pipeline.
+     * @return The least loaded connection or null.
+     */
+    protected Connection<Client> getPipelinedConnection(
+            HostConnections<Client> hostConns, Request request) {
+        Connection<Client> result = null;
+        int bestScore = Integer.MAX_VALUE;
+        int score;
+
+        for (Connection<Client> connection : hostConns.getConnections()) {
+            if (canPipeline(connection, request)) {
+                score = connection.getLoadScore();
+
+                if (score < bestScore) {
+                    bestScore = score;
+                    result = connection;
+                }
             }
         }
 
@@ -386,8 +595,8 @@ public abstract class ClientConnectionHelper extends ConnectionHelper<Client> {
     /**
      * Returns an IP socket address representing the target host domain and port
      * for a given request. If the helper relies on a proxy, the socket
-     * represents the domain and port of the proxy host. Used by the
-     * {@link #getBestConnection(Request)} method.
+     * represents the domain and port of the proxy host. The address is resolved
+     * via a cache, see {@link #getAddressCacheTtlMs()}.
      * 
      * @param request
      *            The given request
@@ -398,47 +607,9 @@ public abstract class ClientConnectionHelper extends ConnectionHelper<Client> {
      */
     protected InetSocketAddress getSocketAddress(Request request)
             throws UnknownHostException {
-        InetSocketAddress result = null;
-        String hostDomain = null;
-        int hostPort = 0;
-
-        // Does this helper relies on a proxy?
-        String proxyDomain = getProxyHost();
-
-        if (proxyDomain != null && !"".equals(proxyDomain)) {
-            hostDomain = proxyDomain;
-            try {
-                hostPort = getProxyPort();
-            } catch (NumberFormatException nfe) {
-                getLogger().log(Level.WARNING,
-                        "The proxy port must be a valid numeric value.", nfe);
-                throw new UnknownHostException();
-            }
-        } else {
-            // Resolve relative references
-            Reference resourceRef = request.getResourceRef().isRelative() ? request
-                    .getResourceRef().getTargetRef() : request.getResourceRef();
-
-            // Extract the host info
-            hostDomain = resourceRef.getHostDomain();
-            hostPort = resourceRef.getHostPort();
-            if (hostPort == -1) {
-                if (resourceRef.getSchemeProtocol() != null) {
-                    hostPort = resourceRef.getSchemeProtocol().getDefaultPort();
-                } else {
-                    hostPort = getProtocols().get(0).getDefaultPort();
-                }
-            }
-        }
-
-        if (hostDomain != null) {
-            result = new InetSocketAddress(hostDomain, hostPort);
-            if (result != null && result.getAddress() == null) {
-                throw new UnknownHostException(hostDomain);
-            }
-        }
-
-        return result;
+        InetSocketAddress targetAddress = getTargetAddress(request);
+        return (targetAddress == null) ? null : resolve(
+                targetAddress.getHostName(), targetAddress.getPort());
     }
 
     /**
@@ -484,6 +655,60 @@ public abstract class ClientConnectionHelper extends ConnectionHelper<Client> {
 
     }
 
+    /**
+     * Returns an unresolved IP socket address representing the target host
+     * domain and port for a given request. If the helper relies on a proxy,
+     * the socket represents the domain and port of the proxy host.
+     * 
+     * @param request
+     *            The given request
+     * @return The unresolved IP socket address representing the target host
+     *         domain and port for a given request.
+     * @throws UnknownHostException
+     *             If the proxy port is invalid.
+     */
+    protected InetSocketAddress getTargetAddress(Request request)
+            throws UnknownHostException {
+        InetSocketAddress result = null;
+        String hostDomain = null;
+        int hostPort = 0;
+
+        // Does this helper relies on a proxy?
+        String proxyDomain = getProxyHost();
+
+        if (proxyDomain != null && !"".equals(proxyDomain)) {
+            hostDomain = proxyDomain;
+            try {
+                hostPort = getProxyPort();
+            } catch (NumberFormatException nfe) {
+                getLogger().log(Level.WARNING,
+                        "The proxy port must be a valid numeric value.", nfe);
+                throw new UnknownHostException();
+            }
+        } else {
+            // Resolve relative references
+            Reference resourceRef = request.getResourceRef().isRelative() ? request
+                    .getResourceRef().getTargetRef() : request.getResourceRef();
+
+            // Extract the host info
+            hostDomain = resourceRef.getHostDomain();
+            hostPort = resourceRef.getHostPort();
+            if (hostPort == -1) {
+                if (resourceRef.getSchemeProtocol() != null) {
+                    hostPort = resourceRef.getSchemeProtocol().getDefaultPort();
+                } else {
+                    hostPort = getProtocols().get(0).getDefaultPort();
+                }
+            }
+        }
+
+        if (hostDomain != null) {
+            result = InetSocketAddress.createUnresolved(hostDomain, hostPort);
+        }
+
+        return result;
+    }
+
     /**
      * Returns the type of service to set in IP packets.
      * 
@@ -537,17 +762,53 @@ public abstract class ClientConnectionHelper extends ConnectionHelper<Client> {
         handleOutbound(response, true);
     }
 
+    @Override
+    protected void doFinishStop() {
+        super.doFinishStop();
+        this.connectionHosts.clear();
+        getHostConnections().clear();
+        this.resolvedAddresses.clear();
+    }
+
     @Override
     public boolean isControllerDaemon() {
         return Boolean.parseBoolean(getHelpedParameters().getFirstValue(
                 "controllerDaemon", "true"));
     }
 
+    /**
+     * Indicates if a request can be pipelined. Only replayable requests are
+     * pipelined, see {@link #isReplayable(Request)}. Requests already replayed
+     * are sent alone.
+     * 
+     * @param request
+     *            The request to test.
+     * @return True if the request can be pipelined.
+     */
+    public boolean isPipelinable(Request request) {
+        return isReplayable(request)
+                && !request.getAttributes().containsKey(CONNECTOR_REPLAYS);
+    }
+
     @Override
     public boolean isProxying() {
         return getProxyHost() != null;
     }
 
+    /**
+     * Indicates if a request can be safely sent again. Only idempotent requests
+     * whose entity, if any, can be written again are replayable.
+     * 
+     * @param request
+     *            The request to test.
+     * @return True if the request can be safely sent again.
+     */
+    public boolean isReplayable(Request request) {
+        return request.getMethod().isIdempotent()
+                && ((request.getEntity() == null) || !request.getEntity()
+                        .isTransient());
+    }
+
     /**
      * Indicates if a TCP connection should be automatically kept alive after 2
      * hours of inactivity.
@@ -583,6 +844,117 @@ public abstract class ClientConnectionHelper extends ConnectionHelper<Client> {
                 "socketOobInline", "false"));
     }
 
+    @Override
+    protected void onIdle(Connection<Client> connection) {
+        HostConnections<Client> hostConns = this.connectionHosts
+                .get(connection);
+
+        if (hostConns != null) {
+            hostConns.onIdle(connection);
+        }
+    }
+
+    /**
+     * Removes a connection from the index of connections by host. The host
+     * entry is removed once its last connection is removed.
+     * 
+     * @param connection
+     *            The connection to remove.
+     */
+    @SuppressWarnings("unchecked")
+    protected void removeHostConnection(Connection<?> connection) {
+        synchronized (this.hostConnections) {
+            HostConnections<Client> hostConns = this.connectionHosts
+                    .remove(connection);
+
+            if (hostConns != null) {
+                hostConns.remove((Connection<Client>) connection);
+
+                if (hostConns.isEmpty()) {
+                    this.hostConnections.remove(hostConns.getKey());
+                }
+            }
+        }
+    }
+
+    /**
+     * Sends again a request that was left unanswered on a connection closed by
+     * the server, provided that it can be safely replayed, see
+     * {@link #isReplayable(Request)}. The number of replays of a request is
+     * limited.
+     * 
+     * @param response
+     *            The response of the unanswered request.
+     * @return True if the request will be sent again.
+     */
+    protected boolean replay(Response response) {
+        boolean result = false;
+        Request request = response.getRequest();
+        Integer replays = (Integer) request.getAttributes().get(
+                CONNECTOR_REPLAYS);
+        int count = (replays == null) ? 0 : replays.intValue();
+
+        if (isReplayable(request) && (count < MAX_REPLAYS)) {
+            if (getLogger().isLoggable(Level.FINE)) {
+                getLogger().log(Level.FINE,
+                        "Replaying an unanswered client request: " + request);
+            }
+
+            request.getAttributes().put(CONNECTOR_REPLAYS, count + 1);
+            getOutboundMessages().add(response);
+            result = true;
+        }
+
+        return result;
+    }
+
+    /**
+     * Resolves the IP address of a target host, relying on a cache of recent
+     * resolutions.
+     * 
+     * @param hostDomain
+     *            The target host domain name.
+     * @param hostPort
+     *            The target host port.
+     * @return The resolved IP socket address.
+     * @throws UnknownHostException
+     *             If the host is unresolved.
+     */
+    protected InetSocketAddress resolve(String hostDomain, int hostPort)
+            throws UnknownHostException {
+        InetSocketAddress result = null;
+        long ttl = getAddressCacheTtlMs();
+        String key = hostDomain + ":" + hostPort;
+
+        if (ttl > 0) {
+            ResolvedAddress cached = this.resolvedAddresses.get(key);
+
+            if ((cached != null)
+                    && (cached.expirationTime > System.currentTimeMillis())) {
+                result = cached.address;
+            }
+        }
+
+        if (result == null) {
+            result = new InetSocketAddress(hostDomain, hostPort);
+
+            if (result.getAddress() == null) {
+                throw new UnknownHostException(hostDomain);
+            }
+
+            if (ttl > 0) {
+                if (this.resolvedAddresses.size() >= MAX_RESOLVED_ADDRESSES) {
+                    this.resolvedAddresses.clear();
+                }
+
+                this.resolvedAddresses.put(key, new ResolvedAddress(result,
+                        System.currentTimeMillis() + ttl));
+            }
+        }
+
+        return result;
+    }
+
     @Override
     public void start() throws Exception {
         getLogger().info("Starting the internal " + getProtocols() + " client");
@@ -0,0 +1,189 @@
+/**
+ * Copyright 2005-2011 Noelios Technologies.
+ * 
+ * The contents of this file are subject to the terms of one of the following
+ * open source licenses: LGPL 3.0 or LGPL 2.1 or CDDL 1.0 or EPL 1.0 (the
+ * "Licenses"). You can select the license that you prefer but you may not use
+ * this file except in compliance with one of these Licenses.
+ * 
+ * You can obtain a copy of the LGPL 3.0 license at
+ * http://www.opensource.org/licenses/lgpl-3.0.html
+ * 
+ * You can obtain a copy of the LGPL 2.1 license at
+ * http://www.opensource.org/licenses/lgpl-2.1.php
+ * 
+ * You can obtain a copy of the CDDL 1.0 license at
+ * http://www.opensource.org/licenses/cddl1.php
+ * 
+ * You can obtain a copy of the EPL 1.0 license at
+ * http://www.opensource.org/licenses/eclipse-1.0.php
+ * 
+ * See the Licenses for the specific language governing permissions and
+ * limitations under the Licenses.
+ * 
+ * Alternatively, you can obtain a royalty free commercial license with less
+ * limitations, transferable or non-transferable, directly at
+ * http://www.noelios.com/products/restlet-engine
+ * 
+ * Restlet is a registered trademark of Noelios Technologies.
+ */
+
+package org.restlet.engine.connector;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Adaptive limit of the number of requests concurrently handled by a server
+ * connector. The limit follows an additive increase, multiplicative decrease
+ * (AIMD) rule driven by the observed handling latencies: it grows by one
+ * request per window of requests handled within the latency target while the
+ * connector is busy, and shrinks by the backoff ratio when a request exceeds
+ * this target. Requests beyond the limit should be shed immediately instead
+ * of waiting for a worker thread.
+ * 
+ * @author Jerome Louvel
+ */
+public class ConcurrencyLimiter {
+
+    /** The ratio applied to the limit when the latency target is exceeded. */
+    private final double backoffRatio;
+
+    /** The number of requests currently admitted. */
+    private final AtomicInteger inFlight;
+
+    /** The time of the last decrease of the limit in nanoseconds. */
+    private volatile long lastDecreaseTime;
+
+    /** The latency target in nanoseconds, or 0 to ignore latencies. */
+    private final long latencyTargetNs;
+
+    /** The current limit of concurrent requests. */
+    private volatile double limit;
+
+    /** The maximum limit of concurrent requests. */
+    private final int maxLimit;
+
+    /** The minimum limit of concurrent requests. */
+    private final int minLimit;
+
+    /**
+     * Constructor.
+     * 
+     * @param minLimit
+     *            The minimum limit of concurrent requests.
+     * @param maxLimit
+     *            The maximum limit of concurrent requests.
+     * @param initialLimit
+     *            The initial limit of concurrent requests.
+     * @param latencyTargetMs
+     *            The latency target in milliseconds, or 0 to ignore
+     *            latencies.
+     * @param backoffRatio
+     *            The ratio applied to the limit when the latency target is
+     *            exceeded, between 0 and 1.
+     */
+    public ConcurrencyLimiter(int minLimit, int maxLimit, int initialLimit,
+            long latencyTargetMs, double backoffRatio) {
+        this.minLimit = Math.max(1, minLimit);
+        this.maxLimit = Math.max(this.minLimit, maxLimit);
+        this.limit = Math.min(this.maxLimit,
+                Math.max(this.minLimit, initialLimit));
+        this.latencyTargetNs = latencyTargetMs * 1000000L;
+        this.backoffRatio = backoffRatio;
+        this.inFlight = new AtomicInteger();
+        this.lastDecreaseTime = System.nanoTime();
+    }
+
+    /**
+     * Returns the number of requests currently admitted.
+     * 
+     * @return The number of requests currently admitted.
+     */
+    public int getInFlight() {
+        return this.inFlight.get();
+    }
+
+    /**
+     * Returns the current limit of concurrent requests.
+     * 
+     * @return The current limit of concurrent requests.
+     */
+    public int getLimit() {
+        return (int) this.limit;
+    }
+
+    /**
+     * Returns the maximum limit of concurrent requests.
+     * 
+     * @return The maximum limit of concurrent requests.
+     */
+    public int getMaxLimit() {
+        return maxLimit;
+    }
+
+    /**
+     * Returns the minimum limit of concurrent requests.
+     * 
+     * @return The minimum limit of concurrent requests.
+     */
+    public int getMinLimit() {
+        return minLimit;
+    }
+
+    /**
+     * Releases a request previously admitted and adapts the limit to its
+     * latency. A slow request only decreases the limit if it was admitted
+     * after the previous decrease, so that a burst of slow requests only
+     * counts once.
+     * 
+     * @param admissionTime
+     *            The admission time of the request in nanoseconds, as
+     *            returned by {@link System#nanoTime()}.
+     */
+    public void release(long admissionTime) {
+        int busy = this.inFlight.getAndDecrement();
+        long now = System.nanoTime();
+
+        synchronized (this) {
+            if ((this.latencyTargetNs > 0)
+                    && (now - admissionTime > this.latencyTargetNs)) {
+                if (admissionTime - this.lastDecreaseTime > 0) {
+                    this.limit = Math.max(this.minLimit, this.limit
+                            * this.backoffRatio);
+                    this.lastDecreaseTime = now;
+                }
+            } else if (busy * 2 >= this.limit) {
+                // Only probe a higher limit when it is actually needed
+                this.limit = Math.min(this.maxLimit, this.limit + 1D
+                        / this.limit);
+            }
+        }
+    }
+
+    @Override
+    public String toString() {
+        return getInFlight() + " in flight, limit of " + getLimit() + " ("
+                + getMinLimit() + " to " + getMaxLimit() + ")";
+    }
+
+    /**
+     * Tries to admit a new request.
+     * 
+     * @return True if the request was admitted and should later be released,
+     *         false if it should be shed.
+     */
+    public boolean tryAcquire() {
+        for (;;) {
+            int current = this.inFlight.get();
+
+            if (current >= (int) this.limit) {
+                return false;
+            }
+
+            if (this.inFlight.compareAndSet(current, current + 1)) {
+                return true;
+            }
+        }
+    }
+
+}
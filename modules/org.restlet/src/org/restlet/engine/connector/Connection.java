@@ -36,6 +36,7 @@ import java.net.Socket;
 import java.net.SocketAddress;
 import java.nio.ByteBuffer;
 import java.nio.channels.SocketChannel;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -62,6 +63,14 @@ import org.restlet.util.SelectionRegistration;
  */
 public class Connection<T extends Connector> implements SelectionListener {
 
+    /** The IO controller. */
+    private volatile ConnectionController controller;
+
+    /**
+     * Indicates if the connection state changed since it was last controlled.
+     */
+    private final AtomicBoolean dirty;
+
     /** The parent connector helper. */
     private final ConnectionHelper<T> helper;
 
@@ -124,6 +133,7 @@ public class Connection<T extends Connector> implements SelectionListener {
             ConnectionController controller, InetSocketAddress socketAddress,
             int inboundBufferSize, int outboundBufferSize) throws IOException {
         this.helper = helper;
+        this.dirty = new AtomicBoolean(false);
         this.inboundWay = helper.createInboundWay(this, inboundBufferSize);
         this.outboundWay = helper.createOutboundWay(this, outboundBufferSize);
         init(socketChannel, controller, socketAddress);
@@ -136,6 +146,8 @@ public class Connection<T extends Connector> implements SelectionListener {
     public void clear() {
         this.inboundWay.clear();
         this.outboundWay.clear();
+        this.controller = null;
+        this.dirty.set(false);
         this.readableSelectionChannel = null;
         this.socketChannel = null;
         this.registration = null;
@@ -225,7 +237,13 @@ public class Connection<T extends Connector> implements SelectionListener {
             @Override
             public int read(ByteBuffer dst) throws IOException {
                 onActivity();
-                return super.read(dst);
+                int result = super.read(dst);
+
+                if (getHelper().getMetrics() != null) {
+                    getHelper().getMetrics().onBytesRead(result);
+                }
+
+                return result;
             }
         };
     }
@@ -240,7 +258,13 @@ public class Connection<T extends Connector> implements SelectionListener {
             @Override
             public int write(ByteBuffer src) throws IOException {
                 onActivity();
-                return super.write(src);
+                int result = super.write(src);
+
+                if (getHelper().getMetrics() != null) {
+                    getHelper().getMetrics().onBytesWritten(result);
+                }
+
+                return result;
             }
         };
     }
@@ -256,6 +280,15 @@ public class Connection<T extends Connector> implements SelectionListener {
                         .getInetAddress().getHostAddress();
     }
 
+    /**
+     * Returns the IO controller.
+     * 
+     * @return The IO controller.
+     */
+    public ConnectionController getController() {
+        return controller;
+    }
+
     /**
      * Returns the parent connector helper.
      * 
@@ -445,6 +478,7 @@ public class Connection<T extends Connector> implements SelectionListener {
         this.pipelining = helper.isPipeliningConnections();
         this.maxIoIdleTimeMs = helper.getMaxIoIdleTimeMs();
         this.state = ConnectionState.OPENING;
+        this.controller = controller;
         this.socketChannel = socketChannel;
         this.socketAddress = socketAddress;
 
@@ -465,6 +499,7 @@ public class Connection<T extends Connector> implements SelectionListener {
         }
 
         onActivity();
+        setDirty(true);
     }
 
     /**
@@ -487,6 +522,16 @@ public class Connection<T extends Connector> implements SelectionListener {
         return getHelper().isClientSide();
     }
 
+    /**
+     * Indicates if the connection state changed since it was last controlled.
+     * 
+     * @return True if the connection state changed since it was last
+     *         controlled.
+     */
+    public boolean isDirty() {
+        return this.dirty.get();
+    }
+
     /**
      * Indicates if the connection is empty of messages and bytes.
      * 
@@ -555,6 +600,17 @@ public class Connection<T extends Connector> implements SelectionListener {
         close(false);
     }
 
+    /**
+     * Callback method invoked by the controller when the connection becomes
+     * idle. By default, it calls {@link Way#onIdle()} on both ways and notifies
+     * the parent helper.
+     */
+    public void onIdle() {
+        getInboundWay().onIdle();
+        getOutboundWay().onIdle();
+        getHelper().onIdle(this);
+    }
+
     /**
      * Callback method invoked when the connection has been selected for IO
      * operations it registered interest in. By default it updates the timestamp
@@ -619,6 +675,8 @@ public class Connection<T extends Connector> implements SelectionListener {
         } catch (Throwable t) {
             onError("Unexpected error detected. Closing the connection.", t,
                     Status.CONNECTOR_ERROR_INTERNAL);
+        } finally {
+            setDirty(true);
         }
     }
 
@@ -666,6 +724,27 @@ public class Connection<T extends Connector> implements SelectionListener {
         init(socketChannel, controller, socketAddress);
     }
 
+    /**
+     * Indicates if the connection state changed since it was last controlled.
+     * When set to true, the connection is queued for control by its IO
+     * controller, unless it was already queued.
+     * 
+     * @param dirty
+     *            True if the connection state changed since it was last
+     *            controlled.
+     */
+    public void setDirty(boolean dirty) {
+        if (!dirty) {
+            this.dirty.set(false);
+        } else {
+            ConnectionController controller = getController();
+
+            if ((controller != null) && this.dirty.compareAndSet(false, true)) {
+                controller.getDirtyConnections().add(this);
+            }
+        }
+    }
+
     /**
      * Indicates if the connection should be persisted across calls.
      * 
@@ -714,6 +793,7 @@ public class Connection<T extends Connector> implements SelectionListener {
             }
 
             this.state = state;
+            setDirty(true);
         }
     }
 
@@ -37,8 +37,11 @@ import java.nio.channels.SelectableChannel;
 import java.nio.channels.SelectionKey;
 import java.nio.channels.Selector;
 import java.util.Iterator;
+import java.util.LinkedHashSet;
 import java.util.Queue;
+import java.util.Set;
 import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.logging.Level;
 
 import org.restlet.Context;
@@ -48,11 +51,44 @@ import org.restlet.util.SelectionRegistration;
 
 /**
  * Controls the IO work of parent connector helper and manages its connections.
+ * The connections are controlled in an event driven way: only the active ones,
+ * exchanging messages or whose state changed, are controlled at each
+ * iteration. The idle connections are only checked for time outs.
  * 
  * @author Jerome Louvel
  */
 public class ConnectionController extends Controller implements Runnable {
 
+    /**
+     * The set of connections controlled at each iteration. Only accessed by
+     * the controller thread.
+     */
+    private final Set<Connection<?>> activeConnections;
+
+    /** The number of active connections, published after each iteration. */
+    private volatile int activeCount;
+
+    /** The number of connections controlled. */
+    private final AtomicInteger connectionCount;
+
+    /** The queue of connections whose state changed. */
+    private final Queue<Connection<?>> dirtyConnections;
+
+    /**
+     * The set of idle connections, in the order they became idle. Only
+     * accessed by the controller thread.
+     */
+    private final Set<Connection<?>> idleConnections;
+
+    /** The number of idle connections, published after each iteration. */
+    private volatile int idleCount;
+
+    /** The number of keys selected by the last NIO selection. */
+    private volatile int lastSelectedKeys;
+
+    /** The time spent waiting for the last NIO selection, in nanoseconds. */
+    private volatile long lastSelectTimeNs;
+
     /** The NIO selector. */
     private volatile Selector selector;
 
@@ -62,6 +98,12 @@ public class ConnectionController extends Controller implements Runnable {
     /** The list of updated selection registrations. */
     private final Queue<SelectionRegistration> updatedRegistrations;
 
+    /**
+     * The recent ratio of time spent working as opposed to waiting for NIO
+     * selections, only measured when metrics are collected.
+     */
+    private volatile double utilization;
+
     /**
      * Constructor.
      * 
@@ -70,18 +112,31 @@ public class ConnectionController extends Controller implements Runnable {
      */
     public ConnectionController(ConnectionHelper<?> helper) {
         super(helper);
+        this.activeConnections = new LinkedHashSet<Connection<?>>();
+        this.connectionCount = new AtomicInteger();
+        this.dirtyConnections = new ConcurrentLinkedQueue<Connection<?>>();
+        this.idleConnections = new LinkedHashSet<Connection<?>>();
         this.newRegistrations = new ConcurrentLinkedQueue<SelectionRegistration>();
         this.updatedRegistrations = new ConcurrentLinkedQueue<SelectionRegistration>();
+        this.utilization = 0D;
     }
 
     /**
-     * Control each connection for messages to read or write.
+     * Control each active connection for messages to read or write. The
+     * connections whose state changed are first activated, then the idle
+     * connections that timed out.
      * 
      * @throws IOException
      */
     protected void controlConnections() throws IOException {
+        activateDirtyConnections();
+        activateTimedOutConnections();
+
         // Close connections or register interest in NIO operations
-        for (Connection<?> conn : getHelper().getConnections()) {
+        for (Iterator<Connection<?>> iter = getActiveConnections().iterator(); iter
+                .hasNext();) {
+            Connection<?> conn = iter.next();
+
             if (getHelper().getLogger().isLoggable(Level.FINEST)) {
                 getHelper().getLogger().log(Level.FINEST,
                         "Connection status: " + conn);
@@ -89,7 +144,14 @@ public class ConnectionController extends Controller implements Runnable {
 
             if (conn.getState() == ConnectionState.CLOSED) {
                 // Detach the connection and collect it
+                iter.remove();
+                this.connectionCount.decrementAndGet();
                 getHelper().getConnections().remove(conn);
+
+                if (getHelper().getMetrics() != null) {
+                    getHelper().getMetrics().onClosed(conn);
+                }
+
                 getHelper().checkin(conn);
             } else if ((conn.getState() == ConnectionState.CLOSING)
                     && conn.isEmpty()) {
@@ -102,8 +164,66 @@ public class ConnectionController extends Controller implements Runnable {
                 conn.getInboundWay().onSelected();
             } else if (conn.getOutboundWay().getIoState() == IoState.READY) {
                 conn.getOutboundWay().onSelected();
+            } else if (isIdle(conn)) {
+                // Stop controlling it until a new event occurs
+                iter.remove();
+                getIdleConnections().add(conn);
+                conn.onIdle();
             }
         }
+
+        this.activeCount = getActiveConnections().size();
+        this.idleCount = getIdleConnections().size();
+    }
+
+    /**
+     * Moves the connections whose state changed to the set of active
+     * connections.
+     */
+    protected void activateDirtyConnections() {
+        Connection<?> conn = getDirtyConnections().poll();
+
+        while (conn != null) {
+            // Ignore connections checked in the pool or reused by another
+            // controller since they were queued
+            if (conn.getController() == this) {
+                conn.setDirty(false);
+                getIdleConnections().remove(conn);
+                getActiveConnections().add(conn);
+            }
+
+            conn = getDirtyConnections().poll();
+        }
+    }
+
+    /**
+     * Moves the idle connections that timed out to the set of active
+     * connections. As idle connections are ordered by the time they became
+     * idle, the scan stops at the first one that hasn't timed out.
+     */
+    protected void activateTimedOutConnections() {
+        for (Iterator<Connection<?>> iter = getIdleConnections().iterator(); iter
+                .hasNext();) {
+            Connection<?> conn = iter.next();
+
+            if (conn.hasTimedOut()) {
+                iter.remove();
+                getActiveConnections().add(conn);
+            } else {
+                break;
+            }
+        }
+    }
+
+    /**
+     * Attaches a new connection to this controller, which will control it
+     * until it is closed.
+     * 
+     * @param connection
+     *            The connection to attach.
+     */
+    public void attach(Connection<?> connection) {
+        this.connectionCount.incrementAndGet();
     }
 
     /**
@@ -127,9 +247,12 @@ public class ConnectionController extends Controller implements Runnable {
     @Override
     protected void doInit() {
         this.selector = createSelector();
-        // Done in the controller for thread safety reason regarding the byte
-        // buffers part of the pooled connections
-        getHelper().createConnectionPool();
+
+        if (isPrimary()) {
+            // Done in the controller for thread safety reason regarding the
+            // byte buffers part of the pooled connections
+            getHelper().createConnectionPool();
+        }
     }
 
     @Override
@@ -144,11 +267,97 @@ public class ConnectionController extends Controller implements Runnable {
 
     @Override
     protected void doRun(long sleepTime) throws IOException {
-        super.doRun(sleepTime);
+        ConnectorMetrics metrics = getHelper().getMetrics();
+        long startTime = (metrics == null) ? 0L : System.nanoTime();
+
+        if (isPrimary()) {
+            // Only the primary controller handles the pending messages, the
+            // secondary ones only control their own connections
+            super.doRun(sleepTime);
+        }
+
         registerKeys();
         updateKeys();
         selectKeys(sleepTime);
         controlConnections();
+
+        if (metrics != null) {
+            long loopTime = System.nanoTime() - startTime;
+            long busyTime = Math.max(0L, loopTime - this.lastSelectTimeNs);
+            updateUtilization(busyTime, loopTime);
+            metrics.onControlled(this, busyTime, this.lastSelectedKeys);
+        }
+    }
+
+    /**
+     * Returns the number of connections controlled at each iteration, as
+     * published after the last iteration.
+     * 
+     * @return The number of active connections.
+     */
+    public int getActiveCount() {
+        return activeCount;
+    }
+
+    /**
+     * Returns the set of connections controlled at each iteration.
+     * 
+     * @return The set of connections controlled at each iteration.
+     */
+    protected Set<Connection<?>> getActiveConnections() {
+        return activeConnections;
+    }
+
+    /**
+     * Returns the number of connections controlled. Note that the parent
+     * helper also maintains the set of all its connections, across
+     * controllers.
+     * 
+     * @return The number of connections controlled.
+     */
+    public int getConnectionCount() {
+        return this.connectionCount.get();
+    }
+
+    /**
+     * Returns the queue of connections whose state changed and that should be
+     * controlled again.
+     * 
+     * @return The queue of connections whose state changed.
+     */
+    public Queue<Connection<?>> getDirtyConnections() {
+        return dirtyConnections;
+    }
+
+    /**
+     * Returns the set of idle connections, in the order they became idle.
+     * 
+     * @return The set of idle connections.
+     */
+    protected Set<Connection<?>> getIdleConnections() {
+        return idleConnections;
+    }
+
+    /**
+     * Returns the number of idle connections, as published after the last
+     * iteration.
+     * 
+     * @return The number of idle connections.
+     */
+    public int getIdleCount() {
+        return idleCount;
+    }
+
+    /**
+     * Returns a score representing the controller load and that could be
+     * compared with other controllers of the same parent connector. It is the
+     * number of connections controlled, maintained incrementally so that it
+     * can be read for each new connection.
+     * 
+     * @return A score representing the controller load.
+     */
+    public int getLoadScore() {
+        return getConnectionCount();
     }
 
     /**
@@ -178,6 +387,42 @@ public class ConnectionController extends Controller implements Runnable {
         return this.updatedRegistrations;
     }
 
+    /**
+     * Returns the recent ratio of time spent working as opposed to waiting for
+     * NIO selections, between 0 and 1. It is only measured when metrics are
+     * collected by the parent helper.
+     * 
+     * @return The recent ratio of time spent working.
+     */
+    public double getUtilization() {
+        return utilization;
+    }
+
+    /**
+     * Indicates if a connection can stop being controlled at each iteration
+     * until a new event occurs. This is the case of open connections with no
+     * message being exchanged and no byte buffered.
+     * 
+     * @param conn
+     *            The connection to test.
+     * @return True if the connection is idle.
+     */
+    protected boolean isIdle(Connection<?> conn) {
+        return (conn.getState() == ConnectionState.OPEN) && !conn.isDirty()
+                && conn.isEmpty() && (conn.getInboundWay().getMessage() == null)
+                && (conn.getOutboundWay().getMessage() == null);
+    }
+
+    /**
+     * Indicates if this controller is the primary controller of the parent
+     * helper, as opposed to a secondary controller.
+     * 
+     * @return True if this controller is the primary controller.
+     */
+    public boolean isPrimary() {
+        return getHelper().getController() == this;
+    }
+
     /**
      * Called back when a ready key has been selected.
      * 
@@ -256,7 +501,10 @@ public class ConnectionController extends Controller implements Runnable {
     protected void selectKeys(long sleepTime) throws IOException,
             ClosedByInterruptException {
         // Select the connections ready for NIO operations
+        long startTime = System.nanoTime();
         int selectCount = getSelector().select(sleepTime);
+        this.lastSelectTimeNs = System.nanoTime() - startTime;
+        this.lastSelectedKeys = selectCount;
 
         if (selectCount > 0) {
             if (getHelper().getLogger().isLoggable(Level.FINEST)) {
@@ -303,4 +551,22 @@ public class ConnectionController extends Controller implements Runnable {
         }
     }
 
-}
\ No newline at end of file
+    /**
+     * Updates the recent utilization ratio with the times of the last
+     * iteration. The ratio is an exponentially weighted moving average with a
+     * time constant of one second, so that long iterations weigh more.
+     * 
+     * @param busyTimeNs
+     *            The time spent working, in nanoseconds.
+     * @param loopTimeNs
+     *            The total iteration time, in nanoseconds.
+     */
+    protected void updateUtilization(long busyTimeNs, long loopTimeNs) {
+        if (loopTimeNs > 0) {
+            double weight = loopTimeNs / (loopTimeNs + 1000000000D);
+            this.utilization += weight
+                    * (((double) busyTimeNs / loopTimeNs) - this.utilization);
+        }
+    }
+
+}
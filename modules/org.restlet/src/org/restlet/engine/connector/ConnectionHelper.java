@@ -185,6 +185,11 @@ public abstract class ConnectionHelper<T extends Connector> extends
             SocketChannel socketChannel, ConnectionController controller,
             InetSocketAddress socketAddress) throws IOException;
 
+    @Override
+    protected ConnectionController createSecondaryController() {
+        return new ConnectionController(this);
+    }
+
     /**
      * Creates the connection pool.
      */
@@ -356,4 +361,14 @@ public abstract class ConnectionHelper<T extends Connector> extends
         return Boolean.parseBoolean(getHelpedParameters().getFirstValue(
                 "socketReuseAddress", "true"));
     }
+
+    /**
+     * Callback method invoked by the controller when a connection becomes
+     * idle. Does nothing by default.
+     * 
+     * @param connection
+     *            The idle connection.
+     */
+    protected void onIdle(Connection<T> connection) {
+    }
 }
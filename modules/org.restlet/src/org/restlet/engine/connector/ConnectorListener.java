@@ -0,0 +1,115 @@
+/**
+ * Copyright 2005-2011 Noelios Technologies.
+ * 
+ * The contents of this file are subject to the terms of one of the following
+ * open source licenses: LGPL 3.0 or LGPL 2.1 or CDDL 1.0 or EPL 1.0 (the
+ * "Licenses"). You can select the license that you prefer but you may not use
+ * this file except in compliance with one of these Licenses.
+ * 
+ * You can obtain a copy of the LGPL 3.0 license at
+ * http://www.opensource.org/licenses/lgpl-3.0.html
+ * 
+ * You can obtain a copy of the LGPL 2.1 license at
+ * http://www.opensource.org/licenses/lgpl-2.1.php
+ * 
+ * You can obtain a copy of the CDDL 1.0 license at
+ * http://www.opensource.org/licenses/cddl1.php
+ * 
+ * You can obtain a copy of the EPL 1.0 license at
+ * http://www.opensource.org/licenses/eclipse-1.0.php
+ * 
+ * See the Licenses for the specific language governing permissions and
+ * limitations under the Licenses.
+ * 
+ * Alternatively, you can obtain a royalty free commercial license with less
+ * limitations, transferable or non-transferable, directly at
+ * http://www.noelios.com/products/restlet-engine
+ * 
+ * Restlet is a registered trademark of Noelios Technologies.
+ */
+
+package org.restlet.engine.connector;
+
+import org.restlet.Response;
+
+/**
+ * Callback interface notified of the IO events of a connector, when its
+ * metrics are enabled. The methods are invoked by the controller and worker
+ * threads, so they should return quickly and never block.
+ * 
+ * @author Jerome Louvel
+ * @see ConnectorMetrics#getListeners()
+ */
+public interface ConnectorListener {
+
+    /**
+     * Called back when a connection has been accepted by a server connector
+     * or established by a client connector.
+     * 
+     * @param connection
+     *            The new connection.
+     */
+    public void onAccepted(Connection<?> connection);
+
+    /**
+     * Called back when a closed connection has been collected.
+     * 
+     * @param connection
+     *            The closed connection.
+     */
+    public void onClosed(Connection<?> connection);
+
+    /**
+     * Called back after each iteration of a controller loop.
+     * 
+     * @param controller
+     *            The controller.
+     * @param busyTimeNs
+     *            The time spent working, excluding the NIO selection wait, in
+     *            nanoseconds.
+     * @param selectedKeys
+     *            The number of NIO keys selected.
+     */
+    public void onControlled(ConnectionController controller, long busyTimeNs,
+            int selectedKeys);
+
+    /**
+     * Called back when the start line and headers of an inbound message have
+     * been parsed.
+     * 
+     * @param connection
+     *            The parent connection.
+     * @param parseTimeNs
+     *            The time elapsed since the parsing started, in nanoseconds.
+     */
+    public void onReceived(Connection<?> connection, long parseTimeNs);
+
+    /**
+     * Called back when a new connection or a task was rejected, because of an
+     * overload or of a configured limit.
+     * 
+     * @param task
+     *            The rejected task or null for a rejected connection.
+     */
+    public void onRejected(Runnable task);
+
+    /**
+     * Called back when an outbound message has been fully written.
+     * 
+     * @param connection
+     *            The parent connection.
+     * @param writeTimeNs
+     *            The time elapsed since the writing started, in nanoseconds.
+     */
+    public void onSent(Connection<?> connection, long writeTimeNs);
+
+    /**
+     * Called back when a request was shed by the admission control, before
+     * being answered with a 503 status.
+     * 
+     * @param response
+     *            The shed response.
+     */
+    public void onShed(Response response);
+
+}
@@ -0,0 +1,652 @@
+/**
+ * Copyright 2005-2011 Noelios Technologies.
+ * 
+ * The contents of this file are subject to the terms of one of the following
+ * open source licenses: LGPL 3.0 or LGPL 2.1 or CDDL 1.0 or EPL 1.0 (the
+ * "Licenses"). You can select the license that you prefer but you may not use
+ * this file except in compliance with one of these Licenses.
+ * 
+ * You can obtain a copy of the LGPL 3.0 license at
+ * http://www.opensource.org/licenses/lgpl-3.0.html
+ * 
+ * You can obtain a copy of the LGPL 2.1 license at
+ * http://www.opensource.org/licenses/lgpl-2.1.php
+ * 
+ * You can obtain a copy of the CDDL 1.0 license at
+ * http://www.opensource.org/licenses/cddl1.php
+ * 
+ * You can obtain a copy of the EPL 1.0 license at
+ * http://www.opensource.org/licenses/eclipse-1.0.php
+ * 
+ * See the Licenses for the specific language governing permissions and
+ * limitations under the Licenses.
+ * 
+ * Alternatively, you can obtain a royalty free commercial license with less
+ * limitations, transferable or non-transferable, directly at
+ * http://www.noelios.com/products/restlet-engine
+ * 
+ * Restlet is a registered trademark of Noelios Technologies.
+ */
+
+package org.restlet.engine.connector;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.restlet.Response;
+
+/**
+ * Metrics of a connector, collected when the "metrics" parameter of the
+ * parent helper is enabled. It counts the connections, bytes and messages
+ * exchanged, records latency histograms and reports the depth of the
+ * connector queues. The events are also forwarded to the registered
+ * listeners. It can be registered as a JMX MBean.
+ * 
+ * @author Jerome Louvel
+ */
+public class ConnectorMetrics implements ConnectorListener,
+        ConnectorMetricsMBean {
+
+    /** The number of connections accepted or established. */
+    private final AtomicLong acceptedConnections;
+
+    /** The number of bytes read from the sockets. */
+    private final AtomicLong bytesRead;
+
+    /** The number of bytes written to the sockets. */
+    private final AtomicLong bytesWritten;
+
+    /** The number of closed connections collected. */
+    private final AtomicLong closedConnections;
+
+    /** The busy times of the controller loop iterations. */
+    private final LatencyHistogram controllerLoopTimes;
+
+    /** The parent helper. */
+    private final BaseHelper<?> helper;
+
+    /** The listeners notified of the IO events. */
+    private final List<ConnectorListener> listeners;
+
+    /** The parse times of the inbound messages. */
+    private final LatencyHistogram parseTimes;
+
+    /** The number of rejected connections. */
+    private final AtomicLong rejectedConnections;
+
+    /** The number of rejected executions. */
+    private final AtomicLong rejectedExecutions;
+
+    /** The number of NIO keys selected. */
+    private final AtomicLong selectedKeys;
+
+    /** The number of NIO selections with at least one key ready. */
+    private final AtomicLong selectorWakeups;
+
+    /** The number of requests shed by the admission control. */
+    private final AtomicLong shedRequests;
+
+    /** The write times of the outbound messages. */
+    private final LatencyHistogram writeTimes;
+
+    /**
+     * Constructor.
+     * 
+     * @param helper
+     *            The parent helper.
+     */
+    public ConnectorMetrics(BaseHelper<?> helper) {
+        this.helper = helper;
+        this.acceptedConnections = new AtomicLong();
+        this.bytesRead = new AtomicLong();
+        this.bytesWritten = new AtomicLong();
+        this.closedConnections = new AtomicLong();
+        this.controllerLoopTimes = new LatencyHistogram();
+        this.listeners = new CopyOnWriteArrayList<ConnectorListener>();
+        this.parseTimes = new LatencyHistogram();
+        this.rejectedConnections = new AtomicLong();
+        this.rejectedExecutions = new AtomicLong();
+        this.selectedKeys = new AtomicLong();
+        this.selectorWakeups = new AtomicLong();
+        this.shedRequests = new AtomicLong();
+        this.writeTimes = new LatencyHistogram();
+    }
+
+    /**
+     * Returns the number of connections accepted by a server connector or
+     * established by a client connector.
+     * 
+     * @return The number of connections accepted or established.
+     */
+    public long getAcceptedConnections() {
+        return this.acceptedConnections.get();
+    }
+
+    /**
+     * Returns the number of connections currently controlled at each
+     * iteration of the controllers.
+     * 
+     * @return The number of active connections.
+     */
+    public int getActiveConnections() {
+        int result = 0;
+
+        for (ConnectionController controller : getHelper().getControllers()) {
+            result += controller.getActiveCount();
+        }
+
+        return result;
+    }
+
+    /**
+     * Returns the number of requests currently admitted by the admission
+     * control of a server connector.
+     * 
+     * @return The number of requests currently admitted or 0 if the admission
+     *         control is disabled.
+     */
+    public int getAdmissionInFlight() {
+        ConcurrencyLimiter limiter = getHelper().getConcurrencyLimiter();
+        return (limiter == null) ? 0 : limiter.getInFlight();
+    }
+
+    /**
+     * Returns the current limit of concurrent requests enforced by the
+     * admission control of a server connector.
+     * 
+     * @return The current limit of concurrent requests or 0 if the admission
+     *         control is disabled.
+     */
+    public int getAdmissionLimit() {
+        ConcurrencyLimiter limiter = getHelper().getConcurrencyLimiter();
+        return (limiter == null) ? 0 : limiter.getLimit();
+    }
+
+    /**
+     * Returns the number of bytes read from the sockets.
+     * 
+     * @return The number of bytes read.
+     */
+    public long getBytesRead() {
+        return this.bytesRead.get();
+    }
+
+    /**
+     * Returns the number of bytes written to the sockets.
+     * 
+     * @return The number of bytes written.
+     */
+    public long getBytesWritten() {
+        return this.bytesWritten.get();
+    }
+
+    /**
+     * Returns the number of closed connections collected.
+     * 
+     * @return The number of closed connections.
+     */
+    public long getClosedConnections() {
+        return this.closedConnections.get();
+    }
+
+    /**
+     * Returns the number of iterations of the controller loops.
+     * 
+     * @return The number of iterations of the controller loops.
+     */
+    public long getControllerLoops() {
+        return getControllerLoopTimes().getCount();
+    }
+
+    /**
+     * Returns the maximum time spent working by a controller loop iteration,
+     * excluding the NIO selection wait.
+     * 
+     * @return The maximum controller loop time.
+     */
+    public double getControllerLoopTimeMaxMs() {
+        return getControllerLoopTimes().getMaxMs();
+    }
+
+    /**
+     * Returns the mean time spent working by a controller loop iteration,
+     * excluding the NIO selection wait.
+     * 
+     * @return The mean controller loop time.
+     */
+    public double getControllerLoopTimeMeanMs() {
+        return getControllerLoopTimes().getMeanMs();
+    }
+
+    /**
+     * Returns the 99th percentile of the time spent working by a controller
+     * loop iteration, excluding the NIO selection wait.
+     * 
+     * @return The 99th percentile of the controller loop time.
+     */
+    public double getControllerLoopTimeP99Ms() {
+        return getControllerLoopTimes().getPercentileMs(99);
+    }
+
+    /**
+     * Returns the histogram of the busy times of the controller loop
+     * iterations.
+     * 
+     * @return The histogram of the controller loop times.
+     */
+    public LatencyHistogram getControllerLoopTimes() {
+        return controllerLoopTimes;
+    }
+
+    /**
+     * Returns the highest ratio of time spent working by a controller, as
+     * opposed to waiting for NIO selections, recently measured. A value close
+     * to 1 indicates a saturated controller.
+     * 
+     * @return The highest controller utilization, between 0 and 1.
+     */
+    public double getControllerUtilization() {
+        double result = 0D;
+
+        for (ConnectionController controller : getHelper().getControllers()) {
+            result = Math.max(result, controller.getUtilization());
+        }
+
+        return result;
+    }
+
+    /**
+     * Returns the parent helper.
+     * 
+     * @return The parent helper.
+     */
+    protected BaseHelper<?> getHelper() {
+        return helper;
+    }
+
+    /**
+     * Returns the number of connections currently idle, only checked for time
+     * outs by the controllers.
+     * 
+     * @return The number of idle connections.
+     */
+    public int getIdleConnections() {
+        int result = 0;
+
+        for (ConnectionController controller : getHelper().getControllers()) {
+            result += controller.getIdleCount();
+        }
+
+        return result;
+    }
+
+    /**
+     * Returns the number of inbound messages pending for handling.
+     * 
+     * @return The depth of the inbound messages queue.
+     */
+    public int getInboundQueueDepth() {
+        return getHelper().getInboundMessages().size();
+    }
+
+    /**
+     * Returns the modifiable list of listeners notified of the IO events.
+     * 
+     * @return The list of listeners notified of the IO events.
+     */
+    public List<ConnectorListener> getListeners() {
+        return listeners;
+    }
+
+    /**
+     * Returns the number of inbound messages whose start line and headers
+     * have been parsed.
+     * 
+     * @return The number of inbound messages parsed.
+     */
+    public long getMessagesReceived() {
+        return getParseTimes().getCount();
+    }
+
+    /**
+     * Returns the number of outbound messages fully written.
+     * 
+     * @return The number of outbound messages written.
+     */
+    public long getMessagesSent() {
+        return getWriteTimes().getCount();
+    }
+
+    /**
+     * Returns the number of outbound messages pending for handling.
+     * 
+     * @return The depth of the outbound messages queue.
+     */
+    public int getOutboundQueueDepth() {
+        return getHelper().getOutboundMessages().size();
+    }
+
+    /**
+     * Returns the maximum time spent parsing the start line and headers of an
+     * inbound message.
+     * 
+     * @return The maximum parse time.
+     */
+    public double getParseTimeMaxMs() {
+        return getParseTimes().getMaxMs();
+    }
+
+    /**
+     * Returns the mean time spent parsing the start line and headers of an
+     * inbound message.
+     * 
+     * @return The mean parse time.
+     */
+    public double getParseTimeMeanMs() {
+        return getParseTimes().getMeanMs();
+    }
+
+    /**
+     * Returns the 99th percentile of the time spent parsing the start line and
+     * headers of an inbound message.
+     * 
+     * @return The 99th percentile of the parse time.
+     */
+    public double getParseTimeP99Ms() {
+        return getParseTimes().getPercentileMs(99);
+    }
+
+    /**
+     * Returns the histogram of the parse times of the inbound messages.
+     * 
+     * @return The histogram of the parse times.
+     */
+    public LatencyHistogram getParseTimes() {
+        return parseTimes;
+    }
+
+    /**
+     * Returns the number of connections rejected because the maximum number
+     * of connections was reached.
+     * 
+     * @return The number of rejected connections.
+     */
+    public long getRejectedConnections() {
+        return this.rejectedConnections.get();
+    }
+
+    /**
+     * Returns the number of tasks rejected by the worker service or dropped
+     * because the connector was overloaded or stopping.
+     * 
+     * @return The number of rejected executions.
+     */
+    public long getRejectedExecutions() {
+        return this.rejectedExecutions.get();
+    }
+
+    /**
+     * Returns the number of NIO keys selected by the controllers.
+     * 
+     * @return The number of NIO keys selected.
+     */
+    public long getSelectedKeys() {
+        return this.selectedKeys.get();
+    }
+
+    /**
+     * Returns the number of NIO selections that returned at least one ready
+     * key, as opposed to timing out.
+     * 
+     * @return The number of selector wake ups.
+     */
+    public long getSelectorWakeups() {
+        return this.selectorWakeups.get();
+    }
+
+    /**
+     * Returns the number of requests shed by the admission control and
+     * answered with a 503 status.
+     * 
+     * @return The number of shed requests.
+     */
+    public long getShedRequests() {
+        return this.shedRequests.get();
+    }
+
+    /**
+     * Returns the number of worker threads actively running tasks.
+     * 
+     * @return The number of active worker threads.
+     */
+    public int getWorkerActiveCount() {
+        ThreadPoolExecutor workerService = getHelper().getWorkerService();
+        return (workerService == null) ? 0 : workerService.getActiveCount();
+    }
+
+    /**
+     * Returns the number of tasks waiting for a worker thread.
+     * 
+     * @return The depth of the worker queue.
+     */
+    public int getWorkerQueueDepth() {
+        ThreadPoolExecutor workerService = getHelper().getWorkerService();
+        return (workerService == null) ? 0 : workerService.getQueue().size();
+    }
+
+    /**
+     * Returns the maximum time spent writing an outbound message.
+     * 
+     * @return The maximum write time.
+     */
+    public double getWriteTimeMaxMs() {
+        return getWriteTimes().getMaxMs();
+    }
+
+    /**
+     * Returns the mean time spent writing an outbound message.
+     * 
+     * @return The mean write time.
+     */
+    public double getWriteTimeMeanMs() {
+        return getWriteTimes().getMeanMs();
+    }
+
+    /**
+     * Returns the 99th percentile of the time spent writing an outbound
+     * message.
+     * 
+     * @return The 99th percentile of the write time.
+     */
+    public double getWriteTimeP99Ms() {
+        return getWriteTimes().getPercentileMs(99);
+    }
+
+    /**
+     * Returns the histogram of the write times of the outbound messages.
+     * 
+     * @return The histogram of the write times.
+     */
+    public LatencyHistogram getWriteTimes() {
+        return writeTimes;
+    }
+
+    /**
+     * Called back when a connection has been accepted by a server connector
+     * or established by a client connector.
+     * 
+     * @param connection
+     *            The new connection.
+     */
+    public void onAccepted(Connection<?> connection) {
+        this.acceptedConnections.incrementAndGet();
+
+        for (ConnectorListener listener : getListeners()) {
+            listener.onAccepted(connection);
+        }
+    }
+
+    /**
+     * Called back when bytes have been read from a socket.
+     * 
+     * @param count
+     *            The number of bytes read.
+     */
+    public void onBytesRead(long count) {
+        if (count > 0) {
+            this.bytesRead.addAndGet(count);
+        }
+    }
+
+    /**
+     * Called back when bytes have been written to a socket.
+     * 
+     * @param count
+     *            The number of bytes written.
+     */
+    public void onBytesWritten(long count) {
+        if (count > 0) {
+            this.bytesWritten.addAndGet(count);
+        }
+    }
+
+    /**
+     * Called back when a closed connection has been collected.
+     * 
+     * @param connection
+     *            The closed connection.
+     */
+    public void onClosed(Connection<?> connection) {
+        this.closedConnections.incrementAndGet();
+
+        for (ConnectorListener listener : getListeners()) {
+            listener.onClosed(connection);
+        }
+    }
+
+    /**
+     * Called back after each iteration of a controller loop.
+     * 
+     * @param controller
+     *            The controller.
+     * @param busyTimeNs
+     *            The time spent working, excluding the NIO selection wait, in
+     *            nanoseconds.
+     * @param selectedKeys
+     *            The number of NIO keys selected.
+     */
+    public void onControlled(ConnectionController controller, long busyTimeNs,
+            int selectedKeys) {
+        getControllerLoopTimes().record(busyTimeNs);
+
+        if (selectedKeys > 0) {
+            this.selectorWakeups.incrementAndGet();
+            this.selectedKeys.addAndGet(selectedKeys);
+        }
+
+        for (ConnectorListener listener : getListeners()) {
+            listener.onControlled(controller, busyTimeNs, selectedKeys);
+        }
+    }
+
+    /**
+     * Called back when the start line and headers of an inbound message have
+     * been parsed.
+     * 
+     * @param connection
+     *            The parent connection.
+     * @param parseTimeNs
+     *            The time elapsed since the parsing started, in nanoseconds.
+     */
+    public void onReceived(Connection<?> connection, long parseTimeNs) {
+        getParseTimes().record(parseTimeNs);
+
+        for (ConnectorListener listener : getListeners()) {
+            listener.onReceived(connection, parseTimeNs);
+        }
+    }
+
+    /**
+     * Called back when a new connection or a task was rejected, because of an
+     * overload or of a configured limit.
+     * 
+     * @param task
+     *            The rejected task or null for a rejected connection.
+     */
+    public void onRejected(Runnable task) {
+        if (task == null) {
+            this.rejectedConnections.incrementAndGet();
+        } else {
+            this.rejectedExecutions.incrementAndGet();
+        }
+
+        for (ConnectorListener listener : getListeners()) {
+            listener.onRejected(task);
+        }
+    }
+
+    /**
+     * Called back when an outbound message has been fully written.
+     * 
+     * @param connection
+     *            The parent connection.
+     * @param writeTimeNs
+     *            The time elapsed since the writing started, in nanoseconds.
+     */
+    public void onSent(Connection<?> connection, long writeTimeNs) {
+        getWriteTimes().record(writeTimeNs);
+
+        for (ConnectorListener listener : getListeners()) {
+            listener.onSent(connection, writeTimeNs);
+        }
+    }
+
+    /**
+     * Called back when a request was shed by the admission control, before
+     * being answered with a 503 status.
+     * 
+     * @param response
+     *            The shed response.
+     */
+    public void onShed(Response response) {
+        this.shedRequests.incrementAndGet();
+
+        for (ConnectorListener listener : getListeners()) {
+            listener.onShed(response);
+        }
+    }
+
+    /**
+     * Resets the counters and latency histograms. The gauges such as queue
+     * depths are not affected.
+     */
+    public void reset() {
+        this.acceptedConnections.set(0);
+        this.bytesRead.set(0);
+        this.bytesWritten.set(0);
+        this.closedConnections.set(0);
+        this.rejectedConnections.set(0);
+        this.rejectedExecutions.set(0);
+        this.selectedKeys.set(0);
+        this.selectorWakeups.set(0);
+        this.shedRequests.set(0);
+        getControllerLoopTimes().reset();
+        getParseTimes().reset();
+        getWriteTimes().reset();
+    }
+
+    @Override
+    public String toString() {
+        return getAcceptedConnections() + " accepted, "
+                + getActiveConnections() + " active, " + getIdleConnections()
+                + " idle connections; " + getBytesRead() + " bytes read, "
+                + getBytesWritten() + " bytes written; "
+                + getInboundQueueDepth() + " inbound, "
+                + getOutboundQueueDepth() + " outbound messages queued; "
+                + getRejectedExecutions() + " rejected executions, "
+                + getShedRequests() + " shed requests";
+    }
+
+}
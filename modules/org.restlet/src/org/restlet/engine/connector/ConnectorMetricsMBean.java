@@ -0,0 +1,278 @@
+/**
+ * Copyright 2005-2011 Noelios Technologies.
+ * 
+ * The contents of this file are subject to the terms of one of the following
+ * open source licenses: LGPL 3.0 or LGPL 2.1 or CDDL 1.0 or EPL 1.0 (the
+ * "Licenses"). You can select the license that you prefer but you may not use
+ * this file except in compliance with one of these Licenses.
+ * 
+ * You can obtain a copy of the LGPL 3.0 license at
+ * http://www.opensource.org/licenses/lgpl-3.0.html
+ * 
+ * You can obtain a copy of the LGPL 2.1 license at
+ * http://www.opensource.org/licenses/lgpl-2.1.php
+ * 
+ * You can obtain a copy of the CDDL 1.0 license at
+ * http://www.opensource.org/licenses/cddl1.php
+ * 
+ * You can obtain a copy of the EPL 1.0 license at
+ * http://www.opensource.org/licenses/eclipse-1.0.php
+ * 
+ * See the Licenses for the specific language governing permissions and
+ * limitations under the Licenses.
+ * 
+ * Alternatively, you can obtain a royalty free commercial license with less
+ * limitations, transferable or non-transferable, directly at
+ * http://www.noelios.com/products/restlet-engine
+ * 
+ * Restlet is a registered trademark of Noelios Technologies.
+ */
+
+package org.restlet.engine.connector;
+
+/**
+ * Management interface of the connector metrics, exposed via JMX. Latencies
+ * are given in milliseconds.
+ * 
+ * @author Jerome Louvel
+ */
+public interface ConnectorMetricsMBean {
+
+    /**
+     * Returns the number of connections accepted by a server connector or
+     * established by a client connector.
+     * 
+     * @return The number of connections accepted or established.
+     */
+    public long getAcceptedConnections();
+
+    /**
+     * Returns the number of connections currently controlled at each
+     * iteration of the controllers.
+     * 
+     * @return The number of active connections.
+     */
+    public int getActiveConnections();
+
+    /**
+     * Returns the number of requests currently admitted by the admission
+     * control of a server connector.
+     * 
+     * @return The number of requests currently admitted or 0 if the admission
+     *         control is disabled.
+     */
+    public int getAdmissionInFlight();
+
+    /**
+     * Returns the current limit of concurrent requests enforced by the
+     * admission control of a server connector.
+     * 
+     * @return The current limit of concurrent requests or 0 if the admission
+     *         control is disabled.
+     */
+    public int getAdmissionLimit();
+
+    /**
+     * Returns the number of bytes read from the sockets.
+     * 
+     * @return The number of bytes read.
+     */
+    public long getBytesRead();
+
+    /**
+     * Returns the number of bytes written to the sockets.
+     * 
+     * @return The number of bytes written.
+     */
+    public long getBytesWritten();
+
+    /**
+     * Returns the number of closed connections collected.
+     * 
+     * @return The number of closed connections.
+     */
+    public long getClosedConnections();
+
+    /**
+     * Returns the number of iterations of the controller loops.
+     * 
+     * @return The number of iterations of the controller loops.
+     */
+    public long getControllerLoops();
+
+    /**
+     * Returns the maximum time spent working by a controller loop iteration,
+     * excluding the NIO selection wait.
+     * 
+     * @return The maximum controller loop time.
+     */
+    public double getControllerLoopTimeMaxMs();
+
+    /**
+     * Returns the mean time spent working by a controller loop iteration,
+     * excluding the NIO selection wait.
+     * 
+     * @return The mean controller loop time.
+     */
+    public double getControllerLoopTimeMeanMs();
+
+    /**
+     * Returns the 99th percentile of the time spent working by a controller
+     * loop iteration, excluding the NIO selection wait.
+     * 
+     * @return The 99th percentile of the controller loop time.
+     */
+    public double getControllerLoopTimeP99Ms();
+
+    /**
+     * Returns the highest ratio of time spent working by a controller, as
+     * opposed to waiting for NIO selections, recently measured. A value close
+     * to 1 indicates a saturated controller.
+     * 
+     * @return The highest controller utilization, between 0 and 1.
+     */
+    public double getControllerUtilization();
+
+    /**
+     * Returns the number of connections currently idle, only checked for time
+     * outs by the controllers.
+     * 
+     * @return The number of idle connections.
+     */
+    public int getIdleConnections();
+
+    /**
+     * Returns the number of inbound messages pending for handling.
+     * 
+     * @return The depth of the inbound messages queue.
+     */
+    public int getInboundQueueDepth();
+
+    /**
+     * Returns the number of inbound messages whose start line and headers
+     * have been parsed.
+     * 
+     * @return The number of inbound messages parsed.
+     */
+    public long getMessagesReceived();
+
+    /**
+     * Returns the number of outbound messages fully written.
+     * 
+     * @return The number of outbound messages written.
+     */
+    public long getMessagesSent();
+
+    /**
+     * Returns the number of outbound messages pending for handling.
+     * 
+     * @return The depth of the outbound messages queue.
+     */
+    public int getOutboundQueueDepth();
+
+    /**
+     * Returns the maximum time spent parsing the start line and headers of an
+     * inbound message.
+     * 
+     * @return The maximum parse time.
+     */
+    public double getParseTimeMaxMs();
+
+    /**
+     * Returns the mean time spent parsing the start line and headers of an
+     * inbound message.
+     * 
+     * @return The mean parse time.
+     */
+    public double getParseTimeMeanMs();
+
+    /**
+     * Returns the 99th percentile of the time spent parsing the start line and
+     * headers of an inbound message.
+     * 
+     * @return The 99th percentile of the parse time.
+     */
+    public double getParseTimeP99Ms();
+
+    /**
+     * Returns the number of connections rejected because the maximum number
+     * of connections was reached.
+     * 
+     * @return The number of rejected connections.
+     */
+    public long getRejectedConnections();
+
+    /**
+     * Returns the number of tasks rejected by the worker service or dropped
+     * because the connector was overloaded or stopping.
+     * 
+     * @return The number of rejected executions.
+     */
+    public long getRejectedExecutions();
+
+    /**
+     * Returns the number of NIO keys selected by the controllers.
+     * 
+     * @return The number of NIO keys selected.
+     */
+    public long getSelectedKeys();
+
+    /**
+     * Returns the number of NIO selections that returned at least one ready
+     * key, as opposed to timing out.
+     * 
+     * @return The number of selector wake ups.
+     */
+    public long getSelectorWakeups();
+
+    /**
+     * Returns the number of requests shed by the admission control and
+     * answered with a 503 status.
+     * 
+     * @return The number of shed requests.
+     */
+    public long getShedRequests();
+
+    /**
+     * Returns the number of worker threads actively running tasks.
+     * 
+     * @return The number of active worker threads.
+     */
+    public int getWorkerActiveCount();
+
+    /**
+     * Returns the number of tasks waiting for a worker thread.
+     * 
+     * @return The depth of the worker queue.
+     */
+    public int getWorkerQueueDepth();
+
+    /**
+     * Returns the maximum time spent writing an outbound message.
+     * 
+     * @return The maximum write time.
+     */
+    public double getWriteTimeMaxMs();
+
+    /**
+     * Returns the mean time spent writing an outbound message.
+     * 
+     * @return The mean write time.
+     */
+    public double getWriteTimeMeanMs();
+
+    /**
+     * Returns the 99th percentile of the time spent writing an outbound
+     * message.
+     * 
+     * @return The 99th percentile of the write time.
+     */
+    public double getWriteTimeP99Ms();
+
+    /**
+     * Resets the counters and latency histograms. The gauges such as queue
+     * depths are not affected.
+     */
+    public void reset();
+
+}
@@ -128,7 +128,9 @@ public abstract class Controller {
             doInit();
             setRunning(true);
             long sleepTime = getHelper().getControllerSleepTimeMs();
-            boolean hasWorkerThreads = getHelper().hasWorkerThreads();
+            // The admission control replaces the overload detection
+            boolean hasWorkerThreads = getHelper().hasWorkerThreads()
+                    && (getHelper().getConcurrencyLimiter() == null);
             boolean isWorkerServiceOverloaded;
 
             while (isRunning()) {
@@ -0,0 +1,263 @@
+/**
+ * Copyright 2005-2011 Noelios Technologies.
+ * 
+ * The contents of this file are subject to the terms of one of the following
+ * open source licenses: LGPL 3.0 or LGPL 2.1 or CDDL 1.0 or EPL 1.0 (the
+ * "Licenses"). You can select the license that you prefer but you may not use
+ * this file except in compliance with one of these Licenses.
+ * 
+ * You can obtain a copy of the LGPL 3.0 license at
+ * http://www.opensource.org/licenses/lgpl-3.0.html
+ * 
+ * You can obtain a copy of the LGPL 2.1 license at
+ * http://www.opensource.org/licenses/lgpl-2.1.php
+ * 
+ * You can obtain a copy of the CDDL 1.0 license at
+ * http://www.opensource.org/licenses/cddl1.php
+ * 
+ * You can obtain a copy of the EPL 1.0 license at
+ * http://www.opensource.org/licenses/eclipse-1.0.php
+ * 
+ * See the Licenses for the specific language governing permissions and
+ * limitations under the Licenses.
+ * 
+ * Alternatively, you can obtain a royalty free commercial license with less
+ * limitations, transferable or non-transferable, directly at
+ * http://www.noelios.com/products/restlet-engine
+ * 
+ * Restlet is a registered trademark of Noelios Technologies.
+ */
+
+package org.restlet.engine.connector;
+
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.restlet.Connector;
+
+/**
+ * Connections opened to the same host, port and scheme. The connections that
+ * became idle are queued so that an available connection can be checked out in
+ * constant time, without scanning the others. When no idle connection is
+ * queued, no connection is returned and the caller opens a new connection.
+ * Only when the connection limits are reached are the connections scanned,
+ * see {@link #checkoutAvailable()}.<br>
+ * <br>
+ * Each idle connection is queued with a ticket that is claimed atomically, so
+ * that a connection is never checked out twice. A removed connection only
+ * has its ticket claimed, the stale entry being skipped when polled.
+ * 
+ * @author Jerome Louvel
+ */
+public class HostConnections<T extends Connector> {
+
+    /** A queued idle connection, claimed at most once. */
+    private static final class IdleTicket<T extends Connector> {
+
+        /** Indicates if the ticket was claimed or cancelled. */
+        private final AtomicBoolean claimed;
+
+        /** The idle connection. */
+        private final Connection<T> connection;
+
+        /**
+         * Constructor.
+         * 
+         * @param connection
+         *            The idle connection.
+         */
+        private IdleTicket(Connection<T> connection) {
+            this.claimed = new AtomicBoolean();
+            this.connection = connection;
+        }
+
+        /**
+         * Claims the ticket.
+         * 
+         * @return True if the ticket wasn't claimed or cancelled before.
+         */
+        private boolean claim() {
+            return this.claimed.compareAndSet(false, true);
+        }
+    }
+
+    /** The connections opened to the host. */
+    private final ConcurrentHashMap<Connection<T>, Boolean> connections;
+
+    /** The queue of idle connection tickets, most likely available. */
+    private final Queue<IdleTicket<T>> idleQueue;
+
+    /** The unclaimed ticket of each idle connection. */
+    private final ConcurrentHashMap<Connection<T>, IdleTicket<T>> idleTickets;
+
+    /** The key identifying the host, port and scheme. */
+    private final String key;
+
+    /**
+     * Constructor.
+     * 
+     * @param key
+     *            The key identifying the host, port and scheme.
+     */
+    public HostConnections(String key) {
+        this.connections = new ConcurrentHashMap<Connection<T>, Boolean>();
+        this.idleQueue = new ConcurrentLinkedQueue<IdleTicket<T>>();
+        this.idleTickets = new ConcurrentHashMap<Connection<T>, IdleTicket<T>>();
+        this.key = key;
+    }
+
+    /**
+     * Adds a new connection opened to the host.
+     * 
+     * @param connection
+     *            The connection to add.
+     */
+    public void add(Connection<T> connection) {
+        this.connections.put(connection, Boolean.TRUE);
+    }
+
+    /**
+     * Returns an available connection, claimed from the idle connections.
+     * Tickets that were already claimed, or whose connection isn't available
+     * anymore, are dropped.
+     * 
+     * @return An available connection or null if no idle connection is
+     *         queued.
+     */
+    public Connection<T> checkout() {
+        IdleTicket<T> ticket = this.idleQueue.poll();
+
+        while (ticket != null) {
+            if (ticket.claim()) {
+                Connection<T> result = ticket.connection;
+                this.idleTickets.remove(result, ticket);
+
+                if (this.connections.containsKey(result)
+                        && result.isAvailable()) {
+                    return result;
+                }
+            }
+
+            ticket = this.idleQueue.poll();
+        }
+
+        return null;
+    }
+
+    /**
+     * Returns an available connection, scanning the connections opened to the
+     * host, including the ones that became available without being queued as
+     * idle yet. This is only worth it when no new connection can be opened
+     * because the connection limits are reached.
+     * 
+     * @return An available connection or null.
+     */
+    public Connection<T> checkoutAvailable() {
+        Connection<T> result = checkout();
+
+        if (result == null) {
+            for (Connection<T> connection : this.connections.keySet()) {
+                if (connection.isAvailable()) {
+                    IdleTicket<T> ticket = this.idleTickets.remove(connection);
+
+                    if ((ticket == null) || ticket.claim()) {
+                        return connection;
+                    }
+                }
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * Returns the connections opened to the host. The returned set doesn't
+     * support additions, use {@link #add(Connection)} instead.
+     * 
+     * @return The connections opened to the host.
+     */
+    public Set<Connection<T>> getConnections() {
+        return this.connections.keySet();
+    }
+
+    /**
+     * Returns the number of idle connections queued for checkout.
+     * 
+     * @return The number of idle connections queued for checkout.
+     */
+    public int getIdleCount() {
+        return this.idleTickets.size();
+    }
+
+    /**
+     * Returns the key identifying the host, port and scheme.
+     * 
+     * @return The key identifying the host, port and scheme.
+     */
+    public String getKey() {
+        return key;
+    }
+
+    /**
+     * Indicates if no connection is opened to the host.
+     * 
+     * @return True if no connection is opened to the host.
+     */
+    public boolean isEmpty() {
+        return this.connections.isEmpty();
+    }
+
+    /**
+     * Queues a connection that became idle, so that it can be checked out.
+     * 
+     * @param connection
+     *            The idle connection.
+     */
+    public void onIdle(Connection<T> connection) {
+        if (this.connections.containsKey(connection)) {
+            IdleTicket<T> ticket = new IdleTicket<T>(connection);
+
+            if (this.idleTickets.putIfAbsent(connection, ticket) == null) {
+                this.idleQueue.offer(ticket);
+            }
+        }
+    }
+
+    /**
+     * Removes a connection, typically closed. Its idle ticket is cancelled
+     * and will be dropped when polled.
+     * 
+     * @param connection
+     *            The connection to remove.
+     * @return True if the connection was opened to the host.
+     */
+    public boolean remove(Connection<T> connection) {
+        boolean result = (this.connections.remove(connection) != null);
+        IdleTicket<T> ticket = this.idleTickets.remove(connection);
+
+        if (ticket != null) {
+            ticket.claim();
+        }
+
+        return result;
+    }
+
+    /**
+     * Returns the number of connections opened to the host.
+     * 
+     * @return The number of connections opened to the host.
+     */
+    public int size() {
+        return this.connections.size();
+    }
+
+    @Override
+    public String toString() {
+        return getKey() + " (" + size() + " connections, " + getIdleCount()
+                + " idle)";
+    }
+
+}
@@ -31,6 +31,8 @@
 package org.restlet.engine.connector;
 
 import org.restlet.Client;
+import org.restlet.Request;
+import org.restlet.Response;
 import org.restlet.data.Protocol;
 
 /**
@@ -51,6 +53,39 @@ public class HttpClientHelper extends ClientConnectionHelper {
         getProtocols().add(Protocol.HTTP);
     }
 
+    /**
+     * Indicates if a request can be pipelined on a given connection. The
+     * connection must be opening or open, persistent and pipelining, have less
+     * requests in flight than {@link #getMaxPipelinedRequests()} and all of
+     * them must be pipelinable too, see {@link #isPipelinable(Request)}.
+     */
+    @Override
+    protected boolean canPipeline(Connection<Client> connection,
+            Request request) {
+        boolean result = connection.isPipelining()
+                && connection.isPersistent()
+                && ((connection.getState() == ConnectionState.OPENING) || (connection
+                        .getState() == ConnectionState.OPEN))
+                && (connection.getLoadScore() < getMaxPipelinedRequests());
+
+        if (result) {
+            HttpClientInboundWay inboundWay = (HttpClientInboundWay) connection
+                    .getInboundWay();
+            HttpClientOutboundWay outboundWay = (HttpClientOutboundWay) connection
+                    .getOutboundWay();
+
+            for (Response response : inboundWay.getMessages()) {
+                result = result && isPipelinable(response.getRequest());
+            }
+
+            for (Response response : outboundWay.getMessages()) {
+                result = result && isPipelinable(response.getRequest());
+            }
+        }
+
+        return result;
+    }
+
     @Override
     public InboundWay createInboundWay(Connection<Client> connection,
             int bufferSize) {
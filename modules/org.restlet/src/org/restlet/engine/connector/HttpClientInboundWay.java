@@ -120,20 +120,40 @@ public class HttpClientInboundWay extends ClientInboundWay {
         }
 
         super.onCompleted(endDetected);
+
+        if (!getMessages().isEmpty()) {
+            // Read the response of the next pipelined request
+            setMessageState(MessageState.START);
+        }
     }
 
     @Override
     public void onError(Status status) {
+        // The requests whose response hasn't started are replayed if possible
         for (Response rsp : getMessages()) {
             if (rsp != getMessage()) {
                 getMessages().remove(rsp);
-                getHelper().onInboundError(status, rsp);
+
+                if (!getHelper().replay(rsp)) {
+                    getHelper().onInboundError(status, rsp);
+                }
             }
         }
 
         super.onError(status);
     }
 
+    @Override
+    public void onSelected() {
+        if ((getIoState() == IoState.READY)
+                && (getMessageState() != MessageState.BODY)) {
+            // Process the pipelined response already buffered like a read
+            setIoState(IoState.PROCESSING);
+        }
+
+        super.onSelected();
+    }
+
     @Override
     public void onTimeOut() {
         for (Response rsp : getMessages()) {
@@ -147,12 +167,54 @@ public class HttpClientInboundWay extends ClientInboundWay {
         super.onTimeOut();
     }
 
+    /**
+     * Replays the requests whose response hasn't started to be received, once
+     * the connection is closing and the buffered responses have been read.
+     * This typically happens when the server closed the connection while other
+     * requests were pipelined. The requests not sent yet are also replayed.
+     */
+    protected void replayUnanswered() {
+        HttpClientOutboundWay outboundWay = (HttpClientOutboundWay) getConnection()
+                .getOutboundWay();
+
+        if (!getMessages().isEmpty() || !outboundWay.getMessages().isEmpty()) {
+            // Prevent further requests from being sent on this connection
+            getHelper().removeHostConnection(getConnection());
+
+            for (Response rsp : getMessages()) {
+                if (rsp != getMessage()) {
+                    getMessages().remove(rsp);
+
+                    if (!getHelper().replay(rsp)) {
+                        getHelper().onInboundError(
+                                Status.CONNECTOR_ERROR_COMMUNICATION, rsp);
+                    }
+                }
+            }
+
+            outboundWay.replayUnsent();
+        }
+    }
+
     @Override
     public void updateState() {
+        if ((getConnection().getState() == ConnectionState.CLOSING)
+                && (getMessageState() != MessageState.BODY)
+                && getBuffer().isEmpty()) {
+            // No more response will be received
+            replayUnanswered();
+        }
+
         if ((getIoState() == IoState.IDLE)
                 && (getMessageState() != MessageState.BODY) && !isEmpty()) {
-            // Read the next response
-            setIoState(IoState.INTEREST);
+            if ((getMessageState() == MessageState.START)
+                    && getBuffer().canDrain()) {
+                // The next pipelined response is already buffered
+                setIoState(IoState.READY);
+            } else {
+                // Read the next response
+                setIoState(IoState.INTEREST);
+            }
         }
 
         // Update the registration
@@ -30,8 +30,10 @@
 
 package org.restlet.engine.connector;
 
+import java.io.IOException;
 import java.util.Queue;
 import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.logging.Level;
 
 import org.restlet.Request;
 import org.restlet.Response;
@@ -104,8 +106,12 @@ public class HttpClientOutboundWay extends ClientOutboundWay {
 
             if (request.isExpectingResponse()) {
                 inboundMessages.add(message);
-                getConnection().getInboundWay().setMessageState(
-                        MessageState.START);
+
+                // Don't disturb the reading of a previous pipelined response
+                if (getConnection().getInboundWay().getMessageState() == MessageState.IDLE) {
+                    getConnection().getInboundWay().setMessageState(
+                            MessageState.START);
+                }
             }
         }
 
@@ -114,13 +120,27 @@ public class HttpClientOutboundWay extends ClientOutboundWay {
 
     @Override
     public void onError(Status status) {
+        // Requests failing on an established pipelining connection are
+        // replayed if possible
+        boolean replaying = getConnection().isPipelining()
+                && (getConnection().getState() != ConnectionState.OPENING);
+
         for (Response rsp : getMessages()) {
             if (rsp != getMessage()) {
                 getMessages().remove(rsp);
-                getHelper().onOutboundError(status, rsp);
+
+                if (!replaying || !getHelper().replay(rsp)) {
+                    getHelper().onOutboundError(status, rsp);
+                }
             }
         }
 
+        if (replaying && (getMessage() != null)
+                && getHelper().replay(getMessage())) {
+            getMessages().remove(getMessage());
+            setMessage(null);
+        }
+
         super.onError(status);
     }
 
@@ -137,6 +157,50 @@ public class HttpClientOutboundWay extends ClientOutboundWay {
         super.onTimeOut();
     }
 
+    @Override
+    public int processIoBuffer() throws IOException {
+        int result = 0;
+
+        try {
+            result = super.processIoBuffer();
+        } catch (IOException ioe) {
+            if (((HttpClientInboundWay) getConnection().getInboundWay())
+                    .getMessages().isEmpty()) {
+                throw ioe;
+            }
+
+            // The server likely closed the connection after answering some
+            // of the pipelined requests. Keep reading their responses.
+            getLogger().log(Level.FINE,
+                    "Unable to write a pipelined request, closing the connection",
+                    ioe);
+            getConnection().close(true);
+            replayUnsent();
+        }
+
+        return result;
+    }
+
+    /**
+     * Replays the requests not completely sent, aborting the writing of the
+     * current one. This typically happens when the connection is closed while
+     * requests are pipelined.
+     */
+    protected void replayUnsent() {
+        if (!getMessages().isEmpty()) {
+            onClosed();
+
+            for (Response rsp : getMessages()) {
+                getMessages().remove(rsp);
+
+                if (!getHelper().replay(rsp)) {
+                    getHelper().onOutboundError(
+                            Status.CONNECTOR_ERROR_COMMUNICATION, rsp);
+                }
+            }
+        }
+    }
+
     @Override
     public void updateState() {
         // Update the IO state if necessary
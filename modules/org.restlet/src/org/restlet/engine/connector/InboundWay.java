@@ -237,6 +237,10 @@ public abstract class InboundWay extends Way {
                                         + getConnection().getSocketAddress());
                     }
 
+                    if (getHelper().getMetrics() != null) {
+                        setMessageStartTime(System.nanoTime());
+                    }
+
                     readStartLine();
                 }
             } else if (getMessageState() == MessageState.HEADERS) {
@@ -244,12 +248,22 @@ public abstract class InboundWay extends Way {
 
                 if (header != null) {
                     if (getHeaders() == null) {
-                        setHeaders(new Series<Header>(Header.class));
+                        Series<Header> headers = new Series<Header>(
+                                Header.class);
+                        headers.setIndexed(true);
+                        setHeaders(headers);
                     }
 
                     getHeaders().add(header);
                 } else {
                     // All headers received
+                    if ((getHelper().getMetrics() != null)
+                            && (getMessageStartTime() != 0L)) {
+                        getHelper().getMetrics().onReceived(getConnection(),
+                                System.nanoTime() - getMessageStartTime());
+                        setMessageStartTime(0L);
+                    }
+
                     onReceived();
                 }
             }
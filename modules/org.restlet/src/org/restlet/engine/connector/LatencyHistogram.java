@@ -0,0 +1,183 @@
+/**
+ * Copyright 2005-2011 Noelios Technologies.
+ * 
+ * The contents of this file are subject to the terms of one of the following
+ * open source licenses: LGPL 3.0 or LGPL 2.1 or CDDL 1.0 or EPL 1.0 (the
+ * "Licenses"). You can select the license that you prefer but you may not use
+ * this file except in compliance with one of these Licenses.
+ * 
+ * You can obtain a copy of the LGPL 3.0 license at
+ * http://www.opensource.org/licenses/lgpl-3.0.html
+ * 
+ * You can obtain a copy of the LGPL 2.1 license at
+ * http://www.opensource.org/licenses/lgpl-2.1.php
+ * 
+ * You can obtain a copy of the CDDL 1.0 license at
+ * http://www.opensource.org/licenses/cddl1.php
+ * 
+ * You can obtain a copy of the EPL 1.0 license at
+ * http://www.opensource.org/licenses/eclipse-1.0.php
+ * 
+ * See the Licenses for the specific language governing permissions and
+ * limitations under the Licenses.
+ * 
+ * Alternatively, you can obtain a royalty free commercial license with less
+ * limitations, transferable or non-transferable, directly at
+ * http://www.noelios.com/products/restlet-engine
+ * 
+ * Restlet is a registered trademark of Noelios Technologies.
+ */
+
+package org.restlet.engine.connector;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Histogram of latencies with buckets growing as powers of two microseconds.
+ * Recording is lock-free and cheap enough to be done for each message. The
+ * percentiles returned are the upper bounds of the matching buckets, hence
+ * precise within a factor of two.
+ * 
+ * @author Jerome Louvel
+ */
+public class LatencyHistogram {
+
+    /** The number of buckets, the last one covering about 35 minutes. */
+    private static final int BUCKETS = 32;
+
+    /** The count of latencies recorded per bucket. */
+    private final AtomicLongArray buckets;
+
+    /** The count of latencies recorded. */
+    private final AtomicLong count;
+
+    /** The maximum latency recorded in nanoseconds. */
+    private final AtomicLong max;
+
+    /** The sum of the latencies recorded in nanoseconds. */
+    private final AtomicLong sum;
+
+    /**
+     * Constructor.
+     */
+    public LatencyHistogram() {
+        this.buckets = new AtomicLongArray(BUCKETS);
+        this.count = new AtomicLong();
+        this.max = new AtomicLong();
+        this.sum = new AtomicLong();
+    }
+
+    /**
+     * Returns the index of the bucket covering the given latency.
+     * 
+     * @param nanos
+     *            The latency in nanoseconds.
+     * @return The index of the bucket.
+     */
+    private int getBucket(long nanos) {
+        long micros = nanos / 1000;
+        int result = (micros <= 0) ? 0 : 64 - Long.numberOfLeadingZeros(micros);
+        return Math.min(result, BUCKETS - 1);
+    }
+
+    /**
+     * Returns the count of latencies recorded.
+     * 
+     * @return The count of latencies recorded.
+     */
+    public long getCount() {
+        return this.count.get();
+    }
+
+    /**
+     * Returns the maximum latency recorded in milliseconds.
+     * 
+     * @return The maximum latency recorded in milliseconds.
+     */
+    public double getMaxMs() {
+        return this.max.get() / 1000000D;
+    }
+
+    /**
+     * Returns the mean latency in milliseconds.
+     * 
+     * @return The mean latency in milliseconds.
+     */
+    public double getMeanMs() {
+        long currentCount = getCount();
+        return (currentCount == 0) ? 0D : (this.sum.get() / 1000000D)
+                / currentCount;
+    }
+
+    /**
+     * Returns the latency in milliseconds under which the given percentage of
+     * the recorded latencies fall.
+     * 
+     * @param percentile
+     *            The percentile, between 0 and 100.
+     * @return The matching latency in milliseconds.
+     */
+    public double getPercentileMs(double percentile) {
+        long total = 0;
+
+        for (int i = 0; i < BUCKETS; i++) {
+            total += this.buckets.get(i);
+        }
+
+        long threshold = (long) Math.ceil(total * percentile / 100D);
+        long current = 0;
+
+        for (int i = 0; i < BUCKETS; i++) {
+            current += this.buckets.get(i);
+
+            if ((current > 0) && (current >= threshold)) {
+                // Upper bound of the bucket, capped by the maximum recorded
+                return Math.min((1L << i) / 1000D, getMaxMs());
+            }
+        }
+
+        return 0D;
+    }
+
+    /**
+     * Records a latency.
+     * 
+     * @param nanos
+     *            The latency in nanoseconds.
+     */
+    public void record(long nanos) {
+        if (nanos >= 0) {
+            this.buckets.incrementAndGet(getBucket(nanos));
+            this.count.incrementAndGet();
+            this.sum.addAndGet(nanos);
+            long currentMax = this.max.get();
+
+            while ((nanos > currentMax)
+                    && !this.max.compareAndSet(currentMax, nanos)) {
+                currentMax = this.max.get();
+            }
+        }
+    }
+
+    /**
+     * Resets all the recorded latencies.
+     */
+    public void reset() {
+        for (int i = 0; i < BUCKETS; i++) {
+            this.buckets.set(i, 0);
+        }
+
+        this.count.set(0);
+        this.max.set(0);
+        this.sum.set(0);
+    }
+
+    @Override
+    public String toString() {
+        return getCount() + " recorded, " + getMeanMs() + " ms mean, "
+                + getPercentileMs(99) + " ms 99th percentile, " + getMaxMs()
+                + " ms max";
+    }
+
+}
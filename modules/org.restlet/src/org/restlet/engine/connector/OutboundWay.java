@@ -51,6 +51,7 @@ import org.restlet.engine.io.Buffer;
 import org.restlet.engine.io.IoState;
 import org.restlet.engine.io.ReadableChunkingChannel;
 import org.restlet.engine.io.ReadableSizedChannel;
+import org.restlet.engine.io.WritableSocketChannel;
 import org.restlet.engine.util.StringUtils;
 import org.restlet.representation.Representation;
 import org.restlet.service.ConnectorService;
@@ -156,6 +157,22 @@ public abstract class OutboundWay extends Way {
                 && (getMessage() != null);
     }
 
+    /**
+     * Indicates if the entity can be transferred directly from its file
+     * channel to the socket channel, without going through the IO buffer. This
+     * isn't possible when the socket channel is wrapped, for example for
+     * tracing or SSL purpose, or when the entity is chunked.
+     * 
+     * @return True if the entity can be directly transferred.
+     */
+    protected boolean canTransfer() {
+        return (getEntityChannelType() == EntityType.TRANSFERABLE)
+                && (getEntityChannel() instanceof ReadableSizedChannel)
+                && ((ReadableSizedChannel) getEntityChannel())
+                        .isTransferable()
+                && (getConnection().getWritableSelectionChannel() instanceof WritableSocketChannel);
+    }
+
     @Override
     public void clear() {
         super.clear();
@@ -266,6 +283,12 @@ public abstract class OutboundWay extends Way {
 
     @Override
     public void onCompleted(boolean endReached) {
+        if ((getHelper().getMetrics() != null) && (getMessageStartTime() != 0L)) {
+            getHelper().getMetrics().onSent(getConnection(),
+                    System.nanoTime() - getMessageStartTime());
+            setMessageStartTime(0L);
+        }
+
         if (getActualMessage() != null) {
             Representation messageEntity = getActualMessage().getEntity();
 
@@ -333,12 +356,21 @@ public abstract class OutboundWay extends Way {
 
         // Write the message or part of it in the byte
         // buffer
+        int transferred = 0;
+
         if (getMessageState() == MessageState.BODY) {
-            int filled = buffer.fill(getEntityChannel());
+            if (canTransfer()) {
+                // Bypass the buffer once the headers have been written
+                if (buffer.isEmpty()) {
+                    transferred = transfer();
+                }
+            } else {
+                int filled = buffer.fill(getEntityChannel());
 
-            // Detect end of entity reached
-            if (filled == -1) {
-                setMessageState(MessageState.END);
+                // Detect end of entity reached
+                if (filled == -1) {
+                    setMessageState(MessageState.END);
+                }
             }
         } else if (getMessageState() != MessageState.END) {
             // Write the start line or the headers,
@@ -373,7 +405,7 @@ public abstract class OutboundWay extends Way {
             }
         }
 
-        return remaining - buffer.remaining();
+        return transferred + remaining - buffer.remaining();
     }
 
     /**
@@ -467,6 +499,36 @@ public abstract class OutboundWay extends Way {
                 && (entity.getAvailableSize() == Representation.UNKNOWN_SIZE);
     }
 
+    /**
+     * Transfers the entity from its file channel directly to the socket
+     * channel.
+     * 
+     * @return The number of bytes transferred.
+     * @throws IOException
+     */
+    protected int transfer() throws IOException {
+        long result = ((ReadableSizedChannel) getEntityChannel())
+                .transferTo(getConnection().getSocketChannel());
+
+        if (result == -1) {
+            // Detect end of entity reached
+            setMessageState(MessageState.END);
+            result = 0;
+        } else if (result > 0) {
+            getConnection().onActivity();
+
+            if (getHelper().getMetrics() != null) {
+                getHelper().getMetrics().onBytesWritten(result);
+            }
+        }
+
+        if (getLogger().isLoggable(Level.FINER)) {
+            getLogger().log(Level.FINER, result + " bytes transferred");
+        }
+
+        return (int) Math.min(result, Integer.MAX_VALUE);
+    }
+
     @Override
     public void updateState() {
         if (canStart()) {
@@ -495,6 +557,10 @@ public abstract class OutboundWay extends Way {
                                 + getConnection().getSocketAddress());
             }
 
+            if (getHelper().getMetrics() != null) {
+                setMessageStartTime(System.nanoTime());
+            }
+
             writeStartLine();
             setMessageState(MessageState.HEADERS);
             break;
@@ -537,7 +603,9 @@ public abstract class OutboundWay extends Way {
                     ReadableByteChannel rbc = getActualMessage().getEntity()
                             .getChannel();
 
-                    if (rbc instanceof FileChannel) {
+                    if ((rbc instanceof FileChannel)
+                            || ((rbc instanceof ReadableSizedChannel) && ((ReadableSizedChannel) rbc)
+                                    .isTransferable())) {
                         setEntityChannelType(EntityType.TRANSFERABLE);
                     } else if (rbc instanceof BlockableChannel) {
                         BlockableChannel bc = (BlockableChannel) rbc;
@@ -562,6 +630,8 @@ public abstract class OutboundWay extends Way {
                     if (getActualMessage().getEntity().getAvailableSize() == Representation.UNKNOWN_SIZE) {
                         setEntityChannel(new ReadableChunkingChannel(rbc,
                                 getBuffer().capacity()));
+                    } else if (rbc instanceof ReadableSizedChannel) {
+                        setEntityChannel(rbc);
                     } else {
                         setEntityChannel(new ReadableSizedChannel(rbc,
                                 getActualMessage().getEntity()
@@ -107,13 +107,21 @@ public class ServerConnectionController extends ConnectionController {
                     if ((getHelper().getMaxTotalConnections() == -1)
                             || (connectionsCount <= getHelper()
                                     .getMaxTotalConnections())) {
+                        // Spread the connections across the controllers
+                        ConnectionController controller = getHelper()
+                                .getNextController();
                         Connection<Server> connection = getHelper().checkout(
                                 socketChannel,
-                                this,
+                                controller,
                                 (InetSocketAddress) socketChannel.socket()
                                         .getRemoteSocketAddress());
                         connection.open();
                         getHelper().getConnections().add(connection);
+                        controller.attach(connection);
+
+                        if (getHelper().getMetrics() != null) {
+                            getHelper().getMetrics().onAccepted(connection);
+                        }
 
                         if (getHelper().getLogger().isLoggable(Level.FINE)) {
                             getHelper().getLogger().fine(
@@ -126,6 +134,11 @@ public class ServerConnectionController extends ConnectionController {
                     } else {
                         // Rejection connection
                         socketChannel.close();
+
+                        if (getHelper().getMetrics() != null) {
+                            getHelper().getMetrics().onRejected(null);
+                        }
+
                         getHelper()
                                 .getLogger()
                                 .info("Maximum number of concurrent connections reached. New connection rejected.");
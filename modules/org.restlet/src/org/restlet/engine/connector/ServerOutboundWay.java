@@ -154,12 +154,13 @@ public abstract class ServerOutboundWay extends OutboundWay {
     @Override
     public void onCompleted(boolean endDetected) {
         if (getMessage() != null) {
-            // Ensure that the request entity has been fully read
+            // Ensure that the request entity has been fully read, unless the
+            // connection is about to be closed anyway
             Representation requestEntity = getMessage().getRequest()
                     .getEntity();
 
-            if (getMessage().isFinal() && (requestEntity != null)
-                    && requestEntity.isAvailable()) {
+            if (getMessage().isFinal() && getConnection().isPersistent()
+                    && (requestEntity != null) && requestEntity.isAvailable()) {
                 try {
                     if (getLogger().isLoggable(Level.FINE)) {
                         getLogger()
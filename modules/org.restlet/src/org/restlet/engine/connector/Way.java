@@ -40,6 +40,7 @@ import org.restlet.Response;
 import org.restlet.data.Status;
 import org.restlet.engine.header.Header;
 import org.restlet.engine.io.Buffer;
+import org.restlet.engine.io.BufferPool;
 import org.restlet.engine.io.BufferProcessor;
 import org.restlet.engine.io.BufferState;
 import org.restlet.engine.io.CompletionListener;
@@ -78,6 +79,12 @@ public abstract class Way implements SelectionListener, CompletionListener,
     /** The current message exchanged. */
     private volatile Response message;
 
+    /**
+     * The time when the processing of the current message started, in
+     * nanoseconds. Only measured when metrics are collected.
+     */
+    private volatile long messageStartTime;
+
     /** The message state. */
     private volatile MessageState messageState;
 
@@ -94,12 +101,15 @@ public abstract class Way implements SelectionListener, CompletionListener,
      */
     public Way(Connection<?> connection, int bufferSize) {
         this.connection = connection;
-        this.buffer = new Buffer(bufferSize, getHelper().isDirectBuffers());
+        BufferPool pool = getHelper().getBufferPool();
+        this.buffer = (pool == null) ? new Buffer(bufferSize, getHelper()
+                .isDirectBuffers()) : new Buffer(bufferSize, pool);
         this.headers = null;
         this.ioState = IoState.IDLE;
         this.lineBuilder = new StringBuilder();
         this.lineBuilderState = BufferState.IDLE;
         this.message = null;
+        this.messageStartTime = 0L;
         this.messageState = MessageState.IDLE;
         this.registration = new SelectionRegistration(0, this);
     }
@@ -124,10 +134,12 @@ public abstract class Way implements SelectionListener, CompletionListener,
      */
     public void clear() {
         this.buffer.clear();
+        this.buffer.release();
         this.headers = null;
         this.ioState = IoState.IDLE;
         clearLineBuilder();
         this.message = null;
+        this.messageStartTime = 0L;
         this.messageState = MessageState.IDLE;
         this.registration.clear();
     }
@@ -271,6 +283,17 @@ public abstract class Way implements SelectionListener, CompletionListener,
         return message;
     }
 
+    /**
+     * Returns the time when the processing of the current message started, in
+     * nanoseconds. Only measured when metrics are collected.
+     * 
+     * @return The time when the processing of the current message started or
+     *         0 if unknown.
+     */
+    protected long getMessageStartTime() {
+        return messageStartTime;
+    }
+
     /**
      * Returns the message state.
      * 
@@ -335,6 +358,15 @@ public abstract class Way implements SelectionListener, CompletionListener,
         setHeaders(null);
     }
 
+    /**
+     * Callback method invoked when the parent connection becomes idle. By
+     * default, it releases the IO buffer so that its bytes can be reused by
+     * other connections while this one is waiting.
+     */
+    public void onIdle() {
+        getBuffer().release();
+    }
+
     /**
      * Drains the byte buffer by writing available bytes to the socket channel.
      * 
@@ -477,6 +509,7 @@ public abstract class Way implements SelectionListener, CompletionListener,
             }
 
             this.ioState = ioState;
+            getConnection().setDirty(true);
         }
     }
 
@@ -498,6 +531,19 @@ public abstract class Way implements SelectionListener, CompletionListener,
      */
     protected void setMessage(Response message) {
         this.message = message;
+        getConnection().setDirty(true);
+    }
+
+    /**
+     * Sets the time when the processing of the current message started, in
+     * nanoseconds.
+     * 
+     * @param messageStartTime
+     *            The time when the processing of the current message started
+     *            or 0 if unknown.
+     */
+    protected void setMessageStartTime(long messageStartTime) {
+        this.messageStartTime = messageStartTime;
     }
 
     /**
@@ -509,6 +555,7 @@ public abstract class Way implements SelectionListener, CompletionListener,
     protected void setMessageState(MessageState messageState) {
         if (this.messageState != messageState) {
             this.messageState = messageState;
+            getConnection().setDirty(true);
 
             if (getLogger().isLoggable(Level.FINEST)) {
                 if (this instanceof OutboundWay) {
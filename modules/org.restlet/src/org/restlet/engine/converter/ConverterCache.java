@@ -0,0 +1,329 @@
+/**
+ * Copyright 2005-2011 Noelios Technologies.
+ * 
+ * The contents of this file are subject to the terms of one of the following
+ * open source licenses: LGPL 3.0 or LGPL 2.1 or CDDL 1.0 or EPL 1.0 (the
+ * "Licenses"). You can select the license that you prefer but you may not use
+ * this file except in compliance with one of these Licenses.
+ * 
+ * You can obtain a copy of the LGPL 3.0 license at
+ * http://www.opensource.org/licenses/lgpl-3.0.html
+ * 
+ * You can obtain a copy of the LGPL 2.1 license at
+ * http://www.opensource.org/licenses/lgpl-2.1.php
+ * 
+ * You can obtain a copy of the CDDL 1.0 license at
+ * http://www.opensource.org/licenses/cddl1.php
+ * 
+ * You can obtain a copy of the EPL 1.0 license at
+ * http://www.opensource.org/licenses/eclipse-1.0.php
+ * 
+ * See the Licenses for the specific language governing permissions and
+ * limitations under the Licenses.
+ * 
+ * Alternatively, you can obtain a royalty free commercial license with less
+ * limitations, transferable or non-transferable, directly at
+ * http://www.noelios.com/products/restlet-engine
+ * 
+ * Restlet is a registered trademark of Noelios Technologies.
+ */
+
+package org.restlet.engine.converter;
+
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.restlet.data.Metadata;
+import org.restlet.engine.Engine;
+import org.restlet.representation.Variant;
+
+/**
+ * Cache of the converter resolutions made by {@link ConverterUtils}. The
+ * converter helpers score the conversions based on the class of the source
+ * object or representation, the target class and the target or source
+ * variant metadata, so those are used as keys. The cache is cleared when the
+ * converters registered with the current engine change, or when it reaches
+ * its maximum size.
+ * 
+ * @author Jerome Louvel
+ */
+public class ConverterCache {
+
+    /** Key of a converter resolution. */
+    private static final class Key {
+
+        /** The kind of resolution. */
+        private final int kind;
+
+        /** The source class. */
+        private final Class<?> source;
+
+        /** The target class or variant signature, or null. */
+        private final Object target;
+
+        /**
+         * Constructor.
+         * 
+         * @param kind
+         *            The kind of resolution.
+         * @param source
+         *            The source class.
+         * @param target
+         *            The target class or variant signature, or null.
+         */
+        private Key(int kind, Class<?> source, Object target) {
+            this.kind = kind;
+            this.source = source;
+            this.target = target;
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            if (!(other instanceof Key)) {
+                return false;
+            }
+
+            Key that = (Key) other;
+            return (this.kind == that.kind)
+                    && (this.source == that.source)
+                    && ((this.target == null) ? (that.target == null)
+                            : this.target.equals(that.target));
+        }
+
+        @Override
+        public int hashCode() {
+            int result = 31 * this.kind + this.source.hashCode();
+            return 31 * result
+                    + ((this.target == null) ? 0 : this.target.hashCode());
+        }
+    }
+
+    /** Value cached for resolutions that found nothing. */
+    private static final Object NONE = new Object();
+
+    /**
+     * Appends the name of a metadata to a signature.
+     * 
+     * @param sb
+     *            The signature to update.
+     * @param metadata
+     *            The metadata or null.
+     */
+    private static void append(StringBuilder sb, Metadata metadata) {
+        if (metadata != null) {
+            sb.append(metadata.getName());
+        }
+
+        sb.append(',');
+    }
+
+    /**
+     * Returns a key for a converter resolution.
+     * 
+     * @param kind
+     *            The kind of resolution.
+     * @param source
+     *            The source class.
+     * @param target
+     *            The target class or null.
+     * @param variant
+     *            The target or source variant or null.
+     * @return The key.
+     */
+    public static Object getKey(int kind, Class<?> source, Class<?> target,
+            Variant variant) {
+        if (variant == null) {
+            return new Key(kind, source, target);
+        }
+
+        StringBuilder sb = new StringBuilder();
+
+        if (target != null) {
+            sb.append(target.getName());
+        }
+
+        sb.append('|');
+        append(sb, variant.getMediaType());
+        append(sb, variant.getCharacterSet());
+
+        for (Metadata language : variant.getLanguages()) {
+            append(sb, language);
+        }
+
+        sb.append('|');
+
+        for (Metadata encoding : variant.getEncodings()) {
+            append(sb, encoding);
+        }
+
+        return new Key(kind, source, sb.toString());
+    }
+
+    /** The converters registered when the entries were cached. */
+    private volatile ConverterHelper[] converters;
+
+    /** The cached resolutions. */
+    private final ConcurrentMap<Object, Object> entries;
+
+    /** The number of lookups that found a cached resolution. */
+    private final AtomicLong hits;
+
+    /** The maximum number of entries. */
+    private final int maxSize;
+
+    /** The number of lookups that found no cached resolution. */
+    private final AtomicLong misses;
+
+    /**
+     * Constructor.
+     * 
+     * @param maxSize
+     *            The maximum number of entries.
+     */
+    public ConverterCache(int maxSize) {
+        this.converters = new ConverterHelper[0];
+        this.entries = new ConcurrentHashMap<Object, Object>();
+        this.hits = new AtomicLong();
+        this.maxSize = maxSize;
+        this.misses = new AtomicLong();
+    }
+
+    /**
+     * Clears the cached resolutions.
+     */
+    public void clear() {
+        this.entries.clear();
+    }
+
+    /**
+     * Returns the cached resolution for a key. The cache is first cleared if
+     * the registered converters changed.
+     * 
+     * @param key
+     *            The key returned by
+     *            {@link #getKey(int, Class, Class, Variant)}.
+     * @return The cached resolution, {@link #isNone(Object)} being true for
+     *         resolutions that found nothing, or null if none is cached.
+     */
+    public Object get(Object key) {
+        validate();
+        Object result = this.entries.get(key);
+
+        if (result == null) {
+            this.misses.incrementAndGet();
+        } else {
+            this.hits.incrementAndGet();
+        }
+
+        return result;
+    }
+
+    /**
+     * Returns the number of lookups that found a cached resolution.
+     * 
+     * @return The number of lookups that found a cached resolution.
+     */
+    public long getHits() {
+        return this.hits.get();
+    }
+
+    /**
+     * Returns the maximum number of entries.
+     * 
+     * @return The maximum number of entries.
+     */
+    public int getMaxSize() {
+        return this.maxSize;
+    }
+
+    /**
+     * Returns the number of lookups that found no cached resolution.
+     * 
+     * @return The number of lookups that found no cached resolution.
+     */
+    public long getMisses() {
+        return this.misses.get();
+    }
+
+    /**
+     * Indicates if a cached resolution found nothing.
+     * 
+     * @param value
+     *            The cached resolution.
+     * @return True if the cached resolution found nothing.
+     */
+    public boolean isNone(Object value) {
+        return value == NONE;
+    }
+
+    /**
+     * Caches a resolution, unless the registered converters changed since the
+     * last lookup.
+     * 
+     * @param key
+     *            The key returned by
+     *            {@link #getKey(int, Class, Class, Variant)}.
+     * @param value
+     *            The resolution or null if nothing was found.
+     */
+    public void put(Object key, Object value) {
+        if (validate()) {
+            if (this.entries.size() >= this.maxSize) {
+                this.entries.clear();
+            }
+
+            this.entries.put(key, (value == null) ? NONE : value);
+        }
+    }
+
+    /**
+     * Returns the number of cached resolutions.
+     * 
+     * @return The number of cached resolutions.
+     */
+    public int size() {
+        return this.entries.size();
+    }
+
+    @Override
+    public String toString() {
+        return "ConverterCache [" + size() + "/" + getMaxSize()
+                + " entries, " + getHits() + " hits, " + getMisses()
+                + " misses]";
+    }
+
+    /**
+     * Clears the cached resolutions if the converters registered with the
+     * current engine changed since they were cached.
+     * 
+     * @return True if the registered converters didn't change.
+     */
+    private boolean validate() {
+        List<ConverterHelper> registered = Engine.getInstance()
+                .getRegisteredConverters();
+        ConverterHelper[] cached = this.converters;
+        boolean current = true;
+        int i = 0;
+
+        for (ConverterHelper helper : registered) {
+            if ((i >= cached.length) || (cached[i++] != helper)) {
+                current = false;
+                break;
+            }
+        }
+
+        if (!current || (i != cached.length)) {
+            synchronized (this) {
+                this.entries.clear();
+                this.converters = registered.toArray(new ConverterHelper[0]);
+            }
+
+            return false;
+        }
+
+        return true;
+    }
+
+}
@@ -48,6 +48,18 @@ import org.restlet.resource.Resource;
  */
 public class ConverterUtils {
 
+    /** The cache of converter resolutions. */
+    private static final ConverterCache cache = new ConverterCache(1000);
+
+    /** Resolution kind of the best helper converting a representation. */
+    private static final int TO_OBJECT = 1;
+
+    /** Resolution kind of the best helper converting an object. */
+    private static final int TO_REPRESENTATION = 2;
+
+    /** Resolution kind of the variants converted from a class. */
+    private static final int VARIANTS = 3;
+
     /**
      * Adds a variant to the given list.
      * 
@@ -72,9 +84,80 @@ public class ConverterUtils {
         return result;
     }
 
+    /**
+     * Returns the best converter helper matching the given parameters, by
+     * scoring all the registered converters.
+     * 
+     * @param source
+     *            The object to convert to a representation.
+     * @param target
+     *            The target representation variant.
+     * @param resource
+     *            The optional parent resource.
+     * @return The matched converter helper or null.
+     */
+    private static ConverterHelper findBestHelper(Object source,
+            Variant target, Resource resource) {
+        ConverterHelper result = null;
+        float bestScore = -1.0F;
+        float currentScore;
+
+        for (ConverterHelper ch : Engine.getInstance()
+                .getRegisteredConverters()) {
+            try {
+                currentScore = ch.score(source, target, resource);
+
+                if (currentScore > bestScore) {
+                    bestScore = currentScore;
+                    result = ch;
+                }
+            } catch (Exception e) {
+                Context.getCurrentLogger().log(
+                        Level.SEVERE,
+                        "Unable get the score of the " + ch
+                                + " converter helper.", e);
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * Returns the best converter helper matching the given parameters, by
+     * scoring all the registered converters.
+     * 
+     * @param <T>
+     *            The target class.
+     * @param source
+     *            The source representation variant.
+     * @param target
+     *            The target class.
+     * @param resource
+     *            The parent resource.
+     * @return The matched converter helper or null.
+     */
+    private static <T> ConverterHelper findBestHelper(Representation source,
+            Class<T> target, Resource resource) {
+        ConverterHelper result = null;
+        float bestScore = -1.0F;
+        float currentScore;
+
+        for (ConverterHelper ch : Engine.getInstance()
+                .getRegisteredConverters()) {
+            currentScore = ch.score(source, target, resource);
+
+            if (currentScore > bestScore) {
+                bestScore = currentScore;
+                result = ch;
+            }
+        }
+
+        return result;
+    }
+
     /**
      * Returns the list of variants that can be converted from a given object
-     * class.
+     * class, by asking all the registered converters.
      * 
      * @param sourceClass
      *            The source class.
@@ -82,7 +165,7 @@ public class ConverterUtils {
      *            The expected representation metadata.
      * @return The list of variants that can be converted.
      */
-    public static List<VariantInfo> getVariants(Class<?> sourceClass,
+    private static List<VariantInfo> findVariants(Class<?> sourceClass,
             Variant targetVariant) {
         List<VariantInfo> result = null;
         List<VariantInfo> helperVariants = null;
@@ -115,7 +198,8 @@ public class ConverterUtils {
     }
 
     /**
-     * Returns the best converter helper matching the given parameters.
+     * Returns the best converter helper matching the given parameters. The
+     * resolution is cached by source class and target variant metadata.
      * 
      * @param source
      *            The object to convert to a representation.
@@ -127,32 +211,27 @@ public class ConverterUtils {
      */
     public static ConverterHelper getBestHelper(Object source, Variant target,
             Resource resource) {
-        ConverterHelper result = null;
-        float bestScore = -1.0F;
-        float currentScore;
+        if (source == null) {
+            return findBestHelper(source, target, resource);
+        }
 
-        for (ConverterHelper ch : Engine.getInstance()
-                .getRegisteredConverters()) {
-            try {
-                currentScore = ch.score(source, target, resource);
+        Object key = ConverterCache.getKey(TO_REPRESENTATION,
+                source.getClass(), null, target);
+        Object result = cache.get(key);
 
-                if (currentScore > bestScore) {
-                    bestScore = currentScore;
-                    result = ch;
-                }
-            } catch (Exception e) {
-                Context.getCurrentLogger().log(
-                        Level.SEVERE,
-                        "Unable get the score of the " + ch
-                                + " converter helper.", e);
-            }
+        if (result == null) {
+            result = findBestHelper(source, target, resource);
+            cache.put(key, result);
+        } else if (cache.isNone(result)) {
+            result = null;
         }
 
-        return result;
+        return (ConverterHelper) result;
     }
 
     /**
-     * Returns the best converter helper matching the given parameters.
+     * Returns the best converter helper matching the given parameters. The
+     * resolution is cached by source class and metadata and by target class.
      * 
      * @param <T>
      *            The target class.
@@ -166,21 +245,65 @@ public class ConverterUtils {
      */
     public static <T> ConverterHelper getBestHelper(Representation source,
             Class<T> target, Resource resource) {
-        ConverterHelper result = null;
-        float bestScore = -1.0F;
-        float currentScore;
+        if (source == null) {
+            return findBestHelper(source, target, resource);
+        }
 
-        for (ConverterHelper ch : Engine.getInstance()
-                .getRegisteredConverters()) {
-            currentScore = ch.score(source, target, resource);
+        Object key = ConverterCache.getKey(TO_OBJECT, source.getClass(),
+                target, source);
+        Object result = cache.get(key);
 
-            if (currentScore > bestScore) {
-                bestScore = currentScore;
-                result = ch;
-            }
+        if (result == null) {
+            result = findBestHelper(source, target, resource);
+            cache.put(key, result);
+        } else if (cache.isNone(result)) {
+            result = null;
         }
 
-        return result;
+        return (ConverterHelper) result;
+    }
+
+    /**
+     * Returns the cache of converter resolutions.
+     * 
+     * @return The cache of converter resolutions.
+     */
+    public static ConverterCache getCache() {
+        return cache;
+    }
+
+    /**
+     * Returns the list of variants that can be converted from a given object
+     * class. The resolution is cached by source class and target variant
+     * metadata.
+     * 
+     * @param sourceClass
+     *            The source class.
+     * @param targetVariant
+     *            The expected representation metadata.
+     * @return The list of variants that can be converted.
+     */
+    @SuppressWarnings("unchecked")
+    public static List<VariantInfo> getVariants(Class<?> sourceClass,
+            Variant targetVariant) {
+        if (sourceClass == null) {
+            return findVariants(sourceClass, targetVariant);
+        }
+
+        Object key = ConverterCache.getKey(VARIANTS, sourceClass, null,
+                targetVariant);
+        Object result = cache.get(key);
+
+        if (result == null) {
+            result = findVariants(sourceClass, targetVariant);
+            cache.put(key, result);
+        } else if (cache.isNone(result)) {
+            result = null;
+        }
+
+        // Return a copy as the list is modifiable
+        return (result == null) ? null : new ArrayList<VariantInfo>(
+                (List<VariantInfo>) result);
     }
 
     /**
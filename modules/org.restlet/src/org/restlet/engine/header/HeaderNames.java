@@ -0,0 +1,198 @@
+/**
+ * Copyright 2005-2011 Noelios Technologies.
+ * 
+ * The contents of this file are subject to the terms of one of the following
+ * open source licenses: LGPL 3.0 or LGPL 2.1 or CDDL 1.0 or EPL 1.0 (the
+ * "Licenses"). You can select the license that you prefer but you may not use
+ * this file except in compliance with one of these Licenses.
+ * 
+ * You can obtain a copy of the LGPL 3.0 license at
+ * http://www.opensource.org/licenses/lgpl-3.0.html
+ * 
+ * You can obtain a copy of the LGPL 2.1 license at
+ * http://www.opensource.org/licenses/lgpl-2.1.php
+ * 
+ * You can obtain a copy of the CDDL 1.0 license at
+ * http://www.opensource.org/licenses/cddl1.php
+ * 
+ * You can obtain a copy of the EPL 1.0 license at
+ * http://www.opensource.org/licenses/eclipse-1.0.php
+ * 
+ * See the Licenses for the specific language governing permissions and
+ * limitations under the Licenses.
+ * 
+ * Alternatively, you can obtain a royalty free commercial license with less
+ * limitations, transferable or non-transferable, directly at
+ * http://www.noelios.com/products/restlet-engine
+ * 
+ * Restlet is a registered trademark of Noelios Technologies.
+ */
+
+package org.restlet.engine.header;
+
+/**
+ * Table of the well-known HTTP header names, used to reuse the constant names
+ * of {@link HeaderConstants} instead of allocating a new string for each
+ * header line parsed. The table relies on a perfect hash computed when the
+ * class is loaded, so that a lookup costs a single hash computation and at
+ * most one comparison.
+ * 
+ * @author Jerome Louvel
+ */
+public final class HeaderNames {
+
+    /** The well-known header names. */
+    private static final String[] NAMES = { HeaderConstants.HEADER_ACCEPT,
+            HeaderConstants.HEADER_ACCEPT_CHARSET,
+            HeaderConstants.HEADER_ACCEPT_ENCODING,
+            HeaderConstants.HEADER_ACCEPT_LANGUAGE,
+            HeaderConstants.HEADER_ACCEPT_RANGES, HeaderConstants.HEADER_AGE,
+            HeaderConstants.HEADER_ALLOW,
+            HeaderConstants.HEADER_AUTHENTICATION_INFO,
+            HeaderConstants.HEADER_AUTHORIZATION,
+            HeaderConstants.HEADER_CACHE_CONTROL,
+            HeaderConstants.HEADER_CONNECTION,
+            HeaderConstants.HEADER_CONTENT_DISPOSITION,
+            HeaderConstants.HEADER_CONTENT_ENCODING,
+            HeaderConstants.HEADER_CONTENT_LANGUAGE,
+            HeaderConstants.HEADER_CONTENT_LENGTH,
+            HeaderConstants.HEADER_CONTENT_LOCATION,
+            HeaderConstants.HEADER_CONTENT_MD5,
+            HeaderConstants.HEADER_CONTENT_RANGE,
+            HeaderConstants.HEADER_CONTENT_TYPE, HeaderConstants.HEADER_COOKIE,
+            HeaderConstants.HEADER_DATE, HeaderConstants.HEADER_ETAG,
+            HeaderConstants.HEADER_EXPECT, HeaderConstants.HEADER_EXPIRES,
+            HeaderConstants.HEADER_FROM, HeaderConstants.HEADER_HOST,
+            HeaderConstants.HEADER_IF_MATCH,
+            HeaderConstants.HEADER_IF_MODIFIED_SINCE,
+            HeaderConstants.HEADER_IF_NONE_MATCH,
+            HeaderConstants.HEADER_IF_RANGE,
+            HeaderConstants.HEADER_IF_UNMODIFIED_SINCE,
+            HeaderConstants.HEADER_LAST_MODIFIED,
+            HeaderConstants.HEADER_LOCATION,
+            HeaderConstants.HEADER_MAX_FORWARDS,
+            HeaderConstants.HEADER_PRAGMA,
+            HeaderConstants.HEADER_PROXY_AUTHENTICATE,
+            HeaderConstants.HEADER_PROXY_AUTHORIZATION,
+            HeaderConstants.HEADER_RANGE, HeaderConstants.HEADER_REFERRER,
+            HeaderConstants.HEADER_RETRY_AFTER, HeaderConstants.HEADER_SERVER,
+            HeaderConstants.HEADER_SET_COOKIE,
+            HeaderConstants.HEADER_SET_COOKIE2, HeaderConstants.HEADER_SLUG,
+            HeaderConstants.HEADER_TRAILER,
+            HeaderConstants.HEADER_TRANSFER_ENCODING,
+            HeaderConstants.HEADER_TRANSFER_EXTENSION,
+            HeaderConstants.HEADER_UPGRADE,
+            HeaderConstants.HEADER_USER_AGENT, HeaderConstants.HEADER_VARY,
+            HeaderConstants.HEADER_VIA, HeaderConstants.HEADER_WARNING,
+            HeaderConstants.HEADER_WWW_AUTHENTICATE,
+            HeaderConstants.HEADER_X_FORWARDED_FOR,
+            HeaderConstants.HEADER_X_HTTP_METHOD_OVERRIDE };
+
+    /** The hash multiplier, chosen so that the names don't collide. */
+    private static final int SEED;
+
+    /** The hash table of names, indexed by their perfect hash. */
+    private static final String[] TABLE;
+
+    static {
+        int seed = 0;
+        String[] table = null;
+
+        // Search for the first multiplier and the smallest table size
+        // without collision between the well-known names.
+        for (int size = 64; (table == null); size <<= 1) {
+            for (seed = 31; (table == null) && (seed < 1024); seed += 2) {
+                table = new String[size];
+
+                for (int i = 0; (table != null) && (i < NAMES.length); i++) {
+                    int index = hash(NAMES[i], 0, NAMES[i].length(), seed)
+                            & (size - 1);
+
+                    if (table[index] == null) {
+                        table[index] = NAMES[i];
+                    } else {
+                        table = null;
+                    }
+                }
+            }
+        }
+
+        SEED = seed - 2;
+        TABLE = table;
+    }
+
+    /**
+     * Returns the well-known header name matching exactly the given range of
+     * characters, or null if the name isn't well-known. Names with a different
+     * case aren't considered to match, in order to preserve the received
+     * names.
+     * 
+     * @param source
+     *            The characters to look into.
+     * @param start
+     *            The start index, inclusive.
+     * @param end
+     *            The end index, exclusive.
+     * @return The well-known header name or null.
+     */
+    public static String get(CharSequence source, int start, int end) {
+        String result = TABLE[hash(source, start, end, SEED)
+                & (TABLE.length - 1)];
+
+        if ((result != null) && (result.length() == end - start)) {
+            for (int i = 0; (result != null) && (i < result.length()); i++) {
+                if (result.charAt(i) != source.charAt(start + i)) {
+                    result = null;
+                }
+            }
+        } else {
+            result = null;
+        }
+
+        return result;
+    }
+
+    /**
+     * Returns the well-known header name matching exactly the given name, or
+     * the given name itself.
+     * 
+     * @param name
+     *            The header name.
+     * @return The well-known header name or the given name.
+     */
+    public static String get(String name) {
+        String result = (name == null) ? null : get(name, 0, name.length());
+        return (result == null) ? name : result;
+    }
+
+    /**
+     * Computes the case insensitive hash of a range of characters.
+     * 
+     * @param source
+     *            The characters to hash.
+     * @param start
+     *            The start index, inclusive.
+     * @param end
+     *            The end index, exclusive.
+     * @param seed
+     *            The hash multiplier.
+     * @return The hash.
+     */
+    private static int hash(CharSequence source, int start, int end, int seed) {
+        int result = end - start;
+
+        for (int i = start; i < end; i++) {
+            result = (result * seed) + (source.charAt(i) | 0x20);
+        }
+
+        return result ^ (result >>> 16);
+    }
+
+    /**
+     * Private constructor to ensure that the class acts as a true utility
+     * class i.e. it isn't instantiable and extensible.
+     */
+    private HeaderNames() {
+    }
+
+}
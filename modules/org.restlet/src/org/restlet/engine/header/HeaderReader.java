@@ -176,7 +176,9 @@ public class HeaderReader<V> {
                             "Unable to parse the header name. End of line reached too early.");
                 }
 
-                result.setName(header.subSequence(start, index - 1).toString());
+                String name = HeaderNames.get(header, start, index - 1);
+                result.setName((name == null) ? header.subSequence(start,
+                        index - 1).toString() : name);
                 next = header.charAt(index++);
 
                 while (isSpace(next)) {
@@ -233,7 +235,8 @@ public class HeaderReader<V> {
                         "Unable to parse the header name. End of stream reached too early.");
             }
 
-            result.setName(sb.toString());
+            String name = HeaderNames.get(sb, 0, sb.length());
+            result.setName((name == null) ? sb.toString() : name);
             sb.delete(0, sb.length());
             next = is.read();
 
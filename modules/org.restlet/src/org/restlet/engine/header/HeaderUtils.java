@@ -841,7 +841,9 @@ public class HeaderUtils {
 
         if (headers != null) {
             // Extract the content length header
-            for (Header header : headers) {
+            for (int i = 0; i < headers.size(); i++) {
+                Header header = headers.get(i);
+
                 if (header.getName().equalsIgnoreCase(
                         HeaderConstants.HEADER_CONTENT_LENGTH)) {
                     try {
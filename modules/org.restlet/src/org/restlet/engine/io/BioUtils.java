@@ -331,17 +331,28 @@ public final class BioUtils {
             // writing the representation into the input side of the pipe
             Runnable task = new Runnable() {
                 public void run() {
+                    java.io.OutputStream os = pipe.getOutputStream();
+
                     try {
-                        java.io.OutputStream os = pipe.getOutputStream();
                         representation.write(os);
-                        os.write(-1);
                         os.flush();
+
+                        // Signals the end of the stream to the reader
                         os.close();
                     } catch (IOException ioe) {
                         Context.getCurrentLogger()
                                 .log(Level.FINE,
                                         "Error while writing to the piped input stream.",
                                         ioe);
+
+                        // Signals the error to the reader
+                        pipe.fail(ioe);
+                    } catch (RuntimeException re) {
+                        IOException ioe = new IOException(
+                                "Unable to write the representation");
+                        ioe.initCause(re);
+                        pipe.fail(ioe);
+                        throw re;
                     }
                 }
             };
@@ -67,8 +67,20 @@ public class Buffer {
 		return result;
 	}
 
-	/** The byte buffer. */
-	private final ByteBuffer bytes;
+	/** The byte buffer or null if not borrowed from the pool yet. */
+	private volatile ByteBuffer bytes;
+
+	/** The lock protecting the byte buffer. */
+	private final Object lock;
+
+	/** The optional pool to borrow the byte buffer from. */
+	private final BufferPool pool;
+
+	/** The byte buffer borrowed from the pool, possibly larger than needed. */
+	private volatile ByteBuffer pooledBytes;
+
+	/** The byte buffer size. */
+	private final int size;
 
 	/** The index of the buffer's beginning while filling. */
 	private volatile int fillBegin;
@@ -98,9 +110,32 @@ public class Buffer {
 		super();
 		this.fillBegin = 0;
 		this.bytes = byteBuffer;
+		this.lock = new Object();
+		this.pool = null;
+		this.size = byteBuffer.capacity();
 		this.state = byteBufferState;
 	}
 
+	/**
+	 * Constructor. The byte buffer is only borrowed from the pool when bytes
+	 * need to be filled or drained and can be returned using the
+	 * {@link #release()} method.
+	 * 
+	 * @param bufferSize
+	 *            The byte buffer size.
+	 * @param pool
+	 *            The pool to borrow the byte buffer from.
+	 */
+	public Buffer(int bufferSize, BufferPool pool) {
+		super();
+		this.fillBegin = 0;
+		this.bytes = null;
+		this.lock = new Object();
+		this.pool = pool;
+		this.size = bufferSize;
+		this.state = BufferState.FILLING;
+	}
+
 	/**
 	 * Constructor. Allocates a new non-direct byte buffer.
 	 * 
@@ -178,15 +213,20 @@ public class Buffer {
 	 * @return The maximum capacity of this buffer.
 	 */
 	public final int capacity() {
-		return getBytes().capacity();
+		return this.size;
 	}
 
 	/**
 	 * Recycles the buffer so it can be reused.
 	 */
 	public void clear() {
+		ByteBuffer byteBuffer = this.bytes;
 		this.fillBegin = 0;
-		this.bytes.clear();
+
+		if (byteBuffer != null) {
+			byteBuffer.clear();
+		}
+
 		this.state = BufferState.FILLING;
 	}
 
@@ -291,6 +331,21 @@ public class Buffer {
 			builderState = BufferState.FILLING;
 		}
 
+		if ((builderState == BufferState.FILLING) && getBytes().hasArray()) {
+			// Scan the backing array directly up to the end of line
+			byte[] array = getBytes().array();
+			int offset = getBytes().arrayOffset();
+			int index = offset + getBytes().position();
+			int limit = offset + getBytes().limit();
+
+			while ((index < limit)
+					&& !HeaderUtils.isCarriageReturn(array[index])) {
+				lineBuilder.append((char) array[index++]);
+			}
+
+			getBytes().position(index - offset);
+		}
+
 		while ((builderState != BufferState.DRAINING)
 				&& getBytes().hasRemaining()) {
 			next = (int) getBytes().get();
@@ -424,12 +479,33 @@ public class Buffer {
 	}
 
 	/**
-	 * Returns the byte buffer.
+	 * Returns the byte buffer. Borrows it from the pool if necessary.
 	 * 
 	 * @return The byte buffer.
 	 */
 	public ByteBuffer getBytes() {
-		return bytes;
+		ByteBuffer result = this.bytes;
+
+		if (result == null) {
+			synchronized (getLock()) {
+				result = this.bytes;
+
+				if (result == null) {
+					this.pooledBytes = this.pool.checkout(this.size);
+
+					if (this.pooledBytes.capacity() == this.size) {
+						result = this.pooledBytes;
+					} else {
+						this.pooledBytes.limit(this.size);
+						result = this.pooledBytes.slice();
+					}
+
+					this.bytes = result;
+				}
+			}
+		}
+
+		return result;
 	}
 
 	/**
@@ -439,7 +515,7 @@ public class Buffer {
 	 * @return The lock on which multiple thread can synchronize.
 	 */
 	public Object getLock() {
-		return this.bytes;
+		return this.lock;
 	}
 
 	/**
@@ -457,7 +533,17 @@ public class Buffer {
 	 * @return True if the buffer has remaining bytes to be read or written.
 	 */
 	public final boolean hasRemaining() {
-		return getBytes().hasRemaining();
+		return isAllocated() ? getBytes().hasRemaining() : (this.size > 0);
+	}
+
+	/**
+	 * Indicates if the byte buffer is allocated. Returns false if it is not
+	 * borrowed from the pool, in which case the buffer is empty and filling.
+	 * 
+	 * @return True if the byte buffer is allocated.
+	 */
+	public boolean isAllocated() {
+		return this.bytes != null;
 	}
 
 	/**
@@ -477,7 +563,8 @@ public class Buffer {
 	 * @return True if the buffer is empty.
 	 */
 	public boolean isEmpty() {
-		return isFilling() ? (capacity() == remaining()) : !hasRemaining();
+		return !isAllocated()
+				|| (isFilling() ? (capacity() == remaining()) : !hasRemaining());
 	}
 
 	/**
@@ -672,7 +759,33 @@ public class Buffer {
 	 * @return The number of bytes that can be read or written.
 	 */
 	public final int remaining() {
-		return getBytes().remaining();
+		return isAllocated() ? getBytes().remaining() : this.size;
+	}
+
+	/**
+	 * Returns the byte buffer to the pool if the buffer is pooled and empty.
+	 * It will be borrowed again when bytes need to be filled or drained.
+	 * 
+	 * @return True if the byte buffer was returned to the pool.
+	 */
+	public boolean release() {
+		boolean result = false;
+
+		if ((this.pool != null) && isAllocated()) {
+			synchronized (getLock()) {
+				if (isAllocated() && isEmpty()) {
+					ByteBuffer byteBuffer = this.pooledBytes;
+					this.bytes = null;
+					this.pooledBytes = null;
+					this.fillBegin = 0;
+					this.state = BufferState.FILLING;
+					this.pool.checkin(byteBuffer);
+					result = true;
+				}
+			}
+		}
+
+		return result;
 	}
 
 	/**
@@ -687,7 +800,8 @@ public class Buffer {
 
 	@Override
 	public String toString() {
-		return getBytes().toString() + ", " + getState() + ", " + isEmpty();
+		return (isAllocated() ? getBytes().toString() : "Unallocated buffer")
+				+ ", " + getState() + ", " + isEmpty();
 	}
 
 }
@@ -0,0 +1,289 @@
+/**
+ * Copyright 2005-2011 Noelios Technologies.
+ * 
+ * The contents of this file are subject to the terms of one of the following
+ * open source licenses: LGPL 3.0 or LGPL 2.1 or CDDL 1.0 or EPL 1.0 (the
+ * "Licenses"). You can select the license that you prefer but you may not use
+ * this file except in compliance with one of these Licenses.
+ * 
+ * You can obtain a copy of the LGPL 3.0 license at
+ * http://www.opensource.org/licenses/lgpl-3.0.html
+ * 
+ * You can obtain a copy of the LGPL 2.1 license at
+ * http://www.opensource.org/licenses/lgpl-2.1.php
+ * 
+ * You can obtain a copy of the CDDL 1.0 license at
+ * http://www.opensource.org/licenses/cddl1.php
+ * 
+ * You can obtain a copy of the EPL 1.0 license at
+ * http://www.opensource.org/licenses/eclipse-1.0.php
+ * 
+ * See the Licenses for the specific language governing permissions and
+ * limitations under the Licenses.
+ * 
+ * Alternatively, you can obtain a royalty free commercial license with less
+ * limitations, transferable or non-transferable, directly at
+ * http://www.noelios.com/products/restlet-engine
+ * 
+ * Restlet is a registered trademark of Noelios Technologies.
+ */
+
+package org.restlet.engine.io;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.restlet.engine.util.Pool;
+
+/**
+ * Pool of byte buffers shared by the IO buffers of a connector. Byte buffers
+ * are organized in power-of-two size classes, each class carving its byte
+ * buffers out of larger slabs in order to limit the number of allocations,
+ * which are especially costly for direct buffers. Byte buffers larger than the
+ * biggest size class are allocated on demand and not retained.<br>
+ * <br>
+ * Each byte buffer is owned by a single {@link Buffer} between its checkout
+ * and its checkin, so the pool only needs to account for the checked-out
+ * bytes.
+ * 
+ * @author Jerome Louvel
+ */
+public class BufferPool {
+
+    /**
+     * Pool of byte buffers of the same size class.
+     */
+    private class SizeClass extends Pool<ByteBuffer> {
+
+        /** The size of the byte buffers. */
+        private final int chunkSize;
+
+        /**
+         * Constructor.
+         * 
+         * @param chunkSize
+         *            The size of the byte buffers.
+         */
+        public SizeClass(int chunkSize) {
+            this.chunkSize = chunkSize;
+        }
+
+        @Override
+        protected void clear(ByteBuffer object) {
+            object.clear();
+        }
+
+        /**
+         * Allocates a new slab and slices it into byte buffers. The first one
+         * is returned and the other ones are added to the store.
+         */
+        @Override
+        protected ByteBuffer createObject() {
+            int count = Math.max(1, getSlabSize() / this.chunkSize);
+            ByteBuffer slab = allocate(count * this.chunkSize);
+            ByteBuffer result = null;
+
+            for (int i = 0; i < count; i++) {
+                slab.limit((i + 1) * this.chunkSize);
+                slab.position(i * this.chunkSize);
+
+                if (result == null) {
+                    result = slab.slice();
+                } else {
+                    getStore().offer(slab.slice());
+                }
+            }
+
+            return result;
+        }
+    }
+
+    /** The binary logarithm of the smallest size class. */
+    private static final int MIN_SHIFT = 10;
+
+    /** The binary logarithm of the biggest size class. */
+    private static final int MAX_SHIFT = 20;
+
+    /** The number of bytes allocated so far. */
+    private final AtomicLong allocatedBytes;
+
+    /** The number of bytes currently checked out. */
+    private final AtomicLong bytesInUse;
+
+    /** Indicates if direct NIO buffers are allocated. */
+    private final boolean direct;
+
+    /** The highest number of bytes checked out at the same time. */
+    private final AtomicLong maxBytesInUse;
+
+    /** The number of checkouts that required a new allocation. */
+    private final AtomicLong misses;
+
+    /** The size classes, indexed by binary logarithm minus the minimum one. */
+    private final SizeClass[] sizeClasses;
+
+    /** The size of the slabs carved into byte buffers. */
+    private final int slabSize;
+
+    /**
+     * Constructor. Uses slabs of 256 KB.
+     * 
+     * @param direct
+     *            Indicates if direct NIO buffers are allocated.
+     */
+    public BufferPool(boolean direct) {
+        this(direct, 256 * 1024);
+    }
+
+    /**
+     * Constructor.
+     * 
+     * @param direct
+     *            Indicates if direct NIO buffers are allocated.
+     * @param slabSize
+     *            The size of the slabs carved into byte buffers.
+     */
+    public BufferPool(boolean direct, int slabSize) {
+        this.allocatedBytes = new AtomicLong();
+        this.bytesInUse = new AtomicLong();
+        this.direct = direct;
+        this.maxBytesInUse = new AtomicLong();
+        this.misses = new AtomicLong();
+        this.slabSize = slabSize;
+        this.sizeClasses = new SizeClass[MAX_SHIFT - MIN_SHIFT + 1];
+
+        for (int i = 0; i < this.sizeClasses.length; i++) {
+            this.sizeClasses[i] = new SizeClass(1 << (MIN_SHIFT + i));
+        }
+    }
+
+    /**
+     * Allocates a new byte buffer and updates the statistics.
+     * 
+     * @param size
+     *            The byte buffer size.
+     * @return The new byte buffer.
+     */
+    private ByteBuffer allocate(int size) {
+        this.misses.incrementAndGet();
+        this.allocatedBytes.addAndGet(size);
+        return isDirect() ? ByteBuffer.allocateDirect(size) : ByteBuffer
+                .allocate(size);
+    }
+
+    /**
+     * Checks in a byte buffer previously checked out.
+     * 
+     * @param byteBuffer
+     *            The byte buffer to check in.
+     */
+    public void checkin(ByteBuffer byteBuffer) {
+        if (byteBuffer != null) {
+            this.bytesInUse.addAndGet(-byteBuffer.capacity());
+            SizeClass sizeClass = getSizeClass(byteBuffer.capacity());
+
+            if ((sizeClass != null)
+                    && (sizeClass.chunkSize == byteBuffer.capacity())) {
+                sizeClass.checkin(byteBuffer);
+            }
+        }
+    }
+
+    /**
+     * Checks out a cleared byte buffer with a capacity at least equal to the
+     * given size.
+     * 
+     * @param size
+     *            The minimum byte buffer capacity.
+     * @return The byte buffer checked out.
+     */
+    public ByteBuffer checkout(int size) {
+        SizeClass sizeClass = getSizeClass(size);
+        ByteBuffer result = (sizeClass == null) ? allocate(size) : sizeClass
+                .checkout();
+        long inUse = this.bytesInUse.addAndGet(result.capacity());
+        long max = this.maxBytesInUse.get();
+
+        while ((inUse > max) && !this.maxBytesInUse.compareAndSet(max, inUse)) {
+            max = this.maxBytesInUse.get();
+        }
+
+        return result;
+    }
+
+    /**
+     * Returns the number of bytes allocated so far.
+     * 
+     * @return The number of bytes allocated so far.
+     */
+    public long getAllocatedBytes() {
+        return this.allocatedBytes.get();
+    }
+
+    /**
+     * Returns the number of bytes currently checked out.
+     * 
+     * @return The number of bytes currently checked out.
+     */
+    public long getBytesInUse() {
+        return this.bytesInUse.get();
+    }
+
+    /**
+     * Returns the highest number of bytes checked out at the same time.
+     * 
+     * @return The highest number of bytes checked out at the same time.
+     */
+    public long getMaxBytesInUse() {
+        return this.maxBytesInUse.get();
+    }
+
+    /**
+     * Returns the number of checkouts that required a new allocation.
+     * 
+     * @return The number of checkouts that required a new allocation.
+     */
+    public long getMisses() {
+        return this.misses.get();
+    }
+
+    /**
+     * Returns the smallest size class able to hold the given size.
+     * 
+     * @param size
+     *            The size to hold.
+     * @return The size class or null if the size is too big.
+     */
+    private SizeClass getSizeClass(int size) {
+        int shift = (size <= 1) ? 0 : 32 - Integer.numberOfLeadingZeros(size - 1);
+        int index = Math.max(shift, MIN_SHIFT) - MIN_SHIFT;
+        return (index < this.sizeClasses.length) ? this.sizeClasses[index]
+                : null;
+    }
+
+    /**
+     * Returns the size of the slabs carved into byte buffers.
+     * 
+     * @return The size of the slabs carved into byte buffers.
+     */
+    public int getSlabSize() {
+        return this.slabSize;
+    }
+
+    /**
+     * Indicates if direct NIO buffers are allocated.
+     * 
+     * @return True if direct NIO buffers are allocated.
+     */
+    public boolean isDirect() {
+        return this.direct;
+    }
+
+    @Override
+    public String toString() {
+        return "Buffer pool: " + getBytesInUse() + " bytes in use, "
+                + getMaxBytesInUse() + " max, " + getAllocatedBytes()
+                + " allocated, " + getMisses() + " misses";
+    }
+
+}
@@ -150,7 +150,8 @@ public class InputStreamChannel implements ReadableByteChannel,
             // Use directly the underlying byte array
             byte[] byteArray = target.array();
 
-            result = getInputStream().read(byteArray, target.position(),
+            result = getInputStream().read(byteArray,
+                    target.arrayOffset() + target.position(),
                     Math.min(readLength, target.remaining()));
 
             if (result > 0) {
@@ -33,28 +33,164 @@ package org.restlet.engine.io;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
-import java.util.concurrent.ArrayBlockingQueue;
-import java.util.concurrent.BlockingQueue;
-import java.util.concurrent.TimeUnit;
 
 // [excludes gwt]
 /**
  * Pipe stream that pipes output streams into input streams. Implementation
- * based on a shared synchronized queue.
+ * based on a shared ring buffer of bytes. Writers block while the buffer is
+ * full and readers block while it is empty, up to a given timeout. Closing the
+ * output stream signals the end of the stream to the reader, while closing the
+ * input stream makes further writes fail. A writer unable to complete the
+ * stream should report its error with {@link #fail(IOException)} instead, so
+ * that the reader doesn't mistake the truncated content for the whole one.
  * 
  * @author Jerome Louvel
  */
 public class PipeStream {
 
-    /** The queue timeout. */
-    private static final long QUEUE_TIMEOUT = 5;
+    /** The default capacity of the ring buffer. */
+    public static final int DEFAULT_CAPACITY = 8 * IoUtils.BUFFER_SIZE;
 
-    /** The supporting synchronized queue. */
-    private final BlockingQueue<Integer> queue;
+    /** The ring buffer. */
+    private final byte[] buffer;
 
-    /** Constructor. */
+    /** The number of bytes available in the ring buffer. */
+    private int count;
+
+    /** The error reported by the writer, if any. */
+    private IOException failure;
+
+    /** Indicates if the input stream has been closed. */
+    private boolean inputClosed;
+
+    /** Indicates if the output stream has been closed. */
+    private boolean outputClosed;
+
+    /** The index of the next byte to read in the ring buffer. */
+    private int readIndex;
+
+    /** The maximum time to wait for the other side in milliseconds. */
+    private final long timeoutMs;
+
+    /**
+     * Constructor. Uses the {@link #DEFAULT_CAPACITY} and the
+     * {@link IoUtils#TIMEOUT_MS} timeout.
+     */
     public PipeStream() {
-        this.queue = new ArrayBlockingQueue<Integer>(1024);
+        this(DEFAULT_CAPACITY, IoUtils.TIMEOUT_MS);
+    }
+
+    /**
+     * Constructor.
+     * 
+     * @param capacity
+     *            The capacity of the ring buffer.
+     * @param timeoutMs
+     *            The maximum time to wait for the other side in milliseconds,
+     *            or 0 to wait indefinitely.
+     */
+    public PipeStream(int capacity, long timeoutMs) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException(
+                    "The capacity of the pipe must be strictly positive");
+        }
+
+        this.buffer = new byte[capacity];
+        this.count = 0;
+        this.failure = null;
+        this.inputClosed = false;
+        this.outputClosed = false;
+        this.readIndex = 0;
+        this.timeoutMs = timeoutMs;
+    }
+
+    /**
+     * Returns the number of bytes available for reading.
+     * 
+     * @return The number of bytes available for reading.
+     */
+    public synchronized int available() {
+        return this.count;
+    }
+
+    /**
+     * Waits for the other side to update the pipe.
+     * 
+     * @param deadline
+     *            The time after which waiting fails, or 0 for no limit.
+     * @param message
+     *            The message of the exception thrown on timeout.
+     * @throws IOException
+     */
+    private void await(long deadline, String message) throws IOException {
+        try {
+            if (deadline == 0) {
+                wait();
+            } else {
+                long delay = deadline - System.currentTimeMillis();
+
+                if (delay <= 0) {
+                    throw new IOException(message);
+                }
+
+                wait(delay);
+            }
+        } catch (InterruptedException ie) {
+            throw new IOException(
+                    "Interruption occurred while waiting on the pipe");
+        }
+    }
+
+    /**
+     * Closes the input side of the pipe. Further writes will fail.
+     */
+    private synchronized void closeInput() {
+        this.inputClosed = true;
+        notifyAll();
+    }
+
+    /**
+     * Closes the output side of the pipe. Reads will return the remaining bytes
+     * and then detect the end of the stream.
+     */
+    private synchronized void closeOutput() {
+        this.outputClosed = true;
+        notifyAll();
+    }
+
+    /**
+     * Closes the output side of the pipe after an error of the writer. Reads
+     * will return the remaining bytes and then throw an exception caused by the
+     * given error, instead of detecting the end of the stream.
+     * 
+     * @param cause
+     *            The error of the writer.
+     */
+    public synchronized void fail(IOException cause) {
+        if (!this.outputClosed) {
+            this.failure = cause;
+            this.outputClosed = true;
+            notifyAll();
+        }
+    }
+
+    /**
+     * Returns the capacity of the ring buffer.
+     * 
+     * @return The capacity of the ring buffer.
+     */
+    public int getCapacity() {
+        return this.buffer.length;
+    }
+
+    /**
+     * Returns the time after which waiting should fail.
+     * 
+     * @return The time after which waiting should fail, or 0 for no limit.
+     */
+    private long getDeadline() {
+        return (this.timeoutMs <= 0) ? 0 : System.currentTimeMillis()
+                + this.timeoutMs;
     }
 
     /**
@@ -64,28 +200,32 @@ public class PipeStream {
      */
     public InputStream getInputStream() {
         return new InputStream() {
-            private boolean endReached = false;
+            /** The buffer reused by single byte reads. */
+            private final byte[] single = new byte[1];
+
+            @Override
+            public int available() throws IOException {
+                return PipeStream.this.available();
+            }
+
+            @Override
+            public void close() throws IOException {
+                closeInput();
+            }
 
             @Override
             public int read() throws IOException {
-                try {
-                    if (this.endReached) {
-                        return -1;
-                    }
-
-                    final Integer value = queue.poll(QUEUE_TIMEOUT,
-                            TimeUnit.SECONDS);
-                    if (value == null) {
-                        throw new IOException(
-                                "Timeout while reading from the queue-based input stream");
-                    }
-
-                    this.endReached = (value.intValue() == -1);
-                    return value;
-                } catch (InterruptedException ie) {
-                    throw new IOException(
-                            "Interruption occurred while writing in the queue");
+                int result = PipeStream.this.read(single, 0, 1);
+                return (result == -1) ? -1 : (single[0] & 0xff);
+            }
+
+            @Override
+            public int read(byte[] b, int off, int len) throws IOException {
+                if ((off < 0) || (len < 0) || (len > b.length - off)) {
+                    throw new IndexOutOfBoundsException();
                 }
+
+                return (len == 0) ? 0 : PipeStream.this.read(b, off, len);
             }
         };
     }
@@ -97,19 +237,113 @@ public class PipeStream {
      */
     public OutputStream getOutputStream() {
         return new OutputStream() {
+            /** The buffer reused by single byte writes. */
+            private final byte[] single = new byte[1];
+
             @Override
-            public void write(int b) throws IOException {
-                try {
-                    if (!queue.offer(b, QUEUE_TIMEOUT, TimeUnit.SECONDS)) {
-                        throw new IOException(
-                                "Timeout while writing to the queue-based output stream");
-                    }
-                } catch (InterruptedException ie) {
-                    throw new IOException(
-                            "Interruption occurred while writing in the queue");
+            public void close() throws IOException {
+                closeOutput();
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len) throws IOException {
+                if ((off < 0) || (len < 0) || (len > b.length - off)) {
+                    throw new IndexOutOfBoundsException();
                 }
+
+                PipeStream.this.write(b, off, len);
+            }
+
+            @Override
+            public void write(int b) throws IOException {
+                single[0] = (byte) b;
+                PipeStream.this.write(single, 0, 1);
             }
         };
     }
 
-}
\ No newline at end of file
+    /**
+     * Reads bytes from the pipe, blocking until at least one byte is available
+     * or the end of the stream is reached.
+     * 
+     * @param b
+     *            The target byte array.
+     * @param off
+     *            The target offset.
+     * @param len
+     *            The maximum number of bytes to read.
+     * @return The number of bytes read or -1 if the end has been reached.
+     * @throws IOException
+     */
+    private synchronized int read(byte[] b, int off, int len)
+            throws IOException {
+        long deadline = getDeadline();
+
+        while ((this.count == 0) && !this.outputClosed && !this.inputClosed) {
+            await(deadline,
+                    "Timeout while reading from the pipe-based input stream");
+        }
+
+        int result = -1;
+
+        if (this.inputClosed) {
+            throw new IOException("The pipe-based input stream is closed");
+        } else if (this.count > 0) {
+            result = Math.min(len, this.count);
+            int first = Math.min(result, this.buffer.length - this.readIndex);
+            System.arraycopy(this.buffer, this.readIndex, b, off, first);
+            System.arraycopy(this.buffer, 0, b, off + first, result - first);
+            this.readIndex = (this.readIndex + result) % this.buffer.length;
+            this.count -= result;
+            notifyAll();
+        } else if (this.failure != null) {
+            IOException ioe = new IOException(
+                    "The writer of the pipe-based output stream failed");
+            ioe.initCause(this.failure);
+            throw ioe;
+        }
+
+        return result;
+    }
+
+    /**
+     * Writes bytes into the pipe, blocking while the ring buffer is full.
+     * 
+     * @param b
+     *            The source byte array.
+     * @param off
+     *            The source offset.
+     * @param len
+     *            The number of bytes to write.
+     * @throws IOException
+     */
+    private synchronized void write(byte[] b, int off, int len)
+            throws IOException {
+        while (len > 0) {
+            long deadline = getDeadline();
+
+            while ((this.count == this.buffer.length) && !this.inputClosed
+                    && !this.outputClosed) {
+                await(deadline,
+                        "Timeout while writing to the pipe-based output stream");
+            }
+
+            if (this.inputClosed) {
+                throw new IOException("The pipe-based input stream is closed");
+            } else if (this.outputClosed) {
+                throw new IOException("The pipe-based output stream is closed");
+            }
+
+            int writeIndex = (this.readIndex + this.count) % this.buffer.length;
+            int written = Math.min(len, this.buffer.length - this.count);
+            int first = Math.min(written, this.buffer.length - writeIndex);
+            System.arraycopy(b, off, this.buffer, writeIndex, first);
+            System.arraycopy(b, off + first, this.buffer, 0, written - first);
+            this.count += written;
+            off += written;
+            len -= written;
+            notifyAll();
+        }
+    }
+
+}
@@ -0,0 +1,417 @@
+/**
+ * Copyright 2005-2011 Noelios Technologies.
+ * 
+ * The contents of this file are subject to the terms of one of the following
+ * open source licenses: LGPL 3.0 or LGPL 2.1 or CDDL 1.0 or EPL 1.0 (the
+ * "Licenses"). You can select the license that you prefer but you may not use
+ * this file except in compliance with one of these Licenses.
+ * 
+ * You can obtain a copy of the LGPL 3.0 license at
+ * http://www.opensource.org/licenses/lgpl-3.0.html
+ * 
+ * You can obtain a copy of the LGPL 2.1 license at
+ * http://www.opensource.org/licenses/lgpl-2.1.php
+ * 
+ * You can obtain a copy of the CDDL 1.0 license at
+ * http://www.opensource.org/licenses/cddl1.php
+ * 
+ * You can obtain a copy of the EPL 1.0 license at
+ * http://www.opensource.org/licenses/eclipse-1.0.php
+ * 
+ * See the Licenses for the specific language governing permissions and
+ * limitations under the Licenses.
+ * 
+ * Alternatively, you can obtain a royalty free commercial license with less
+ * limitations, transferable or non-transferable, directly at
+ * http://www.noelios.com/products/restlet-engine
+ * 
+ * Restlet is a registered trademark of Noelios Technologies.
+ */
+
+package org.restlet.engine.io;
+
+import java.io.IOException;
+import java.io.UnsupportedEncodingException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.ReadableByteChannel;
+import java.util.Calendar;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+import org.restlet.data.Encoding;
+import org.restlet.util.SelectionRegistration;
+
+// [excludes gwt]
+/**
+ * Readable byte channel encoding the bytes read from a source channel with the
+ * GZIP, DEFLATE or ZIP encoding. The compression is done incrementally into the
+ * destination buffers, as the encoded content is read, without helper thread.
+ * When the source channel is non blocking, a read can return zero until more
+ * source bytes are available.<br>
+ * <br>
+ * The underlying {@link Deflater} instances are pooled. They are released when
+ * the end of the encoded content is reached or when the channel is closed.
+ * Note that the ZIP encoding produces a single entry archive and doesn't
+ * support the ZIP64 extensions, limiting the entry to 4 GB.
+ * 
+ * @author Jerome Louvel
+ */
+public class ReadableEncodingChannel extends
+        WrapperChannel<ReadableByteChannel> implements ReadableSelectionChannel {
+
+    /** The GZIP header, as written by {@link java.util.zip.GZIPOutputStream}. */
+    private static final byte[] GZIP_HEADER = { (byte) 0x1f, (byte) 0x8b, 8,
+            0, 0, 0, 0, 0, 0, 0 };
+
+    /** The maximum number of pooled deflaters of each kind. */
+    private static final int MAX_POOLED_DEFLATERS = 16;
+
+    /** The pooled deflaters producing raw compressed data. */
+    private static final BlockingQueue<Deflater> RAW_DEFLATERS = new ArrayBlockingQueue<Deflater>(
+            MAX_POOLED_DEFLATERS);
+
+    /** The pooled deflaters producing ZLIB wrapped compressed data. */
+    private static final BlockingQueue<Deflater> ZLIB_DEFLATERS = new ArrayBlockingQueue<Deflater>(
+            MAX_POOLED_DEFLATERS);
+
+    /**
+     * Returns a deflater from the pool or a new one.
+     * 
+     * @param raw
+     *            Indicates if raw compressed data must be produced, without
+     *            the ZLIB header and checksum.
+     * @return A reset deflater.
+     */
+    private static Deflater acquire(boolean raw) {
+        Deflater result = (raw ? RAW_DEFLATERS : ZLIB_DEFLATERS).poll();
+
+        if (result == null) {
+            result = new Deflater(Deflater.DEFAULT_COMPRESSION, raw);
+        }
+
+        return result;
+    }
+
+    /**
+     * Converts a Java time into a MS-DOS date and time, as used in ZIP
+     * headers.
+     * 
+     * @param time
+     *            The Java time in milliseconds.
+     * @return The MS-DOS date (high 16 bits) and time (low 16 bits).
+     */
+    private static int toDosTime(long time) {
+        Calendar calendar = Calendar.getInstance();
+        calendar.setTimeInMillis(time);
+        int year = calendar.get(Calendar.YEAR);
+
+        if (year < 1980) {
+            return (1 << 21) | (1 << 16);
+        }
+
+        return ((year - 1980) << 25)
+                | ((calendar.get(Calendar.MONTH) + 1) << 21)
+                | (calendar.get(Calendar.DAY_OF_MONTH) << 16)
+                | (calendar.get(Calendar.HOUR_OF_DAY) << 11)
+                | (calendar.get(Calendar.MINUTE) << 5)
+                | (calendar.get(Calendar.SECOND) >> 1);
+    }
+
+    /** Indicates if the channel is closed. */
+    private volatile boolean closed;
+
+    /** The checksum of the source bytes, for GZIP and ZIP encodings. */
+    private final CRC32 crc;
+
+    /** The current deflater, null once released. */
+    private volatile Deflater deflater;
+
+    /** The MS-DOS date and time of the ZIP entry. */
+    private final int dosTime;
+
+    /** The encoding to apply. */
+    private final Encoding encoding;
+
+    /** The UTF-8 name of the ZIP entry. */
+    private final byte[] entryName;
+
+    /** The buffer of source bytes given to the deflater. */
+    private final ByteBuffer input;
+
+    /** The intermediary output array, for buffers without backing array. */
+    private byte[] output;
+
+    /** The pending header or trailer bytes. */
+    private ByteBuffer overhead;
+
+    /** Indicates if the end of the source channel has been reached. */
+    private boolean sourceEnded;
+
+    /**
+     * Constructor.
+     * 
+     * @param source
+     *            The source channel or null if empty.
+     * @param encoding
+     *            The encoding to apply, GZIP, DEFLATE or ZIP.
+     * @param entryName
+     *            The name of the single entry for the ZIP encoding.
+     */
+    public ReadableEncodingChannel(ReadableByteChannel source,
+            Encoding encoding, String entryName) {
+        super(source);
+        this.closed = false;
+        this.encoding = encoding;
+        this.input = ByteBuffer.allocate(IoUtils.BUFFER_SIZE);
+        this.sourceEnded = (source == null);
+
+        if (Encoding.GZIP.equals(encoding)) {
+            this.crc = new CRC32();
+            this.deflater = acquire(true);
+            this.dosTime = 0;
+            this.entryName = null;
+            this.overhead = ByteBuffer.wrap(GZIP_HEADER);
+        } else if (Encoding.DEFLATE.equals(encoding)) {
+            this.crc = null;
+            this.deflater = acquire(false);
+            this.dosTime = 0;
+            this.entryName = null;
+            this.overhead = null;
+        } else if (Encoding.ZIP.equals(encoding)) {
+            this.crc = new CRC32();
+            this.deflater = acquire(true);
+            this.dosTime = toDosTime(System.currentTimeMillis());
+
+            try {
+                this.entryName = ((entryName == null) ? "entry" : entryName)
+                        .getBytes("UTF-8");
+            } catch (UnsupportedEncodingException e) {
+                throw new IllegalStateException(e.getMessage());
+            }
+
+            // Local file header, sizes and checksum follow the data
+            this.overhead = ByteBuffer.allocate(30 + this.entryName.length)
+                    .order(ByteOrder.LITTLE_ENDIAN);
+            this.overhead.putInt(0x04034b50).putShort((short) 20);
+            this.overhead.putShort((short) 0x0808).putShort((short) 8);
+            this.overhead.putInt(this.dosTime).putInt(0).putInt(0).putInt(0);
+            this.overhead.putShort((short) this.entryName.length);
+            this.overhead.putShort((short) 0).put(this.entryName);
+            this.overhead.flip();
+        } else {
+            throw new IllegalArgumentException("Unsupported encoding: "
+                    + encoding);
+        }
+
+        if (this.sourceEnded) {
+            this.deflater.finish();
+        }
+    }
+
+    /**
+     * Releases the deflater and closes the source channel.
+     */
+    @Override
+    public void close() throws IOException {
+        release();
+        this.closed = true;
+        this.overhead = null;
+
+        if (getWrappedChannel() != null) {
+            super.close();
+        }
+    }
+
+    /**
+     * Compresses the pending source bytes into the destination buffer.
+     * 
+     * @param dst
+     *            The destination buffer.
+     */
+    private void deflate(ByteBuffer dst) {
+        if (dst.hasArray()) {
+            int count = this.deflater.deflate(dst.array(), dst.arrayOffset()
+                    + dst.position(), dst.remaining());
+            dst.position(dst.position() + count);
+        } else {
+            if (this.output == null) {
+                this.output = new byte[IoUtils.BUFFER_SIZE];
+            }
+
+            int count = this.deflater.deflate(this.output, 0,
+                    Math.min(this.output.length, dst.remaining()));
+            dst.put(this.output, 0, count);
+        }
+    }
+
+    /**
+     * Reads more source bytes and gives them to the deflater. Finishes the
+     * deflater when the end of the source channel is reached.
+     * 
+     * @return False if no byte is currently available in the source channel.
+     * @throws IOException
+     */
+    private boolean fill() throws IOException {
+        this.input.clear();
+        int count = getWrappedChannel().read(this.input);
+
+        if (count == -1) {
+            this.sourceEnded = true;
+            this.deflater.finish();
+        } else if (count > 0) {
+            this.deflater.setInput(this.input.array(), 0, count);
+
+            if (this.crc != null) {
+                this.crc.update(this.input.array(), 0, count);
+            }
+        }
+
+        return (count != 0);
+    }
+
+    /**
+     * Returns the encoding applied.
+     * 
+     * @return The encoding applied.
+     */
+    public Encoding getEncoding() {
+        return encoding;
+    }
+
+    /**
+     * Returns the NIO registration of the source channel if any.
+     * 
+     * @return The NIO registration of the source channel or null.
+     */
+    public SelectionRegistration getRegistration() {
+        return (getWrappedChannel() instanceof SelectionChannel) ? ((SelectionChannel) getWrappedChannel())
+                .getRegistration() : null;
+    }
+
+    /**
+     * Returns the trailer to write once all the compressed data is written.
+     * 
+     * @return The trailer to write or null.
+     */
+    private ByteBuffer getTrailer() {
+        ByteBuffer result = null;
+        int checksum = (this.crc == null) ? 0 : (int) this.crc.getValue();
+        int size = (int) this.deflater.getBytesRead();
+
+        if (Encoding.GZIP.equals(getEncoding())) {
+            result = ByteBuffer.allocate(8).order(ByteOrder.LITTLE_ENDIAN);
+            result.putInt(checksum).putInt(size);
+        } else if (Encoding.ZIP.equals(getEncoding())) {
+            int compressedSize = (int) this.deflater.getBytesWritten();
+            int localSize = 30 + this.entryName.length + compressedSize + 16;
+            int centralSize = 46 + this.entryName.length;
+            result = ByteBuffer.allocate(16 + centralSize + 22).order(
+                    ByteOrder.LITTLE_ENDIAN);
+
+            // Data descriptor
+            result.putInt(0x08074b50).putInt(checksum).putInt(compressedSize)
+                    .putInt(size);
+
+            // Central directory with the single entry
+            result.putInt(0x02014b50).putShort((short) 20)
+                    .putShort((short) 20).putShort((short) 0x0808)
+                    .putShort((short) 8).putInt(this.dosTime).putInt(checksum)
+                    .putInt(compressedSize).putInt(size)
+                    .putShort((short) this.entryName.length);
+            result.putShort((short) 0).putShort((short) 0).putShort((short) 0)
+                    .putShort((short) 0).putInt(0).putInt(0)
+                    .put(this.entryName);
+
+            // End of central directory
+            result.putInt(0x06054b50).putShort((short) 0).putShort((short) 0)
+                    .putShort((short) 1).putShort((short) 1)
+                    .putInt(centralSize).putInt(localSize).putShort((short) 0);
+        }
+
+        if (result != null) {
+            result.flip();
+        }
+
+        return result;
+    }
+
+    /**
+     * Indicates if the source channel is blocking.
+     * 
+     * @return True if the source channel is blocking.
+     */
+    public boolean isBlocking() {
+        return (getWrappedChannel() instanceof BlockableChannel) ? ((BlockableChannel) getWrappedChannel())
+                .isBlocking() : NioUtils.isBlocking(getWrappedChannel());
+    }
+
+    /**
+     * Indicates if the channel is open. Returns false once closed.
+     * 
+     * @return True if the channel is open.
+     */
+    @Override
+    public boolean isOpen() {
+        return !this.closed
+                && ((getWrappedChannel() == null) || super.isOpen());
+    }
+
+    /**
+     * Reads some encoded bytes and puts them into the destination buffer.
+     * 
+     * @param dst
+     *            The destination buffer.
+     * @return The number of bytes read, or -1 if the end of the encoded
+     *         content has been reached.
+     */
+    public int read(ByteBuffer dst) throws IOException {
+        int start = dst.position();
+        boolean tryAgain = true;
+
+        while (tryAgain && dst.hasRemaining()) {
+            if ((this.overhead != null) && this.overhead.hasRemaining()) {
+                int count = Math.min(this.overhead.remaining(),
+                        dst.remaining());
+                int limit = this.overhead.limit();
+                this.overhead.limit(this.overhead.position() + count);
+                dst.put(this.overhead);
+                this.overhead.limit(limit);
+            } else if (this.deflater == null) {
+                this.overhead = null;
+                tryAgain = false;
+            } else if (this.deflater.finished()) {
+                this.overhead = getTrailer();
+                release();
+            } else if (this.deflater.needsInput() && !this.sourceEnded) {
+                tryAgain = fill();
+            } else {
+                deflate(dst);
+            }
+        }
+
+        int result = dst.position() - start;
+        return ((result == 0) && (this.deflater == null) && ((this.overhead == null) || !this.overhead
+                .hasRemaining())) ? -1 : result;
+    }
+
+    /**
+     * Returns the deflater to the pool, if not already done.
+     */
+    private void release() {
+        Deflater released = this.deflater;
+        this.deflater = null;
+
+        if (released != null) {
+            released.reset();
+            boolean raw = !Encoding.DEFLATE.equals(getEncoding());
+
+            if (!(raw ? RAW_DEFLATERS : ZLIB_DEFLATERS).offer(released)) {
+                released.end();
+            }
+        }
+    }
+
+}
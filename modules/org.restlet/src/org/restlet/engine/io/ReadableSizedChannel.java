@@ -32,7 +32,9 @@ package org.restlet.engine.io;
 
 import java.io.IOException;
 import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
 import java.util.logging.Level;
 
 import org.restlet.Context;
@@ -83,6 +85,17 @@ public class ReadableSizedChannel extends WrapperChannel<ReadableByteChannel>
         return endDetected;
     }
 
+    /**
+     * Indicates if the bytes can be transferred to a target channel without
+     * being copied, which is the case when the source channel is a file
+     * channel.
+     * 
+     * @return True if the bytes can be transferred without copy.
+     */
+    public boolean isTransferable() {
+        return getWrappedChannel() instanceof FileChannel;
+    }
+
     /**
      * Reads some bytes and put them into the destination buffer. The bytes come
      * from the underlying channel.
@@ -126,6 +139,51 @@ public class ReadableSizedChannel extends WrapperChannel<ReadableByteChannel>
         return result;
     }
 
+    /**
+     * Transfers some bytes from the wrapped file channel to the target channel,
+     * starting at the current file position. Relies on
+     * {@link FileChannel#transferTo(long, long, WritableByteChannel)} so that
+     * the bytes don't have to be copied when the target is a socket channel.
+     * 
+     * @param target
+     *            The target channel.
+     * @return The number of bytes transferred, or -1 if the end of the channel
+     *         has been reached.
+     * @see #isTransferable()
+     */
+    public long transferTo(WritableByteChannel target) throws IOException {
+        long result = 0;
+
+        if (getAvailableSize() > 0) {
+            FileChannel fileChannel = (FileChannel) getWrappedChannel();
+            long position = fileChannel.position();
+            result = fileChannel.transferTo(position, getAvailableSize(),
+                    target);
+
+            if (result > 0) {
+                fileChannel.position(position + result);
+            } else if (position >= fileChannel.size()) {
+                result = -1;
+            }
+        } else {
+            result = -1;
+        }
+
+        if (result > 0) {
+            setAvailableSize(getAvailableSize() - result);
+
+            if (Context.getCurrentLogger().isLoggable(Level.FINER)) {
+                Context.getCurrentLogger().finer(
+                        "Bytes (transferred | available) : " + result + " | "
+                                + getAvailableSize());
+            }
+        } else if (result == -1) {
+            setEndDetected(true);
+        }
+
+        return result;
+    }
+
     /**
      * Sets the remaining size that should be read from the source channel.
      * 
@@ -32,14 +32,19 @@ package org.restlet.engine.local;
 
 import java.io.File;
 import java.io.IOException;
+import java.net.JarURLConnection;
 import java.net.URL;
+import java.net.URLConnection;
 import java.util.Date;
 import java.util.logging.Level;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
 
 import org.restlet.Client;
 import org.restlet.Request;
 import org.restlet.Response;
 import org.restlet.data.LocalReference;
+import org.restlet.data.MediaType;
 import org.restlet.data.Method;
 import org.restlet.data.Protocol;
 import org.restlet.data.Reference;
@@ -53,11 +58,18 @@ import org.restlet.service.MetadataService;
  * the class authority for your CLAP URIs, you can provide a custom classloader
  * instead of the one of the connector. For this, your requests need to have a
  * "org.restlet.clap.classLoader" attribute set with the instance of your
- * classloader and use the {@link LocalReference#CLAP_CLASS} authority.
+ * classloader and use the {@link LocalReference#CLAP_CLASS} authority.<br>
+ * <br>
+ * The resources packaged in local JAR files are read through a
+ * {@link ZipFileCache}, shared with the ZIP connector.
  * 
  * @author Jerome Louvel
  */
 public class ClapClientHelper extends LocalClientHelper {
+
+    /** The cache of open archives. */
+    private volatile ZipFileCache zipFileCache;
+
     /**
      * Constructor.
      * 
@@ -67,6 +79,58 @@ public class ClapClientHelper extends LocalClientHelper {
     public ClapClientHelper(Client client) {
         super(client);
         getProtocols().add(Protocol.CLAP);
+        this.zipFileCache = ZipFileCache.getInstance();
+    }
+
+    /**
+     * Returns a representation of a class loader resource. The entries of
+     * local JAR files are read through the cache of open archives.
+     * 
+     * @param url
+     *            The URL of the resource.
+     * @param defaultMediaType
+     *            The default media type.
+     * @return The representation of the resource.
+     * @throws IOException
+     */
+    private Representation getRepresentation(URL url,
+            MediaType defaultMediaType) throws IOException {
+        ZipFileCache cache = getZipFileCache();
+
+        if ((cache != null) && url.getProtocol().equals("jar")) {
+            URLConnection connection = url.openConnection();
+
+            if (connection instanceof JarURLConnection) {
+                URL jarUrl = ((JarURLConnection) connection).getJarFileURL();
+                String entryName = ((JarURLConnection) connection)
+                        .getEntryName();
+
+                if (jarUrl.getProtocol().equals("file") && (entryName != null)) {
+                    ZipFile zipFile = cache.acquire(new LocalReference(jarUrl
+                            .toString()).getFile());
+                    ZipEntry entry = zipFile.getEntry(entryName);
+
+                    if ((entry != null) && !entry.isDirectory()) {
+                        return new ZipEntryRepresentation(defaultMediaType,
+                                zipFile, entry, cache);
+                    }
+
+                    cache.release(zipFile);
+                }
+            }
+        }
+
+        return new InputRepresentation(url.openStream(), defaultMediaType);
+    }
+
+    /**
+     * Returns the cache of open archives. By default, the cache shared by the
+     * local connectors is used.
+     * 
+     * @return The cache of open archives or null if disabled.
+     */
+    public ZipFileCache getZipFileCache() {
+        return this.zipFileCache;
     }
 
     /**
@@ -119,11 +183,13 @@ public class ClapClientHelper extends LocalClientHelper {
 
             if (url != null) {
                 try {
-                    Representation output = new InputRepresentation(url
-                            .openStream(), metadataService
-                            .getDefaultMediaType());
+                    Representation output = getRepresentation(url,
+                            metadataService.getDefaultMediaType());
                     output.setLocationRef(request.getResourceRef());
-                    output.setModificationDate(modificationDate);
+
+                    if (modificationDate != null) {
+                        output.setModificationDate(modificationDate);
+                    }
 
                     // Update the expiration date
                     long timeToLive = getTimeToLive();
@@ -203,4 +269,14 @@ public class ClapClientHelper extends LocalClientHelper {
                             + "\" not supported by the connector. Only CLAP is supported.");
         }
     }
+
+    /**
+     * Sets the cache of open archives.
+     * 
+     * @param zipFileCache
+     *            The cache of open archives or null to disable it.
+     */
+    public void setZipFileCache(ZipFileCache zipFileCache) {
+        this.zipFileCache = zipFileCache;
+    }
 }
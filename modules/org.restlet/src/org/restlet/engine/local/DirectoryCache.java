@@ -0,0 +1,438 @@
+/**
+ * Copyright 2005-2011 Noelios Technologies.
+ * 
+ * The contents of this file are subject to the terms of one of the following
+ * open source licenses: LGPL 3.0 or LGPL 2.1 or CDDL 1.0 or EPL 1.0 (the
+ * "Licenses"). You can select the license that you prefer but you may not use
+ * this file except in compliance with one of these Licenses.
+ * 
+ * You can obtain a copy of the LGPL 3.0 license at
+ * http://www.opensource.org/licenses/lgpl-3.0.html
+ * 
+ * You can obtain a copy of the LGPL 2.1 license at
+ * http://www.opensource.org/licenses/lgpl-2.1.php
+ * 
+ * You can obtain a copy of the CDDL 1.0 license at
+ * http://www.opensource.org/licenses/cddl1.php
+ * 
+ * You can obtain a copy of the EPL 1.0 license at
+ * http://www.opensource.org/licenses/eclipse-1.0.php
+ * 
+ * See the Licenses for the specific language governing permissions and
+ * limitations under the Licenses.
+ * 
+ * Alternatively, you can obtain a royalty free commercial license with less
+ * limitations, transferable or non-transferable, directly at
+ * http://www.noelios.com/products/restlet-engine
+ * 
+ * Restlet is a registered trademark of Noelios Technologies.
+ */
+
+package org.restlet.engine.local;
+
+import java.io.File;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.restlet.data.LocalReference;
+import org.restlet.data.Protocol;
+import org.restlet.data.Reference;
+import org.restlet.data.ReferenceList;
+import org.restlet.representation.Variant;
+import org.restlet.service.MetadataService;
+
+/**
+ * Bounded cache of the folders listed by a {@link org.restlet.resource.Directory}
+ * serving files. It holds the names of the files of each folder, with their
+ * base name and variant, so that requests don't need to list the folder,
+ * format the listing as a URI list and parse it back. The metadata depending
+ * on the file content, such as the size or the modification date, are still
+ * read from the file when it is served.<br>
+ * <br>
+ * A cached folder is listed again when its modification date changes, which
+ * happens when a file is added, removed or renamed. As this date can be coarse
+ * on some file systems, a listing taken in the same second as the last folder
+ * modification is checked again, and any listing expires after a time to
+ * live. When the cache is full, the least recently used folder is evicted.<br>
+ * <br>
+ * The cache lists the folders directly from the file system, bypassing the
+ * client dispatcher of the application and the FILE connector. It should only
+ * be enabled for directories whose files are served by the stock FILE
+ * connector.
+ * 
+ * @author Jerome Louvel
+ * @see org.restlet.resource.Directory#getCache()
+ */
+public class DirectoryCache {
+
+    /** Cached file or folder of a cached folder. */
+    public static final class Entry {
+
+        /** The base name, for the metadata service. */
+        private volatile String baseName;
+
+        /** Indicates if the entry is a folder. */
+        private final boolean directory;
+
+        /** The metadata service used to compute the base name and variant. */
+        private volatile MetadataService metadataService;
+
+        /** The name of the entry. */
+        private final String name;
+
+        /** The variant, for the metadata service. */
+        private volatile Variant variant;
+
+        /**
+         * Constructor.
+         * 
+         * @param name
+         *            The name of the entry.
+         * @param directory
+         *            Indicates if the entry is a folder.
+         */
+        private Entry(String name, boolean directory) {
+            this.directory = directory;
+            this.name = name;
+        }
+
+        /**
+         * Returns the base name, without known extensions.
+         * 
+         * @param metadataService
+         *            The metadata service.
+         * @return The base name.
+         * @see Entity#getBaseName(String, MetadataService)
+         */
+        public String getBaseName(MetadataService metadataService) {
+            update(metadataService);
+            return this.baseName;
+        }
+
+        /**
+         * Returns the name of the entry.
+         * 
+         * @return The name of the entry.
+         */
+        public String getName() {
+            return this.name;
+        }
+
+        /**
+         * Returns the variant based on the extensions, including the default
+         * metadata. The returned variant is shared and must not be modified.
+         * 
+         * @param metadataService
+         *            The metadata service.
+         * @return The variant based on the extensions.
+         * @see Entity#updateMetadata(String, Variant, boolean,
+         *      MetadataService)
+         */
+        public Variant getVariant(MetadataService metadataService) {
+            update(metadataService);
+            return this.variant;
+        }
+
+        /**
+         * Indicates if the entry is a folder.
+         * 
+         * @return True if the entry is a folder.
+         */
+        public boolean isDirectory() {
+            return this.directory;
+        }
+
+        /**
+         * Computes the base name and variant, unless already done for the
+         * same metadata service.
+         * 
+         * @param metadataService
+         *            The metadata service.
+         */
+        private synchronized void update(MetadataService metadataService) {
+            if (this.metadataService != metadataService) {
+                Variant variant = new Variant();
+                Entity.updateMetadata(this.name, variant, true,
+                        metadataService);
+                this.baseName = Entity.getBaseName(this.name,
+                        metadataService);
+                this.variant = variant;
+                this.metadataService = metadataService;
+            }
+        }
+    }
+
+    /** Listing of a cached folder. */
+    private static final class Listing {
+
+        /** The entries of the folder. */
+        private final Entry[] entries;
+
+        /** The modification date of the folder when listed. */
+        private final long lastModified;
+
+        /** The time of the listing. */
+        private final long loaded;
+
+        /**
+         * Constructor.
+         * 
+         * @param entries
+         *            The entries of the folder.
+         * @param lastModified
+         *            The modification date of the folder when listed.
+         * @param loaded
+         *            The time of the listing.
+         */
+        private Listing(Entry[] entries, long lastModified, long loaded) {
+            this.entries = entries;
+            this.lastModified = lastModified;
+            this.loaded = loaded;
+        }
+    }
+
+    /** The default maximum number of cached folders. */
+    public static final int DEFAULT_MAX_SIZE = 256;
+
+    /** The default time to live of a cached folder in milliseconds. */
+    public static final long DEFAULT_TIME_TO_LIVE = 10000;
+
+    /**
+     * Returns the local folder of a file URI.
+     * 
+     * @param uri
+     *            The file URI.
+     * @return The local folder or null if not a file URI.
+     */
+    private static File getFolder(String uri) {
+        Reference ref = new Reference(uri);
+
+        if (!Protocol.FILE.getSchemeName().equalsIgnoreCase(ref.getScheme())) {
+            return null;
+        }
+
+        String path = Reference.decode(ref.normalize().getPath());
+        return (path == null) ? null : new File(
+                LocalReference.localizePath(path));
+    }
+
+    /** The number of lookups that found a valid cached listing. */
+    private final AtomicLong hits;
+
+    /** The cached listings by folder path, in access order. */
+    private final Map<String, Listing> listings;
+
+    /** The maximum number of cached folders. */
+    private final int maxSize;
+
+    /** The number of lookups that needed a new listing. */
+    private final AtomicLong misses;
+
+    /** The time to live of a cached folder in milliseconds. */
+    private final long timeToLive;
+
+    /**
+     * Constructor using the default maximum size and time to live.
+     */
+    public DirectoryCache() {
+        this(DEFAULT_MAX_SIZE, DEFAULT_TIME_TO_LIVE);
+    }
+
+    /**
+     * Constructor.
+     * 
+     * @param maxSize
+     *            The maximum number of cached folders.
+     * @param timeToLive
+     *            The time to live of a cached folder in milliseconds.
+     */
+    public DirectoryCache(int maxSize, long timeToLive) {
+        this.hits = new AtomicLong();
+        this.listings = new LinkedHashMap<String, Listing>(16, 0.75f, true) {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(
+                    Map.Entry<String, Listing> eldest) {
+                return size() > getMaxSize();
+            }
+        };
+        this.maxSize = maxSize;
+        this.misses = new AtomicLong();
+        this.timeToLive = timeToLive;
+    }
+
+    /**
+     * Clears the cache and its statistics.
+     */
+    public void clear() {
+        invalidate();
+        this.hits.set(0);
+        this.misses.set(0);
+    }
+
+    /**
+     * Returns the entries of a folder, listing it again if needed.
+     * 
+     * @param directoryUri
+     *            The file URI of the folder.
+     * @return The entries of the folder or null if not a file URI or not a
+     *         folder.
+     */
+    public Entry[] getEntries(String directoryUri) {
+        File folder = getFolder(directoryUri);
+
+        if (folder == null) {
+            return null;
+        }
+
+        String key = folder.getPath();
+        Listing listing;
+
+        synchronized (this.listings) {
+            listing = this.listings.get(key);
+        }
+
+        long lastModified = folder.lastModified();
+        long now = System.currentTimeMillis();
+
+        if ((listing != null) && (listing.lastModified == lastModified)
+                && (now - listing.loaded < getTimeToLive())
+                && (listing.loaded - lastModified >= 1000)) {
+            this.hits.incrementAndGet();
+            return listing.entries;
+        }
+
+        // [ifndef gae] instruction
+        String[] names = folder.list();
+        // [ifdef gae] uncomment
+        // String[] names = null;
+        // try {
+        // names = folder.list();
+        // } catch (java.security.AccessControlException ace) {
+        // }
+        // [enddef]
+
+        if (names == null) {
+            // Not a folder
+            synchronized (this.listings) {
+                this.listings.remove(key);
+            }
+
+            return null;
+        }
+
+        this.misses.incrementAndGet();
+        Entry[] entries = new Entry[names.length];
+
+        for (int i = 0; i < names.length; i++) {
+            entries[i] = new Entry(names[i],
+                    new File(folder, names[i]).isDirectory());
+        }
+
+        if (getMaxSize() > 0) {
+            synchronized (this.listings) {
+                this.listings.put(key, new Listing(entries, lastModified, now));
+            }
+        }
+
+        return entries;
+    }
+
+    /**
+     * Returns the number of lookups that found a valid cached listing.
+     * 
+     * @return The number of lookups that found a valid cached listing.
+     */
+    public long getHits() {
+        return this.hits.get();
+    }
+
+    /**
+     * Returns the maximum number of cached folders.
+     * 
+     * @return The maximum number of cached folders.
+     */
+    public int getMaxSize() {
+        return this.maxSize;
+    }
+
+    /**
+     * Returns the number of lookups that needed a new listing.
+     * 
+     * @return The number of lookups that needed a new listing.
+     */
+    public long getMisses() {
+        return this.misses.get();
+    }
+
+    /**
+     * Returns the references of the entries of a folder, like the listing
+     * returned by the FILE client connector. The references of the sub-folders
+     * end with a slash.
+     * 
+     * @param directoryUri
+     *            The file URI of the folder.
+     * @return The references of the entries or null if not a file URI or not a
+     *         folder.
+     */
+    public ReferenceList getReferences(String directoryUri) {
+        ReferenceList result = null;
+        Entry[] entries = getEntries(directoryUri);
+
+        if (entries != null) {
+            String baseUri = directoryUri.endsWith("/") ? directoryUri
+                    : directoryUri + "/";
+            result = new ReferenceList(entries.length);
+
+            for (Entry entry : entries) {
+                if (entry.isDirectory()) {
+                    result.add(baseUri + Reference.encode(entry.getName())
+                            + "/");
+                } else {
+                    result.add(baseUri + Reference.encode(entry.getName()));
+                }
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * Returns the time to live of a cached folder in milliseconds.
+     * 
+     * @return The time to live of a cached folder in milliseconds.
+     */
+    public long getTimeToLive() {
+        return this.timeToLive;
+    }
+
+    /**
+     * Removes all the cached listings, for example after a modification of the
+     * folders. The statistics are kept.
+     */
+    public void invalidate() {
+        synchronized (this.listings) {
+            this.listings.clear();
+        }
+    }
+
+    /**
+     * Returns the number of cached folders.
+     * 
+     * @return The number of cached folders.
+     */
+    public int size() {
+        synchronized (this.listings) {
+            return this.listings.size();
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "DirectoryCache [" + size() + "/" + getMaxSize() + " folders, "
+                + getHits() + " hits, " + getMisses() + " misses]";
+    }
+
+}
@@ -41,6 +41,7 @@ import java.util.logging.Level;
 import org.restlet.Client;
 import org.restlet.Request;
 import org.restlet.Response;
+import org.restlet.data.Dimension;
 import org.restlet.data.MediaType;
 import org.restlet.data.Method;
 import org.restlet.data.Preference;
@@ -152,6 +153,7 @@ public class DirectoryServerResource extends ServerResource {
             }
 
             setStatus(contextResponse.getStatus());
+            invalidateCache();
         } else {
             setStatus(Status.CLIENT_ERROR_METHOD_NOT_ALLOWED,
                     "The directory is not modifiable.");
@@ -221,19 +223,24 @@ public class DirectoryServerResource extends ServerResource {
                         "No client dispatcher is available on the context. Can't get the target URI: "
                                 + this.targetUri);
             } else {
-                // Try to detect the presence of a directory
-                Response contextResponse = getRepresentation(this.targetUri);
-
-                if (contextResponse.getEntity() != null) {
+                // Try to detect the presence of a directory, first with the
+                // cached listings
+                ReferenceList cachedContent = getCachedContent(this.targetUri);
+                Response contextResponse = (cachedContent == null) ? getRepresentation(this.targetUri)
+                        : null;
+
+                if ((cachedContent != null)
+                        || (contextResponse.getEntity() != null)) {
                     // As a convention, underlying client connectors return the
                     // directory listing with the media-type
                     // "MediaType.TEXT_URI_LIST" when handling directories
-                    if (MediaType.TEXT_URI_LIST.equals(contextResponse
-                            .getEntity().getMediaType())) {
+                    if ((cachedContent != null)
+                            || MediaType.TEXT_URI_LIST.equals(contextResponse
+                                    .getEntity().getMediaType())) {
                         this.directoryTarget = true;
                         this.fileTarget = false;
-                        this.directoryContent = new ReferenceList(
-                                contextResponse.getEntity());
+                        this.directoryContent = (cachedContent != null) ? cachedContent
+                                : new ReferenceList(contextResponse.getEntity());
 
                         if (!getReference().getPath().endsWith("/")) {
                             // All requests will be automatically redirected
@@ -351,13 +358,20 @@ public class DirectoryServerResource extends ServerResource {
                                     .substring(lastSlashIndex + 1);
                         }
 
-                        contextResponse = getRepresentation(this.directoryUri);
-                        if ((contextResponse.getEntity() != null)
-                                && MediaType.TEXT_URI_LIST
-                                        .equals(contextResponse.getEntity()
-                                                .getMediaType())) {
-                            this.directoryContent = new ReferenceList(
-                                    contextResponse.getEntity());
+                        cachedContent = getCachedContent(this.directoryUri);
+
+                        if (cachedContent != null) {
+                            this.directoryContent = cachedContent;
+                        } else {
+                            contextResponse = getRepresentation(this.directoryUri);
+
+                            if ((contextResponse.getEntity() != null)
+                                    && MediaType.TEXT_URI_LIST
+                                            .equals(contextResponse.getEntity()
+                                                    .getMediaType())) {
+                                this.directoryContent = new ReferenceList(
+                                        contextResponse.getEntity());
+                            }
                         }
                     }
 
@@ -414,6 +428,12 @@ public class DirectoryServerResource extends ServerResource {
         } else {
             if (variants.size() == 1) {
                 result = (Representation) variants.get(0);
+
+                if (!result.getEncodings().isEmpty()) {
+                    // The file may have been selected based on the encodings
+                    // accepted by the client
+                    getDimensions().add(Dimension.ENCODING);
+                }
             } else {
                 ReferenceList variantRefs = new ReferenceList();
 
@@ -450,6 +470,71 @@ public class DirectoryServerResource extends ServerResource {
         return this.baseName;
     }
 
+    /**
+     * Returns the listing of a folder from the cache of the parent directory.
+     * 
+     * @param folderUri
+     *            The URI of the folder.
+     * @return The listing of the folder or null if not a cached local folder.
+     */
+    private ReferenceList getCachedContent(String folderUri) {
+        DirectoryCache cache = getDirectory().getCache();
+        return (cache == null) ? null : cache.getReferences(folderUri);
+    }
+
+    /**
+     * Adds the references of the representations of the target resource based
+     * on the cached listing of its folder. Updates the unique reference.
+     * 
+     * @param result
+     *            The list of variants references to update.
+     * @return True if the folder listing was available in the cache.
+     */
+    private boolean getCachedVariantsReferences(ReferenceList result) {
+        DirectoryCache cache = getDirectory().getCache();
+        int lastSlashIndex = this.targetUri.lastIndexOf('/');
+        String folderUri = this.targetUri.substring(0, lastSlashIndex + 1);
+        DirectoryCache.Entry[] entries = ((cache == null) || (lastSlashIndex == -1)) ? null
+                : cache.getEntries(folderUri);
+
+        if (entries == null) {
+            return false;
+        }
+
+        // Same selection as the listing of the variants by the FILE client
+        // connector, then by the getVariantsReferences() method
+        String targetBaseName = Entity.getBaseName(Reference
+                .decode(this.targetUri.substring(lastSlashIndex + 1)),
+                getMetadataService());
+        String baseName = (this.baseName == null) ? null : Reference
+                .decode(this.baseName);
+
+        for (DirectoryCache.Entry entry : entries) {
+            String name = entry.getName();
+            int firstDotIndex = name.indexOf('.');
+            String baseEntryName = (firstDotIndex == -1) ? name : name
+                    .substring(0, firstDotIndex);
+
+            if (baseEntryName.equals(baseName)
+                    && targetBaseName.equals(entry
+                            .getBaseName(getMetadataService()))) {
+                Reference ref = new Reference(folderUri
+                        + Reference.encode(name));
+                Variant variant = entry.getVariant(getMetadataService());
+
+                if (this.protoVariant.includes(variant)) {
+                    result.add(ref);
+                }
+
+                if (this.baseVariant.equals(variant)) {
+                    this.uniqueReference = ref;
+                }
+            }
+        }
+
+        return true;
+    }
+
     /**
      * Returns a client dispatcher.
      * 
@@ -489,15 +574,19 @@ public class DirectoryServerResource extends ServerResource {
 
     /**
      * Returns a representation of the resource at the target URI. Leverages the
-     * client dispatcher of the parent directory's context.
+     * client dispatcher of the parent directory's context. The encodings
+     * accepted by the client are forwarded, allowing the client connector to
+     * return pre-encoded files.
      * 
      * @param resourceUri
      *            The URI of the target resource.
      * @return A response with the representation if success.
      */
     private Response getRepresentation(String resourceUri) {
-        return getClientDispatcher().handle(
-                new Request(Method.GET, resourceUri));
+        Request request = new Request(Method.GET, resourceUri);
+        request.getClientInfo().getAcceptedEncodings()
+                .addAll(getRequest().getClientInfo().getAcceptedEncodings());
+        return getClientDispatcher().handle(request);
     }
 
     /**
@@ -706,6 +795,10 @@ public class DirectoryServerResource extends ServerResource {
         try {
             this.uniqueReference = null;
 
+            if (getCachedVariantsReferences(result)) {
+                return result;
+            }
+
             // Ask for the list of all variants of this resource
             Response contextResponse = getRepresentation(this.targetUri,
                     MediaType.TEXT_URI_LIST);
@@ -793,6 +886,18 @@ public class DirectoryServerResource extends ServerResource {
         return result;
     }
 
+    /**
+     * Invalidates the cached listings of the parent directory, after a
+     * modification of the folders.
+     */
+    private void invalidateCache() {
+        DirectoryCache cache = getDirectory().getCache();
+
+        if (cache != null) {
+            cache.invalidate();
+        }
+    }
+
     /**
      * Indicates if the target resource is a directory.
      * 
@@ -825,6 +930,7 @@ public class DirectoryServerResource extends ServerResource {
             contextRequest.setResourceRef(this.targetUri);
             getClientDispatcher().handle(contextRequest, contextResponse);
             setStatus(contextResponse.getStatus());
+            invalidateCache();
         } else {
             setStatus(Status.CLIENT_ERROR_METHOD_NOT_ALLOWED,
                     "The directory is not modifiable.");
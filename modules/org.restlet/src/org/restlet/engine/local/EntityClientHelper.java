@@ -92,6 +92,23 @@ public abstract class EntityClientHelper extends LocalClientHelper {
         return result;
     }
 
+    /**
+     * Returns a pre-encoded representation of a normal entity, accepted by the
+     * client, or null. The encodings of the returned representation must be
+     * set, its other metadata are then updated based on the entity name.
+     * Returns null by default.
+     * 
+     * @param request
+     *            The request including client preferences.
+     * @param entity
+     *            The normal entity.
+     * @return The pre-encoded representation or null.
+     */
+    protected Representation getEncodedRepresentation(Request request,
+            Entity entity) {
+        return null;
+    }
+
     /**
      * Returns a local entity for the given path.
      * 
@@ -159,6 +176,31 @@ public abstract class EntityClientHelper extends LocalClientHelper {
         return encodedEntityName.substring(0, j);
     }
 
+    /**
+     * Returns the representation of a normal entity, pre-encoded if possible.
+     * 
+     * @param request
+     *            The request to answer.
+     * @param entity
+     *            The normal entity.
+     * @param name
+     *            The name used to update the metadata.
+     * @return The representation of the entity.
+     */
+    private Representation getRepresentation(Request request, Entity entity,
+            String name) {
+        Representation result = getEncodedRepresentation(request, entity);
+
+        if (result == null) {
+            result = entity.getRepresentation(getMetadataService()
+                    .getDefaultMediaType(), getTimeToLive());
+        }
+
+        result.setLocationRef(request.getResourceRef());
+        Entity.updateMetadata(name, result, true, getMetadataService());
+        return result;
+    }
+
     /**
      * Handles a GET call.
      * 
@@ -241,11 +283,8 @@ public abstract class EntityClientHelper extends LocalClientHelper {
                     output = rl.getTextRepresentation();
                 } else {
                     // Return the file content
-                    output = entity.getRepresentation(getMetadataService()
-                            .getDefaultMediaType(), getTimeToLive());
-                    output.setLocationRef(request.getResourceRef());
-                    Entity.updateMetadata(entity.getName(), output, true,
-                            getMetadataService());
+                    output = getRepresentation(request, entity,
+                            entity.getName());
                 }
             } else {
                 // We look for the possible variant which has the same
@@ -280,12 +319,8 @@ public abstract class EntityClientHelper extends LocalClientHelper {
 
                 if (uniqueVariant != null) {
                     // Return the file content
-                    output = uniqueVariant.getRepresentation(
-                            getMetadataService().getDefaultMediaType(),
-                            getTimeToLive());
-                    output.setLocationRef(request.getResourceRef());
-                    Entity.updateMetadata(entity.getName(), output, true,
-                            getMetadataService());
+                    output = getRepresentation(request, uniqueVariant,
+                            entity.getName());
                 }
             }
         }
@@ -55,6 +55,7 @@ import org.restlet.data.LocalReference;
 import org.restlet.data.MediaType;
 import org.restlet.data.Metadata;
 import org.restlet.data.Method;
+import org.restlet.data.Preference;
 import org.restlet.data.Protocol;
 import org.restlet.data.Range;
 import org.restlet.data.Status;
@@ -87,6 +88,15 @@ import org.restlet.representation.Variant;
  * <td>Indicates if a failed upload can be resumed. This will prevent the
  * deletion of the temporary file created.</td>
  * </tr>
+ * <tr>
+ * <td>precompressed</td>
+ * <td>boolean</td>
+ * <td>false</td>
+ * <td>Indicates if a sibling file with the ".gz" extension, at least as recent
+ * as the requested file, is returned with the GZIP encoding to the clients
+ * accepting it. Only enable it when the ".gz" files are regenerated with the
+ * files they compress, as their content isn't compared.</td>
+ * </tr>
  * </table>
  * 
  * @author Jerome Louvel
@@ -171,6 +181,28 @@ public class FileClientHelper extends EntityClientHelper {
         return result;
     }
 
+    @Override
+    protected Representation getEncodedRepresentation(Request request,
+            Entity entity) {
+        Representation result = null;
+
+        if (isPrecompressed() && (entity instanceof FileEntity)
+                && isAccepted(request, Encoding.GZIP)) {
+            File file = ((FileEntity) entity).getFile();
+            File compressed = new File(file.getPath() + ".gz");
+
+            if (compressed.isFile()
+                    && (compressed.lastModified() >= file.lastModified())) {
+                result = new FileEntity(compressed, getMetadataService())
+                        .getRepresentation(getMetadataService()
+                                .getDefaultMediaType(), getTimeToLive());
+                result.getEncodings().add(Encoding.GZIP);
+            }
+        }
+
+        return result;
+    }
+
     @Override
     public Entity getEntity(String decodedPath) {
         // Take care of the file separator.
@@ -660,6 +692,42 @@ public class FileClientHelper extends EntityClientHelper {
         }
     }
 
+    /**
+     * Indicates if an encoding is accepted by the client.
+     * 
+     * @param request
+     *            The request including client preferences.
+     * @param encoding
+     *            The encoding to test.
+     * @return True if the encoding is accepted by the client.
+     */
+    private boolean isAccepted(Request request, Encoding encoding) {
+        boolean result = false;
+
+        for (Preference<Encoding> pref : request.getClientInfo()
+                .getAcceptedEncodings()) {
+            if (pref.getMetadata().equals(encoding)) {
+                // An explicit preference takes precedence
+                return pref.getQuality() > 0F;
+            } else if (pref.getMetadata().equals(Encoding.ALL)) {
+                result = pref.getQuality() > 0F;
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * Indicates if a sibling file with the ".gz" extension is returned to the
+     * clients accepting the GZIP encoding. Defaults to "false".
+     * 
+     * @return True if pre-compressed sibling files are returned.
+     */
+    public boolean isPrecompressed() {
+        return Boolean.parseBoolean(getHelpedParameters().getFirstValue(
+                "precompressed", "false"));
+    }
+
     /**
      * Indicates if a failed upload can be resumed. This will prevent the
      * deletion of the temporary file created. Defaults to "false".
@@ -59,12 +59,18 @@ import org.restlet.service.MetadataService;
  * files.<br>
  * <br>
  * Handles GET, HEAD and PUT request on resources referenced as :
- * zip:file://<file path>
+ * zip:file://<file path><br>
+ * <br>
+ * The archives read are shared through a {@link ZipFileCache}, so that their
+ * central directory isn't parsed again for each request.
  * 
  * @author Remi Dewitte <remi@gide.net>
  */
 public class ZipClientHelper extends LocalClientHelper {
 
+    /** The cache of open archives. */
+    private volatile ZipFileCache zipFileCache;
+
     /**
      * Constructor.
      * 
@@ -75,6 +81,17 @@ public class ZipClientHelper extends LocalClientHelper {
         super(client);
         getProtocols().add(Protocol.ZIP);
         getProtocols().add(Protocol.JAR);
+        this.zipFileCache = ZipFileCache.getInstance();
+    }
+
+    /**
+     * Returns the cache of open archives. By default, the cache shared by the
+     * local connectors is used.
+     * 
+     * @return The cache of open archives or null if disabled.
+     */
+    public ZipFileCache getZipFileCache() {
+        return this.zipFileCache;
     }
 
     /**
@@ -143,19 +160,22 @@ public class ZipClientHelper extends LocalClientHelper {
         if (!file.exists()) {
             response.setStatus(Status.CLIENT_ERROR_NOT_FOUND);
         } else {
+            ZipFileCache cache = getZipFileCache();
             ZipFile zipFile;
 
             try {
-                zipFile = new ZipFile(file);
+                zipFile = (cache == null) ? new ZipFile(file) : cache
+                        .acquire(file);
             } catch (Exception e) {
                 response.setStatus(Status.SERVER_ERROR_INTERNAL, e);
                 return;
             }
 
             Entity entity = new ZipEntryEntity(zipFile, entryName,
-                    metadataService);
+                    metadataService, cache);
             if (!entity.exists()) {
                 response.setStatus(Status.CLIENT_ERROR_NOT_FOUND);
+                release(zipFile, cache);
             } else {
                 final Representation output;
 
@@ -173,12 +193,7 @@ public class ZipClientHelper extends LocalClientHelper {
                     }
 
                     output = rl.getTextRepresentation();
-
-                    try {
-                        zipFile.close();
-                    } catch (IOException e) {
-                        // Do something ???
-                    }
+                    release(zipFile, cache);
                 } else {
                     // Return the file content
                     output = entity.getRepresentation(metadataService
@@ -186,6 +201,11 @@ public class ZipClientHelper extends LocalClientHelper {
                     output.setLocationRef(request.getResourceRef());
                     Entity.updateMetadata(entity.getName(), output, true,
                             getMetadataService());
+
+                    if (cache != null) {
+                        // The representation retained its own reference
+                        cache.release(zipFile);
+                    }
                 }
 
                 response.setStatus(Status.SUCCESS_OK);
@@ -224,6 +244,13 @@ public class ZipClientHelper extends LocalClientHelper {
         boolean canAppend = !zipExists;
         boolean isDirectory = entryName.endsWith("/");
         boolean wrongReplace = false;
+        ZipFileCache cache = getZipFileCache();
+
+        if (cache != null) {
+            // Close the cached archive before replacing its file
+            cache.invalidate(file);
+        }
+
         try {
             if (zipExists) {
                 ZipFile zipFile = new ZipFile(file);
@@ -336,9 +363,45 @@ public class ZipClientHelper extends LocalClientHelper {
         } catch (Exception e) {
             response.setStatus(Status.SERVER_ERROR_INTERNAL, e);
             return;
+        } finally {
+            if (cache != null) {
+                // Don't reuse an archive opened during the writing
+                cache.invalidate(file);
+            }
+        }
+    }
+
+    /**
+     * Releases an archive, either to the cache that provided it or by closing
+     * it.
+     * 
+     * @param zipFile
+     *            The archive to release.
+     * @param cache
+     *            The cache that provided the archive or null.
+     */
+    private void release(ZipFile zipFile, ZipFileCache cache) {
+        if (cache != null) {
+            cache.release(zipFile);
+        } else {
+            try {
+                zipFile.close();
+            } catch (IOException e) {
+                // Do something ???
+            }
         }
     }
 
+    /**
+     * Sets the cache of open archives.
+     * 
+     * @param zipFileCache
+     *            The cache of open archives or null to disable it.
+     */
+    public void setZipFileCache(ZipFileCache zipFileCache) {
+        this.zipFileCache = zipFileCache;
+    }
+
     /**
      * Writes an entity to a given ZIP output stream with a given ZIP entry
      * name.
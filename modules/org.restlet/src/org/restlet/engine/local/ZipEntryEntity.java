@@ -47,6 +47,9 @@ import org.restlet.service.MetadataService;
  */
 public class ZipEntryEntity extends Entity {
 
+    /** The cache that provided the Zip file, if any. */
+    protected final ZipFileCache cache;
+
     /** The Zip file. */
     protected final ZipFile zipFile;
 
@@ -65,7 +68,25 @@ public class ZipEntryEntity extends Entity {
      */
     public ZipEntryEntity(ZipFile zipFile, String entryName,
             MetadataService metadataService) {
+        this(zipFile, entryName, metadataService, null);
+    }
+
+    /**
+     * Constructor.
+     * 
+     * @param zipFile
+     *            The Zip file.
+     * @param entryName
+     *            The Zip entry name.
+     * @param metadataService
+     *            The metadata service to use.
+     * @param cache
+     *            The cache that provided the Zip file or null.
+     */
+    public ZipEntryEntity(ZipFile zipFile, String entryName,
+            MetadataService metadataService, ZipFileCache cache) {
         super(metadataService);
+        this.cache = cache;
         this.zipFile = zipFile;
         ZipEntry entry = zipFile.getEntry(entryName);
         if (entry == null)
@@ -92,7 +113,25 @@ public class ZipEntryEntity extends Entity {
      */
     public ZipEntryEntity(ZipFile zipFile, ZipEntry entry,
             MetadataService metadataService) {
+        this(zipFile, entry, metadataService, null);
+    }
+
+    /**
+     * Constructor.
+     * 
+     * @param zipFile
+     *            The Zip file.
+     * @param entry
+     *            The Zip entry.
+     * @param metadataService
+     *            The metadata service to use.
+     * @param cache
+     *            The cache that provided the Zip file or null.
+     */
+    public ZipEntryEntity(ZipFile zipFile, ZipEntry entry,
+            MetadataService metadataService, ZipFileCache cache) {
         super(metadataService);
+        this.cache = cache;
         this.zipFile = zipFile;
         this.entry = entry;
     }
@@ -119,7 +158,7 @@ public class ZipEntryEntity extends Entity {
                 if (e.getName().startsWith(n)
                         && e.getName().length() != n.length())
                     result.add(new ZipEntryEntity(zipFile, e,
-                            getMetadataService()));
+                            getMetadataService(), cache));
             }
         }
 
@@ -139,13 +178,19 @@ public class ZipEntryEntity extends Entity {
         String n = entry.getName();
         String pn = n.substring(0, n.lastIndexOf('/') + 1);
         return new ZipEntryEntity(zipFile, zipFile.getEntry(pn),
-                getMetadataService());
+                getMetadataService(), cache);
     }
 
     @Override
     public Representation getRepresentation(MediaType defaultMediaType,
             int timeToLive) {
-        return new ZipEntryRepresentation(defaultMediaType, zipFile, entry);
+        if (cache != null) {
+            // The representation holds its own reference to the archive
+            cache.retain(zipFile);
+        }
+
+        return new ZipEntryRepresentation(defaultMediaType, zipFile, entry,
+                cache);
     }
 
     @Override
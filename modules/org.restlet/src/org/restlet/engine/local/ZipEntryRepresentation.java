@@ -46,12 +46,18 @@ import org.restlet.representation.StreamRepresentation;
  * An entry in a Zip/JAR file.
  * 
  * It is very important {@link #release()} is called to close the underlying Zip
- * file.
+ * file, or to release it when it was provided by a {@link ZipFileCache}.
  * 
  * @author Remi Dewitte <remi@gide.net>
  */
 public class ZipEntryRepresentation extends StreamRepresentation {
 
+    /** The cache that provided the Zip file, if any. */
+    private final ZipFileCache cache;
+
+    /** Indicates if the Zip file was released to the cache. */
+    private boolean released;
+
     /** The Zip file. */
     protected final ZipFile zipFile;
 
@@ -70,7 +76,26 @@ public class ZipEntryRepresentation extends StreamRepresentation {
      */
     public ZipEntryRepresentation(MediaType mediaType, ZipFile zipFile,
             ZipEntry entry) {
+        this(mediaType, zipFile, entry, null);
+    }
+
+    /**
+     * Constructor.
+     * 
+     * @param mediaType
+     *            The entry media type.
+     * @param zipFile
+     *            The parent Zip archive file.
+     * @param entry
+     *            The Zip entry.
+     * @param cache
+     *            The cache that provided the Zip file or null. The reference
+     *            held by this representation is released to it.
+     */
+    public ZipEntryRepresentation(MediaType mediaType, ZipFile zipFile,
+            ZipEntry entry, ZipFileCache cache) {
         super(mediaType);
+        this.cache = cache;
         this.zipFile = zipFile;
         this.entry = entry;
         Disposition disposition = new Disposition();
@@ -82,9 +107,18 @@ public class ZipEntryRepresentation extends StreamRepresentation {
 
     @Override
     public void release() {
-        try {
-            zipFile.close();
-        } catch (IOException e) {
+        if (cache != null) {
+            synchronized (this) {
+                if (!released) {
+                    released = true;
+                    cache.release(zipFile);
+                }
+            }
+        } else {
+            try {
+                zipFile.close();
+            } catch (IOException e) {
+            }
         }
     }
 
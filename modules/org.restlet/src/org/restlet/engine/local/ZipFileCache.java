@@ -0,0 +1,403 @@
+/**
+ * Copyright 2005-2011 Noelios Technologies.
+ * 
+ * The contents of this file are subject to the terms of one of the following
+ * open source licenses: LGPL 3.0 or LGPL 2.1 or CDDL 1.0 or EPL 1.0 (the
+ * "Licenses"). You can select the license that you prefer but you may not use
+ * this file except in compliance with one of these Licenses.
+ * 
+ * You can obtain a copy of the LGPL 3.0 license at
+ * http://www.opensource.org/licenses/lgpl-3.0.html
+ * 
+ * You can obtain a copy of the LGPL 2.1 license at
+ * http://www.opensource.org/licenses/lgpl-2.1.php
+ * 
+ * You can obtain a copy of the CDDL 1.0 license at
+ * http://www.opensource.org/licenses/cddl1.php
+ * 
+ * You can obtain a copy of the EPL 1.0 license at
+ * http://www.opensource.org/licenses/eclipse-1.0.php
+ * 
+ * See the Licenses for the specific language governing permissions and
+ * limitations under the Licenses.
+ * 
+ * Alternatively, you can obtain a royalty free commercial license with less
+ * limitations, transferable or non-transferable, directly at
+ * http://www.noelios.com/products/restlet-engine
+ * 
+ * Restlet is a registered trademark of Noelios Technologies.
+ */
+
+package org.restlet.engine.local;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.zip.ZipFile;
+
+import org.restlet.Context;
+
+/**
+ * Bounded cache of open Zip and JAR archives, shared by the connectors reading
+ * them. Opening an archive parses its whole central directory, which is costly
+ * for large archives served many times.<br>
+ * <br>
+ * Each call to {@link #acquire(File)} must be followed by a call to
+ * {@link #release(ZipFile)} once the archive isn't read anymore. An archive
+ * removed from the cache, because it was evicted, modified or invalidated, is
+ * only closed when all its references have been released. The cached archives
+ * are identified by the path, the length and the modification date of their
+ * file. As this date can be coarse on some file systems, an archive opened in
+ * the same second as its last modification isn't reused. When the cache is
+ * full, the least recently used archive is evicted.
+ * 
+ * @author Jerome Louvel
+ */
+public class ZipFileCache {
+
+    /** An open archive. */
+    private static final class Archive {
+
+        /** The length of the file when the archive was opened. */
+        private final long length;
+
+        /** The modification date of the file when the archive was opened. */
+        private final long lastModified;
+
+        /** The time when the archive was opened. */
+        private final long opened;
+
+        /** The number of references not released yet. */
+        private int references;
+
+        /** Indicates if the archive was removed from the cache. */
+        private boolean stale;
+
+        /** The open archive. */
+        private final ZipFile zipFile;
+
+        /**
+         * Constructor.
+         * 
+         * @param zipFile
+         *            The open archive.
+         * @param length
+         *            The length of the file when the archive was opened.
+         * @param lastModified
+         *            The modification date of the file when the archive was
+         *            opened.
+         * @param opened
+         *            The time when the archive was opened.
+         */
+        private Archive(ZipFile zipFile, long length, long lastModified,
+                long opened) {
+            this.zipFile = zipFile;
+            this.length = length;
+            this.lastModified = lastModified;
+            this.opened = opened;
+        }
+    }
+
+    /** The default maximum number of cached archives. */
+    public static final int DEFAULT_MAX_SIZE = 32;
+
+    /** The cache shared by the local connectors. */
+    private static final ZipFileCache instance = new ZipFileCache();
+
+    /**
+     * Returns the cache shared by the local connectors.
+     * 
+     * @return The cache shared by the local connectors.
+     */
+    public static ZipFileCache getInstance() {
+        return instance;
+    }
+
+    /** The cached archives, indexed by file path, in access order. */
+    private final LinkedHashMap<String, Archive> archives;
+
+    /** The number of archives evicted. */
+    private final AtomicLong evictions;
+
+    /** The number of acquisitions that reused a cached archive. */
+    private final AtomicLong hits;
+
+    /** The maximum number of cached archives. */
+    private final int maxSize;
+
+    /** The number of acquisitions that opened the archive. */
+    private final AtomicLong misses;
+
+    /** The open archives, cached or still referenced. */
+    private final Map<ZipFile, Archive> openArchives;
+
+    /**
+     * Constructor using the default maximum size.
+     */
+    public ZipFileCache() {
+        this(DEFAULT_MAX_SIZE);
+    }
+
+    /**
+     * Constructor.
+     * 
+     * @param maxSize
+     *            The maximum number of cached archives. Zero disables the
+     *            caching.
+     */
+    public ZipFileCache(int maxSize) {
+        this.archives = new LinkedHashMap<String, Archive>(16, 0.75f, true);
+        this.evictions = new AtomicLong();
+        this.hits = new AtomicLong();
+        this.maxSize = maxSize;
+        this.misses = new AtomicLong();
+        this.openArchives = new IdentityHashMap<ZipFile, Archive>();
+    }
+
+    /**
+     * Returns an open archive for the given file, reusing a cached one if the
+     * file didn't change. The archive must be released after use.
+     * 
+     * @param file
+     *            The archive file.
+     * @return The open archive.
+     * @throws IOException
+     * @see #release(ZipFile)
+     */
+    public ZipFile acquire(File file) throws IOException {
+        String key = file.getAbsolutePath();
+        long length = file.length();
+        long lastModified = file.lastModified();
+
+        synchronized (this) {
+            Archive archive = this.archives.get(key);
+
+            if (archive != null) {
+                if ((archive.length == length)
+                        && (archive.lastModified == lastModified)
+                        && (archive.opened - lastModified >= 1000)) {
+                    archive.references++;
+                    this.hits.incrementAndGet();
+                    return archive.zipFile;
+                }
+
+                remove(key);
+            }
+        }
+
+        this.misses.incrementAndGet();
+        Archive archive = new Archive(new ZipFile(file), length, lastModified,
+                System.currentTimeMillis());
+        archive.references = 1;
+
+        synchronized (this) {
+            this.openArchives.put(archive.zipFile, archive);
+
+            if (getMaxSize() > 0) {
+                Archive previous = this.archives.put(key, archive);
+
+                if (previous != null) {
+                    discard(previous);
+                }
+
+                for (Iterator<Archive> iter = this.archives.values()
+                        .iterator(); this.archives.size() > getMaxSize();) {
+                    Archive eldest = iter.next();
+                    iter.remove();
+                    discard(eldest);
+                    this.evictions.incrementAndGet();
+                }
+            } else {
+                archive.stale = true;
+            }
+        }
+
+        return archive.zipFile;
+    }
+
+    /**
+     * Clears the cache and its statistics.
+     */
+    public void clear() {
+        invalidate();
+        this.evictions.set(0);
+        this.hits.set(0);
+        this.misses.set(0);
+    }
+
+    /**
+     * Removes an archive from the open archives and closes it.
+     * 
+     * @param archive
+     *            The archive to close.
+     */
+    private void close(Archive archive) {
+        this.openArchives.remove(archive.zipFile);
+
+        try {
+            archive.zipFile.close();
+        } catch (IOException e) {
+            Context.getCurrentLogger().log(Level.FINE,
+                    "Unable to close a Zip archive", e);
+        }
+    }
+
+    /**
+     * Marks an archive removed from the cache as stale, and closes it if it
+     * isn't referenced anymore.
+     * 
+     * @param archive
+     *            The archive removed from the cache.
+     */
+    private void discard(Archive archive) {
+        archive.stale = true;
+
+        if (archive.references <= 0) {
+            close(archive);
+        }
+    }
+
+    /**
+     * Returns the number of archives evicted because the cache was full.
+     * 
+     * @return The number of archives evicted.
+     */
+    public long getEvictions() {
+        return this.evictions.get();
+    }
+
+    /**
+     * Returns the number of acquisitions that reused a cached archive.
+     * 
+     * @return The number of acquisitions that reused a cached archive.
+     */
+    public long getHits() {
+        return this.hits.get();
+    }
+
+    /**
+     * Returns the maximum number of cached archives.
+     * 
+     * @return The maximum number of cached archives.
+     */
+    public int getMaxSize() {
+        return this.maxSize;
+    }
+
+    /**
+     * Returns the number of acquisitions that opened the archive.
+     * 
+     * @return The number of acquisitions that opened the archive.
+     */
+    public long getMisses() {
+        return this.misses.get();
+    }
+
+    /**
+     * Returns the number of open archives, cached or still referenced.
+     * 
+     * @return The number of open archives.
+     */
+    public synchronized int getOpenCount() {
+        return this.openArchives.size();
+    }
+
+    /**
+     * Removes all the archives from the cache. The statistics are kept.
+     */
+    public synchronized void invalidate() {
+        for (Iterator<Archive> iter = this.archives.values().iterator(); iter
+                .hasNext();) {
+            Archive archive = iter.next();
+            iter.remove();
+            discard(archive);
+        }
+    }
+
+    /**
+     * Removes the archive of a given file from the cache, for example before
+     * and after writing it.
+     * 
+     * @param file
+     *            The archive file.
+     */
+    public synchronized void invalidate(File file) {
+        remove(file.getAbsolutePath());
+    }
+
+    /**
+     * Releases a reference to an archive returned by {@link #acquire(File)}
+     * or retained by {@link #retain(ZipFile)}. An archive unknown to the cache
+     * is simply closed.
+     * 
+     * @param zipFile
+     *            The archive to release.
+     */
+    public synchronized void release(ZipFile zipFile) {
+        Archive archive = this.openArchives.get(zipFile);
+
+        if (archive == null) {
+            try {
+                zipFile.close();
+            } catch (IOException e) {
+                Context.getCurrentLogger().log(Level.FINE,
+                        "Unable to close a Zip archive", e);
+            }
+        } else if ((--archive.references <= 0) && archive.stale) {
+            close(archive);
+        }
+    }
+
+    /**
+     * Removes the archive cached for a given path.
+     * 
+     * @param key
+     *            The archive file path.
+     */
+    private void remove(String key) {
+        Archive archive = this.archives.remove(key);
+
+        if (archive != null) {
+            discard(archive);
+        }
+    }
+
+    /**
+     * Adds a reference to an archive already acquired, for example when a
+     * representation reads it after the request was handled. The reference
+     * must be released after use.
+     * 
+     * @param zipFile
+     *            The acquired archive.
+     * @see #release(ZipFile)
+     */
+    public synchronized void retain(ZipFile zipFile) {
+        Archive archive = this.openArchives.get(zipFile);
+
+        if (archive != null) {
+            archive.references++;
+        }
+    }
+
+    /**
+     * Returns the number of cached archives.
+     * 
+     * @return The number of cached archives.
+     */
+    public synchronized int size() {
+        return this.archives.size();
+    }
+
+    @Override
+    public String toString() {
+        return "ZipFileCache [" + size() + "/" + getMaxSize() + " archives, "
+                + getHits() + " hits, " + getMisses() + " misses, "
+                + getEvictions() + " evictions]";
+    }
+
+}
@@ -0,0 +1,229 @@
+/**
+ * Copyright 2005-2011 Noelios Technologies.
+ * 
+ * The contents of this file are subject to the terms of one of the following
+ * open source licenses: LGPL 3.0 or LGPL 2.1 or CDDL 1.0 or EPL 1.0 (the
+ * "Licenses"). You can select the license that you prefer but you may not use
+ * this file except in compliance with one of these Licenses.
+ * 
+ * You can obtain a copy of the LGPL 3.0 license at
+ * http://www.opensource.org/licenses/lgpl-3.0.html
+ * 
+ * You can obtain a copy of the LGPL 2.1 license at
+ * http://www.opensource.org/licenses/lgpl-2.1.php
+ * 
+ * You can obtain a copy of the CDDL 1.0 license at
+ * http://www.opensource.org/licenses/cddl1.php
+ * 
+ * You can obtain a copy of the EPL 1.0 license at
+ * http://www.opensource.org/licenses/eclipse-1.0.php
+ * 
+ * See the Licenses for the specific language governing permissions and
+ * limitations under the Licenses.
+ * 
+ * Alternatively, you can obtain a royalty free commercial license with less
+ * limitations, transferable or non-transferable, directly at
+ * http://www.noelios.com/products/restlet-engine
+ * 
+ * Restlet is a registered trademark of Noelios Technologies.
+ */
+
+package org.restlet.engine.log;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Access log entry whose fields were extracted from a call, ready to be
+ * formatted later, possibly by another thread. When an identity check (RFC
+ * 1413) is required, the remote user identifier is resolved later, so that the
+ * calling thread doesn't block on the IDENT round trip. It is either completed
+ * in the background, see {@link #complete(String)}, or resolved when the
+ * message is requested.
+ * 
+ * @author Jerome Louvel
+ */
+public class AccessLogEntry {
+
+    /** The client IP address to check the identity of. */
+    private final String clientAddress;
+
+    /** The client port (remote) to check the identity of. */
+    private final int clientPort;
+
+    /** The creation time, from which a background identity check expires. */
+    private final long creationTime;
+
+    /** Released when the identity check is completed. */
+    private final CountDownLatch latch;
+
+    /** The formatted message. */
+    private volatile String message;
+
+    /** The message part preceding the user identifier. */
+    private final String prefix;
+
+    /** The server port (local) to check the identity of. */
+    private final int serverPort;
+
+    /** The message part following the user identifier. */
+    private final String suffix;
+
+    /**
+     * Constructor for an already formatted message.
+     * 
+     * @param message
+     *            The formatted message.
+     */
+    public AccessLogEntry(String message) {
+        this.clientAddress = null;
+        this.clientPort = -1;
+        this.creationTime = System.currentTimeMillis();
+        this.latch = null;
+        this.message = message;
+        this.prefix = null;
+        this.serverPort = -1;
+        this.suffix = null;
+    }
+
+    /**
+     * Constructor for a message requiring an identity check.
+     * 
+     * @param prefix
+     *            The message part preceding the user identifier.
+     * @param clientAddress
+     *            The client IP address.
+     * @param clientPort
+     *            The client port (remote).
+     * @param serverPort
+     *            The server port (local).
+     * @param suffix
+     *            The message part following the user identifier.
+     */
+    public AccessLogEntry(String prefix, String clientAddress, int clientPort,
+            int serverPort, String suffix) {
+        this.clientAddress = clientAddress;
+        this.clientPort = clientPort;
+        this.creationTime = System.currentTimeMillis();
+        this.latch = new CountDownLatch(1);
+        this.message = null;
+        this.prefix = prefix;
+        this.serverPort = serverPort;
+        this.suffix = suffix;
+    }
+
+    /**
+     * Completes the identity check with the given remote user identifier,
+     * unless it was already completed.
+     * 
+     * @param userIdentifier
+     *            The remote user identifier or null if unknown.
+     * @return True if the identity check was completed by this call.
+     */
+    public synchronized boolean complete(String userIdentifier) {
+        boolean result = (this.message == null);
+
+        if (result) {
+            this.message = this.prefix
+                    + ((userIdentifier == null) ? "-" : userIdentifier)
+                    + this.suffix;
+            this.latch.countDown();
+        }
+
+        return result;
+    }
+
+    /**
+     * Returns the client IP address to check the identity of.
+     * 
+     * @return The client IP address to check the identity of.
+     */
+    public String getClientAddress() {
+        return this.clientAddress;
+    }
+
+    /**
+     * Returns the client port (remote) to check the identity of.
+     * 
+     * @return The client port (remote) to check the identity of.
+     */
+    public int getClientPort() {
+        return this.clientPort;
+    }
+
+    /**
+     * Returns the creation time, in milliseconds.
+     * 
+     * @return The creation time, in milliseconds.
+     */
+    public long getCreationTime() {
+        return this.creationTime;
+    }
+
+    /**
+     * Returns the formatted message. Resolves the remote user identifier first
+     * if needed, which can block up to the IDENT timeouts.
+     * 
+     * @return The formatted message.
+     */
+    public String getMessage() {
+        if (isPending()) {
+            String userIdentifier = null;
+            // [ifndef gae] instruction
+            userIdentifier = new IdentClient(this.clientAddress,
+                    this.clientPort, this.serverPort).getUserIdentifier();
+            complete(userIdentifier);
+        }
+
+        return this.message;
+    }
+
+    /**
+     * Returns the formatted message, waiting until the given time at most for
+     * the identity check completed in the background. Past this time, the
+     * remote user identifier is considered unknown.
+     * 
+     * @param deadline
+     *            The time until which the identity check is awaited, in
+     *            milliseconds.
+     * @return The formatted message.
+     */
+    public String getMessage(long deadline) {
+        if (isPending()) {
+            try {
+                this.latch.await(deadline - System.currentTimeMillis(),
+                        TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+
+            complete(null);
+        }
+
+        return this.message;
+    }
+
+    /**
+     * Returns the server port (local) to check the identity of.
+     * 
+     * @return The server port (local) to check the identity of.
+     */
+    public int getServerPort() {
+        return this.serverPort;
+    }
+
+    /**
+     * Indicates if the remote user identifier remains to be resolved.
+     * 
+     * @return True if the remote user identifier remains to be resolved.
+     */
+    public boolean isPending() {
+        return this.message == null;
+    }
+
+    @Override
+    public String toString() {
+        return isPending() ? (this.prefix + "?" + this.suffix) : getMessage();
+    }
+
+}
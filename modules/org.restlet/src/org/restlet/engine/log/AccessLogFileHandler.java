@@ -30,16 +30,51 @@
 
 package org.restlet.engine.log;
 
+import java.io.FilterOutputStream;
 import java.io.IOException;
+import java.io.OutputStream;
 
 /**
  * Log file handler that uses the {@link AccessLogFormatter} by default. Also
  * useful in configuration files to differentiate from the
- * {@link java.util.logging.FileHandler}.
+ * {@link java.util.logging.FileHandler}.<br>
+ * <br>
+ * While an {@link AccessLogWriter} writes a batch of entries, the flush
+ * normally done after each record is deferred until the end of the batch.
  * 
  * @author Jerome Louvel
  */
 public class AccessLogFileHandler extends java.util.logging.FileHandler {
+
+    /**
+     * Output stream deferring the flushes requested while an access log batch
+     * is being written.
+     */
+    private static class BatchOutputStream extends FilterOutputStream {
+
+        /**
+         * Constructor.
+         * 
+         * @param out
+         *            The wrapped output stream.
+         */
+        public BatchOutputStream(OutputStream out) {
+            super(out);
+        }
+
+        @Override
+        public void flush() throws IOException {
+            if (!AccessLogWriter.isBatching()) {
+                super.flush();
+            }
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            this.out.write(b, off, len);
+        }
+    }
+
     /**
      * Constructor.
      * 
@@ -126,4 +161,10 @@ public class AccessLogFileHandler extends java.util.logging.FileHandler {
         setFormatter(new AccessLogFormatter());
     }
 
+    @Override
+    protected synchronized void setOutputStream(OutputStream out)
+            throws SecurityException {
+        super.setOutputStream(new BatchOutputStream(out));
+    }
+
 }
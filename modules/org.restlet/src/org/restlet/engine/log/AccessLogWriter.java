@@ -0,0 +1,308 @@
+/**
+ * Copyright 2005-2011 Noelios Technologies.
+ * 
+ * The contents of this file are subject to the terms of one of the following
+ * open source licenses: LGPL 3.0 or LGPL 2.1 or CDDL 1.0 or EPL 1.0 (the
+ * "Licenses"). You can select the license that you prefer but you may not use
+ * this file except in compliance with one of these Licenses.
+ * 
+ * You can obtain a copy of the LGPL 3.0 license at
+ * http://www.opensource.org/licenses/lgpl-3.0.html
+ * 
+ * You can obtain a copy of the LGPL 2.1 license at
+ * http://www.opensource.org/licenses/lgpl-2.1.php
+ * 
+ * You can obtain a copy of the CDDL 1.0 license at
+ * http://www.opensource.org/licenses/cddl1.php
+ * 
+ * You can obtain a copy of the EPL 1.0 license at
+ * http://www.opensource.org/licenses/eclipse-1.0.php
+ * 
+ * See the Licenses for the specific language governing permissions and
+ * limitations under the Licenses.
+ * 
+ * Alternatively, you can obtain a royalty free commercial license with less
+ * limitations, transferable or non-transferable, directly at
+ * http://www.noelios.com/products/restlet-engine
+ * 
+ * Restlet is a registered trademark of Noelios Technologies.
+ */
+
+package org.restlet.engine.log;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Handler;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Asynchronous writer of access log entries. The entries are queued by the
+ * calling threads in a bounded buffer and drained in batches by a background
+ * thread that formats them and hands them to the access logger. When the
+ * buffer is full, the entries are either dropped or the calling thread blocks
+ * until space becomes available, depending on the configured policy.<br>
+ * <br>
+ * The remote user identifiers required by the identity check are resolved in
+ * parallel by an {@link IdentResolver} as soon as the entries are queued. The
+ * background thread only formats the entries whose identity check is completed
+ * or has timed out, see {@link IdentResolver#TIMEOUT}.<br>
+ * <br>
+ * The handlers of the access logger are flushed once per batch. In addition,
+ * the {@link AccessLogFileHandler} defers its flushes while a batch is being
+ * written, so that several entries result in a single write to the file.
+ * 
+ * @author Jerome Louvel
+ */
+public class AccessLogWriter implements Runnable {
+
+    /** The maximum number of entries written in a batch. */
+    private static final int BATCH_SIZE = 128;
+
+    /** Indicates if the current thread is writing a batch of entries. */
+    private static final ThreadLocal<Boolean> BATCHING = new ThreadLocal<Boolean>();
+
+    /** Indicates if callers block when the buffer is full. */
+    private final boolean blocking;
+
+    /** The number of entries dropped because the buffer was full. */
+    private final AtomicLong dropped;
+
+    /** The access logger. */
+    private final Logger logger;
+
+    /** The buffer of entries to write. */
+    private final BlockingQueue<AccessLogEntry> queue;
+
+    /** The resolver of remote user identifiers. */
+    private final IdentResolver resolver;
+
+    /** The background thread, null if stopped. */
+    private volatile Thread thread;
+
+    /**
+     * Constructor.
+     * 
+     * @param logger
+     *            The access logger.
+     * @param capacity
+     *            The maximum number of entries waiting to be written.
+     * @param blocking
+     *            Indicates if callers block when the buffer is full, instead
+     *            of dropping the entries.
+     */
+    public AccessLogWriter(Logger logger, int capacity, boolean blocking) {
+        this.blocking = blocking;
+        this.dropped = new AtomicLong();
+        this.logger = logger;
+        this.queue = new ArrayBlockingQueue<AccessLogEntry>(capacity);
+        this.resolver = new IdentResolver(logger);
+    }
+
+    /**
+     * Flushes the handlers of the access logger and of its parents.
+     */
+    private void flush() {
+        Logger current = this.logger;
+
+        while (current != null) {
+            for (Handler handler : current.getHandlers()) {
+                handler.flush();
+            }
+
+            current = current.getUseParentHandlers() ? current.getParent()
+                    : null;
+        }
+    }
+
+    /**
+     * Returns the maximum number of entries waiting to be written.
+     * 
+     * @return The maximum number of entries waiting to be written.
+     */
+    public int getCapacity() {
+        return this.queue.size() + this.queue.remainingCapacity();
+    }
+
+    /**
+     * Returns the number of entries dropped because the buffer was full.
+     * 
+     * @return The number of entries dropped.
+     */
+    public long getDropped() {
+        return this.dropped.get();
+    }
+
+    /**
+     * Returns the access logger.
+     * 
+     * @return The access logger.
+     */
+    public Logger getLogger() {
+        return this.logger;
+    }
+
+    /**
+     * Returns the resolver of remote user identifiers.
+     * 
+     * @return The resolver of remote user identifiers.
+     */
+    public IdentResolver getResolver() {
+        return this.resolver;
+    }
+
+    /**
+     * Returns the number of entries waiting to be written.
+     * 
+     * @return The number of entries waiting to be written.
+     */
+    public int getPending() {
+        return this.queue.size();
+    }
+
+    /**
+     * Indicates if the current thread is writing a batch of entries.
+     * 
+     * @return True if the current thread is writing a batch of entries.
+     */
+    public static boolean isBatching() {
+        return Boolean.TRUE.equals(BATCHING.get());
+    }
+
+    /**
+     * Indicates if callers block when the buffer is full, instead of dropping
+     * the entries.
+     * 
+     * @return True if callers block when the buffer is full.
+     */
+    public boolean isBlocking() {
+        return this.blocking;
+    }
+
+    /**
+     * Indicates if the background thread is running.
+     * 
+     * @return True if the background thread is running.
+     */
+    public boolean isStarted() {
+        return this.thread != null;
+    }
+
+    /**
+     * Queues an entry to be written. Depending on the policy, either drops the
+     * entry or blocks if the buffer is full. The identity check of a queued
+     * entry is started in the background.
+     * 
+     * @param entry
+     *            The entry to write.
+     * @return True if the entry was queued.
+     */
+    public boolean log(AccessLogEntry entry) {
+        boolean result = this.queue.offer(entry);
+
+        if (!result && isBlocking()) {
+            try {
+                this.queue.put(entry);
+                result = true;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        if (!result) {
+            this.dropped.incrementAndGet();
+        } else if (entry.isPending()) {
+            this.resolver.resolve(entry);
+        }
+
+        return result;
+    }
+
+    /**
+     * Drains the buffer until the writer is stopped.
+     */
+    public void run() {
+        List<AccessLogEntry> entries = new ArrayList<AccessLogEntry>(
+                BATCH_SIZE);
+
+        try {
+            while (this.thread == Thread.currentThread()) {
+                entries.add(this.queue.take());
+                this.queue.drainTo(entries, BATCH_SIZE - 1);
+                write(entries);
+            }
+        } catch (InterruptedException e) {
+            // Stopped
+        }
+
+        // Write the remaining entries
+        this.queue.drainTo(entries);
+        write(entries);
+    }
+
+    /**
+     * Starts the background thread.
+     */
+    public synchronized void start() {
+        if (this.thread == null) {
+            Thread writer = new LoggingThreadFactory(this.logger, true)
+                    .newThread(this);
+            writer.setName("Restlet-AccessLogWriter-" + writer.hashCode());
+            this.thread = writer;
+            writer.start();
+        }
+    }
+
+    /**
+     * Stops the background thread after the queued entries are written, then
+     * the identity check threads.
+     */
+    public synchronized void stop() {
+        Thread writer = this.thread;
+
+        if (writer != null) {
+            this.thread = null;
+            writer.interrupt();
+
+            try {
+                writer.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        this.resolver.stop();
+    }
+
+    /**
+     * Writes a batch of entries then flushes the handlers. The entries whose
+     * identity check is still in progress are awaited until they time out.
+     * 
+     * @param entries
+     *            The entries to write, cleared afterwards.
+     */
+    private void write(List<AccessLogEntry> entries) {
+        if (!entries.isEmpty()) {
+            BATCHING.set(Boolean.TRUE);
+
+            try {
+                for (AccessLogEntry entry : entries) {
+                    this.logger.log(Level.INFO, entry.getMessage(entry
+                            .getCreationTime() + IdentResolver.TIMEOUT));
+                }
+            } catch (RuntimeException e) {
+                this.logger.log(Level.WARNING,
+                        "Unable to write the access log entries", e);
+            } finally {
+                BATCHING.remove();
+                entries.clear();
+            }
+
+            flush();
+        }
+    }
+
+}
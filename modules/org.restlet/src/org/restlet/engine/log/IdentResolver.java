@@ -0,0 +1,252 @@
+/**
+ * Copyright 2005-2011 Noelios Technologies.
+ * 
+ * The contents of this file are subject to the terms of one of the following
+ * open source licenses: LGPL 3.0 or LGPL 2.1 or CDDL 1.0 or EPL 1.0 (the
+ * "Licenses"). You can select the license that you prefer but you may not use
+ * this file except in compliance with one of these Licenses.
+ * 
+ * You can obtain a copy of the LGPL 3.0 license at
+ * http://www.opensource.org/licenses/lgpl-3.0.html
+ * 
+ * You can obtain a copy of the LGPL 2.1 license at
+ * http://www.opensource.org/licenses/lgpl-2.1.php
+ * 
+ * You can obtain a copy of the CDDL 1.0 license at
+ * http://www.opensource.org/licenses/cddl1.php
+ * 
+ * You can obtain a copy of the EPL 1.0 license at
+ * http://www.opensource.org/licenses/eclipse-1.0.php
+ * 
+ * See the Licenses for the specific language governing permissions and
+ * limitations under the Licenses.
+ * 
+ * Alternatively, you can obtain a royalty free commercial license with less
+ * limitations, transferable or non-transferable, directly at
+ * http://www.noelios.com/products/restlet-engine
+ * 
+ * Restlet is a registered trademark of Noelios Technologies.
+ */
+package org.restlet.engine.log;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+
+/**
+ * Resolves in the background the remote user identifiers (RFC 1413) of access
+ * log entries. A small pool of threads runs several IDENT lookups in parallel,
+ * so that a slow or unreachable IDENT server doesn't delay the other entries.
+ * The identifiers are cached for a short time by client address and ports, so
+ * that the requests received on the same connection trigger a single lookup.
+ * When too many lookups are waiting, the user identifier is considered
+ * unknown.
+ * 
+ * @author Jerome Louvel
+ */
+public class IdentResolver {
+
+    /** A cached remote user identifier. */
+    private static final class CachedIdentity {
+
+        /** The expiration time. */
+        private final long expirationTime;
+
+        /** The remote user identifier, null if unknown. */
+        private final String userIdentifier;
+
+        /**
+         * Constructor.
+         * 
+         * @param userIdentifier
+         *            The remote user identifier, null if unknown.
+         * @param expirationTime
+         *            The expiration time in milliseconds.
+         */
+        private CachedIdentity(String userIdentifier, long expirationTime) {
+            this.expirationTime = expirationTime;
+            this.userIdentifier = userIdentifier;
+        }
+    }
+
+    /** The time to live of a cached user identifier, in milliseconds. */
+    private static final long CACHE_TTL = 10000;
+
+    /** The maximum number of cached user identifiers. */
+    private static final int MAX_CACHED = 1024;
+
+    /** The maximum number of lookups running in parallel. */
+    private static final int MAX_THREADS = 4;
+
+    /** The maximum number of lookups waiting for a thread. */
+    private static final int MAX_WAITING = 1024;
+
+    /**
+     * The maximum time an entry waits for its identity check before being
+     * written, in milliseconds. It covers the IDENT connection and reading
+     * timeouts.
+     */
+    public static final long TIMEOUT = 1000;
+
+    /** The cached user identifiers, by client address and ports. */
+    private final Map<String, CachedIdentity> cache;
+
+    /** The lookup threads, created on first use. */
+    private ThreadPoolExecutor executor;
+
+    /** The logger of the lookup threads. */
+    private final Logger logger;
+
+    /**
+     * Constructor.
+     * 
+     * @param logger
+     *            The logger of the lookup threads.
+     */
+    public IdentResolver(Logger logger) {
+        this.cache = new LinkedHashMap<String, CachedIdentity>(16, 0.75f,
+                true) {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(
+                    Map.Entry<String, CachedIdentity> eldest) {
+                return size() > MAX_CACHED;
+            }
+        };
+        this.logger = logger;
+    }
+
+    /**
+     * Returns the cached identity of an entry if it hasn't expired.
+     * 
+     * @param key
+     *            The cache key.
+     * @return The cached identity or null.
+     */
+    private CachedIdentity getCached(String key) {
+        synchronized (this.cache) {
+            CachedIdentity result = this.cache.get(key);
+
+            if ((result != null)
+                    && (result.expirationTime < System.currentTimeMillis())) {
+                this.cache.remove(key);
+                result = null;
+            }
+
+            return result;
+        }
+    }
+
+    /**
+     * Returns the number of cached user identifiers, including the expired
+     * ones not evicted yet.
+     * 
+     * @return The number of cached user identifiers.
+     */
+    public int getCacheSize() {
+        synchronized (this.cache) {
+            return this.cache.size();
+        }
+    }
+
+    /**
+     * Returns the lookup threads, creating them if needed.
+     * 
+     * @return The lookup threads.
+     */
+    private synchronized ThreadPoolExecutor getExecutor() {
+        if (this.executor == null) {
+            this.executor = new ThreadPoolExecutor(MAX_THREADS, MAX_THREADS,
+                    60L, TimeUnit.SECONDS, new ArrayBlockingQueue<Runnable>(
+                            MAX_WAITING), new LoggingThreadFactory(
+                            this.logger, true));
+        }
+
+        return this.executor;
+    }
+
+    /**
+     * Returns the cache key of an entry.
+     * 
+     * @param entry
+     *            The access log entry.
+     * @return The cache key.
+     */
+    private String getKey(AccessLogEntry entry) {
+        return entry.getClientAddress() + ":" + entry.getClientPort() + ":"
+                + entry.getServerPort();
+    }
+
+    /**
+     * Looks up the remote user identifier of an entry then completes it.
+     * 
+     * @param entry
+     *            The access log entry.
+     * @param key
+     *            The cache key.
+     */
+    private void lookup(AccessLogEntry entry, String key) {
+        CachedIdentity cached = getCached(key);
+
+        if (cached == null) {
+            String userIdentifier = new IdentClient(entry.getClientAddress(),
+                    entry.getClientPort(), entry.getServerPort())
+                    .getUserIdentifier();
+            cached = new CachedIdentity(userIdentifier,
+                    System.currentTimeMillis() + CACHE_TTL);
+
+            synchronized (this.cache) {
+                this.cache.put(key, cached);
+            }
+        }
+
+        entry.complete(cached.userIdentifier);
+    }
+
+    /**
+     * Resolves the remote user identifier of an entry in the background,
+     * unless it is cached. Once resolved, the entry is completed, see
+     * {@link AccessLogEntry#complete(String)}.
+     * 
+     * @param entry
+     *            The access log entry.
+     */
+    public void resolve(final AccessLogEntry entry) {
+        final String key = getKey(entry);
+        CachedIdentity cached = getCached(key);
+
+        if (cached != null) {
+            entry.complete(cached.userIdentifier);
+        } else {
+            try {
+                getExecutor().execute(new Runnable() {
+                    public void run() {
+                        // Skip the entries written in the meantime
+                        if (entry.isPending()) {
+                            lookup(entry, key);
+                        }
+                    }
+                });
+            } catch (RejectedExecutionException e) {
+                // Too many lookups are waiting
+                entry.complete(null);
+            }
+        }
+    }
+
+    /**
+     * Stops the lookup threads. They are created again if needed.
+     */
+    public synchronized void stop() {
+        if (this.executor != null) {
+            this.executor.shutdownNow();
+            this.executor = null;
+        }
+    }
+
+}
@@ -58,6 +58,10 @@ public class LogFilter extends Filter {
     /** The log service logger. */
     private volatile Logger logLogger;
 
+    // [ifndef gae] member
+    /** The asynchronous writer, created on first use. */
+    private volatile AccessLogWriter writer;
+
     /**
      * Constructor.
      * 
@@ -100,8 +104,21 @@ public class LogFilter extends Filter {
             long startTime = (Long) request.getAttributes().get(
                     "org.restlet.startTime");
             int duration = (int) (System.currentTimeMillis() - startTime);
-            this.logLogger.log(Level.INFO,
-                    this.logService.getResponseLogMessage(response, duration));
+
+            // [ifndef gae]
+            AccessLogWriter writer = this.logService.isAsynchronous() ? getWriter()
+                    : null;
+
+            if (writer != null) {
+                writer.log(this.logService.getResponseLogEntry(response,
+                        duration));
+            } else {
+                // [enddef]
+                this.logLogger.log(Level.INFO, this.logService
+                        .getResponseLogMessage(response, duration));
+                // [ifndef gae]
+            }
+            // [enddef]
         }
     }
 
@@ -133,4 +150,48 @@ public class LogFilter extends Filter {
         return CONTINUE;
     }
 
+    // [ifndef gae] method
+    /**
+     * Returns the asynchronous writer, creating and starting it if needed. It
+     * synchronizes on the filter like {@link #stop()}, so that no writer is
+     * created once the filter is stopped.
+     * 
+     * @return The asynchronous writer or null if the filter is stopped.
+     */
+    public AccessLogWriter getWriter() {
+        AccessLogWriter result = this.writer;
+
+        if (result == null) {
+            synchronized (this) {
+                result = this.writer;
+
+                if ((result == null) && isStarted()) {
+                    result = new AccessLogWriter(this.logLogger,
+                            this.logService.getQueueCapacity(),
+                            this.logService.isQueueBlocking());
+                    result.start();
+                    this.writer = result;
+                }
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * Stops the filter, after writing the pending asynchronous entries. The
+     * calls still in progress are then logged synchronously.
+     */
+    @Override
+    public synchronized void stop() throws Exception {
+        super.stop();
+
+        // [ifndef gae]
+        if (this.writer != null) {
+            this.writer.stop();
+            this.writer = null;
+        }
+        // [enddef]
+    }
+
 }
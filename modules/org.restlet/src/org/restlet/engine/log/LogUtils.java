@@ -37,6 +37,34 @@ package org.restlet.engine.log;
  */
 public class LogUtils {
 
+    /**
+     * Date and time formatted for a given second.
+     */
+    private static final class Timestamp {
+
+        /** The second since the epoch. */
+        private final long second;
+
+        /** The formatted date and time. */
+        private final String value;
+
+        /**
+         * Constructor.
+         * 
+         * @param second
+         *            The second since the epoch.
+         * @param value
+         *            The formatted date and time.
+         */
+        private Timestamp(long second, String value) {
+            this.second = second;
+            this.value = value;
+        }
+    }
+
+    /** The last date and time formatted. */
+    private static volatile Timestamp timestamp = new Timestamp(-1, null);
+
     /**
      * Prevent instantiation of the class.
      */
@@ -61,6 +89,28 @@ public class LogUtils {
         return result;
     }
 
+    /**
+     * Returns the date (YYYY-MM-DD) and the time (HH:MM:SS) of the given
+     * instant, separated by a tabulation. The result is computed once per
+     * second and then shared by all the log entries of the same second.
+     * 
+     * @param time
+     *            The instant, in milliseconds since the epoch.
+     * @return The formatted date and time.
+     */
+    public static String getDateTime(long time) {
+        Timestamp current = timestamp;
+        long second = time / 1000L;
+
+        if (current.second != second) {
+            current = new Timestamp(second, String.format("%tF\t%tT", time,
+                    time));
+            timestamp = current;
+        }
+
+        return current.value;
+    }
+
     /**
      * Returns a non-null logger name. It is composed by the canonical class
      * name of the owner object suffixed by the owner's hash code.
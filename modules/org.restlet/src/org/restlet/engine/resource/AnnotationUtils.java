@@ -31,7 +31,10 @@
 package org.restlet.engine.resource;
 
 import java.lang.annotation.Annotation;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.CopyOnWriteArrayList;
@@ -53,6 +56,12 @@ public class AnnotationUtils {
     /** Annotation info cache. */
     private static final ConcurrentMap<Class<?>, List<AnnotationInfo>> cache = new ConcurrentHashMap<Class<?>, List<AnnotationInfo>>();
 
+    /** Invocation plans cache. */
+    private static final ConcurrentMap<Class<?>, Map<java.lang.reflect.Method, InvocationPlan>> invocations = new ConcurrentHashMap<Class<?>, Map<java.lang.reflect.Method, InvocationPlan>>();
+
+    /** Dispatch plan cache. */
+    private static final ConcurrentMap<Class<?>, DispatchPlan> plans = new ConcurrentHashMap<Class<?>, DispatchPlan>();
+
     /**
      * Computes the annotation descriptors for the given Java method.
      * 
@@ -156,10 +165,13 @@ public class AnnotationUtils {
     }
 
     /**
-     * Clears the annotation descriptors cache.
+     * Clears the annotation descriptors, dispatch plans and invocation plans
+     * caches.
      */
     public static void clearCache() {
         cache.clear();
+        invocations.clear();
+        plans.clear();
     }
 
     /**
@@ -257,6 +269,73 @@ public class AnnotationUtils {
         return addAnnotationDescriptors(null, clazz, javaMethod);
     }
 
+    /**
+     * Returns the dispatch plan for the given resource class, computed once
+     * from its annotation descriptors.
+     * 
+     * @param clazz
+     *            The resource class to introspect.
+     * @return The dispatch plan.
+     */
+    public static DispatchPlan getDispatchPlan(Class<?> clazz) {
+        DispatchPlan result = plans.get(clazz);
+
+        if (result == null) {
+            result = new DispatchPlan(getAnnotations(clazz));
+
+            // Put the plan in the cache if no one was previously present
+            DispatchPlan prev = plans.putIfAbsent(clazz, result);
+
+            if (prev != null) {
+                // Reuse the previous entry
+                result = prev;
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * Returns the invocation plans of the methods of the given resource
+     * interface, computed once from its annotation descriptors. The
+     * {@link Object#toString()} method is planned as well.
+     * 
+     * @param resourceInterface
+     *            The resource interface to introspect.
+     * @return The invocation plans, indexed by Java method.
+     */
+    public static Map<java.lang.reflect.Method, InvocationPlan> getInvocationPlans(
+            Class<?> resourceInterface) {
+        Map<java.lang.reflect.Method, InvocationPlan> result = invocations
+                .get(resourceInterface);
+
+        if (result == null) {
+            List<AnnotationInfo> annotations = getAnnotations(resourceInterface);
+            result = new HashMap<java.lang.reflect.Method, InvocationPlan>();
+
+            for (java.lang.reflect.Method javaMethod : resourceInterface
+                    .getMethods()) {
+                result.put(javaMethod, new InvocationPlan(javaMethod,
+                        getAnnotation(annotations, javaMethod)));
+            }
+
+            result.put(InvocationPlan.TO_STRING, new InvocationPlan(
+                    InvocationPlan.TO_STRING, null));
+            result = Collections.unmodifiableMap(result);
+
+            // Put the plans in the cache if none were previously present
+            Map<java.lang.reflect.Method, InvocationPlan> prev = invocations
+                    .putIfAbsent(resourceInterface, result);
+
+            if (prev != null) {
+                // Reuse the previous entry
+                result = prev;
+            }
+        }
+
+        return result;
+    }
+
     /**
      * Private constructor to ensure that the class acts as a true utility class
      * i.e. it isn't instantiable and extensible.
@@ -31,18 +31,15 @@
 package org.restlet.engine.resource;
 
 import java.lang.reflect.InvocationHandler;
-import java.lang.reflect.ParameterizedType;
-import java.lang.reflect.Type;
 import java.util.List;
+import java.util.Map;
 
 import org.restlet.Request;
 import org.restlet.Response;
 import org.restlet.Uniform;
 import org.restlet.data.ClientInfo;
-import org.restlet.data.Form;
 import org.restlet.representation.Representation;
 import org.restlet.representation.Variant;
-import org.restlet.resource.ClientProxy;
 import org.restlet.resource.ClientResource;
 import org.restlet.resource.ResourceException;
 import org.restlet.resource.Result;
@@ -65,6 +62,9 @@ public class ClientInvocationHandler<T> implements InvocationHandler {
     /** The associated client resource. */
     private final ClientResource clientResource;
 
+    /** The invocation plans of the resource interface methods. */
+    private final Map<java.lang.reflect.Method, InvocationPlan> plans;
+
     /**
      * Constructor.
      * 
@@ -79,6 +79,7 @@ public class ClientInvocationHandler<T> implements InvocationHandler {
 
         // Introspect the interface for Restlet annotations
         this.annotations = AnnotationUtils.getAnnotations(resourceInterface);
+        this.plans = AnnotationUtils.getInvocationPlans(resourceInterface);
     }
 
     /**
@@ -106,140 +107,124 @@ public class ClientInvocationHandler<T> implements InvocationHandler {
     public Object invoke(Object proxy, java.lang.reflect.Method javaMethod,
             Object[] args) throws Throwable {
         Object result = null;
+        InvocationPlan plan = this.plans.get(javaMethod);
+
+        if (plan == null) {
+            // Method not declared by the resource interface
+            plan = new InvocationPlan(javaMethod,
+                    AnnotationUtils.getAnnotation(annotations, javaMethod));
+        }
 
-        if (javaMethod.equals(Object.class.getMethod("toString"))) {
+        if (plan.isToString()) {
             // Help debug
             result = "ClientProxy for resource: " + clientResource;
-        } else if (javaMethod.equals(ClientProxy.class
-                .getMethod("getClientResource"))) {
+        } else if (plan.isClientResourceGetter()) {
             result = clientResource;
-        } else {
-            AnnotationInfo annotationInfo = AnnotationUtils.getAnnotation(
-                    annotations, javaMethod);
-
-            if (annotationInfo != null) {
-                Representation requestEntity = null;
-                boolean isSynchronous = true;
-
-                if ((args != null) && args.length > 0) {
-                    // Checks if the user has defined its own
-                    // callback.
-                    for (int i = 0; i < args.length; i++) {
-                        Object o = args[i];
-
-                        if (o == null) {
-                            requestEntity = null;
-                        } else if (Result.class.isAssignableFrom(o.getClass())) {
-                            // Asynchronous mode where a callback
-                            // object is to be called.
-                            isSynchronous = false;
-
-                            // Get the kind of result expected.
-                            final Result rCallback = (Result) o;
-                            Type[] genericParameterTypes = javaMethod
-                                    .getGenericParameterTypes();
-                            Type genericParameterType = genericParameterTypes[i];
-                            ParameterizedType parameterizedType = (genericParameterType instanceof java.lang.reflect.ParameterizedType) ? (java.lang.reflect.ParameterizedType) genericParameterType
-                                    : null;
-                            final Class<?> actualType = (parameterizedType
-                                    .getActualTypeArguments()[0] instanceof Class<?>) ? (Class<?>) parameterizedType
-                                    .getActualTypeArguments()[0] : null;
-
-                            // Define the callback
-                            Uniform callback = new Uniform() {
-                                @SuppressWarnings("unchecked")
-                                public void handle(Request request,
-                                        Response response) {
-                                    if (response.getStatus().isError()) {
-                                        rCallback
-                                                .onFailure(new ResourceException(
-                                                        response.getStatus()));
-                                    } else {
-                                        if (actualType != null) {
-                                            Object result = null;
-                                            boolean serializationError = false;
-
-                                            try {
-                                                result = getClientResource()
-                                                        .toObject(
-                                                                response.getEntity(),
-                                                                actualType);
-                                            } catch (Exception e) {
-                                                serializationError = true;
-                                                rCallback
-                                                        .onFailure(new ResourceException(
-                                                                e));
-                                            }
-
-                                            if (!serializationError) {
-                                                rCallback.onSuccess(result);
-                                            }
-                                        } else {
-                                            rCallback.onSuccess(null);
+        } else if (plan.getAnnotation() != null) {
+            Representation requestEntity = null;
+            boolean isSynchronous = true;
+
+            if ((args != null) && args.length > 0) {
+                // Checks if the user has defined its own
+                // callback.
+                for (int i = 0; i < args.length; i++) {
+                    Object o = args[i];
+
+                    if (o == null) {
+                        requestEntity = null;
+                    } else if (plan.isCallback(i)) {
+                        // Asynchronous mode where a callback
+                        // object is to be called.
+                        isSynchronous = false;
+
+                        // Get the kind of result expected.
+                        final Result rCallback = (Result) o;
+                        final Class<?> actualType = plan.getCallbackType(i);
+
+                        // Define the callback
+                        Uniform callback = new Uniform() {
+                            @SuppressWarnings("unchecked")
+                            public void handle(Request request,
+                                    Response response) {
+                                if (response.getStatus().isError()) {
+                                    rCallback.onFailure(new ResourceException(
+                                            response.getStatus()));
+                                } else {
+                                    if (actualType != null) {
+                                        Object result = null;
+                                        boolean serializationError = false;
+
+                                        try {
+                                            result = getClientResource()
+                                                    .toObject(
+                                                            response.getEntity(),
+                                                            actualType);
+                                        } catch (Exception e) {
+                                            serializationError = true;
+                                            rCallback
+                                                    .onFailure(new ResourceException(
+                                                            e));
                                         }
+
+                                        if (!serializationError) {
+                                            rCallback.onSuccess(result);
+                                        }
+                                    } else {
+                                        rCallback.onSuccess(null);
                                     }
                                 }
-                            };
+                            }
+                        };
 
-                            getClientResource().setOnResponse(callback);
-                        } else {
-                            requestEntity = getClientResource()
-                                    .toRepresentation(args[i], null);
-                        }
+                        getClientResource().setOnResponse(callback);
+                    } else {
+                        requestEntity = getClientResource().toRepresentation(
+                                args[i], null);
                     }
                 }
+            }
 
-                // Clone the prototype request
-                Request request = getClientResource().createRequest();
+            // Clone the prototype request
+            Request request = getClientResource().createRequest();
 
-                // The Java method was annotated
-                request.setMethod(annotationInfo.getRestletMethod());
+            // The Java method was annotated
+            request.setMethod(plan.getRestletMethod());
 
-                // Add the mandatory query parameters
-                String query = annotationInfo.getQuery();
+            // Add the mandatory query parameters
+            if (plan.getQuery() != null) {
+                request.getResourceRef().addQueryParameters(plan.getQuery());
+            }
 
-                if (query != null) {
-                    Form queryParams = new Form(annotationInfo.getQuery());
-                    request.getResourceRef().addQueryParameters(queryParams);
-                }
+            // Set the entity
+            request.setEntity(requestEntity);
 
-                // Set the entity
-                request.setEntity(requestEntity);
-
-                // Updates the client preferences if they weren't changed
-                if ((request.getClientInfo().getAcceptedCharacterSets().size() == 0)
-                        && (request.getClientInfo().getAcceptedEncodings()
-                                .size() == 0)
-                        && (request.getClientInfo().getAcceptedLanguages()
-                                .size() == 0)
-                        && (request.getClientInfo().getAcceptedMediaTypes()
-                                .size() == 0)) {
-                    List<Variant> responseVariants = annotationInfo
-                            .getResponseVariants(getClientResource()
-                                    .getMetadataService(), getClientResource()
-                                    .getConverterService());
-
-                    if (responseVariants != null) {
-                        request.setClientInfo(new ClientInfo(responseVariants));
-                    }
+            // Updates the client preferences if they weren't changed
+            if ((request.getClientInfo().getAcceptedCharacterSets().size() == 0)
+                    && (request.getClientInfo().getAcceptedEncodings().size() == 0)
+                    && (request.getClientInfo().getAcceptedLanguages().size() == 0)
+                    && (request.getClientInfo().getAcceptedMediaTypes().size() == 0)) {
+                List<Variant> responseVariants = plan.getResponseVariants(
+                        getClientResource().getMetadataService(),
+                        getClientResource().getConverterService());
+
+                if (responseVariants != null) {
+                    request.setClientInfo(new ClientInfo(responseVariants));
                 }
+            }
 
-                // Effectively handle the call
-                Response response = getClientResource().handleOutbound(request);
+            // Effectively handle the call
+            Response response = getClientResource().handleOutbound(request);
 
-                // Handle the response
-                if (isSynchronous) {
-                    if (response.getStatus().isError()) {
-                        getClientResource().doError(response.getStatus());
-                    }
+            // Handle the response
+            if (isSynchronous) {
+                if (response.getStatus().isError()) {
+                    getClientResource().doError(response.getStatus());
+                }
 
-                    if (!annotationInfo.getJavaOutputType().equals(void.class)) {
-                        result = getClientResource()
-                                .toObject(
-                                        (response == null ? null
-                                                : response.getEntity()),
-                                        annotationInfo.getJavaOutputType());
-                    }
+                if (!plan.getJavaOutputType().equals(void.class)) {
+                    result = getClientResource().toObject(
+                            (response == null ? null : response.getEntity()),
+                            plan.getJavaOutputType());
                 }
             }
         }
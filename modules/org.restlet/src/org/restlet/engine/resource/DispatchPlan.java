@@ -0,0 +1,395 @@
+/**
+ * Copyright 2005-2011 Noelios Technologies.
+ * 
+ * The contents of this file are subject to the terms of one of the following
+ * open source licenses: LGPL 3.0 or LGPL 2.1 or CDDL 1.0 or CDL 1.0 (the
+ * "Licenses"). You can select the license that you prefer but you may not use
+ * this file except in compliance with one of these Licenses.
+ * 
+ * You can obtain a copy of the LGPL 3.0 license at
+ * http://www.opensource.org/licenses/lgpl-3.0.html
+ * 
+ * You can obtain a copy of the LGPL 2.1 license at
+ * http://www.opensource.org/licenses/lgpl-2.1.php
+ * 
+ * You can obtain a copy of the CDDL 1.0 license at
+ * http://www.opensource.org/licenses/cddl1.php
+ * 
+ * You can obtain a copy of the EPL 1.0 license at
+ * http://www.opensource.org/licenses/eclipse-1.0.php
+ * 
+ * See the Licenses for the specific language governing permissions and
+ * limitations under the Licenses.
+ * 
+ * Alternatively, you can obtain a royalty free commercial license with less
+ * limitations, transferable or non-transferable, directly at
+ * http://www.noelios.com/products/restlet-engine
+ * 
+ * Restlet is a registered trademark of Noelios Technologies.
+ */
+
+package org.restlet.engine.resource;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import org.restlet.data.Form;
+import org.restlet.data.Method;
+import org.restlet.data.Parameter;
+import org.restlet.engine.Engine;
+import org.restlet.engine.converter.ConverterHelper;
+import org.restlet.representation.Representation;
+import org.restlet.representation.Variant;
+import org.restlet.service.ConverterService;
+import org.restlet.service.MetadataService;
+
+// [excludes gwt]
+/**
+ * Dispatch plan of an annotated resource class, computed once per class. The
+ * annotation descriptors are grouped by Restlet method, their query
+ * constraints are parsed and the allowed methods are listed. The request and
+ * response variants of each descriptor are resolved on first use for a given
+ * pair of metadata and converter services, and resolved again when those
+ * services or the converters registered with the engine change.
+ * 
+ * @author Jerome Louvel
+ * @see AnnotationUtils#getDispatchPlan(Class)
+ */
+public class DispatchPlan {
+
+    /**
+     * Variants of the annotation descriptors resolved with a given pair of
+     * services and set of registered converters.
+     */
+    private static class Resolution {
+
+        /** The converter service used. */
+        private final ConverterService converterService;
+
+        /** The converters registered when the variants were resolved. */
+        private final ConverterHelper[] converters;
+
+        /** The metadata service used. */
+        private final MetadataService metadataService;
+
+        /** The request variants of each annotation descriptor. */
+        private final List<List<Variant>> requestVariants;
+
+        /** The response variants of each annotation descriptor. */
+        private final List<List<Variant>> responseVariants;
+
+        /**
+         * Constructor.
+         * 
+         * @param annotations
+         *            The annotation descriptors.
+         * @param metadataService
+         *            The metadata service to use.
+         * @param converterService
+         *            The converter service to use.
+         */
+        private Resolution(List<AnnotationInfo> annotations,
+                MetadataService metadataService,
+                ConverterService converterService) {
+            this.converterService = converterService;
+            this.converters = Engine.getInstance().getRegisteredConverters()
+                    .toArray(new ConverterHelper[0]);
+            this.metadataService = metadataService;
+            this.requestVariants = new ArrayList<List<Variant>>(
+                    annotations.size());
+            this.responseVariants = new ArrayList<List<Variant>>(
+                    annotations.size());
+
+            for (AnnotationInfo annotationInfo : annotations) {
+                this.requestVariants.add(annotationInfo.getRequestVariants(
+                        metadataService, converterService));
+                this.responseVariants.add(annotationInfo.getResponseVariants(
+                        metadataService, converterService));
+            }
+        }
+
+        /**
+         * Indicates if the variants were resolved with the given services and
+         * the converters currently registered.
+         * 
+         * @param metadataService
+         *            The metadata service to use.
+         * @param converterService
+         *            The converter service to use.
+         * @return True if the resolved variants can be reused.
+         */
+        private boolean isCurrent(MetadataService metadataService,
+                ConverterService converterService) {
+            if ((this.metadataService != metadataService)
+                    || (this.converterService != converterService)) {
+                return false;
+            }
+
+            int i = 0;
+
+            for (ConverterHelper helper : Engine.getInstance()
+                    .getRegisteredConverters()) {
+                if ((i >= this.converters.length)
+                        || (this.converters[i++] != helper)) {
+                    return false;
+                }
+            }
+
+            return i == this.converters.length;
+        }
+    }
+
+    /** Empty list of indexes. */
+    private static final int[] NO_INDEXES = new int[0];
+
+    /** The allowed methods, in declaration order. */
+    private final List<Method> allowedMethods;
+
+    /** The annotation descriptors. */
+    private final List<AnnotationInfo> annotations;
+
+    /** The indexes of the annotation descriptors of each Restlet method. */
+    private final Map<Method, int[]> methods;
+
+    /** The parsed query constraints of each annotation descriptor. */
+    private final Form[] queries;
+
+    /** The variants resolved with the latest services used. */
+    private volatile Resolution resolution;
+
+    /**
+     * Constructor.
+     * 
+     * @param annotations
+     *            The annotation descriptors of the resource class.
+     */
+    public DispatchPlan(List<AnnotationInfo> annotations) {
+        this.annotations = (annotations == null) ? Collections
+                .<AnnotationInfo> emptyList() : Collections
+                .unmodifiableList(new ArrayList<AnnotationInfo>(annotations));
+        this.queries = new Form[this.annotations.size()];
+
+        List<Method> allowed = new ArrayList<Method>();
+        Map<Method, List<Integer>> indexes = new HashMap<Method, List<Integer>>();
+
+        for (int i = 0; i < this.annotations.size(); i++) {
+            AnnotationInfo annotationInfo = this.annotations.get(i);
+            Method method = annotationInfo.getRestletMethod();
+
+            if (annotationInfo.getQuery() != null) {
+                this.queries[i] = new Form(annotationInfo.getQuery());
+            }
+
+            if (!indexes.containsKey(method)) {
+                allowed.add(method);
+                indexes.put(method, new ArrayList<Integer>());
+            }
+
+            indexes.get(method).add(i);
+        }
+
+        this.allowedMethods = Collections.unmodifiableList(allowed);
+        this.methods = new HashMap<Method, int[]>();
+
+        for (Map.Entry<Method, List<Integer>> entry : indexes.entrySet()) {
+            int[] array = new int[entry.getValue().size()];
+
+            for (int i = 0; i < array.length; i++) {
+                array[i] = entry.getValue().get(i);
+            }
+
+            this.methods.put(entry.getKey(), array);
+        }
+    }
+
+    /**
+     * Returns the Restlet methods annotated, in declaration order.
+     * 
+     * @return The Restlet methods annotated.
+     */
+    public List<Method> getAllowedMethods() {
+        return allowedMethods;
+    }
+
+    /**
+     * Returns the first annotation descriptor compatible with the given
+     * parameters.
+     * 
+     * @param restletMethod
+     *            The Restlet method to match.
+     * @param query
+     *            The query parameters.
+     * @param entity
+     *            The request entity to match or null if no entity is provided.
+     * @param metadataService
+     *            The metadata service to use.
+     * @param converterService
+     *            The converter service to use.
+     * @return The annotation descriptor or null.
+     */
+    public AnnotationInfo getAnnotation(Method restletMethod, Form query,
+            Representation entity, MetadataService metadataService,
+            ConverterService converterService) {
+        int[] indexes = getIndexes(restletMethod);
+
+        if (indexes.length > 0) {
+            Resolution current = getResolution(metadataService,
+                    converterService);
+
+            for (int index : indexes) {
+                if (isCompatible(index, query, entity, current)) {
+                    return this.annotations.get(index);
+                }
+            }
+        }
+
+        return null;
+    }
+
+    /**
+     * Returns the annotation descriptors of the resource class.
+     * 
+     * @return The annotation descriptors of the resource class.
+     */
+    public List<AnnotationInfo> getAnnotations() {
+        return annotations;
+    }
+
+    /**
+     * Returns the indexes of the annotation descriptors of a Restlet method.
+     * 
+     * @param restletMethod
+     *            The Restlet method.
+     * @return The indexes of the annotation descriptors.
+     */
+    private int[] getIndexes(Method restletMethod) {
+        int[] result = (restletMethod == null) ? null : this.methods
+                .get(restletMethod);
+        return (result == null) ? NO_INDEXES : result;
+    }
+
+    /**
+     * Returns the variants resolved with the given services, resolving them
+     * again if the services or the registered converters changed.
+     * 
+     * @param metadataService
+     *            The metadata service to use.
+     * @param converterService
+     *            The converter service to use.
+     * @return The resolved variants.
+     */
+    private Resolution getResolution(MetadataService metadataService,
+            ConverterService converterService) {
+        Resolution result = this.resolution;
+
+        if ((result == null)
+                || !result.isCurrent(metadataService, converterService)) {
+            result = new Resolution(this.annotations, metadataService,
+                    converterService);
+            this.resolution = result;
+        }
+
+        return result;
+    }
+
+    /**
+     * Returns the response variants of the annotation descriptors compatible
+     * with the given parameters. Each variant is wrapped in a
+     * {@link VariantInfo} referencing its annotation descriptor.
+     * 
+     * @param restletMethod
+     *            The Restlet method to match.
+     * @param query
+     *            The query parameters.
+     * @param entity
+     *            The request entity to match or null if no entity is provided.
+     * @param metadataService
+     *            The metadata service to use.
+     * @param converterService
+     *            The converter service to use.
+     * @return The list of response variants.
+     */
+    public List<Variant> getVariants(Method restletMethod, Form query,
+            Representation entity, MetadataService metadataService,
+            ConverterService converterService) {
+        List<Variant> result = new ArrayList<Variant>();
+        int[] indexes = getIndexes(restletMethod);
+
+        if (indexes.length > 0) {
+            Resolution current = getResolution(metadataService,
+                    converterService);
+
+            for (int index : indexes) {
+                if (isCompatible(index, query, entity, current)) {
+                    List<Variant> variants = current.responseVariants
+                            .get(index);
+
+                    if (variants != null) {
+                        AnnotationInfo annotationInfo = this.annotations
+                                .get(index);
+
+                        for (Variant variant : variants) {
+                            result.add(new VariantInfo(variant, annotationInfo));
+                        }
+                    }
+                }
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * Indicates if an annotation descriptor is compatible with the query
+     * parameters and the request entity. The Restlet method is supposed to
+     * match already.
+     * 
+     * @param index
+     *            The index of the annotation descriptor.
+     * @param query
+     *            The query parameters.
+     * @param entity
+     *            The request entity to match or null if no entity is provided.
+     * @param resolution
+     *            The resolved variants.
+     * @return True if the annotation descriptor is compatible.
+     */
+    private boolean isCompatible(int index, Form query, Representation entity,
+            Resolution resolution) {
+        boolean result = true;
+
+        // Verify query parameters
+        if (this.queries[index] != null) {
+            for (Iterator<Parameter> iter = this.queries[index].iterator(); iter
+                    .hasNext() && result;) {
+                result = query.contains(iter.next());
+            }
+        }
+
+        // Verify request entity
+        if (result && (entity != null) && entity.isAvailable()) {
+            List<Variant> requestVariants = resolution.requestVariants
+                    .get(index);
+            result = false;
+
+            if (requestVariants != null) {
+                for (int i = 0; (!result) && (i < requestVariants.size()); i++) {
+                    result = requestVariants.get(i).isCompatible(entity);
+                }
+            }
+        }
+
+        return result;
+    }
+
+    @Override
+    public String toString() {
+        return "DispatchPlan [allowedMethods: " + getAllowedMethods()
+                + ", annotations: " + getAnnotations().size() + "]";
+    }
+
+}
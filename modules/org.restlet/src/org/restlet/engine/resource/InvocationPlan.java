@@ -0,0 +1,333 @@
+/**
+ * Copyright 2005-2011 Noelios Technologies.
+ * 
+ * The contents of this file are subject to the terms of one of the following
+ * open source licenses: LGPL 3.0 or LGPL 2.1 or CDDL 1.0 or CDL 1.0 (the
+ * "Licenses"). You can select the license that you prefer but you may not use
+ * this file except in compliance with one of these Licenses.
+ * 
+ * You can obtain a copy of the LGPL 3.0 license at
+ * http://www.opensource.org/licenses/lgpl-3.0.html
+ * 
+ * You can obtain a copy of the LGPL 2.1 license at
+ * http://www.opensource.org/licenses/lgpl-2.1.php
+ * 
+ * You can obtain a copy of the CDDL 1.0 license at
+ * http://www.opensource.org/licenses/cddl1.php
+ * 
+ * You can obtain a copy of the EPL 1.0 license at
+ * http://www.opensource.org/licenses/eclipse-1.0.php
+ * 
+ * See the Licenses for the specific language governing permissions and
+ * limitations under the Licenses.
+ * 
+ * Alternatively, you can obtain a royalty free commercial license with less
+ * limitations, transferable or non-transferable, directly at
+ * http://www.noelios.com/products/restlet-engine
+ * 
+ * Restlet is a registered trademark of Noelios Technologies.
+ */
+package org.restlet.engine.resource;
+
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.util.List;
+
+import org.restlet.data.Form;
+import org.restlet.data.Method;
+import org.restlet.engine.Engine;
+import org.restlet.engine.converter.ConverterHelper;
+import org.restlet.representation.Variant;
+import org.restlet.resource.ClientProxy;
+import org.restlet.resource.Result;
+import org.restlet.service.ConverterService;
+import org.restlet.service.MetadataService;
+
+// [excludes gwt]
+/**
+ * Invocation plan of a Java method of a client proxy, computed once per
+ * resource interface. It tells how the method is handled, either locally or
+ * as a call, in which case it holds the annotation descriptor, the parsed
+ * query constraints and the result types of the asynchronous callbacks. The
+ * response variants are resolved on first use for a given pair of metadata
+ * and converter services, and resolved again when those services or the
+ * converters registered with the engine change.
+ * 
+ * @author Jerome Louvel
+ * @see AnnotationUtils#getInvocationPlans(Class)
+ */
+public class InvocationPlan {
+
+    /**
+     * Response variants resolved with a given pair of services and set of
+     * registered converters.
+     */
+    private static class Resolution {
+
+        /** The converter service used. */
+        private final ConverterService converterService;
+
+        /** The converters registered when the variants were resolved. */
+        private final ConverterHelper[] converters;
+
+        /** The metadata service used. */
+        private final MetadataService metadataService;
+
+        /** The response variants. */
+        private final List<Variant> responseVariants;
+
+        /**
+         * Constructor.
+         * 
+         * @param annotationInfo
+         *            The annotation descriptor.
+         * @param metadataService
+         *            The metadata service to use.
+         * @param converterService
+         *            The converter service to use.
+         */
+        private Resolution(AnnotationInfo annotationInfo,
+                MetadataService metadataService,
+                ConverterService converterService) {
+            this.converterService = converterService;
+            this.converters = Engine.getInstance().getRegisteredConverters()
+                    .toArray(new ConverterHelper[0]);
+            this.metadataService = metadataService;
+            this.responseVariants = annotationInfo.getResponseVariants(
+                    metadataService, converterService);
+        }
+
+        /**
+         * Indicates if the variants were resolved with the given services and
+         * the converters currently registered.
+         * 
+         * @param metadataService
+         *            The metadata service to use.
+         * @param converterService
+         *            The converter service to use.
+         * @return True if the resolved variants can be reused.
+         */
+        private boolean isCurrent(MetadataService metadataService,
+                ConverterService converterService) {
+            if ((this.metadataService != metadataService)
+                    || (this.converterService != converterService)) {
+                return false;
+            }
+
+            int i = 0;
+
+            for (ConverterHelper helper : Engine.getInstance()
+                    .getRegisteredConverters()) {
+                if ((i >= this.converters.length)
+                        || (this.converters[i++] != helper)) {
+                    return false;
+                }
+            }
+
+            return i == this.converters.length;
+        }
+    }
+
+    /** The {@link ClientProxy#getClientResource()} method. */
+    private static final java.lang.reflect.Method GET_CLIENT_RESOURCE;
+
+    /** The {@link Object#toString()} method. */
+    static final java.lang.reflect.Method TO_STRING;
+
+    static {
+        try {
+            GET_CLIENT_RESOURCE = ClientProxy.class
+                    .getMethod("getClientResource");
+            TO_STRING = Object.class.getMethod("toString");
+        } catch (NoSuchMethodException e) {
+            throw new IllegalStateException(e.getMessage());
+        }
+    }
+
+    /** The annotation descriptor, null if the method isn't annotated. */
+    private final AnnotationInfo annotation;
+
+    /** Indicates which parameters are asynchronous callbacks. */
+    private final boolean[] callbacks;
+
+    /** The expected result types of the asynchronous callbacks. */
+    private final Class<?>[] callbackTypes;
+
+    /** Indicates if the method returns the client resource. */
+    private final boolean clientResourceGetter;
+
+    /** The Java method. */
+    private final java.lang.reflect.Method javaMethod;
+
+    /** The parsed query constraints, or null. */
+    private final Form query;
+
+    /** The response variants resolved with the latest services used. */
+    private volatile Resolution resolution;
+
+    /** Indicates if the method returns a description of the proxy. */
+    private final boolean toStringMethod;
+
+    /**
+     * Constructor.
+     * 
+     * @param javaMethod
+     *            The Java method.
+     * @param annotation
+     *            The annotation descriptor, null if the method isn't
+     *            annotated.
+     */
+    public InvocationPlan(java.lang.reflect.Method javaMethod,
+            AnnotationInfo annotation) {
+        this.annotation = annotation;
+        this.clientResourceGetter = GET_CLIENT_RESOURCE.equals(javaMethod);
+        this.javaMethod = javaMethod;
+        this.query = ((annotation == null) || (annotation.getQuery() == null)) ? null
+                : new Form(annotation.getQuery());
+        this.toStringMethod = TO_STRING.equals(javaMethod);
+
+        Class<?>[] parameterTypes = javaMethod.getParameterTypes();
+        Type[] genericParameterTypes = javaMethod.getGenericParameterTypes();
+        this.callbacks = new boolean[parameterTypes.length];
+        this.callbackTypes = new Class<?>[parameterTypes.length];
+
+        for (int i = 0; i < parameterTypes.length; i++) {
+            this.callbacks[i] = Result.class.isAssignableFrom(parameterTypes[i]);
+
+            if (this.callbacks[i]
+                    && (i < genericParameterTypes.length)
+                    && (genericParameterTypes[i] instanceof ParameterizedType)) {
+                Type actualType = ((ParameterizedType) genericParameterTypes[i])
+                        .getActualTypeArguments()[0];
+
+                if (actualType instanceof Class<?>) {
+                    this.callbackTypes[i] = (Class<?>) actualType;
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns the annotation descriptor, null if the method isn't annotated.
+     * 
+     * @return The annotation descriptor.
+     */
+    public AnnotationInfo getAnnotation() {
+        return annotation;
+    }
+
+    /**
+     * Returns the result type expected by the asynchronous callback passed as
+     * the given parameter, or null if unknown.
+     * 
+     * @param index
+     *            The parameter index.
+     * @return The expected result type or null.
+     */
+    public Class<?> getCallbackType(int index) {
+        return (index < this.callbackTypes.length) ? this.callbackTypes[index]
+                : null;
+    }
+
+    /**
+     * Returns the Java method.
+     * 
+     * @return The Java method.
+     */
+    public java.lang.reflect.Method getJavaMethod() {
+        return javaMethod;
+    }
+
+    /**
+     * Returns the Java type of the result, or null if the method isn't
+     * annotated.
+     * 
+     * @return The Java type of the result.
+     */
+    public Class<?> getJavaOutputType() {
+        return (this.annotation == null) ? null : this.annotation
+                .getJavaOutputType();
+    }
+
+    /**
+     * Returns the parsed query constraints to add to the requests, or null.
+     * 
+     * @return The parsed query constraints.
+     */
+    public Form getQuery() {
+        return query;
+    }
+
+    /**
+     * Returns the response variants, resolving them again if the services or
+     * the registered converters changed.
+     * 
+     * @param metadataService
+     *            The metadata service to use.
+     * @param converterService
+     *            The converter service to use.
+     * @return The response variants or null.
+     */
+    public List<Variant> getResponseVariants(MetadataService metadataService,
+            ConverterService converterService) {
+        Resolution result = this.resolution;
+
+        if (this.annotation == null) {
+            return null;
+        } else if ((result == null)
+                || !result.isCurrent(metadataService, converterService)) {
+            result = new Resolution(this.annotation, metadataService,
+                    converterService);
+            this.resolution = result;
+        }
+
+        return result.responseVariants;
+    }
+
+    /**
+     * Returns the Restlet method to call, or null if the method isn't
+     * annotated.
+     * 
+     * @return The Restlet method to call.
+     */
+    public Method getRestletMethod() {
+        return (this.annotation == null) ? null : this.annotation
+                .getRestletMethod();
+    }
+
+    /**
+     * Indicates if the given parameter is an asynchronous callback.
+     * 
+     * @param index
+     *            The parameter index.
+     * @return True if the given parameter is an asynchronous callback.
+     */
+    public boolean isCallback(int index) {
+        return (index < this.callbacks.length) && this.callbacks[index];
+    }
+
+    /**
+     * Indicates if the method returns the client resource.
+     * 
+     * @return True if the method returns the client resource.
+     */
+    public boolean isClientResourceGetter() {
+        return clientResourceGetter;
+    }
+
+    /**
+     * Indicates if the method returns a description of the proxy.
+     * 
+     * @return True if the method returns a description of the proxy.
+     */
+    public boolean isToString() {
+        return toStringMethod;
+    }
+
+    @Override
+    public String toString() {
+        return "InvocationPlan [" + getJavaMethod().getName() + ": "
+                + getRestletMethod() + "]";
+    }
+
+}
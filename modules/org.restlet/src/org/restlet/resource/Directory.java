@@ -40,6 +40,7 @@ import org.restlet.Response;
 import org.restlet.data.MediaType;
 import org.restlet.data.Reference;
 import org.restlet.data.ReferenceList;
+import org.restlet.engine.local.DirectoryCache;
 import org.restlet.engine.local.DirectoryServerResource;
 import org.restlet.engine.util.AlphaNumericComparator;
 import org.restlet.engine.util.AlphabeticalComparator;
@@ -76,6 +77,14 @@ import org.restlet.representation.Variant;
  * idea</a>, using a different and faster implementation contributed by Rob
  * Heittman.<br>
  * <br>
+ * When serving files, the listings of the folders can optionally be cached by
+ * setting a {@link DirectoryCache} with the {@link #setCache(DirectoryCache)}
+ * method.<br>
+ * <br>
+ * Pre-compressed files, such as "script.js.gz" next to "script.js", can be
+ * returned to the clients accepting the GZIP encoding by setting the
+ * "precompressed" parameter of the FILE client connector to "true".<br>
+ * <br>
  * Concurrency note: instances of this class or its subclasses can be invoked by
  * several threads at the same time and therefore must be thread-safe. You
  * should be especially careful when storing state in member variables.
@@ -86,6 +95,9 @@ import org.restlet.representation.Variant;
  */
 public class Directory extends Finder {
 
+    /** The cache of folder listings. */
+    private volatile DirectoryCache cache;
+
     /** The reference comparator to sort index pages. */
     private volatile Comparator<Reference> comparator;
 
@@ -139,6 +151,7 @@ public class Directory extends Finder {
             this.rootRef = new Reference(rootIdentifier + "/");
         }
 
+        this.cache = null;
         this.comparator = new AlphaNumericComparator();
         this.deeplyAccessible = true;
         this.indexName = "index";
@@ -170,6 +183,16 @@ public class Directory extends Finder {
         this(context, new Reference(rootUri));
     }
 
+    /**
+     * Returns the cache of folder listings, used when serving files, or null
+     * if disabled (default).
+     * 
+     * @return The cache of folder listings.
+     */
+    public DirectoryCache getCache() {
+        return this.cache;
+    }
+
     /**
      * Returns the reference comparator used to sort index pages. The default
      * implementation used a friendly alphanum sorting.
@@ -307,6 +330,21 @@ public class Directory extends Finder {
         setComparator(new AlphabeticalComparator());
     }
 
+    /**
+     * Sets the cache of folder listings. When files are added or removed by
+     * other means than this directory, the changes are detected based on the
+     * modification date of the folders or after a time to live. As the cache
+     * lists the folders directly, bypassing the client dispatcher and the FILE
+     * connector, it should only be set when the root URI is a "file" URI
+     * served by the stock FILE connector.
+     * 
+     * @param cache
+     *            The cache of folder listings or null to disable it.
+     */
+    public void setCache(DirectoryCache cache) {
+        this.cache = cache;
+    }
+
     /**
      * Sets the reference comparator used to sort index pages.
      * 
@@ -53,6 +53,7 @@ import org.restlet.data.ServerInfo;
 import org.restlet.data.Status;
 import org.restlet.engine.resource.AnnotationInfo;
 import org.restlet.engine.resource.AnnotationUtils;
+import org.restlet.engine.resource.DispatchPlan;
 import org.restlet.engine.resource.VariantInfo;
 import org.restlet.representation.Representation;
 import org.restlet.representation.RepresentationInfo;
@@ -726,8 +727,8 @@ public abstract class ServerResource extends UniformResource {
     private AnnotationInfo getAnnotation(Method method, Form query,
             Representation entity) {
         if (isAnnotated()) {
-            return AnnotationUtils.getAnnotation(getAnnotations(), method,
-                    query, entity, getMetadataService(), getConverterService());
+            return getDispatchPlan().getAnnotation(method, query, entity,
+                    getMetadataService(), getConverterService());
         }
 
         return null;
@@ -743,6 +744,15 @@ public abstract class ServerResource extends UniformResource {
                 : null;
     }
 
+    /**
+     * Returns the dispatch plan of the resource class, computed once per class.
+     * 
+     * @return The dispatch plan.
+     */
+    private DispatchPlan getDispatchPlan() {
+        return AnnotationUtils.getDispatchPlan(getClass());
+    }
+
     /**
      * Returns information about the resource's representation. Those metadata
      * are important for conditional method processing. The advantage over the
@@ -844,23 +854,10 @@ public abstract class ServerResource extends UniformResource {
 
             // Add annotation-based variants in priority
             if (isAnnotated() && hasAnnotations()) {
-                List<Variant> annoVariants = null;
                 method = (Method.HEAD.equals(method)) ? Method.GET : method;
-
-                for (AnnotationInfo annotationInfo : getAnnotations()) {
-                    if (annotationInfo.isCompatible(method, getQuery(),
-                            getRequestEntity(), getMetadataService(),
-                            getConverterService())) {
-                        annoVariants = annotationInfo.getResponseVariants(
-                                getMetadataService(), getConverterService());
-
-                        if (annoVariants != null) {
-                            for (Variant v : annoVariants) {
-                                result.add(new VariantInfo(v, annotationInfo));
-                            }
-                        }
-                    }
-                }
+                result.addAll(getDispatchPlan().getVariants(method,
+                        getQuery(), getRequestEntity(), getMetadataService(),
+                        getConverterService()));
             }
 
             this.variants = result;
@@ -1566,15 +1563,9 @@ public abstract class ServerResource extends UniformResource {
      */
     public void updateAllowedMethods() {
         getAllowedMethods().clear();
-        List<AnnotationInfo> annotations = getAnnotations();
 
-        if (annotations != null) {
-            for (AnnotationInfo annotationInfo : annotations) {
-                if (!getAllowedMethods().contains(
-                        annotationInfo.getRestletMethod())) {
-                    getAllowedMethods().add(annotationInfo.getRestletMethod());
-                }
-            }
+        if (isAnnotated()) {
+            getAllowedMethods().addAll(getDispatchPlan().getAllowedMethods());
         }
     }
 
@@ -65,6 +65,11 @@ import org.restlet.util.RouteList;
  * patterns. Finally, you can modify the list of routes while handling incoming
  * calls as the delegation code is ensured to be thread-safe.<br>
  * <br>
+ * When many routes are attached, their URI templates can be compiled into an
+ * index of path segments by calling {@code getRoutes().setIndexed(true)}. The
+ * best, first and last match modes then only score the routes that might
+ * match each call. See {@link RouteList#setIndexed(boolean)}.<br>
+ * <br>
  * Concurrency note: instances of this class or its subclasses can be invoked by
  * several threads at the same time and therefore must be thread-safe. You
  * should be especially careful when storing state in member variables.
@@ -32,6 +32,7 @@ package org.restlet.routing;
 
 import java.net.InetAddress;
 import java.net.UnknownHostException;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.restlet.Context;
 import org.restlet.Request;
@@ -76,6 +77,9 @@ import org.restlet.resource.ServerResource;
 public class VirtualHost extends Router {
     private static final ThreadLocal<Integer> CURRENT = new ThreadLocal<Integer>();
 
+    /** The count of changes to the host properties of all virtual hosts. */
+    private static final AtomicInteger HOST_CHANGES = new AtomicInteger();
+
     /**
      * Returns the virtual host code associated to the current thread.
      * 
@@ -88,6 +92,17 @@ public class VirtualHost extends Router {
         return CURRENT.get();
     }
 
+    /**
+     * Returns the count of changes to the host domain, port or scheme of all
+     * the virtual hosts. It lets the routers indexing the virtual hosts by
+     * their host properties detect stale indexes without walking them.
+     * 
+     * @return The count of changes to the host properties.
+     */
+    public static int getHostChanges() {
+        return HOST_CHANGES.get();
+    }
+
     /**
      * Returns the IP address of a given domain name.
      * 
@@ -452,6 +467,7 @@ public class VirtualHost extends Router {
      */
     public void setHostDomain(String hostDomain) {
         this.hostDomain = hostDomain;
+        HOST_CHANGES.incrementAndGet();
     }
 
     /**
@@ -463,6 +479,7 @@ public class VirtualHost extends Router {
      */
     public void setHostPort(String hostPort) {
         this.hostPort = hostPort;
+        HOST_CHANGES.incrementAndGet();
     }
 
     /**
@@ -474,6 +491,7 @@ public class VirtualHost extends Router {
      */
     public void setHostScheme(String hostScheme) {
         this.hostScheme = hostScheme;
+        HOST_CHANGES.incrementAndGet();
     }
 
     /**
@@ -34,6 +34,7 @@ import java.util.List;
 
 import org.restlet.Request;
 import org.restlet.engine.application.Conneg;
+import org.restlet.engine.application.ConnegCache;
 import org.restlet.engine.application.FlexibleConneg;
 import org.restlet.engine.application.StrictConneg;
 import org.restlet.representation.Variant;
@@ -41,12 +42,20 @@ import org.restlet.representation.Variant;
 /**
  * Application service negotiating the preferred resource variants. This service
  * is leveraged by server-side and client-side content negotiation, annotated
- * method dispatching, and so on.
+ * method dispatching, and so on.<br>
+ * <br>
+ * The negotiation results can optionally be cached, keyed by the client
+ * preferences and the metadata of the variants, by setting a
+ * {@link ConnegCache} with {@link #setCache(ConnegCache)}. The cache
+ * statistics are then available via {@link #getCache()}.
  * 
  * @author Jerome Louvel
  */
 public class ConnegService extends Service {
 
+    /** The cache of negotiation results. */
+    private volatile ConnegCache cache;
+
     /**
      * Indicates if the conneg algorithm should strictly respect client
      * preferences or be more flexible.
@@ -68,9 +77,19 @@ public class ConnegService extends Service {
      */
     public ConnegService(boolean enabled) {
         super(enabled);
+        this.cache = null;
         this.strict = false;
     }
 
+    /**
+     * Returns the cache of negotiation results or null if disabled.
+     * 
+     * @return The cache of negotiation results.
+     */
+    public ConnegCache getCache() {
+        return cache;
+    }
+
     /**
      * Returns the best variant representation for a given resource according
      * the the client preferences.<br>
@@ -90,9 +109,26 @@ public class ConnegService extends Service {
      */
     public Variant getPreferredVariant(List<? extends Variant> variants,
             Request request, MetadataService metadataService) {
-        Conneg conneg = isStrict() ? new StrictConneg(request, metadataService)
-                : new FlexibleConneg(request, metadataService);
-        return conneg.getPreferredVariant(variants);
+        Variant result = null;
+        boolean strict = isStrict();
+        ConnegCache cache = getCache();
+        Object key = (cache == null) ? null : cache.getKey(variants, request,
+                metadataService, strict);
+        Integer index = (key == null) ? null : cache.get(key);
+
+        if (index != null) {
+            result = (index < 0) ? null : variants.get(index);
+        } else {
+            Conneg conneg = strict ? new StrictConneg(request, metadataService)
+                    : new FlexibleConneg(request, metadataService);
+            result = conneg.getPreferredVariant(variants);
+
+            if (key != null) {
+                cache.put(key, variants, result);
+            }
+        }
+
+        return result;
     }
 
     /**
@@ -106,6 +142,16 @@ public class ConnegService extends Service {
         return strict;
     }
 
+    /**
+     * Sets the cache of negotiation results.
+     * 
+     * @param cache
+     *            The cache of negotiation results or null to disable it.
+     */
+    public void setCache(ConnegCache cache) {
+        this.cache = cache;
+    }
+
     /**
      * Indicates if the conneg algorithm should strictly respect client
      * preferences or be more flexible.
@@ -74,6 +74,26 @@ public class ConverterService extends Service {
         super(enabled);
     }
 
+    /**
+     * Returns the number of converter resolutions served from the cache. The
+     * cache is shared by all the converter services of the engine.
+     * 
+     * @return The number of converter resolutions served from the cache.
+     */
+    public long getCacheHits() {
+        return ConverterUtils.getCache().getHits();
+    }
+
+    /**
+     * Returns the number of converter resolutions that weren't cached yet.
+     * The cache is shared by all the converter services of the engine.
+     * 
+     * @return The number of converter resolutions that weren't cached yet.
+     */
+    public long getCacheMisses() {
+        return ConverterUtils.getCache().getMisses();
+    }
+
     /**
      * Returns the list of object classes that can be converted from a given
      * variant.
@@ -38,12 +38,19 @@ import java.util.List;
 import org.restlet.Context;
 import org.restlet.data.Encoding;
 import org.restlet.data.MediaType;
+import org.restlet.engine.application.EncodeCache;
 import org.restlet.engine.application.Encoder;
 import org.restlet.representation.Representation;
 import org.restlet.routing.Filter;
 
 /**
- * Application service automatically encoding or compressing request entities.
+ * Application service automatically encoding or compressing request entities.<br>
+ * <br>
+ * The encoded response entities can optionally be cached, bounded by their
+ * total size, by setting an {@link EncodeCache} with
+ * {@link #setCache(EncodeCache)}. Only the entities with a known size and a tag
+ * or modification date are cached, so that the repeated responses with the
+ * same entity, typically static files, are compressed only once.
  * 
  * @author Jerome Louvel
  */
@@ -90,6 +97,11 @@ public class EncoderService extends Service {
      */
     private volatile List<MediaType> acceptedMediaTypes;
 
+    /**
+     * The cache of encoded entities.
+     */
+    private volatile EncodeCache cache;
+
     /**
      * The media types that should be ignored.
      */
@@ -117,6 +129,7 @@ public class EncoderService extends Service {
         super(enabled);
         this.mininumSize = DEFAULT_MINIMUM_SIZE;
         this.acceptedMediaTypes = getDefaultAcceptedMediaTypes();
+        this.cache = null;
         this.ignoredMediaTypes = getDefaultIgnoredMediaTypes();
     }
 
@@ -198,6 +211,15 @@ public class EncoderService extends Service {
         return this.acceptedMediaTypes;
     }
 
+    /**
+     * Returns the cache of encoded entities or null if disabled.
+     * 
+     * @return The cache of encoded entities.
+     */
+    public EncodeCache getCache() {
+        return this.cache;
+    }
+
     /**
      * Returns the media types that should be ignored.
      * 
@@ -218,6 +240,16 @@ public class EncoderService extends Service {
         return this.mininumSize;
     }
 
+    /**
+     * Sets the cache of encoded entities.
+     * 
+     * @param cache
+     *            The cache of encoded entities or null to disable it.
+     */
+    public void setCache(EncodeCache cache) {
+        this.cache = cache;
+    }
+
     /**
      * Sets the minimum size a representation must have before compression is
      * done.
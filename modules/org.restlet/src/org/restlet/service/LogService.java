@@ -38,7 +38,9 @@ import org.restlet.Response;
 import org.restlet.data.Method;
 import org.restlet.data.Reference;
 import org.restlet.data.Status;
+import org.restlet.engine.log.AccessLogEntry;
 import org.restlet.engine.log.LogFilter;
+import org.restlet.engine.log.LogUtils;
 import org.restlet.representation.Representation;
 import org.restlet.resource.ClientResource;
 import org.restlet.routing.Filter;
@@ -77,6 +79,14 @@ import org.restlet.routing.Template;
  * <br>
  * For custom access log format, see the syntax to use and the list of available
  * variable names in {@link org.restlet.routing.Template}. <br>
+ * <br>
+ * When the asynchronous mode is enabled, the log entries are extracted by the
+ * calling threads then formatted and written by a background thread. The IDENT
+ * lookups required by the identity check run in parallel on a few other
+ * threads, and the entries whose lookup times out are written with an unknown
+ * remote user identifier. The entries wait in a queue
+ * of a bounded capacity; when it is full, the entries are either dropped or the
+ * calling threads block, depending on the {@link #isQueueBlocking()} policy.<br>
  * 
  * @see <a href="http://wiki.restlet.org/docs_2.1/201-restlet.html">User Guide -
  *      Access logging</a>
@@ -86,6 +96,12 @@ import org.restlet.routing.Template;
  */
 public class LogService extends Service {
 
+    /** The default capacity of the asynchronous queue of log entries. */
+    public static final int DEFAULT_QUEUE_CAPACITY = 1024;
+
+    /** Indicates if the log entries are written asynchronously. */
+    private volatile boolean asynchronous;
+
     /** Indicates if the debugging mode is enabled. */
     private volatile boolean debugging;
 
@@ -101,6 +117,12 @@ public class LogService extends Service {
     /** The URI reference of the log properties. */
     private volatile Reference logPropertiesRef;
 
+    /** Indicates if calls block when the asynchronous queue is full. */
+    private volatile boolean queueBlocking;
+
+    /** The capacity of the asynchronous queue of log entries. */
+    private volatile int queueCapacity;
+
     /** The response log entry format. */
     private volatile String responseLogFormat;
 
@@ -127,6 +149,9 @@ public class LogService extends Service {
         this.responseLogFormat = null;
         this.logPropertiesRef = null;
         this.identityCheck = false;
+        this.asynchronous = false;
+        this.queueBlocking = false;
+        this.queueCapacity = DEFAULT_QUEUE_CAPACITY;
     }
 
     @Override
@@ -135,30 +160,27 @@ public class LogService extends Service {
     }
 
     /**
-     * Format a log entry using the default IIS log format.
+     * Extracts a log entry using the default IIS log format. When the identity
+     * check is enabled, the remote user identifier is only resolved when the
+     * message of the entry is requested.
      * 
      * @param response
      *            The response to log.
      * @param duration
      *            The call duration (in milliseconds).
-     * @return The formatted log entry.
+     * @return The log entry.
      */
-    protected String getDefaultResponseLogMessage(Response response,
+    protected AccessLogEntry getDefaultResponseLogEntry(Response response,
             int duration) {
         StringBuilder sb = new StringBuilder();
         Request request = response.getRequest();
+        String prefix = null;
 
         if (isDebugging()) {
 
         } else {
-            long currentTime = System.currentTimeMillis();
-
-            // Append the date of the request
-            sb.append(String.format("%tF", currentTime));
-            sb.append('\t');
-
-            // Append the time of the request
-            sb.append(String.format("%tT", currentTime));
+            // Append the date and time of the request
+            sb.append(LogUtils.getDateTime(System.currentTimeMillis()));
             sb.append('\t');
 
             // Append the client IP address
@@ -169,12 +191,9 @@ public class LogService extends Service {
             // Append the user name (via IDENT protocol)
             if (isIdentityCheck()) {
                 // [ifndef gae]
-                org.restlet.engine.log.IdentClient ic = new org.restlet.engine.log.IdentClient(
-                        request.getClientInfo().getUpstreamAddress(), request
-                                .getClientInfo().getPort(), response
-                                .getServerInfo().getPort());
-                sb.append((ic.getUserIdentifier() == null) ? "-" : ic
-                        .getUserIdentifier());
+                // Resolved later by the entry
+                prefix = sb.toString();
+                sb.setLength(0);
             } else if ((request.getChallengeResponse() != null)
                     && (request.getChallengeResponse().getIdentifier() != null)) {
                 sb.append(request.getChallengeResponse().getIdentifier());
@@ -261,7 +280,25 @@ public class LogService extends Service {
                     .getReferrerRef().getIdentifier());
         }
 
-        return sb.toString();
+        return (prefix == null) ? new AccessLogEntry(sb.toString())
+                : new AccessLogEntry(prefix, request.getClientInfo()
+                        .getUpstreamAddress(), request.getClientInfo()
+                        .getPort(), response.getServerInfo().getPort(),
+                        sb.toString());
+    }
+
+    /**
+     * Format a log entry using the default IIS log format.
+     * 
+     * @param response
+     *            The response to log.
+     * @param duration
+     *            The call duration (in milliseconds).
+     * @return The formatted log entry.
+     */
+    protected String getDefaultResponseLogMessage(Response response,
+            int duration) {
+        return getDefaultResponseLogEntry(response, duration).getMessage();
     }
 
     /**
@@ -310,6 +347,16 @@ public class LogService extends Service {
         return logPropertiesRef;
     }
 
+    /**
+     * Returns the capacity of the asynchronous queue of log entries. Default
+     * value is {@link #DEFAULT_QUEUE_CAPACITY}.
+     * 
+     * @return The capacity of the asynchronous queue of log entries.
+     */
+    public int getQueueCapacity() {
+        return queueCapacity;
+    }
+
     /**
      * Returns the format used when logging responses.
      * 
@@ -320,6 +367,26 @@ public class LogService extends Service {
         return this.responseLogFormat;
     }
 
+    /**
+     * Extracts an access log entry, used in asynchronous mode. With the default
+     * format and the identity check enabled, the remote user identifier is
+     * resolved later, in the background. Otherwise, the message is formatted
+     * immediately by {@link #getResponseLogMessage(Response, int)}.
+     * 
+     * @param response
+     *            The response to log.
+     * @param duration
+     *            The call duration.
+     * @return The access log entry.
+     */
+    public AccessLogEntry getResponseLogEntry(Response response, int duration) {
+        if ((this.responseLogTemplate == null) && isIdentityCheck()) {
+            return getDefaultResponseLogEntry(response, duration);
+        }
+
+        return new AccessLogEntry(getResponseLogMessage(response, duration));
+    }
+
     /**
      * Format an access log entry. If the log template property isn't provided,
      * then a default IIS like format is used.
@@ -344,6 +411,16 @@ public class LogService extends Service {
         return result;
     }
 
+    /**
+     * Indicates if the log entries are written asynchronously by a background
+     * thread. Default value is false.
+     * 
+     * @return True if the log entries are written asynchronously.
+     */
+    public boolean isAsynchronous() {
+        return asynchronous;
+    }
+
     /**
      * Indicates if the debugging mode is enabled. False by default.
      * 
@@ -377,6 +454,28 @@ public class LogService extends Service {
                 .match(request.getResourceRef().getTargetRef().toString()) > 0;
     }
 
+    /**
+     * Indicates if calls block when the asynchronous queue of log entries is
+     * full. When false, the entries are dropped instead. Default value is
+     * false.
+     * 
+     * @return True if calls block when the asynchronous queue is full.
+     */
+    public boolean isQueueBlocking() {
+        return queueBlocking;
+    }
+
+    /**
+     * Indicates if the log entries are written asynchronously by a background
+     * thread.
+     * 
+     * @param asynchronous
+     *            True if the log entries are written asynchronously.
+     */
+    public void setAsynchronous(boolean asynchronous) {
+        this.asynchronous = asynchronous;
+    }
+
     /**
      * Indicates if the debugging mode is enabled.
      * 
@@ -466,6 +565,31 @@ public class LogService extends Service {
         setLogPropertiesRef(new Reference(logPropertiesUri));
     }
 
+    /**
+     * Indicates if calls block when the asynchronous queue of log entries is
+     * full, instead of dropping the entries. Changes only apply to the queues
+     * created afterwards, when a log filter writes its first asynchronous
+     * entry.
+     * 
+     * @param queueBlocking
+     *            True if calls block when the asynchronous queue is full.
+     */
+    public void setQueueBlocking(boolean queueBlocking) {
+        this.queueBlocking = queueBlocking;
+    }
+
+    /**
+     * Sets the capacity of the asynchronous queue of log entries. Changes only
+     * apply to the queues created afterwards, when a log filter writes its
+     * first asynchronous entry.
+     * 
+     * @param queueCapacity
+     *            The capacity of the asynchronous queue of log entries.
+     */
+    public void setQueueCapacity(int queueCapacity) {
+        this.queueCapacity = queueCapacity;
+    }
+
     /**
      * Sets the format to use when logging responses. The default format matches
      * the one of IIS 6.
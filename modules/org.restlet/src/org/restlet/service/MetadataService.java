@@ -31,7 +31,10 @@
 package org.restlet.service;
 
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.concurrent.CopyOnWriteArrayList;
 
 import org.restlet.data.CharacterSet;
@@ -47,10 +50,73 @@ import org.restlet.engine.application.MetadataExtension;
  * {@link #addCommonExtensions()} method.<br>
  * <br>
  * Internally, the mappings are stored as a list of "extension, metadata" pairs.
+ * The lookups are served by immutable hash indexes of this list, rebuilt each
+ * time the mappings are updated.
  * 
  * @author Jerome Louvel
  */
 public class MetadataService extends Service {
+
+    /**
+     * Immutable hash indexes of the mappings between extension names and
+     * metadata.
+     */
+    private static final class MappingIndex {
+
+        /** The first extension mapped to each metadata. */
+        private final Map<Metadata, String> extensions;
+
+        /** The metadata mapped to each extension, in mapping order. */
+        private final Map<String, List<Metadata>> metadata;
+
+        /**
+         * Constructor.
+         * 
+         * @param mappings
+         *            The mappings to index, in order of preference.
+         */
+        private MappingIndex(List<MetadataExtension> mappings) {
+            this.extensions = new HashMap<Metadata, String>();
+            Map<String, List<Metadata>> lists = new HashMap<String, List<Metadata>>();
+
+            for (MetadataExtension mapping : mappings) {
+                List<Metadata> list = lists.get(mapping.getName());
+
+                if (list == null) {
+                    list = new ArrayList<Metadata>(1);
+                    lists.put(mapping.getName(), list);
+                }
+
+                list.add(mapping.getMetadata());
+
+                if (!this.extensions.containsKey(mapping.getMetadata())) {
+                    this.extensions.put(mapping.getMetadata(),
+                            mapping.getName());
+                }
+            }
+
+            this.metadata = new HashMap<String, List<Metadata>>();
+
+            for (Map.Entry<String, List<Metadata>> entry : lists.entrySet()) {
+                this.metadata.put(entry.getKey(),
+                        Collections.unmodifiableList(entry.getValue()));
+            }
+        }
+
+        /**
+         * Returns the metadata mapped to an extension.
+         * 
+         * @param extension
+         *            The extension name.
+         * @return The metadata mapped to the extension, in mapping order.
+         */
+        private List<Metadata> get(String extension) {
+            List<Metadata> result = this.metadata.get(extension);
+            return (result == null) ? Collections.<Metadata> emptyList()
+                    : result;
+        }
+    }
+
     /** The default character set for textual representations. */
     private volatile CharacterSet defaultCharacterSet;
 
@@ -63,6 +129,9 @@ public class MetadataService extends Service {
     /** The default media type for representations. */
     private volatile MediaType defaultMediaType;
 
+    /** The hash indexes of the mappings. */
+    private volatile MappingIndex index;
+
     /** The list of mappings between extension names and metadata. */
     private final List<MetadataExtension> mappings;
 
@@ -81,6 +150,7 @@ public class MetadataService extends Service {
         // [ifdef gwt] instruction uncomment
         // this.defaultMediaType = MediaType.APPLICATION_JSON;
         this.mappings = new CopyOnWriteArrayList<MetadataExtension>();
+        this.index = new MappingIndex(this.mappings);
         addCommonExtensions();
     }
 
@@ -365,7 +435,10 @@ public class MetadataService extends Service {
         ext(dm, "xml", MediaType.APPLICATION_XML);
 
         // Add all those mappings
-        this.mappings.addAll(dm);
+        synchronized (this.mappings) {
+            this.mappings.addAll(dm);
+            this.index = new MappingIndex(this.mappings);
+        }
     }
 
     /**
@@ -394,12 +467,17 @@ public class MetadataService extends Service {
      */
     public void addExtension(String extension, Metadata metadata,
             boolean preferred) {
-        if (preferred) {
-            // Add the mapping at the beginning of the list
-            this.mappings.add(0, new MetadataExtension(extension, metadata));
-        } else {
-            // Add the mapping at the end of the list
-            this.mappings.add(new MetadataExtension(extension, metadata));
+        synchronized (this.mappings) {
+            if (preferred) {
+                // Add the mapping at the beginning of the list
+                this.mappings
+                        .add(0, new MetadataExtension(extension, metadata));
+            } else {
+                // Add the mapping at the end of the list
+                this.mappings.add(new MetadataExtension(extension, metadata));
+            }
+
+            this.index = new MappingIndex(this.mappings);
         }
     }
 
@@ -407,7 +485,10 @@ public class MetadataService extends Service {
      * clears the mappings for all extensions.
      */
     public void clearExtensions() {
-        this.mappings.clear();
+        synchronized (this.mappings) {
+            this.mappings.clear();
+            this.index = new MappingIndex(this.mappings);
+        }
     }
 
     /**
@@ -465,14 +546,13 @@ public class MetadataService extends Service {
 
         if (extension != null) {
             // Look for all registered convenient mapping.
-            for (MetadataExtension metadataExtension : this.mappings) {
-                if (extension.equals(metadataExtension.getName())
-                        && (metadataExtension.getMetadata() instanceof CharacterSet)) {
+            for (Metadata metadata : this.index.get(extension)) {
+                if (metadata instanceof CharacterSet) {
                     if (result == null) {
                         result = new ArrayList<CharacterSet>();
                     }
 
-                    result.add(metadataExtension.getCharacterSet());
+                    result.add((CharacterSet) metadata);
                 }
             }
         }
@@ -493,14 +573,13 @@ public class MetadataService extends Service {
 
         if (extension != null) {
             // Look for all registered convenient mapping.
-            for (MetadataExtension metadataExtension : this.mappings) {
-                if (extension.equals(metadataExtension.getName())
-                        && (metadataExtension.getMetadata() instanceof Language)) {
+            for (Metadata metadata : this.index.get(extension)) {
+                if (metadata instanceof Language) {
                     if (result == null) {
                         result = new ArrayList<Language>();
                     }
 
-                    result.add(metadataExtension.getLanguage());
+                    result.add((Language) metadata);
                 }
             }
         }
@@ -521,14 +600,13 @@ public class MetadataService extends Service {
 
         if (extension != null) {
             // Look for all registered convenient mapping.
-            for (MetadataExtension metadataExtension : this.mappings) {
-                if (extension.equals(metadataExtension.getName())
-                        && (metadataExtension.getMetadata() instanceof MediaType)) {
+            for (Metadata metadata : this.index.get(extension)) {
+                if (metadata instanceof MediaType) {
                     if (result == null) {
                         result = new ArrayList<MediaType>();
                     }
 
-                    result.add(metadataExtension.getMediaType());
+                    result.add((MediaType) metadata);
                 }
             }
         }
@@ -548,15 +626,10 @@ public class MetadataService extends Service {
         List<Metadata> result = null;
 
         if (extension != null) {
-            // Look for all registered convenient mapping.
-            for (MetadataExtension metadataExtension : this.mappings) {
-                if (extension.equals(metadataExtension.getName())) {
-                    if (result == null) {
-                        result = new ArrayList<Metadata>();
-                    }
+            List<Metadata> metadata = this.index.get(extension);
 
-                    result.add(metadataExtension.getMetadata());
-                }
+            if (!metadata.isEmpty()) {
+                result = new ArrayList<Metadata>(metadata);
             }
         }
 
@@ -656,11 +729,7 @@ public class MetadataService extends Service {
     public String getExtension(Metadata metadata) {
         if (metadata != null) {
             // Look for the first registered convenient mapping.
-            for (final MetadataExtension metadataExtension : this.mappings) {
-                if (metadata.equals(metadataExtension.getMetadata())) {
-                    return metadataExtension.getName();
-                }
-            }
+            return this.index.extensions.get(metadata);
         }
         return null;
     }
@@ -726,10 +795,10 @@ public class MetadataService extends Service {
     public Metadata getMetadata(String extension) {
         if (extension != null) {
             // Look for the first registered convenient mapping.
-            for (final MetadataExtension metadataExtension : this.mappings) {
-                if (extension.equals(metadataExtension.getName())) {
-                    return metadataExtension.getMetadata();
-                }
+            List<Metadata> metadata = this.index.get(extension);
+
+            if (!metadata.isEmpty()) {
+                return metadata.get(0);
             }
         }
 
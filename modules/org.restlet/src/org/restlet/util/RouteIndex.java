@@ -0,0 +1,396 @@
+/**
+ * Copyright 2005-2011 Noelios Technologies.
+ * 
+ * The contents of this file are subject to the terms of one of the following
+ * open source licenses: LGPL 3.0 or LGPL 2.1 or CDDL 1.0 or EPL 1.0 (the
+ * "Licenses"). You can select the license that you prefer but you may not use
+ * this file except in compliance with one of these Licenses.
+ * 
+ * You can obtain a copy of the LGPL 3.0 license at
+ * http://www.opensource.org/licenses/lgpl-3.0.html
+ * 
+ * You can obtain a copy of the LGPL 2.1 license at
+ * http://www.opensource.org/licenses/lgpl-2.1.php
+ * 
+ * You can obtain a copy of the CDDL 1.0 license at
+ * http://www.opensource.org/licenses/cddl1.php
+ * 
+ * You can obtain a copy of the EPL 1.0 license at
+ * http://www.opensource.org/licenses/eclipse-1.0.php
+ * 
+ * See the Licenses for the specific language governing permissions and
+ * limitations under the Licenses.
+ * 
+ * Alternatively, you can obtain a royalty free commercial license with less
+ * limitations, transferable or non-transferable, directly at
+ * http://www.noelios.com/products/restlet-engine
+ * 
+ * Restlet is a registered trademark of Noelios Technologies.
+ */
+
+package org.restlet.util;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.restlet.Request;
+import org.restlet.data.Reference;
+import org.restlet.routing.Route;
+import org.restlet.routing.Template;
+import org.restlet.routing.TemplateRoute;
+import org.restlet.routing.Variable;
+
+/**
+ * Index of routes compiled into a trie of URI path segments. Each template
+ * route is registered under its literal and variable segments, so that the
+ * routes that might match a given call are found by walking the segments of
+ * the remaining part of its resource reference, whatever the number of routes.
+ * The candidate routes are then scored as usual.<br>
+ * <br>
+ * Routes that can't be indexed, such as routes matching the query string or
+ * with variables able to span several segments, are either registered as a
+ * prefix of the paths they might match or are always considered as candidates.
+ * 
+ * @author Jerome Louvel
+ * @see RouteList#setIndexed(boolean)
+ */
+final class RouteIndex {
+
+    /**
+     * Node of the trie, reached after matching a sequence of path segments.
+     */
+    private static final class Node {
+
+        /** The indexes of the routes whose template ends at this node. */
+        private int[] exact = new int[0];
+
+        /** The child nodes reached via a literal segment. */
+        private final Map<String, Node> literals = new HashMap<String, Node>();
+
+        /**
+         * The indexes of the routes whose template might match any path
+         * starting with the segments of this node.
+         */
+        private int[] prefix = new int[0];
+
+        /** The child node reached via a variable segment. */
+        private Node variable;
+    }
+
+    /**
+     * Appends an index to an array of indexes.
+     * 
+     * @param indexes
+     *            The array of indexes.
+     * @param index
+     *            The index to append.
+     * @return The new array of indexes.
+     */
+    private static int[] append(int[] indexes, int index) {
+        int[] result = new int[indexes.length + 1];
+        System.arraycopy(indexes, 0, result, 0, indexes.length);
+        result[indexes.length] = index;
+        return result;
+    }
+
+    /**
+     * Indicates if a template segment containing variables can only match a
+     * single path segment.
+     * 
+     * @param template
+     *            The parent template.
+     * @param segment
+     *            The template segment.
+     * @return True if the template segment only matches a single path
+     *         segment.
+     */
+    private static boolean isSegmentVariable(Template template, String segment) {
+        int start = -1;
+
+        for (int i = 0; i < segment.length(); i++) {
+            char next = segment.charAt(i);
+
+            if (start == -1) {
+                if (next == '{') {
+                    start = i + 1;
+                } else if (next == '}') {
+                    return false;
+                }
+            } else if (next == '}') {
+                Variable variable = template.getVariables().get(
+                        segment.substring(start, i));
+
+                if (variable == null) {
+                    variable = template.getDefaultVariable();
+                }
+
+                if (!isSegmentVariable(variable)) {
+                    return false;
+                }
+
+                start = -1;
+            } else if (!Reference.isUnreserved(next)) {
+                return false;
+            }
+        }
+
+        return start == -1;
+    }
+
+    /**
+     * Indicates if a variable can only match characters allowed in a path
+     * segment, excluding the slash separator.
+     * 
+     * @param variable
+     *            The variable.
+     * @return True if the variable only matches characters of a path segment.
+     */
+    private static boolean isSegmentVariable(Variable variable) {
+        if (variable.isFixed()) {
+            return (variable.getDefaultValue() != null)
+                    && (variable.getDefaultValue().indexOf('/') == -1);
+        }
+
+        switch (variable.getType()) {
+        case Variable.TYPE_ALPHA:
+        case Variable.TYPE_ALPHA_DIGIT:
+        case Variable.TYPE_DIGIT:
+        case Variable.TYPE_URI_SEGMENT:
+        case Variable.TYPE_URI_UNRESERVED:
+        case Variable.TYPE_WORD:
+            return true;
+        default:
+            return false;
+        }
+    }
+
+    /**
+     * Splits a path or template into segments separated by slashes, keeping
+     * the empty segments.
+     * 
+     * @param path
+     *            The path to split.
+     * @return The segments.
+     */
+    private static String[] split(String path) {
+        int count = 1;
+
+        for (int i = 0; i < path.length(); i++) {
+            if (path.charAt(i) == '/') {
+                count++;
+            }
+        }
+
+        String[] result = new String[count];
+        int start = 0;
+        int index = 0;
+
+        for (int i = 0; i < path.length(); i++) {
+            if (path.charAt(i) == '/') {
+                result[index++] = path.substring(start, i);
+                start = i + 1;
+            }
+        }
+
+        result[index] = path.substring(start);
+        return result;
+    }
+
+    /** The root node of the trie. */
+    private final Node root;
+
+    /** The indexed routes, in the order of the route list. */
+    private final Route[] routes;
+
+    /** The indexes of the routes that are always candidates. */
+    private int[] unindexed;
+
+    /**
+     * Constructor.
+     * 
+     * @param routes
+     *            The routes to index.
+     */
+    public RouteIndex(Route[] routes) {
+        this.root = new Node();
+        this.routes = routes;
+        this.unindexed = new int[0];
+
+        for (int i = 0; i < this.routes.length; i++) {
+            add(i, this.routes[i]);
+        }
+    }
+
+    /**
+     * Registers a route in the trie.
+     * 
+     * @param index
+     *            The index of the route.
+     * @param route
+     *            The route to register.
+     */
+    private void add(int index, Route route) {
+        Template template = (route instanceof TemplateRoute) ? ((TemplateRoute) route)
+                .getTemplate() : null;
+
+        if ((template == null) || (template.getPattern() == null)
+                || ((TemplateRoute) route).isMatchingQuery()) {
+            this.unindexed = append(this.unindexed, index);
+        } else if (template.getMatchingMode() == Template.MODE_EQUALS) {
+            add(index, template, false);
+        } else if (template.getMatchingMode() == Template.MODE_STARTS_WITH) {
+            add(index, template, true);
+        } else {
+            this.unindexed = append(this.unindexed, index);
+        }
+    }
+
+    /**
+     * Registers a template route in the trie.
+     * 
+     * @param index
+     *            The index of the route.
+     * @param template
+     *            The template of the route.
+     * @param startsWith
+     *            True if the template only has to match the beginning of the
+     *            paths.
+     */
+    private void add(int index, Template template, boolean startsWith) {
+        String[] segments = split(template.getPattern());
+
+        // The last segment might only match the beginning of a path segment
+        int depth = startsWith ? segments.length - 1 : segments.length;
+        Node node = this.root;
+
+        for (int i = 0; i < depth; i++) {
+            String segment = segments[i];
+            Node child;
+
+            if ((segment.indexOf('{') == -1) && (segment.indexOf('}') == -1)) {
+                child = node.literals.get(segment);
+
+                if (child == null) {
+                    child = new Node();
+                    node.literals.put(segment, child);
+                }
+            } else if (isSegmentVariable(template, segment)) {
+                child = node.variable;
+
+                if (child == null) {
+                    child = new Node();
+                    node.variable = child;
+                }
+            } else {
+                // Might span several path segments
+                node.prefix = append(node.prefix, index);
+                return;
+            }
+
+            node = child;
+        }
+
+        if (startsWith) {
+            node.prefix = append(node.prefix, index);
+        } else {
+            node.exact = append(node.exact, index);
+        }
+    }
+
+    /**
+     * Collects the indexes of the candidate routes below a node.
+     * 
+     * @param node
+     *            The current node.
+     * @param segments
+     *            The path segments.
+     * @param position
+     *            The position of the next segment to match.
+     * @param result
+     *            The indexes collected, with their count as first element.
+     * @return The indexes collected, with their count as first element.
+     */
+    private int[] collect(Node node, String[] segments, int position,
+            int[] result) {
+        result = collect(node.prefix, result);
+
+        if (position == segments.length) {
+            result = collect(node.exact, result);
+        } else {
+            Node child = node.literals.get(segments[position]);
+
+            if (child != null) {
+                result = collect(child, segments, position + 1, result);
+            }
+
+            if (node.variable != null) {
+                result = collect(node.variable, segments, position + 1, result);
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * Appends indexes to the indexes collected.
+     * 
+     * @param indexes
+     *            The indexes to append.
+     * @param result
+     *            The indexes collected, with their count as first element.
+     * @return The indexes collected, with their count as first element.
+     */
+    private int[] collect(int[] indexes, int[] result) {
+        if (indexes.length > 0) {
+            int count = result[0];
+
+            if (count + indexes.length >= result.length) {
+                int[] larger = new int[Math.max(result.length * 2, count
+                        + indexes.length + 1)];
+                System.arraycopy(result, 0, larger, 0, count + 1);
+                result = larger;
+            }
+
+            System.arraycopy(indexes, 0, result, count + 1, indexes.length);
+            result[0] = count + indexes.length;
+        }
+
+        return result;
+    }
+
+    /**
+     * Returns the routes that might match a given call, in the order of the
+     * route list.
+     * 
+     * @param request
+     *            The request to route.
+     * @return The candidate routes.
+     */
+    public Route[] getCandidates(Request request) {
+        if ((request == null) || (request.getResourceRef() == null)) {
+            return this.routes;
+        }
+
+        String remainingPart = request.getResourceRef().getRemainingPart(
+                false, false);
+
+        if (remainingPart == null) {
+            return this.routes;
+        }
+
+        int[] indexes = new int[8];
+        indexes = collect(this.unindexed, indexes);
+        indexes = collect(this.root, split(remainingPart), 0, indexes);
+        int count = indexes[0];
+        Arrays.sort(indexes, 1, count + 1);
+        Route[] result = new Route[count];
+
+        for (int i = 0; i < count; i++) {
+            result[i] = this.routes[indexes[i + 1]];
+        }
+
+        return result;
+    }
+
+}
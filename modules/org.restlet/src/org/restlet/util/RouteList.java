@@ -30,15 +30,19 @@
 
 package org.restlet.util;
 
+import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
 import java.util.Random;
 import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.restlet.Request;
 import org.restlet.Response;
 import org.restlet.Restlet;
 import org.restlet.routing.Route;
+import org.restlet.routing.Template;
+import org.restlet.routing.TemplateRoute;
 
 /**
  * Modifiable list of routes with some helper methods. Note that this class
@@ -47,22 +51,82 @@ import org.restlet.routing.Route;
  * {@link List}, in particular all the helper methods in {@link Collections}.<br>
  * <br>
  * Note that structural changes to this list are thread-safe, using an
- * underlying {@link CopyOnWriteArrayList}.
+ * underlying {@link CopyOnWriteArrayList}. The routing methods never lock the
+ * list, they work on a snapshot array of the routes taken after the last
+ * structural change.<br>
+ * <br>
+ * When the list is indexed, the templates of the attached
+ * {@link TemplateRoute} instances are compiled into a trie of URI path
+ * segments, so that the best, first and last matches only score the routes
+ * that might match the remaining part of the resource reference. The cost of
+ * these lookups then depends on the depth of the paths rather than on the
+ * number of routes. See {@link #setIndexed(boolean)}.
  * 
  * @author Jerome Louvel
  * @see java.util.Collections
  * @see java.util.List
  */
 public final class RouteList extends WrapperList<Route> {
-    /** The index of the last route used in the round robin mode. */
-    private volatile int lastIndex;
+
+    /**
+     * Snapshot of the routes, taken after a given structural change of the
+     * list.
+     */
+    private static final class Snapshot {
+
+        /** The index of the routes, lazily compiled. */
+        private volatile RouteIndex index;
+
+        /** The routes. */
+        private final Route[] routes;
+
+        /** The modification count of the list when taken. */
+        private final int version;
+
+        /**
+         * Constructor.
+         * 
+         * @param version
+         *            The modification count of the list when taken.
+         * @param routes
+         *            The routes.
+         */
+        private Snapshot(int version, Route[] routes) {
+            this.routes = routes;
+            this.version = version;
+        }
+    }
+
+    /** Empty array of routes. */
+    private static final Route[] NO_ROUTES = new Route[0];
+
+    /** The random number generators of the threads. */
+    private static final ThreadLocal<Random> RANDOMS = new ThreadLocal<Random>() {
+        @Override
+        protected Random initialValue() {
+            return new Random();
+        }
+    };
+
+    /** Indicates if the routes should be indexed. */
+    private volatile boolean indexed;
+
+    /** The count of structural changes, used to detect stale snapshots. */
+    private final AtomicInteger modCount;
+
+    /** The cursor of the next route to use in the round robin mode. */
+    private final AtomicInteger nextIndex;
+
+    /** The snapshot of the routes, lazily taken. */
+    private volatile Snapshot snapshot;
 
     /**
      * Constructor.
      */
     public RouteList() {
         super(new CopyOnWriteArrayList<Route>());
-        this.lastIndex = -1;
+        this.modCount = new AtomicInteger();
+        this.nextIndex = new AtomicInteger();
     }
 
     /**
@@ -73,7 +137,53 @@ public final class RouteList extends WrapperList<Route> {
      */
     public RouteList(List<Route> delegate) {
         super(new CopyOnWriteArrayList<Route>(delegate));
-        this.lastIndex = -1;
+        this.modCount = new AtomicInteger();
+        this.nextIndex = new AtomicInteger();
+    }
+
+    @Override
+    public boolean add(Route route) {
+        try {
+            return super.add(route);
+        } finally {
+            this.modCount.incrementAndGet();
+        }
+    }
+
+    @Override
+    public void add(int index, Route route) {
+        try {
+            super.add(index, route);
+        } finally {
+            this.modCount.incrementAndGet();
+        }
+    }
+
+    @Override
+    public boolean addAll(Collection<? extends Route> routes) {
+        try {
+            return super.addAll(routes);
+        } finally {
+            this.modCount.incrementAndGet();
+        }
+    }
+
+    @Override
+    public boolean addAll(int index, Collection<? extends Route> routes) {
+        try {
+            return super.addAll(index, routes);
+        } finally {
+            this.modCount.incrementAndGet();
+        }
+    }
+
+    @Override
+    public void clear() {
+        try {
+            super.clear();
+        } finally {
+            this.modCount.incrementAndGet();
+        }
     }
 
     /**
@@ -92,7 +202,7 @@ public final class RouteList extends WrapperList<Route> {
         float bestScore = 0F;
         float score;
 
-        for (Route current : this) {
+        for (Route current : getCandidates(request)) {
             score = current.score(request, response);
 
             if ((score > bestScore) && (score >= requiredScore)) {
@@ -104,6 +214,32 @@ public final class RouteList extends WrapperList<Route> {
         return result;
     }
 
+    /**
+     * Returns the routes that might match a given call, in their order. When
+     * the list is indexed, only the routes that might match the remaining part
+     * of the resource reference are returned.
+     * 
+     * @param request
+     *            The request to route.
+     * @return The candidate routes.
+     */
+    private Route[] getCandidates(Request request) {
+        Snapshot snapshot = getSnapshot();
+
+        if (isIndexed()) {
+            RouteIndex index = snapshot.index;
+
+            if (index == null) {
+                index = new RouteIndex(snapshot.routes);
+                snapshot.index = index;
+            }
+
+            return index.getCandidates(request);
+        }
+
+        return snapshot.routes;
+    }
+
     /**
      * Returns the first route match for a given call.
      * 
@@ -117,7 +253,7 @@ public final class RouteList extends WrapperList<Route> {
      */
     public Route getFirst(Request request, Response response,
             float requiredScore) {
-        for (Route current : this) {
+        for (Route current : getCandidates(request)) {
             if (current.score(request, response) >= requiredScore) {
                 return current;
             }
@@ -138,12 +274,13 @@ public final class RouteList extends WrapperList<Route> {
      *            The minimum score required to have a match.
      * @return The last route match or null.
      */
-    public synchronized Route getLast(Request request, Response response,
+    public Route getLast(Request request, Response response,
             float requiredScore) {
-        for (int j = size() - 1; (j >= 0); j--) {
-            final Route route = get(j);
-            if (route.score(request, response) >= requiredScore) {
-                return route;
+        Route[] candidates = getCandidates(request);
+
+        for (int j = candidates.length - 1; (j >= 0); j--) {
+            if (candidates[j].score(request, response) >= requiredScore) {
+                return candidates[j];
             }
         }
 
@@ -152,7 +289,10 @@ public final class RouteList extends WrapperList<Route> {
     }
 
     /**
-     * Returns a next route match in a round robin mode for a given call.
+     * Returns a next route match in a round robin mode for a given call. The
+     * position of the next route is shared by the calling threads via an
+     * atomic cursor, moved past the routes skipped because they didn't reach
+     * the required score.
      * 
      * @param request
      *            The request to score.
@@ -162,16 +302,24 @@ public final class RouteList extends WrapperList<Route> {
      *            The minimum score required to have a match.
      * @return A next route or null.
      */
-    public synchronized Route getNext(Request request, Response response,
+    public Route getNext(Request request, Response response,
             float requiredScore) {
-        if (!isEmpty()) {
-            for (final int initialIndex = this.lastIndex++; initialIndex != this.lastIndex; this.lastIndex++) {
-                if (this.lastIndex >= size()) {
-                    this.lastIndex = 0;
-                }
+        Route[] routes = getSnapshot().routes;
+        int length = routes.length;
+
+        if (length > 0) {
+            int start = (this.nextIndex.getAndIncrement() & Integer.MAX_VALUE)
+                    % length;
+
+            for (int i = 0; i < length; i++) {
+                Route route = routes[(start + i) % length];
 
-                final Route route = get(this.lastIndex);
                 if (route.score(request, response) >= requiredScore) {
+                    if (i > 0) {
+                        // Don't start the next call on a skipped route
+                        this.nextIndex.addAndGet(i);
+                    }
+
                     return route;
                 }
             }
@@ -194,38 +342,83 @@ public final class RouteList extends WrapperList<Route> {
      *            The minimum score required to have a match.
      * @return A random route or null.
      */
-    public synchronized Route getRandom(Request request, Response response,
+    public Route getRandom(Request request, Response response,
             float requiredScore) {
-        int length = size();
+        Route[] routes = getSnapshot().routes;
+        int length = routes.length;
 
         if (length > 0) {
-            int j = new Random().nextInt(length);
-            Route route = get(j);
-
-            if (route.score(request, response) >= requiredScore) {
-                return route;
-            }
-
-            boolean loopedAround = false;
-
-            do {
-                if ((j == length) && (loopedAround == false)) {
-                    j = 0;
-                    loopedAround = true;
-                }
+            int start = RANDOMS.get().nextInt(length);
 
-                route = get(j++);
+            for (int i = 0; i < length; i++) {
+                Route route = routes[(start + i) % length];
 
                 if (route.score(request, response) >= requiredScore) {
                     return route;
                 }
-            } while ((j < length) || !loopedAround);
+            }
         }
 
         // No match found
         return null;
     }
 
+    /**
+     * Returns the snapshot of the routes, taking a new one if the list changed
+     * since the last one.
+     * 
+     * @return The snapshot of the routes.
+     */
+    private Snapshot getSnapshot() {
+        int version = this.modCount.get();
+        Snapshot result = this.snapshot;
+
+        if ((result == null) || (result.version != version)) {
+            result = new Snapshot(version, getDelegate().toArray(NO_ROUTES));
+            this.snapshot = result;
+        }
+
+        return result;
+    }
+
+    /**
+     * Returns the count of structural changes to this list. It lets the
+     * callers caching data derived from the routes detect stale data without
+     * walking the list.
+     * 
+     * @return The count of structural changes to this list.
+     */
+    public int getVersion() {
+        return this.modCount.get();
+    }
+
+    /**
+     * Indicates if the templates of the routes are compiled into an index.
+     * 
+     * @return True if the templates of the routes are compiled into an index.
+     */
+    public boolean isIndexed() {
+        return indexed;
+    }
+
+    @Override
+    public Route remove(int index) {
+        try {
+            return super.remove(index);
+        } finally {
+            this.modCount.incrementAndGet();
+        }
+    }
+
+    @Override
+    public boolean remove(Object route) {
+        try {
+            return super.remove(route);
+        } finally {
+            this.modCount.incrementAndGet();
+        }
+    }
+
     /**
      * Removes all routes routing to a given target.
      * 
@@ -240,6 +433,48 @@ public final class RouteList extends WrapperList<Route> {
         }
     }
 
+    @Override
+    public boolean removeAll(Collection<?> routes) {
+        try {
+            return super.removeAll(routes);
+        } finally {
+            this.modCount.incrementAndGet();
+        }
+    }
+
+    @Override
+    public boolean retainAll(Collection<?> routes) {
+        try {
+            return super.retainAll(routes);
+        } finally {
+            this.modCount.incrementAndGet();
+        }
+    }
+
+    @Override
+    public Route set(int index, Route route) {
+        try {
+            return super.set(index, route);
+        } finally {
+            this.modCount.incrementAndGet();
+        }
+    }
+
+    /**
+     * Indicates if the templates of the routes should be compiled into an
+     * index, used by the best, first and last match modes. Note that the index
+     * is compiled again after each structural change to this list, but that
+     * the routes and their {@link Template} should not be changed once the
+     * routing has started, as the changes might not be taken into account.
+     * 
+     * @param indexed
+     *            True if the templates of the routes should be compiled into
+     *            an index.
+     */
+    public void setIndexed(boolean indexed) {
+        this.indexed = indexed;
+    }
+
     /**
      * Returns a view of the portion of this list between the specified
      * fromIndex, inclusive, and toIndex, exclusive.
@@ -252,6 +487,9 @@ public final class RouteList extends WrapperList<Route> {
      */
     @Override
     public RouteList subList(int fromIndex, int toIndex) {
-        return new RouteList(getDelegate().subList(fromIndex, toIndex));
+        RouteList result = new RouteList(getDelegate().subList(fromIndex,
+                toIndex));
+        result.setIndexed(isIndexed());
+        return result;
     }
 }
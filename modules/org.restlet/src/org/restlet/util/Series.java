@@ -31,21 +31,30 @@
 package org.restlet.util;
 
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.ListIterator;
 import java.util.Map;
+import java.util.RandomAccess;
 import java.util.Set;
 import java.util.logging.Level;
 
 import org.restlet.Context;
+import org.restlet.data.Cookie;
+import org.restlet.data.CookieSetting;
+import org.restlet.data.Parameter;
+import org.restlet.engine.header.Header;
 
 /**
  * Modifiable list of entries with many helper methods. Note that this class
  * uses the Parameter class as the template type. This allows you to use an
  * instance of this class as any other java.util.List, in particular all the
- * helper methods in java.util.Collections.
+ * helper methods in java.util.Collections.<br>
+ * <br>
+ * Large series can also be indexed by name, see {@link #setIndexed(boolean)}.
  * 
  * @author Jerome Louvel
  * @param <T>
@@ -66,6 +75,156 @@ public class Series<T extends NamedValue<String>> extends WrapperList<T> {
 	 */
 	public static final Object EMPTY_VALUE = new Object();
 
+	/**
+	 * Index of the entry positions by case insensitive name hash, valid for a
+	 * given series size. The entries sharing a hash bucket are chained in
+	 * ascending order, so callers must still compare the names.
+	 */
+	private static final class NameIndex {
+
+		/**
+		 * Returns the case insensitive hash code of a name, computed without
+		 * creating a lower case copy.
+		 * 
+		 * @param name
+		 *            The name to hash.
+		 * @return The case insensitive hash code.
+		 */
+		private static int hash(String name) {
+			int result = 0;
+
+			for (int i = 0; i < name.length(); i++) {
+				result = 31
+						* result
+						+ Character.toLowerCase(Character.toUpperCase(name
+								.charAt(i)));
+			}
+
+			return result;
+		}
+
+		/** The first position plus one of each bucket, zero when empty. */
+		private final int[] heads;
+
+		/** The next position plus one in the same bucket, zero at the end. */
+		private final int[] next;
+
+		/** The size of the series when indexed. */
+		private final int size;
+
+		/**
+		 * Constructor.
+		 * 
+		 * @param series
+		 *            The series to index.
+		 */
+		private NameIndex(Series<?> series) {
+			int capacity = 1;
+			this.size = series.size();
+
+			while (capacity < (2 * this.size)) {
+				capacity <<= 1;
+			}
+
+			this.heads = new int[capacity];
+			this.next = new int[this.size];
+
+			for (int i = this.size - 1; i >= 0; i--) {
+				String name = series.get(i).getName();
+
+				if (name != null) {
+					int bucket = hash(name) & (capacity - 1);
+					this.next[i] = this.heads[bucket];
+					this.heads[bucket] = i + 1;
+				}
+			}
+		}
+
+		/**
+		 * Returns the first position whose name may match the given one.
+		 * 
+		 * @param name
+		 *            The name to look up.
+		 * @return The first candidate position or -1.
+		 */
+		private int first(String name) {
+			return this.heads[hash(name) & (this.heads.length - 1)] - 1;
+		}
+
+		/**
+		 * Returns the next position whose name may match the same name.
+		 * 
+		 * @param position
+		 *            The current candidate position.
+		 * @return The next candidate position or -1.
+		 */
+		private int next(int position) {
+			return this.next[position] - 1;
+		}
+	}
+
+	/**
+	 * List iterator discarding the name index when the series is modified
+	 * through it.
+	 */
+	private final class IndexedIterator implements ListIterator<T> {
+
+		/** The wrapped iterator. */
+		private final ListIterator<T> delegate;
+
+		/**
+		 * Constructor.
+		 * 
+		 * @param delegate
+		 *            The wrapped iterator.
+		 */
+		private IndexedIterator(ListIterator<T> delegate) {
+			this.delegate = delegate;
+		}
+
+		public void add(T element) {
+			invalidate();
+			this.delegate.add(element);
+		}
+
+		public boolean hasNext() {
+			return this.delegate.hasNext();
+		}
+
+		public boolean hasPrevious() {
+			return this.delegate.hasPrevious();
+		}
+
+		public T next() {
+			return this.delegate.next();
+		}
+
+		public int nextIndex() {
+			return this.delegate.nextIndex();
+		}
+
+		public T previous() {
+			return this.delegate.previous();
+		}
+
+		public int previousIndex() {
+			return this.delegate.previousIndex();
+		}
+
+		public void remove() {
+			invalidate();
+			this.delegate.remove();
+		}
+
+		public void set(T element) {
+			invalidate();
+			this.delegate.set(element);
+		}
+	}
+
+	/** Minimum size of an indexed series for its name index to be used. */
+	private static final int INDEX_THRESHOLD = 16;
+
 	// [ifndef gwt] method
 	/**
 	 * Returns an unmodifiable view of the specified series. Attempts to call a
@@ -82,9 +241,19 @@ public class Series<T extends NamedValue<String>> extends WrapperList<T> {
 				java.util.Collections.unmodifiableList(series.getDelegate()));
 	}
 
+	// [ifndef gwt] member
+	/** The constructor of custom entry classes, resolved on first use. */
+	private volatile java.lang.reflect.Constructor<T> entryConstructor;
+
 	/** The entry class. */
 	private final Class<T> entryClass;
 
+	/** The name index, built on first lookup. */
+	private volatile NameIndex index;
+
+	/** Indicates if lookups by name should use an index. */
+	private volatile boolean indexed;
+
 	/**
 	 * Constructor.
 	 */
@@ -128,6 +297,72 @@ public class Series<T extends NamedValue<String>> extends WrapperList<T> {
 		return add(createEntry(name, value));
 	}
 
+	/**
+	 * Adds an entry at the end of the series and discards the name index.
+	 * 
+	 * @param element
+	 *            The entry to add.
+	 * @return True (as per the general contract of the Collection.add method).
+	 */
+	@Override
+	public boolean add(T element) {
+		invalidate();
+		return super.add(element);
+	}
+
+	/**
+	 * Inserts an entry at the specified position and discards the name index.
+	 * 
+	 * @param index
+	 *            The insertion position.
+	 * @param element
+	 *            The entry to insert.
+	 */
+	@Override
+	public void add(int index, T element) {
+		invalidate();
+		super.add(index, element);
+	}
+
+	/**
+	 * Appends the given entries to the end of the series and discards the
+	 * name index.
+	 * 
+	 * @param elements
+	 *            The entries to append.
+	 * @return True if the series changed.
+	 */
+	@Override
+	public boolean addAll(Collection<? extends T> elements) {
+		invalidate();
+		return super.addAll(elements);
+	}
+
+	/**
+	 * Inserts the given entries at the specified position and discards the
+	 * name index.
+	 * 
+	 * @param index
+	 *            The insertion position.
+	 * @param elements
+	 *            The entries to insert.
+	 * @return True if the series changed.
+	 */
+	@Override
+	public boolean addAll(int index, Collection<? extends T> elements) {
+		invalidate();
+		return super.addAll(index, elements);
+	}
+
+	/**
+	 * Removes all the entries and discards the name index.
+	 */
+	@Override
+	public void clear() {
+		invalidate();
+		super.clear();
+	}
+
 	/**
 	 * Copies the parameters whose name is a key in the given map.<br>
 	 * If a matching parameter is found, its value is put in the map.<br>
@@ -179,7 +414,9 @@ public class Series<T extends NamedValue<String>> extends WrapperList<T> {
 
 	// [ifndef gwt] method
 	/**
-	 * Creates a new entry.
+	 * Creates a new entry. The core entry classes are directly instantiated,
+	 * other classes need a public constructor with the name and value
+	 * parameters, resolved once by reflection.
 	 * 
 	 * @param name
 	 *            The name of the entry.
@@ -187,10 +424,28 @@ public class Series<T extends NamedValue<String>> extends WrapperList<T> {
 	 *            The value of the entry.
 	 * @return A new entry.
 	 */
+	@SuppressWarnings("unchecked")
 	public T createEntry(String name, String value) {
+		if (this.entryClass == Header.class) {
+			return (T) new Header(name, value);
+		} else if (this.entryClass == Parameter.class) {
+			return (T) new Parameter(name, value);
+		} else if (this.entryClass == Cookie.class) {
+			return (T) new Cookie(name, value);
+		} else if (this.entryClass == CookieSetting.class) {
+			return (T) new CookieSetting(name, value);
+		}
+
 		try {
-			return this.entryClass.getConstructor(String.class, String.class)
-					.newInstance(name, value);
+			java.lang.reflect.Constructor<T> constructor = this.entryConstructor;
+
+			if (constructor == null) {
+				constructor = this.entryClass.getConstructor(String.class,
+						String.class);
+				this.entryConstructor = constructor;
+			}
+
+			return constructor.newInstance(name, value);
 		} catch (Exception e) {
 			Context.getCurrentLogger().log(Level.WARNING,
 					"Unable to create a series entry", e);
@@ -285,6 +540,32 @@ public class Series<T extends NamedValue<String>> extends WrapperList<T> {
 	 * @return The first parameter found with the given name.
 	 */
 	public T getFirst(String name, boolean ignoreCase) {
+		NameIndex current = getIndex(name);
+
+		if (current != null) {
+			for (int i = current.first(name); i != -1; i = current.next(i)) {
+				T param = get(i);
+
+				if (equals(param.getName(), name, ignoreCase)) {
+					return param;
+				}
+			}
+
+			return null;
+		}
+
+		if (isRandomAccess()) {
+			for (int i = 0; i < size(); i++) {
+				T param = get(i);
+
+				if (equals(param.getName(), name, ignoreCase)) {
+					return param;
+				}
+			}
+
+			return null;
+		}
+
 		for (T param : this) {
 			if (equals(param.getName(), name, ignoreCase)) {
 				return param;
@@ -373,6 +654,29 @@ public class Series<T extends NamedValue<String>> extends WrapperList<T> {
 		return result;
 	}
 
+	/**
+	 * Returns the name index to use for looking up the given name. The index
+	 * is built or rebuilt if necessary.
+	 * 
+	 * @param name
+	 *            The name to look up.
+	 * @return The name index or null if it isn't used.
+	 */
+	private NameIndex getIndex(String name) {
+		if (!this.indexed || (name == null) || (size() < INDEX_THRESHOLD)) {
+			return null;
+		}
+
+		NameIndex result = this.index;
+
+		if ((result == null) || (result.size != size())) {
+			result = new NameIndex(this);
+			this.index = result;
+		}
+
+		return result;
+	}
+
 	/**
 	 * Returns the values of the parameters with a given name. If multiple
 	 * parameters with the same name are found, all values are concatenated and
@@ -402,8 +706,14 @@ public class Series<T extends NamedValue<String>> extends WrapperList<T> {
 	public String getValues(String name, String separator, boolean ignoreCase) {
 		String result = null;
 		StringBuilder sb = null;
+		NameIndex current = getIndex(name);
+		List<T> params = ((current != null) || isRandomAccess()) ? this
+				: new ArrayList<T>(this);
+		int i = (current == null) ? 0 : current.first(name);
+
+		while ((current == null) ? (i < params.size()) : (i != -1)) {
+			T param = params.get(i);
 
-		for (final T param : this) {
 			if ((ignoreCase && param.getName().equalsIgnoreCase(name))
 					|| param.getName().equals(name)) {
 				if (sb == null) {
@@ -418,6 +728,8 @@ public class Series<T extends NamedValue<String>> extends WrapperList<T> {
 					sb.append(separator).append(param.getValue());
 				}
 			}
+
+			i = (current == null) ? (i + 1) : current.next(i);
 		}
 
 		if (sb != null) {
@@ -519,6 +831,117 @@ public class Series<T extends NamedValue<String>> extends WrapperList<T> {
 		return result;
 	}
 
+	/**
+	 * Discards the name index after a modification.
+	 */
+	private void invalidate() {
+		if (this.index != null) {
+			this.index = null;
+		}
+	}
+
+	/**
+	 * Indicates if lookups by name use an index when the series is large. This
+	 * is useful for series with many entries, such as the headers of proxied
+	 * requests. Entries shouldn't be renamed, nor replaced through a sub list,
+	 * while the series is indexed.
+	 * 
+	 * @return True if lookups by name use an index.
+	 */
+	public boolean isIndexed() {
+		return indexed;
+	}
+
+	/**
+	 * Indicates if the entries can be efficiently accessed by position, in
+	 * which case lookups by name don't need to allocate an iterator.
+	 * 
+	 * @return True if the entries can be efficiently accessed by position.
+	 */
+	private boolean isRandomAccess() {
+		return getDelegate() instanceof RandomAccess;
+	}
+
+	/**
+	 * Returns an iterator over the entries. When the series is indexed,
+	 * removing entries through the iterator discards the name index.
+	 * 
+	 * @return An iterator over the entries.
+	 */
+	@Override
+	public Iterator<T> iterator() {
+		return this.indexed ? new IndexedIterator(super.listIterator())
+				: super.iterator();
+	}
+
+	/**
+	 * Returns a list iterator over the entries. When the series is indexed,
+	 * modifying the series through the iterator discards the name index.
+	 * 
+	 * @return A list iterator over the entries.
+	 */
+	@Override
+	public ListIterator<T> listIterator() {
+		return listIterator(0);
+	}
+
+	/**
+	 * Returns a list iterator over the entries, starting at the specified
+	 * position. When the series is indexed, modifying the series through the
+	 * iterator discards the name index.
+	 * 
+	 * @param index
+	 *            The starting position.
+	 * @return A list iterator over the entries.
+	 */
+	@Override
+	public ListIterator<T> listIterator(int index) {
+		return this.indexed ? new IndexedIterator(super.listIterator(index))
+				: super.listIterator(index);
+	}
+
+	/**
+	 * Removes the entry at the specified position and discards the name
+	 * index.
+	 * 
+	 * @param index
+	 *            The position of the entry to remove.
+	 * @return The removed entry.
+	 */
+	@Override
+	public T remove(int index) {
+		invalidate();
+		return super.remove(index);
+	}
+
+	/**
+	 * Removes the first occurrence of the given entry and discards the name
+	 * index.
+	 * 
+	 * @param element
+	 *            The entry to remove.
+	 * @return True if the series changed.
+	 */
+	@Override
+	public boolean remove(Object element) {
+		invalidate();
+		return super.remove(element);
+	}
+
+	/**
+	 * Removes the entries contained in the given collection and discards the
+	 * name index.
+	 * 
+	 * @param elements
+	 *            The entries to remove.
+	 * @return True if the series changed.
+	 */
+	@Override
+	public boolean removeAll(Collection<?> elements) {
+		invalidate();
+		return super.removeAll(elements);
+	}
+
 	/**
 	 * Removes all the parameters with a given name.
 	 * 
@@ -542,6 +965,7 @@ public class Series<T extends NamedValue<String>> extends WrapperList<T> {
 	public boolean removeAll(String name, boolean ignoreCase) {
 		boolean changed = false;
 		NamedValue<String> param = null;
+		invalidate();
 
 		for (Iterator<T> iter = iterator(); iter.hasNext();) {
 			param = iter.next();
@@ -580,6 +1004,7 @@ public class Series<T extends NamedValue<String>> extends WrapperList<T> {
 	public boolean removeFirst(String name, boolean ignoreCase) {
 		boolean changed = false;
 		NamedValue<String> param = null;
+		invalidate();
 
 		for (final Iterator<T> iter = iterator(); iter.hasNext() && !changed;) {
 			param = iter.next();
@@ -592,6 +1017,36 @@ public class Series<T extends NamedValue<String>> extends WrapperList<T> {
 		return changed;
 	}
 
+	/**
+	 * Retains only the entries contained in the given collection and discards
+	 * the name index.
+	 * 
+	 * @param elements
+	 *            The entries to retain.
+	 * @return True if the series changed.
+	 */
+	@Override
+	public boolean retainAll(Collection<?> elements) {
+		invalidate();
+		return super.retainAll(elements);
+	}
+
+	/**
+	 * Replaces the entry at the specified position and discards the name
+	 * index.
+	 * 
+	 * @param index
+	 *            The position of the entry to replace.
+	 * @param element
+	 *            The new entry.
+	 * @return The replaced entry.
+	 */
+	@Override
+	public T set(int index, T element) {
+		invalidate();
+		return super.set(index, element);
+	}
+
 	/**
 	 * Replaces the value of the first parameter with the given name and removes
 	 * all other parameters with the same name. The name matching is case
@@ -623,6 +1078,7 @@ public class Series<T extends NamedValue<String>> extends WrapperList<T> {
 		T result = null;
 		T param = null;
 		boolean found = false;
+		invalidate();
 
 		for (final Iterator<T> iter = iterator(); iter.hasNext();) {
 			param = iter.next();
@@ -647,6 +1103,19 @@ public class Series<T extends NamedValue<String>> extends WrapperList<T> {
 		return result;
 	}
 
+	/**
+	 * Indicates if lookups by name should use an index when the series is
+	 * large. The index is built on the first lookup and discarded when the
+	 * series is modified through its methods.
+	 * 
+	 * @param indexed
+	 *            True if lookups by name should use an index.
+	 */
+	public void setIndexed(boolean indexed) {
+		this.indexed = indexed;
+		invalidate();
+	}
+
 	/**
 	 * Returns a view of the portion of this list between the specified
 	 * fromIndex, inclusive, and toIndex, exclusive.
@@ -693,6 +1162,31 @@ public class Series<T extends NamedValue<String>> extends WrapperList<T> {
 		Series<T> result = new Series<T>(this.entryClass);
 		// [ifdef gwt] instruction uncomment
 		// Series<T> result = createSeries(null);
+		NameIndex current = getIndex(name);
+
+		if (current != null) {
+			for (int i = current.first(name); i != -1; i = current.next(i)) {
+				T param = get(i);
+
+				if (equals(param.getName(), name, ignoreCase)) {
+					result.add(param);
+				}
+			}
+
+			return result;
+		}
+
+		if (isRandomAccess()) {
+			for (int i = 0; i < size(); i++) {
+				T param = get(i);
+
+				if (equals(param.getName(), name, ignoreCase)) {
+					result.add(param);
+				}
+			}
+
+			return result;
+		}
 
 		for (T param : this) {
 			if (equals(param.getName(), name, ignoreCase)) {